@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead of timing a call, with the same steps as {@link DefaultApi} and {@link WebRequest} take around a
+ * request. In this package, since the steps are not public.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ApiMetricsBenchmark {
+
+    private HistogramApiMetrics histograms;
+    private ApiCall recorded;
+
+    @Setup
+    public void setUp() {
+        histograms = new HistogramApiMetrics();
+        ApiCall.begin(1, true);
+        recorded = ApiCall.current();
+        recorded.request("GET", "/api/v3/ticker/price");
+        recorded.response(200, 42);
+        recorded.responseRead();
+        ApiCall.end(ApiMetrics.NOOP);
+    }
+
+    private static void call(ApiMetrics metrics) {
+        // no waits for a connection or the rate limiter
+        ApiCall.begin(1, metrics != ApiMetrics.NOOP);
+        ApiCall call = ApiCall.current();
+        if (call != null) {
+            call.request("GET", "/api/v3/ticker/price");
+            call.lap(ApiCall.Phase.PREPARE);
+            call.lap(ApiCall.Phase.CONNECT);
+            call.lap(ApiCall.Phase.FIRST_BYTE);
+            call.response(200, 42);
+            call.responseRead();
+        }
+        ApiCall.end(metrics);
+    }
+
+    @Benchmark
+    public void noop() {
+        call(ApiMetrics.NOOP);
+    }
+
+    @Benchmark
+    public void histograms() {
+        call(histograms);
+    }
+
+    /** Only the recording, without reading the clock. */
+    @Benchmark
+    public void histogramsRecord() {
+        histograms.record(recorded);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.benchmarks;
+
+import com.webcerebrium.binance.datatype.events.DepthLevelUpdateEvent;
+import com.webcerebrium.binance.websocket.ConflatingDepthLevelAdapter;
+import com.webcerebrium.binance.websocket.WebSocketDepthLevelAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of partial book depth frames consumed once: decoding every frame as it arrives, compared to keeping
+ * only the newest frame and decoding it on poll.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConflationBenchmark {
+
+    @Param({"1", "20"})
+    private int burst;
+
+    private String frame;
+    private WebSocketDepthLevelAdapter decoding;
+    private ConflatingDepthLevelAdapter conflating;
+    private DepthLevelUpdateEvent latest;
+
+    @Setup
+    public void setUp() {
+        frame = Payloads.load("depth20.json");
+        decoding = new WebSocketDepthLevelAdapter() {
+            @Override
+            public void onMessage(DepthLevelUpdateEvent event) {
+                latest = event;
+            }
+        };
+        conflating = new ConflatingDepthLevelAdapter();
+    }
+
+    @Benchmark
+    public void decodeEach(Blackhole blackhole) {
+        for (int i = 0; i < burst; i++) {
+            decoding.onWebSocketText(frame);
+        }
+        blackhole.consume(latest);
+    }
+
+    @Benchmark
+    public DepthLevelUpdateEvent conflate() {
+        for (int i = 0; i < burst; i++) {
+            conflating.onWebSocketText(frame);
+        }
+        return conflating.poll();
+    }
+}
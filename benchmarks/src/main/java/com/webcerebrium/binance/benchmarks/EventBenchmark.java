@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.webcerebrium.binance.datatype.events.CandlestickEvent;
+import com.webcerebrium.binance.datatype.events.DepthUpdateEvent;
+import com.webcerebrium.binance.datatype.events.ExecutionReportEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of websocket events. The {@code decode} benchmarks start from the frame text, as a websocket
+ * adapter does, the {@code construct} benchmarks from the parsed json.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventBenchmark {
+
+    private String depthUpdate;
+    private String kline;
+    private String executionReport;
+    private JsonObject depthUpdateJson;
+    private JsonObject klineJson;
+    private JsonObject executionReportJson;
+
+    @Setup
+    public void setUp() {
+        depthUpdate = Payloads.load("depthUpdate.json");
+        kline = Payloads.load("kline.json");
+        executionReport = Payloads.load("executionReport.json");
+        depthUpdateJson = Payloads.parse(depthUpdate).getAsJsonObject();
+        klineJson = Payloads.parse(kline).getAsJsonObject();
+        executionReportJson = Payloads.parse(executionReport).getAsJsonObject();
+    }
+
+    @Benchmark
+    public DepthUpdateEvent decodeDepthUpdate() {
+        return new DepthUpdateEvent(Payloads.parse(depthUpdate).getAsJsonObject());
+    }
+
+    @Benchmark
+    public CandlestickEvent decodeCandlestick() {
+        return new CandlestickEvent(Payloads.parse(kline).getAsJsonObject());
+    }
+
+    @Benchmark
+    public ExecutionReportEvent decodeExecutionReport() {
+        return new ExecutionReportEvent(Payloads.parse(executionReport).getAsJsonObject());
+    }
+
+    @Benchmark
+    public DepthUpdateEvent constructDepthUpdate() {
+        return new DepthUpdateEvent(depthUpdateJson);
+    }
+
+    @Benchmark
+    public CandlestickEvent constructCandlestick() {
+        return new CandlestickEvent(klineJson);
+    }
+
+    @Benchmark
+    public ExecutionReportEvent constructExecutionReport() {
+        return new ExecutionReportEvent(executionReportJson);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.webcerebrium.binance.datatype.Account;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.ExchangeInfo;
+import com.webcerebrium.binance.datatype.Interval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of REST responses, from the response body to the datatype, as done by the api.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParsingBenchmark {
+
+    /** The number of symbols of the exchange info, about the number listed by the exchange. */
+    @Param("2000")
+    public int symbols;
+
+    private String klines;
+    private JsonArray kline;
+    private String account;
+    private String exchangeInfo;
+
+    @Setup
+    public void setUp() {
+        klines = Payloads.load("klines.json");
+        kline = Payloads.parse(klines).getAsJsonArray().get(0).getAsJsonArray();
+        account = Payloads.load("account.json");
+        exchangeInfo = Payloads.exchangeInfo(symbols);
+    }
+
+    @Benchmark
+    public Candlestick candlestickRead() {
+        return new Candlestick("BNBBTC", Interval.ONE_MIN).read(kline, Interval.ONE_MIN);
+    }
+
+    @Benchmark
+    public void klinePage(Blackhole bh) {
+        for (JsonElement row : Payloads.parse(klines).getAsJsonArray()) {
+            bh.consume(new Candlestick("BNBBTC", Interval.ONE_MIN).read(row.getAsJsonArray(), Interval.ONE_MIN));
+        }
+    }
+
+    @Benchmark
+    public Account accountRead() {
+        Account result = new Account();
+        result.read(Payloads.parse(account).getAsJsonObject());
+        return result;
+    }
+
+    @Benchmark
+    public ExchangeInfo exchangeInfo() {
+        JsonObject json = Payloads.parse(exchangeInfo).getAsJsonObject();
+        return new ExchangeInfo(json);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Access to the payloads under {@code /payloads}, in the wire format of the exchange: a kline page, an account,
+ * an exchange info and the depth, kline and execution report stream events.
+ */
+public final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * Loads a payload.
+     * @param name the file name, e.g. {@code klines.json}.
+     * @return the payload, as received from the exchange.
+     */
+    public static String load(String name) {
+        try (InputStream in = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No such payload: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads the exchange info, with its symbols repeated under new names up to the given count. The exchange lists
+     * about 2000 symbols, parsing the full payload is dominated by the symbols.
+     * @param symbolCount the number of symbols.
+     * @return the exchange info.
+     */
+    public static String exchangeInfo(int symbolCount) {
+        JsonObject info = JsonParser.parseString(load("exchangeInfo.json")).getAsJsonObject();
+        JsonArray captured = info.getAsJsonArray("symbols");
+        JsonArray symbols = new JsonArray();
+        for (int i = 0; i < symbolCount; i++) {
+            JsonObject symbol = captured.get(i % captured.size()).getAsJsonObject().deepCopy();
+            if (i >= captured.size()) {
+                String base = symbol.get("baseAsset").getAsString() + i;
+                symbol.addProperty("baseAsset", base);
+                symbol.addProperty("symbol", base + symbol.get("quoteAsset").getAsString());
+            }
+            symbols.add(symbol);
+        }
+        info.add("symbols", symbols);
+        return info.toString();
+    }
+
+    static JsonElement parse(String json) {
+        return JsonParser.parseString(json);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.benchmarks;
+
+import com.webcerebrium.binance.api.ServerClock;
+import com.webcerebrium.binance.api.WebRequest;
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import com.webcerebrium.binance.datatype.OrderSide;
+import com.webcerebrium.binance.datatype.OrderType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request preparation: the HMAC signature, the signing of a request and the query of an order placement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SigningBenchmark {
+
+    private static final String API_KEY = "vmPUZE6mv9SD5VNHk4HlWFsOr6aKE2zvsw0MuIgwCIPy6utIco14y7Ju91duEh8A";
+    private static final String SECRET_KEY = "NhqPtmdSJYdKjVHjA7PZj4Mge3R5YNiP1e3UZjInClVN65XAbvqqM6A7H5fATj0j";
+    private static final String URL = "https://api.binance.com/api/v3/order";
+
+    private ServerClock clock;
+    private OrderPlacement placement;
+    /** The query of the order, as sent by {@code createOrder} before signing. */
+    private String orderQuery;
+    /** The signed payload, with the receive window and timestamp appended by signing. */
+    private String query;
+
+    @Setup
+    public void setUp() {
+        clock = new ServerClock(0L);
+        placement = new OrderPlacement("BNBBTC", OrderSide.BUY);
+        placement.setType(OrderType.LIMIT);
+        placement.setQuantity(1.0);
+        placement.setPrice(0.0133);
+        placement.setNewClientOrderId("mUvoqJxFIILMdfAW5iGSOW");
+        orderQuery = placement.getAsQuery();
+        query = orderQuery + "&recvWindow=5000&timestamp=1665000000000";
+    }
+
+    @Benchmark
+    public String encode() throws Exception {
+        return WebRequest.encode(SECRET_KEY, query);
+    }
+
+    @Benchmark
+    public WebRequest sign() {
+        return new WebRequest(clock, URL + "?" + orderQuery).sign(API_KEY, SECRET_KEY, null);
+    }
+
+    @Benchmark
+    public String orderQuery() {
+        return placement.getAsQuery();
+    }
+}
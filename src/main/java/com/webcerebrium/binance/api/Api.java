@@ -443,6 +443,37 @@ public interface Api {
         return deleteOrderById(order.getSymbol(), order.getOrderId());
     }
 
+    /**
+     * Places a batch of orders. Failed orders do not affect the other orders of the batch.
+     * @param placements the orders to place, not null.
+     * @return the per-order results, in the order of the placements.
+     * @throws ApiException in case of any error
+     */
+    default List<OrderResult> createOrders(List<OrderPlacement> placements) throws ApiException {
+        return createOrders(placements, false);
+    }
+
+    /**
+     * Places a batch of orders.
+     * @param placements the orders to place, not null.
+     * @param allOrNothing if true, all placed orders are canceled again if any order of the batch fails.
+     * @return the per-order results, in the order of the placements.
+     * @throws ApiException in case of any error
+     */
+    default List<OrderResult> createOrders(List<OrderPlacement> placements, boolean allOrNothing) throws ApiException {
+        return OrderBatch.createOrders(this, Runnable::run, placements, allOrNothing);
+    }
+
+    /**
+     * Cancels a batch of orders.
+     * @param orders the orders to cancel, not null.
+     * @return the per-order results, in the order of the given orders.
+     * @throws ApiException in case of any error
+     */
+    default List<OrderResult> cancelOrders(List<OrderRef> orders) throws ApiException {
+        return OrderBatch.cancelOrders(this, Runnable::run, orders);
+    }
+
     // - - - - - - - - - - - - - - - - - - - - - - - -
     // USER DATA STREAM
     // - - - - - - - - - - - - - - - - - - - - - - - -
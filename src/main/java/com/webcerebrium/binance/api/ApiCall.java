@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.jfr.ApiCallEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The timings of a REST call, passed to {@link ApiMetrics}. A call is split into phases, measured one after
+ * the other: waiting for a free connection, waiting for the rate limiter, preparing and signing the request,
+ * connecting (including the TLS handshake, zero if a kept-alive connection is reused), the time to the first
+ * byte of the response, reading the response body and finally parsing it into the result.
+ * <p>
+ * Instances are reused per thread, so an {@link ApiMetrics} must not keep a reference to them. Calls are also
+ * committed as {@link ApiCallEvent}, while the event is enabled in a flight recording.
+ */
+@Slf4j
+public final class ApiCall {
+
+    public enum Phase {
+        QUEUE_WAIT,
+        RATE_LIMIT_WAIT,
+        PREPARE,
+        CONNECT,
+        FIRST_BYTE,
+        READ,
+        PARSE,
+        /** The whole call, from requesting a connection until the result is parsed. */
+        TOTAL
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadLocal<ApiCall> CURRENT = ThreadLocal.withInitial(ApiCall::new);
+
+    private final long[] nanos = new long[PHASES.length];
+    /** Nesting depth, calls made while another call is running on the same thread are not recorded. */
+    private int depth;
+    private boolean timed;
+    private ApiCallEvent event;
+    private long start;
+    private long mark;
+    private boolean responseRead;
+    private String method;
+    private String path;
+    private int status;
+    private int weight;
+    private int usedWeight = -1;
+
+    private ApiCall() {
+    }
+
+    /**
+     * Starts a call on the current thread, must be followed by {@link #end(ApiMetrics)}.
+     * @param weight the request weight charged by the client.
+     * @param timed if the call is timed, calls are also timed while the {@link ApiCallEvent} is enabled.
+     * @return the call, or null if it is not timed or another call is running on this thread.
+     */
+    static ApiCall begin(int weight, boolean timed) {
+        ApiCall call = CURRENT.get();
+        if (call.depth++ > 0) {
+            return null;
+        }
+        call.event = ApiCallEvent.isTypeEnabled() ? new ApiCallEvent() : null;
+        call.timed = timed || call.event != null;
+        if (!call.timed) {
+            return null;
+        }
+        for (int i = 0; i < call.nanos.length; i++) {
+            call.nanos[i] = 0;
+        }
+        call.responseRead = false;
+        call.method = null;
+        call.path = null;
+        call.status = 0;
+        call.usedWeight = -1;
+        call.weight = weight;
+        if (call.event != null) {
+            call.event.begin();
+        }
+        call.start = call.mark = System.nanoTime();
+        return call;
+    }
+
+    /**
+     * Get the call running on the current thread.
+     * @return the call, or null.
+     */
+    static ApiCall current() {
+        ApiCall call = CURRENT.get();
+        return call.depth == 1 && call.timed ? call : null;
+    }
+
+    /**
+     * Ends the call on the current thread and records it, if it is timed.
+     * @param metrics the metrics.
+     */
+    static void end(ApiMetrics metrics) {
+        ApiCall call = CURRENT.get();
+        if (call.depth == 0 || --call.depth > 0 || !call.timed) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (call.responseRead) {
+            call.nanos[Phase.PARSE.ordinal()] = now - call.mark;
+        }
+        call.nanos[Phase.TOTAL.ordinal()] = now - call.start;
+        if (call.event != null) {
+            call.event.commit(call);
+            call.event = null;
+        }
+        try {
+            metrics.record(call);
+        } catch (RuntimeException e) {
+            log.debug("Failed to record api call {}: {}", call.getEndpoint(), e.toString());
+        }
+    }
+
+    /**
+     * Assigns the time since the previous phase to the given phase.
+     * @param phase the phase, which just ended.
+     */
+    void lap(Phase phase) {
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] = now - mark;
+        mark = now;
+    }
+
+    void request(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    void response(int status, int usedWeight) {
+        this.status = status;
+        this.usedWeight = usedWeight;
+    }
+
+    void responseRead() {
+        lap(Phase.READ);
+        responseRead = true;
+    }
+
+    /**
+     * Get the duration of a phase.
+     * @param phase the phase.
+     * @return the duration in nanoseconds, zero if the phase was not reached.
+     */
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    /** @return the HTTP method, null if no request was sent. */
+    public String getMethod() {
+        return method;
+    }
+
+    /** @return the path of the url, e.g. {@code /api/v3/order}, null if no request was sent. */
+    public String getPath() {
+        return path;
+    }
+
+    /** @return the method and path, e.g. {@code GET /api/v3/order}. */
+    public String getEndpoint() {
+        return method + " " + path;
+    }
+
+    /** @return the HTTP status, zero if no response was received. */
+    public int getStatus() {
+        return status;
+    }
+
+    /** @return true, if no response or an error response was received. */
+    public boolean isError() {
+        return status == 0 || status >= 400;
+    }
+
+    /** @return the request weight charged by the client side rate limiter. */
+    public int getWeight() {
+        return weight;
+    }
+
+    /** @return the weight used in the current minute as reported by the exchange, -1 if not reported. */
+    public int getUsedWeight() {
+        return usedWeight;
+    }
+
+    static Phase[] phases() {
+        return PHASES;
+    }
+}
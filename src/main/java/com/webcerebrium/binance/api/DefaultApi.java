@@ -34,7 +34,13 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import com.webcerebrium.binance.datatype.*;
+import com.webcerebrium.binance.websocket.MeteredWebSocketAdapter;
+import com.webcerebrium.binance.websocket.RecordingWebSocketListener;
+import com.webcerebrium.binance.websocket.StreamJournal;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.websocket.api.Session;
@@ -46,18 +52,23 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Data
-public class DefaultApi implements Api {
+public class DefaultApi implements Api, AutoCloseable {
 
     /* Actual API key and Secret Key that will be used */
     public String apiKey;
     public String secretKey;
     public Integer connectionTimeoutSeconds;
     private RateLimiter limiter = new RateLimiter(1200, TimeUnit.MINUTES, 1);
+    /** The ORDERS limit, counting placed orders per 10 seconds. */
+    private RateLimiter orderLimiter = new RateLimiter(50, TimeUnit.SECONDS, 10);
+
 
     /**
      * API Base URL
@@ -88,6 +99,22 @@ public class DefaultApi implements Api {
      * Base URL for websockets
      */
     public String websocketBaseUrl = "wss://stream.binance.com:9443/ws/";
+    /**
+     * URL of the websocket trading API.
+     */
+    public String websocketApiUrl = "wss://ws-api.binance.com:443/ws-api/v3";
+
+    /**
+     * The transport used for placing, canceling and querying orders.
+     */
+    private OrderTransport orderTransport = OrderTransport.REST;
+    /** Round trip statistics of order requests sent over REST. */
+    private final LatencyStats restOrderLatency = new LatencyStats("REST");
+    /** Round trip statistics of order requests sent over the websocket API. */
+    private final LatencyStats websocketOrderLatency = new LatencyStats("WEBSOCKET");
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private WebSocketTradingClient tradingClient;
 
     /**
      * Guava Class Instance for escaping
@@ -95,8 +122,19 @@ public class DefaultApi implements Api {
     private Escaper esc = UrlEscapers.urlFormParameterEscaper();
 
     private Semaphore maxConnections = new Semaphore(10);
+    /** Pool used to pipeline batch requests, sized to the connection limit. Idle threads time out. */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final ThreadPoolExecutor batchExecutor = newBatchExecutor(10);
+    /** Receives the timings of all REST calls, nothing is timed by default. */
+    private ApiMetrics metrics = ApiMetrics.NOOP;
 
-    private long serverTimeOffset;
+    /** Estimates the server time, used for signing requests. */
+    private final ServerClock clock = new ServerClock(this);
+    /** Period of the background clock sync started by {@link #initialize()}, disabled if not positive. */
+    private long clockSyncPeriodMillis = TimeUnit.MINUTES.toMillis(1);
+    /** Optional journal recording the frames of all websocket streams opened afterwards. */
+    private StreamJournal streamJournal;
 
     /**
      * Constructor of API when you exactly know the keys
@@ -140,11 +178,100 @@ public class DefaultApi implements Api {
     @Override
     public void initialize() {
         try{
-            Long serverTime = getServerTime();
-            serverTimeOffset = serverTime -System.currentTimeMillis();
+            clock.sync();
         }catch(Exception e){
             log.warn("Initialization failed: cannot access server time.", e);
         }
+        if(clockSyncPeriodMillis > 0){
+            clock.start(clockSyncPeriodMillis);
+        }
+    }
+
+    /**
+     * Stops the background clock sync started by {@link #initialize()}, closes the websocket trading
+     * connection and shuts down the batch pool. The sync task would otherwise keep this instance reachable.
+     */
+    @Override
+    public void close() {
+        clock.stop();
+        closeTradingClient();
+        batchExecutor.shutdown();
+    }
+
+    /**
+     * Get the current offset of the server clock.
+     * @return the offset in milliseconds.
+     */
+    public long getServerTimeOffset() {
+        return clock.getOffset();
+    }
+
+    /**
+     * Sets a fixed offset of the server clock, until the next sync.
+     * @param serverTimeOffset the offset in milliseconds.
+     */
+    public void setServerTimeOffset(long serverTimeOffset) {
+        clock.setOffset(serverTimeOffset);
+    }
+
+    /**
+     * Sets the connection limit, the permits available now are the number of concurrent requests. Batch
+     * requests use as many threads.
+     * @param maxConnections the semaphore, not null.
+     */
+    public void setMaxConnections(Semaphore maxConnections) {
+        this.maxConnections = Objects.requireNonNull(maxConnections);
+        int size = Math.max(1, maxConnections.availablePermits());
+        if (size > batchExecutor.getMaximumPoolSize()) {
+            batchExecutor.setMaximumPoolSize(size);
+            batchExecutor.setCorePoolSize(size);
+        } else {
+            batchExecutor.setCorePoolSize(size);
+            batchExecutor.setMaximumPoolSize(size);
+        }
+    }
+
+    private static ThreadPoolExecutor newBatchExecutor(int size) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "DefaultApi-batch");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Acquires a connection and the request weight, timing both waits if metrics or the flight recorder event
+     * are enabled. The clock is only read if there is a wait at all.
+     * @param weight the request weight.
+     */
+    private void acquire(int weight) throws InterruptedException {
+        ApiCall call = ApiCall.begin(weight, metrics != ApiMetrics.NOOP);
+        if (call == null) {
+            maxConnections.acquire();
+            limiter.acquire(weight);
+            return;
+        }
+        if (!maxConnections.tryAcquire()) {
+            maxConnections.acquire();
+            call.lap(ApiCall.Phase.QUEUE_WAIT);
+        }
+        if (!limiter.tryAcquire(weight)) {
+            limiter.acquire(weight);
+            call.lap(ApiCall.Phase.RATE_LIMIT_WAIT);
+        }
+    }
+
+    /**
+     * Releases the connection and the request weight, and records the call.
+     * @param weight the request weight.
+     */
+    private void release(int weight) {
+        maxConnections.release();
+        limiter.release(weight);
+        ApiCall.end(metrics);
     }
 
     /**
@@ -154,9 +281,8 @@ public class DefaultApi implements Api {
      */
     public boolean ping() {
         try {
-            maxConnections.acquire();
-            limiter.acquire();
-            new WebRequest(serverTimeOffset, baseUrl + "v1/ping")
+            acquire(1);
+            new WebRequest(clock, baseUrl + "v1/ping")
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonObject();
             return true;
@@ -164,8 +290,7 @@ public class DefaultApi implements Api {
             log.error("Error PING: ", e);
             return false;
         }finally{
-            maxConnections.release();
-            limiter.release();
+            release(1);
         }
     }
 
@@ -176,17 +301,15 @@ public class DefaultApi implements Api {
      */
     public Long getServerTime() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire();
-            return (new WebRequest(serverTimeOffset, baseUrl + "v1/time"))
+            acquire(1);
+            return (new WebRequest(clock, baseUrl + "v1/time"))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonObject().get("serverTime").getAsLong();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }
         finally{
-            maxConnections.release();
-            limiter.release();
+            release(1);
         }
     }
 
@@ -201,9 +324,8 @@ public class DefaultApi implements Api {
      */
     public NodeInfos getNodeInfo() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire();
-            JsonObject ob = new WebRequest(serverTimeOffset, baseUrl + "v1/node-info")
+            acquire(1);
+            JsonObject ob = new WebRequest(clock, baseUrl + "v1/node-info")
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonObject();
             JsonObject node_info = ob.get("node_info").getAsJsonObject();
@@ -218,8 +340,7 @@ public class DefaultApi implements Api {
             throw new ApiException(e.toString());
         }
         finally{
-            maxConnections.release();
-            limiter.release();
+            release(1);
         }
     }
 
@@ -230,9 +351,8 @@ public class DefaultApi implements Api {
      */
     public List<Peer> getPeers() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire();
-            JsonArray arr = new WebRequest(serverTimeOffset, baseUrl + "v1/peers")
+            acquire(1);
+            JsonArray arr = new WebRequest(clock, baseUrl + "v1/peers")
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonArray();
             List<Peer> peers = new ArrayList<>();
@@ -243,8 +363,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release();
+            release(1);
         }
     }
 
@@ -262,9 +381,8 @@ public class DefaultApi implements Api {
      */
     public Depth getDepth(String symbol) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire();
-            JsonObject ob = new WebRequest(serverTimeOffset, baseUrl + "v1/depth?symbol=" + Objects.requireNonNull(symbol))
+            acquire(1);
+            JsonObject ob = new WebRequest(clock, baseUrl + "v1/depth?symbol=" + Objects.requireNonNull(symbol))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonObject();
             JsonArray asks = ob.get("asks").getAsJsonArray();
@@ -276,8 +394,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release();
+            release(1);
         }
     }
 
@@ -294,9 +411,8 @@ public class DefaultApi implements Api {
         if(weight==0)
             weight = 1;
         try{
-            maxConnections.acquire();
-            limiter.acquire(weight);
-            JsonObject ob = new WebRequest(serverTimeOffset, baseUrl + "v1/depth?symbol=" + Objects.requireNonNull(symbol) + "&limit=" + limit)
+            acquire(weight);
+            JsonObject ob = new WebRequest(clock, baseUrl + "v1/depth?symbol=" + Objects.requireNonNull(symbol) + "&limit=" + limit)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonObject();
             JsonArray asks = ob.get("asks").getAsJsonArray();
@@ -308,8 +424,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(weight);
+            release(weight);
         }
     }
 
@@ -321,10 +436,9 @@ public class DefaultApi implements Api {
      */
     public JsonObject getOptionInfo() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String url = baseVapiUrl + "v1/optionInfo";
-            JsonObject obj = new WebRequest(serverTimeOffset, url).sign(apiKey, secretKey, null)
+            JsonObject obj = new WebRequest(clock, url).sign(apiKey, secretKey, null)
                     .read().asJsonObject();
             List<MarketPair> pairs = new ArrayList<>();
 //            arr.forEach(p -> {
@@ -334,8 +448,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(10);
+            release(10);
         }
     }
 
@@ -347,10 +460,9 @@ public class DefaultApi implements Api {
      */
     public JsonObject getSpotTickers() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String url = baseVapiUrl + "v1/ticker";
-            JsonObject obj = new WebRequest(serverTimeOffset, url).sign(apiKey, secretKey, null)
+            JsonObject obj = new WebRequest(clock, url).sign(apiKey, secretKey, null)
                     .read().asJsonObject();
             List<MarketPair> pairs = new ArrayList<>();
 //            arr.forEach(p -> {
@@ -360,8 +472,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(10);
+            release(10);
         }
     }
 
@@ -374,13 +485,12 @@ public class DefaultApi implements Api {
      */
     public JsonObject getMarkPrice(String symbol) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String url = baseVapiUrl + "v1/mark";
             if(symbol!=null){
                 url += "&symbol="+symbol;
             }
-            JsonObject obj = new WebRequest(serverTimeOffset, url).sign(apiKey, secretKey, null)
+            JsonObject obj = new WebRequest(clock, url).sign(apiKey, secretKey, null)
                     .read().asJsonObject();
             List<MarketPair> pairs = new ArrayList<>();
 //            arr.forEach(p -> {
@@ -390,8 +500,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(10);
+            release(10);
         }
     }
 
@@ -404,13 +513,12 @@ public class DefaultApi implements Api {
      */
     public List<MarketPair> getIsolatedPairs(Integer recvWindow) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(10);
+            acquire(10);
             String url = baseSapiUrl + "v1/margin/isolated/allPairs";
             if(recvWindow!=null){
                 url += "?recvWindow="+recvWindow;
             }
-            JsonArray arr = new WebRequest(serverTimeOffset, url).sign(apiKey, secretKey, null)
+            JsonArray arr = new WebRequest(clock, url).sign(apiKey, secretKey, null)
                     .read().asJsonArray();
             List<MarketPair> pairs = new ArrayList<>();
             arr.forEach(p -> {
@@ -420,8 +528,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(10);
+            release(10);
         }
     }
 
@@ -433,9 +540,8 @@ public class DefaultApi implements Api {
      */
     public List<MarketPair> getCrossMargingPairs() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            JsonArray arr = new WebRequest(serverTimeOffset,  baseSapiUrl + "v1/margin/allPairs" )
+            acquire(1);
+            JsonArray arr = new WebRequest(clock,  baseSapiUrl + "v1/margin/allPairs" )
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey, secretKey, null)
                     .read().asJsonArray();
@@ -447,8 +553,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -461,10 +566,9 @@ public class DefaultApi implements Api {
      */
     public List<HistoricalTrade> getHistoricalTrades(HistoricalTradesRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(5);
+            acquire(5);
             String u = baseUrl + "v3/historicalTrades" + request.toQueryString();
-            String lastResponse = new WebRequest(serverTimeOffset, u)
+            String lastResponse = new WebRequest(clock, u)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).read().getLastResponse();
             Type listType = new TypeToken<List<HistoricalTrade>>() {
             }.getType();
@@ -472,8 +576,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(5);
+            release(5);
         }
     }
 
@@ -490,10 +593,9 @@ public class DefaultApi implements Api {
      */
     public List<AggregatedTrades> getAggregatedTrades(AggregatedTradesRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String u = baseUrl + "v3/aggTrades" + request.toQueryString();
-            String lastResponse = new WebRequest(serverTimeOffset, u)
+            String lastResponse = new WebRequest(clock, u)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).read().getLastResponse();
             Type listType = new TypeToken<List<AggregatedTrades>>() {
             }.getType();
@@ -501,8 +603,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -515,19 +616,17 @@ public class DefaultApi implements Api {
      */
     public List<Candlestick> getCandlestickBars(CandlesticksRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire();
+            acquire(1);
             String u = baseUrl + "v3/klines" +request.toQueryString();
-            JsonArray jsonElements = new WebRequest(serverTimeOffset, u).connectionTimeoutSeconds(connectionTimeoutSeconds).read().asJsonArray();
-            List<Candlestick> list = new LinkedList<>();
+            JsonArray jsonElements = new WebRequest(clock, u).connectionTimeoutSeconds(connectionTimeoutSeconds).read().asJsonArray();
+            List<Candlestick> list = new ArrayList<>(jsonElements.size());
             for (JsonElement e : jsonElements) list.add(new Candlestick(request.getSymbol(), request.getInterval())
                     .read(e.getAsJsonArray(), request.getInterval()));
             return list;
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release();
+            release(1);
         }
     }
 
@@ -538,17 +637,15 @@ public class DefaultApi implements Api {
      */
     public ExchangeInfo getExchangeInfo() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(10);
-            JsonObject jsonObject = (new WebRequest(serverTimeOffset, baseUrl + "v3/exchangeInfo"))
+            acquire(10);
+            JsonObject jsonObject = (new WebRequest(clock, baseUrl + "v3/exchangeInfo"))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonObject();
             return new ExchangeInfo(jsonObject);
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(10);
+            release(10);
         }
     }
 
@@ -559,10 +656,9 @@ public class DefaultApi implements Api {
      */
     public List<Ticker24> get24HrPriceStatistics() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(40);
+            acquire(40);
             List<Ticker24> result = new ArrayList<>();
-            JsonArray data = new WebRequest(serverTimeOffset, baseUrl + "v1/ticker/24hr" )
+            JsonArray data = new WebRequest(clock, baseUrl + "v1/ticker/24hr" )
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonArray();
             data.forEach(d -> {
@@ -575,8 +671,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(40);
+            release(40);
         }
     }
 
@@ -588,19 +683,17 @@ public class DefaultApi implements Api {
      */
     public Ticker24 get24HrPriceStatistics(String symbol) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             Ticker24 ticker = new Ticker24();
             ticker.setSymbol(Objects.requireNonNull(symbol));
-            ticker.read (new WebRequest(serverTimeOffset, baseUrl + "v1/ticker/24hr?symbol=" + symbol)
+            ticker.read (new WebRequest(clock, baseUrl + "v1/ticker/24hr?symbol=" + symbol)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonObject());
             return ticker;
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -614,16 +707,14 @@ public class DefaultApi implements Api {
      */
     public Double getPrice(String symbol) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            JsonObject ob = new WebRequest(serverTimeOffset, baseUrl + "v3/ticker/price?symbol="+Objects.requireNonNull(symbol))
+            acquire(1);
+            JsonObject ob = new WebRequest(clock, baseUrl + "v3/ticker/price?symbol="+Objects.requireNonNull(symbol))
                     .read().asJsonObject();
             return ob.get("price").getAsDouble();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -635,10 +726,9 @@ public class DefaultApi implements Api {
      */
     public Map<String, Double> getPrices() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(2);
+            acquire(2);
             Map<String, Double> map = new ConcurrentHashMap<>();
-            JsonArray array = (new WebRequest(serverTimeOffset, baseUrl + "v3/ticker/price"))
+            JsonArray array = (new WebRequest(clock, baseUrl + "v3/ticker/price"))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonArray();
             for (JsonElement elem : array) {
@@ -649,8 +739,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(2);
+            release(2);
         }
     }
 
@@ -661,9 +750,8 @@ public class DefaultApi implements Api {
      */
     public AveragePrice getAveragePrice(String symbol) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            JsonObject ob = new WebRequest(serverTimeOffset, baseUrl + "v3/avgPrice?symbol="+Objects.requireNonNull(symbol))
+            acquire(1);
+            JsonObject ob = new WebRequest(clock, baseUrl + "v3/avgPrice?symbol="+Objects.requireNonNull(symbol))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonObject();
             AveragePrice price = new AveragePrice(symbol);
@@ -672,8 +760,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -685,9 +772,8 @@ public class DefaultApi implements Api {
      */
     public List<Ticker> getBookTickers() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(2);
-            String lastResponse = (new WebRequest(serverTimeOffset, baseUrl + "v3/ticker/bookTicker"))
+            acquire(2);
+            String lastResponse = (new WebRequest(clock, baseUrl + "v3/ticker/bookTicker"))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).read().getLastResponse();
             Type listType = new TypeToken<List<Ticker>>() {
             }.getType();
@@ -695,8 +781,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(2);
+            release(2);
         }
     }
 
@@ -709,9 +794,8 @@ public class DefaultApi implements Api {
      */
     public Ticker getBookTicker(String symbol) throws ApiException {
         try {
-            maxConnections.acquire();
-            limiter.acquire(1);
-            JsonObject ob = new WebRequest(serverTimeOffset, baseUrl + "v3/ticker/bookTicker?symbol=" + Objects.requireNonNull(symbol))
+            acquire(1);
+            JsonObject ob = new WebRequest(clock, baseUrl + "v3/ticker/bookTicker?symbol=" + Objects.requireNonNull(symbol))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).read().asJsonObject();
             Ticker ticker = new Ticker(symbol);
             ticker.read(ob);
@@ -719,8 +803,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -735,18 +818,16 @@ public class DefaultApi implements Api {
      */
     public Account getAccount() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(10);
+            acquire(10);
             Account account = new Account();
-            account.read (new WebRequest(serverTimeOffset, baseUrl + "v3/account")
+            account.read (new WebRequest(clock, baseUrl + "v3/account")
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey, secretKey, null).read().asJsonObject());
             return account;
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(10);
+            release(10);
         }
     }
 
@@ -776,13 +857,12 @@ public class DefaultApi implements Api {
      */
     public TradeFee getTradeFee(String symbol, Integer recvWindow) throws ApiException {
         try {
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String url = baseSapiUrl + "v1/asset/tradeFee?symbol=" + Objects.requireNonNull(symbol);
             if (recvWindow != null) {
                 url += "&recvWindow=" + recvWindow;
             }
-            JsonArray arr = new WebRequest(serverTimeOffset, url)
+            JsonArray arr = new WebRequest(clock, url)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey, secretKey, null).read().asJsonArray();
             for (JsonElement tr : arr) {
@@ -797,8 +877,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -925,10 +1004,9 @@ public class DefaultApi implements Api {
 	 */
 	public List<Order> getOpenOrders() throws ApiException {
 	    try{
-            maxConnections.acquire();
-	        limiter.acquire(3);
+            acquire(3);
             String u = baseUrl + "v3/openOrders";
-            String lastResponse = (new WebRequest(serverTimeOffset, u))
+            String lastResponse = (new WebRequest(clock, u))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).read().getLastResponse();
             Type listType = new TypeToken<List<Order>>() {
             }.getType();
@@ -936,8 +1014,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(3);
+            release(3);
         }
 	}
 
@@ -949,10 +1026,9 @@ public class DefaultApi implements Api {
      */
     public List<Order> getOpenOrders(OpenOrderRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(3);
+            acquire(3);
             String u = baseUrl + "v3/openOrders" + request.toQueryString();
-            String lastResponse = (new WebRequest(serverTimeOffset, u))
+            String lastResponse = (new WebRequest(clock, u))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).read().getLastResponse();
             Type listType = new TypeToken<List<Order>>() {
             }.getType();
@@ -960,8 +1036,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(3);
+            release(3);
         }
     }
 
@@ -973,19 +1048,17 @@ public class DefaultApi implements Api {
      */
     public List<Order> cancelOpenOrder(DeleteOrderRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(3);
+            acquire(3);
             String u = baseUrl + "v3/openOrders" + request.toQueryString();
-            String lastResponse = (new WebRequest(serverTimeOffset, u))
-                    .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).delete().getLastResponse();
+            String lastResponse = (new WebRequest(clock, u))
+                    .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).delete().read().getLastResponse();
             Type listType = new TypeToken<List<Order>>() {
             }.getType();
             return new Gson().fromJson(lastResponse, listType);
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(3);
+            release(3);
         }
     }
 
@@ -998,10 +1071,9 @@ public class DefaultApi implements Api {
      */
     public List<Order> getOrders(AllOrderRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(10);
+            acquire(10);
             String u = baseUrl + "v3/allOrders"+request.toQueryString();
-            String lastResponse = (new WebRequest(serverTimeOffset, u))
+            String lastResponse = (new WebRequest(clock, u))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).read().getLastResponse();
             Type listType = new TypeToken<List<Order>>() {
             }.getType();
@@ -1009,8 +1081,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(10);
+            release(10);
         }
     }
 
@@ -1023,10 +1094,9 @@ public class DefaultApi implements Api {
      */
     public List<Order> geClosedOrders(ClosedOrderRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(2);
+            acquire(2);
             String u = baseUrl + "v3/closedOrders" + request.toQueryString();
-            String lastResponse = (new WebRequest(serverTimeOffset, u))
+            String lastResponse = (new WebRequest(clock, u))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).read().getLastResponse();
             Type listType = new TypeToken<List<Order>>() {
             }.getType();
@@ -1034,8 +1104,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(2);
+            release(2);
         }
     }
     /**
@@ -1050,20 +1119,18 @@ public class DefaultApi implements Api {
      */
     public List<Order> getOrders(String symbol, Long orderId, int limit) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(10);
+            acquire(10);
             String u = baseUrl + "v3/allOrders?symbol=" + Objects.requireNonNull(symbol) + "&limit=" + limit;
             if (orderId != null && orderId > 0) u += "&orderId=" + orderId;
 
-            String lastResponse = (new WebRequest(serverTimeOffset, u))
+            String lastResponse = (new WebRequest(clock, u))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).read().getLastResponse();
             Type listType = new TypeToken<List<Order>>() {}.getType();
             return new Gson().fromJson(lastResponse, listType);
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(10);
+            release(10);
         }
     }
 
@@ -1076,18 +1143,16 @@ public class DefaultApi implements Api {
      */
     public List<Trade> getMyTrades(TradesRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(10);
+            acquire(10);
             String u = baseUrl + "v3/myTrades" + request.toQueryString();
-            String lastResponse = new WebRequest(serverTimeOffset, u)
+            String lastResponse = new WebRequest(clock, u)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).read().getLastResponse();
             Type listType = new TypeToken<List<Trade>>() {}.getType();
             return new Gson().fromJson(lastResponse, listType);
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(10);
+            release(10);
         }
     }
 
@@ -1101,18 +1166,16 @@ public class DefaultApi implements Api {
      */
     public List<Trade> getTrades(String symbol, int limit) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String u = baseUrl + "v3/trades?symbol=" + Objects.requireNonNull(symbol) + "&limit=" + limit;
             // sign(apiKey, secretKey, null)
-            String lastResponse = new WebRequest(serverTimeOffset, u).connectionTimeoutSeconds(connectionTimeoutSeconds).read().getLastResponse();
+            String lastResponse = new WebRequest(clock, u).connectionTimeoutSeconds(connectionTimeoutSeconds).read().getLastResponse();
             Type listType = new TypeToken<List<Trade>>() {}.getType();
             return new Gson().fromJson(lastResponse, listType);
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1164,18 +1227,38 @@ public class DefaultApi implements Api {
      * @throws ApiException in case of any error
      */
     public Order getOrder(OrderRequest request) throws ApiException {
+        if(orderTransport == OrderTransport.WEBSOCKET && request.getOrderId()!=null){
+            long start = System.nanoTime();
+            try {
+                limiter.acquire(2);
+                Order order = getTradingClient().getOrder(request.getSymbol(), request.getOrderId());
+                websocketOrderLatency.record(start);
+                return order;
+            }catch(InterruptedException e){
+                throw new ApiException(e.toString());
+            }catch(ApiException e){
+                websocketOrderLatency.recordError();
+                throw e;
+            }finally{
+                limiter.release(2);
+            }
+        }
+        long start = System.nanoTime();
         try{
-            maxConnections.acquire();
-            limiter.acquire(2);
+            acquire(2);
             String u = baseUrl + "v3/order"+request.toQueryString();
-            String lastResponse = new WebRequest(serverTimeOffset, u)
+            String lastResponse = new WebRequest(clock, u)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).read().getLastResponse();
-            return (new Gson()).fromJson(lastResponse, Order.class);
+            Order order = (new Gson()).fromJson(lastResponse, Order.class);
+            restOrderLatency.record(start);
+            return order;
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
+        }catch(ApiException e){
+            restOrderLatency.recordError();
+            throw e;
         }finally{
-            maxConnections.release();
-            limiter.release(2);
+            release(2);
         }
     }
 
@@ -1189,20 +1272,41 @@ public class DefaultApi implements Api {
      * @throws ApiException in case of any error
      */
     public OrderRef createOrder(OrderPlacement orderPlacement)  throws ApiException {
+        if(orderTransport == OrderTransport.WEBSOCKET){
+            long start = System.nanoTime();
+            try {
+                orderLimiter.acquire();
+                limiter.acquire(1);
+                OrderRef newOrder = getTradingClient().placeOrder(orderPlacement);
+                websocketOrderLatency.record(start);
+                return newOrder;
+            }catch(InterruptedException e){
+                throw new ApiException(e.toString());
+            }catch(ApiException e){
+                websocketOrderLatency.recordError();
+                throw e;
+            }finally{
+                limiter.release(1);
+            }
+        }
+        long start = System.nanoTime();
         try{
-            maxConnections.acquire();
-            limiter.acquire(2);
+            orderLimiter.acquire();
+            acquire(2);
             String u = baseUrl + "v3/order?" + orderPlacement.getAsQuery();
-            String lastResponse = new WebRequest(serverTimeOffset, u)
+            String lastResponse = new WebRequest(clock, u)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).post().read().getLastResponse();
             OrderRef newOrder = (new Gson()).fromJson(lastResponse, OrderRef.class);
             newOrder.setPlacement(orderPlacement);
+            restOrderLatency.record(start);
             return newOrder;
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
+        }catch(ApiException e){
+            restOrderLatency.recordError();
+            throw e;
         }finally{
-            maxConnections.release();
-            limiter.release(2);
+            release(2);
         }
     }
 
@@ -1213,10 +1317,9 @@ public class DefaultApi implements Api {
      */
     public OrderRef createTestOrder(OrderPlacement orderPlacement)  throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String u = baseUrl + "v3/order/test?" + orderPlacement.getAsQuery();
-            String lastResponse = new WebRequest(serverTimeOffset, u)
+            String lastResponse = new WebRequest(clock, u)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).post().read().getLastResponse();
             OrderRef newOrder;
             if(lastResponse.equals("{}")){
@@ -1235,8 +1338,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1248,18 +1350,41 @@ public class DefaultApi implements Api {
      * @throws ApiException in case of any error
      */
     public Order deleteOrderById(String symbol, Long orderId) throws ApiException {
+        if (orderId == null) {
+            throw new ApiException("Missing orderId of the order to delete.");
+        }
+        if(orderTransport == OrderTransport.WEBSOCKET){
+            long start = System.nanoTime();
+            try {
+                limiter.acquire(1);
+                Order order = getTradingClient().cancelOrder(symbol, orderId);
+                websocketOrderLatency.record(start);
+                return order;
+            }catch(InterruptedException e){
+                throw new ApiException(e.toString());
+            }catch(ApiException e){
+                websocketOrderLatency.recordError();
+                throw e;
+            }finally{
+                limiter.release(1);
+            }
+        }
+        long start = System.nanoTime();
         try{
-            maxConnections.acquire();
-            limiter.acquire(2);
+            acquire(2);
             String u = baseUrl + "v3/order?symbol=" + Objects.requireNonNull(symbol) + "&orderId=" + orderId;
-            WebRequest res = (new WebRequest(serverTimeOffset, u))
+            WebRequest res = (new WebRequest(clock, u))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).delete().read();
-            return (new Gson()).fromJson(res.getRequestBody(), Order.class);
+            Order order = (new Gson()).fromJson(res.getLastResponse(), Order.class);
+            restOrderLatency.record(start);
+            return order;
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
+        }catch(ApiException e){
+            restOrderLatency.recordError();
+            throw e;
         }finally{
-            maxConnections.release();
-            limiter.release(2);
+            release(2);
         }
     }
     /**
@@ -1271,17 +1396,15 @@ public class DefaultApi implements Api {
      */
     public Order deleteOrderByOrigClientId(String symbol, String origClientOrderId) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(2);
+            acquire(2);
             String u = baseUrl + "v3/order?symbol=" + Objects.requireNonNull(symbol) + "&origClientOrderId=" + esc.escape(origClientOrderId);
-            WebRequest req = (new WebRequest(serverTimeOffset, u))
+            WebRequest req = (new WebRequest(clock, u))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).delete().read();
-            return (new Gson()).fromJson(req.getRequestBody(), Order.class);
+            return (new Gson()).fromJson(req.getLastResponse(), Order.class);
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(2);
+            release(2);
         }
     }
 
@@ -1294,21 +1417,44 @@ public class DefaultApi implements Api {
      */
     public Order deleteOrderByClientOrderId(String symbol, String clientOrderId ) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(2);
+            acquire(2);
             String u = baseUrl + "v3/order?symbol=" + Objects.requireNonNull(symbol) + "&newClientOrderId=" + esc.escape(clientOrderId);
-            WebRequest req = (new WebRequest(serverTimeOffset, u))
+            WebRequest req = (new WebRequest(clock, u))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey, secretKey, null).delete().read();
-            return (new Gson()).fromJson(req.getRequestBody(), Order.class);
+            return (new Gson()).fromJson(req.getLastResponse(), Order.class);
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(2);
+            release(2);
         }
     }
 
 
+    /**
+     * Places a batch of orders. The requests are pipelined over the pooled connections, bounded by the
+     * connection limit and the ORDERS rate limit.
+     * @param placements the orders to place, not null.
+     * @param allOrNothing if true, all placed orders are canceled again if any order of the batch fails.
+     * @return the per-order results, in the order of the placements.
+     * @throws ApiException in case of any error
+     */
+    @Override
+    public List<OrderResult> createOrders(List<OrderPlacement> placements, boolean allOrNothing) throws ApiException {
+        return OrderBatch.createOrders(this, batchExecutor, placements, allOrNothing);
+    }
+
+    /**
+     * Cancels a batch of orders. The requests are pipelined over the pooled connections, bounded by the
+     * connection limit.
+     * @param orders the orders to cancel, not null.
+     * @return the per-order results, in the order of the given orders.
+     * @throws ApiException in case of any error
+     */
+    @Override
+    public List<OrderResult> cancelOrders(List<OrderRef> orders) throws ApiException {
+        return OrderBatch.cancelOrders(this, batchExecutor, orders);
+    }
+
     // - - - - - - - - - - - - - - - - - - - - - - - -
     // USER DATA STREAM
     // - - - - - - - - - - - - - - - - - - - - - - - -
@@ -1322,17 +1468,15 @@ public class DefaultApi implements Api {
      */
     public String startUserDataStream() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            JsonObject jsonObject = (new WebRequest(serverTimeOffset, baseUrl + "v3/userDataStream"))
+            acquire(1);
+            JsonObject jsonObject = (new WebRequest(clock, baseUrl + "v3/userDataStream"))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).post().read().asJsonObject();
             return jsonObject.get("listenKey").getAsString();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1343,16 +1487,14 @@ public class DefaultApi implements Api {
      */
     public void keepUserDataStream(String listenKey) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            new WebRequest(serverTimeOffset, baseUrl + "v3/userDataStream?listenKey=" + esc.escape(listenKey))
+            acquire(1);
+            new WebRequest(clock, baseUrl + "v3/userDataStream?listenKey=" + esc.escape(listenKey))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                         .sign(apiKey).put().read().asJsonObject();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1363,16 +1505,14 @@ public class DefaultApi implements Api {
      */
     public void deleteUserDataStream(String listenKey) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            new WebRequest(serverTimeOffset, baseUrl + "v3/userDataStream?listenKey=" + esc.escape(listenKey))
+            acquire(1);
+            new WebRequest(clock, baseUrl + "v3/userDataStream?listenKey=" + esc.escape(listenKey))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).delete().read();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1387,17 +1527,15 @@ public class DefaultApi implements Api {
      */
     public String startIsolatedMarginStream() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            JsonObject jsonObject = (new WebRequest(serverTimeOffset, baseSapiUrl + "v1/userDataStream/isolated"))
+            acquire(1);
+            JsonObject jsonObject = (new WebRequest(clock, baseSapiUrl + "v1/userDataStream/isolated"))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).post().read().asJsonObject();
             return jsonObject.get("listenKey").getAsString();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1408,16 +1546,14 @@ public class DefaultApi implements Api {
      */
     public void keepIsolatedMarginStream(String listenKey) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            new WebRequest(serverTimeOffset, baseSapiUrl + "v1/userDataStream/isolated?listenKey=" + esc.escape(listenKey))
+            acquire(1);
+            new WebRequest(clock, baseSapiUrl + "v1/userDataStream/isolated?listenKey=" + esc.escape(listenKey))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).put().read().asJsonObject();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1428,16 +1564,14 @@ public class DefaultApi implements Api {
      */
     public void deleteIsolatedMarginStream(String listenKey) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            new WebRequest(serverTimeOffset, baseSapiUrl + "v1/userDataStream/isolated?listenKey=" + esc.escape(listenKey))
+            acquire(1);
+            new WebRequest(clock, baseSapiUrl + "v1/userDataStream/isolated?listenKey=" + esc.escape(listenKey))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).delete().read();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1450,17 +1584,15 @@ public class DefaultApi implements Api {
      */
     public String startMarginStream() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            JsonObject jsonObject = (new WebRequest(serverTimeOffset, baseSapiUrl + "v1/userDataStream"))
+            acquire(1);
+            JsonObject jsonObject = (new WebRequest(clock, baseSapiUrl + "v1/userDataStream"))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).post().read().asJsonObject();
             return jsonObject.get("listenKey").getAsString();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1471,16 +1603,14 @@ public class DefaultApi implements Api {
      */
     public void keepMarginStream(String listenKey) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            new WebRequest(serverTimeOffset, baseSapiUrl + "v1/userDataStream?listenKey=" + esc.escape(listenKey))
+            acquire(1);
+            new WebRequest(clock, baseSapiUrl + "v1/userDataStream?listenKey=" + esc.escape(listenKey))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).put().read().asJsonObject();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1491,16 +1621,14 @@ public class DefaultApi implements Api {
      */
     public void deleteMarginStream(String listenKey) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            new WebRequest(serverTimeOffset, baseSapiUrl + "v1/userDataStream?listenKey=" + esc.escape(listenKey))
+            acquire(1);
+            new WebRequest(clock, baseSapiUrl + "v1/userDataStream?listenKey=" + esc.escape(listenKey))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).delete().read();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1517,9 +1645,8 @@ public class DefaultApi implements Api {
      */
     public List<FiatOrder> getFiatOrders(FiatOrderRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            JsonObject ob = new WebRequest(serverTimeOffset, baseSapiUrl + "v1/fiat/orders"+request.toQueryString())
+            acquire(1);
+            JsonObject ob = new WebRequest(clock, baseSapiUrl + "v1/fiat/orders"+request.toQueryString())
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey, secretKey, null).read().asJsonObject();
             if(ob.has("data")){
@@ -1531,8 +1658,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1545,9 +1671,8 @@ public class DefaultApi implements Api {
      */
     public List<FiatPayment> getFiatPayments(FiatOrderRequest request) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
-            JsonObject ob = new WebRequest(serverTimeOffset, baseSapiUrl + "v1/fiat/payments"+request.toQueryString())
+            acquire(1);
+            JsonObject ob = new WebRequest(clock, baseSapiUrl + "v1/fiat/payments"+request.toQueryString())
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey, secretKey, null).read().asJsonObject();
             if(ob.has("data")){
@@ -1559,8 +1684,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1568,6 +1692,28 @@ public class DefaultApi implements Api {
     // WEBSOCKET ENDPOINTS
     // - - - - - - - - - - - - - - - - - - - - - - - -
 
+    /**
+     * Get the client of the websocket trading API, used when the order transport is
+     * {@link OrderTransport#WEBSOCKET}. The connection is opened lazily on the first request.
+     * @return the trading client, never null.
+     */
+    public synchronized WebSocketTradingClient getTradingClient() {
+        if (tradingClient == null) {
+            tradingClient = new WebSocketTradingClient(this);
+        }
+        return tradingClient;
+    }
+
+    /**
+     * Closes the connection of the websocket trading API, if open.
+     */
+    public synchronized void closeTradingClient() {
+        if (tradingClient != null) {
+            tradingClient.close();
+            tradingClient = null;
+        }
+    }
+
     /**
      * Base method for all websockets streams
      * @param url derived methods will use unique base url
@@ -1577,13 +1723,19 @@ public class DefaultApi implements Api {
      */
     public Session getWebsocketSession(String url, WebSocketAdapter adapter) throws ApiException {
         try {
-            maxConnections.acquire();
-            limiter.acquire();
+            acquire(1);
             URI uri = new URI(websocketBaseUrl + url);
+            if (adapter instanceof MeteredWebSocketAdapter) {
+                ((MeteredWebSocketAdapter<?>) adapter).getStreamMetrics().bind(url, clock::currentTimeMillis);
+            }
             SslContextFactory sslContextFactory = new SslContextFactory();
             sslContextFactory.setTrustAll(true); // The magic
             WebSocketClient client = new WebSocketClient(sslContextFactory);
             client.start();
+            StreamJournal journal = streamJournal;
+            if (journal != null) {
+                return client.connect(new RecordingWebSocketListener(journal, url, adapter), uri).get();
+            }
             return client.connect(adapter, uri).get();
         } catch (URISyntaxException e) {
             throw new ApiException("URL Syntax error: " + e.getMessage());
@@ -1592,8 +1744,7 @@ public class DefaultApi implements Api {
         }catch (Throwable e) {
             throw new ApiException("Websocket error: " + e.getMessage());
         }finally{
-            maxConnections.release();
-            limiter.release();
+            release(1);
         }
     }
 
@@ -1606,17 +1757,15 @@ public class DefaultApi implements Api {
      */
     public String withdraw(WithdrawOrder withdrawOrder) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String u = baseSapiUrl + "/v1/capital/withdraw/apply" + withdrawOrder.toQueryString();
-            return (new WebRequest(serverTimeOffset, u))
+            return (new WebRequest(clock, u))
                     .connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).post().read().asJsonObject().get("id").getAsString();
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1631,11 +1780,10 @@ public class DefaultApi implements Api {
      */
     public List<WithdrawTransaction> getWithdrawHistory(HistoryFilter historyFilter) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String u = baseSapiUrl + "v1/capital/withdraw/history" + historyFilter.getAsQuery();
             List<WithdrawTransaction> result = new ArrayList<>();
-            JsonArray array = new WebRequest(serverTimeOffset, u)
+            JsonArray array = new WebRequest(clock, u)
                     .connectionTimeoutSeconds(connectionTimeoutSeconds).sign(apiKey).read().asJsonArray();
             array.forEach(el -> {
                 JsonObject ob = el.getAsJsonObject();
@@ -1658,8 +1806,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1674,11 +1821,10 @@ public class DefaultApi implements Api {
      */
     public List<DepositTransaction> getDepositHistory(HistoryFilter historyFilter) throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String u = baseSapiUrl + "v1/capital/deposit/hisrec" + historyFilter.getAsQuery();
             List<DepositTransaction> result = new ArrayList<>();
-            JsonArray array = new WebRequest(serverTimeOffset, u).connectionTimeoutSeconds(connectionTimeoutSeconds)
+            JsonArray array = new WebRequest(clock, u).connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .sign(apiKey).read().asJsonArray();
             array.forEach(el -> {
                 JsonObject ob = el.getAsJsonObject();
@@ -1700,8 +1846,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 
@@ -1712,10 +1857,9 @@ public class DefaultApi implements Api {
     */
     public SystemStatus getSystemStatus() throws ApiException {
         try{
-            maxConnections.acquire();
-            limiter.acquire(1);
+            acquire(1);
             String u = baseSapiUrl + "v1/system/status";
-            JsonObject ob = new WebRequest(serverTimeOffset, u).connectionTimeoutSeconds(connectionTimeoutSeconds)
+            JsonObject ob = new WebRequest(clock, u).connectionTimeoutSeconds(connectionTimeoutSeconds)
                     .read().asJsonObject();
             SystemStatus status = new SystemStatus();
             status.setStatus(ob.get("status").getAsInt());
@@ -1724,8 +1868,7 @@ public class DefaultApi implements Api {
         }catch(InterruptedException e){
             throw new ApiException(e.toString());
         }finally{
-            maxConnections.release();
-            limiter.release(1);
+            release(1);
         }
     }
 }
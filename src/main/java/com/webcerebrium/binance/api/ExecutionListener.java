@@ -0,0 +1,46 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.ExecutionType;
+import com.webcerebrium.binance.datatype.Order;
+import com.webcerebrium.binance.datatype.Trade;
+
+/**
+ * Listener notified by the {@link MatchingEngine} of every change of an order, like an executionReport of the
+ * user data stream.
+ */
+@FunctionalInterface
+public interface ExecutionListener {
+
+    /**
+     * Called on a change of an order.
+     * @param order a snapshot of the order after the change.
+     * @param type the type of the change.
+     * @param trade the fill, if the type is {@link ExecutionType#TRADE}, else null.
+     */
+    void onExecution(Order order, ExecutionType type, Trade trade);
+}
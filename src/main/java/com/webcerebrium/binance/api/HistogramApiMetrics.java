@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the phases of each call as HDR histograms per endpoint, in nanoseconds, together with the status codes
+ * and the request weight. Recording a call does not allocate once its endpoint is known.
+ */
+public final class HistogramApiMetrics implements ApiMetrics {
+
+    private final int significantDigits;
+    /** Endpoints by path and method, looked up without creating a key. */
+    private final Map<String, Map<String, Endpoint>> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder unsent = new LongAdder();
+
+    /**
+     * Creates metrics with a precision of two significant digits.
+     */
+    public HistogramApiMetrics() {
+        this(2);
+    }
+
+    /**
+     * Creates metrics.
+     * @param significantDigits the precision of the histograms, 0 to 5.
+     */
+    public HistogramApiMetrics(int significantDigits) {
+        this.significantDigits = significantDigits;
+    }
+
+    /** The metrics of an endpoint. */
+    public static final class Endpoint {
+
+        private final String method;
+        private final String path;
+        private final Histogram[] histograms;
+        private final long[] statusClasses = new long[6];
+        private long count;
+        private long errors;
+        private long weight;
+        private int usedWeight = -1;
+
+        private Endpoint(String method, String path, int significantDigits) {
+            this.method = method;
+            this.path = path;
+            this.histograms = new Histogram[ApiCall.phases().length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram(significantDigits);
+            }
+        }
+
+        private synchronized void record(ApiCall call) {
+            for (ApiCall.Phase phase : ApiCall.phases()) {
+                histograms[phase.ordinal()].recordValue(call.getNanos(phase));
+            }
+            count++;
+            if (call.isError()) {
+                errors++;
+            }
+            statusClasses[Math.min(5, call.getStatus() / 100)]++;
+            weight += call.getWeight();
+            if (call.getUsedWeight() >= 0) {
+                usedWeight = call.getUsedWeight();
+            }
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Get a copy of the histogram of a phase.
+         * @param phase the phase.
+         * @return the histogram, in nanoseconds.
+         */
+        public synchronized Histogram getHistogram(ApiCall.Phase phase) {
+            return histograms[phase.ordinal()].copy();
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getErrorCount() {
+            return errors;
+        }
+
+        /**
+         * Get the number of responses of a status class.
+         * @param statusClass the class, e.g. 2 for 2xx, 0 for calls without response.
+         * @return the number of responses.
+         */
+        public synchronized long getStatusCount(int statusClass) {
+            return statusClasses[statusClass];
+        }
+
+        /** @return the weight charged by the client for all calls. */
+        public synchronized long getWeight() {
+            return weight;
+        }
+
+        /** @return the last used weight reported by the exchange, -1 if never reported. */
+        public synchronized int getUsedWeight() {
+            return usedWeight;
+        }
+
+        private synchronized void reset() {
+            for (Histogram histogram : histograms) {
+                histogram.reset();
+            }
+            for (int i = 0; i < statusClasses.length; i++) {
+                statusClasses[i] = 0;
+            }
+            count = errors = weight = 0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder sb = new StringBuilder(method).append(' ').append(path)
+                    .append(": count=").append(count).append(", errors=").append(errors)
+                    .append(", weight=").append(weight);
+            for (ApiCall.Phase phase : ApiCall.phases()) {
+                Histogram histogram = histograms[phase.ordinal()];
+                sb.append(String.format(", %s[p50=%.1fus p99=%.1fus max=%.1fus]", phase,
+                        micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(99)),
+                        micros(histogram.getMaxValue())));
+            }
+            return sb.toString();
+        }
+
+        private static double micros(long nanos) {
+            return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+        }
+    }
+
+    @Override
+    public void record(ApiCall call) {
+        String path = call.getPath();
+        if (path == null) {
+            unsent.increment();
+            return;
+        }
+        Map<String, Endpoint> byMethod = endpoints.get(path);
+        if (byMethod == null) {
+            byMethod = endpoints.computeIfAbsent(path, p -> new ConcurrentHashMap<>());
+        }
+        Endpoint endpoint = byMethod.get(call.getMethod());
+        if (endpoint == null) {
+            endpoint = byMethod.computeIfAbsent(call.getMethod(), m -> new Endpoint(m, path, significantDigits));
+        }
+        endpoint.record(call);
+    }
+
+    /**
+     * Get the metrics of an endpoint.
+     * @param method the HTTP method.
+     * @param path the path, e.g. {@code /api/v3/order}.
+     * @return the metrics, or null if the endpoint was not called.
+     */
+    public Endpoint getEndpoint(String method, String path) {
+        Map<String, Endpoint> byMethod = endpoints.get(path);
+        return byMethod == null ? null : byMethod.get(method);
+    }
+
+    /** @return the metrics of all called endpoints. */
+    public Collection<Endpoint> getEndpoints() {
+        List<Endpoint> result = new ArrayList<>();
+        endpoints.values().forEach(m -> result.addAll(m.values()));
+        return result;
+    }
+
+    /** @return the number of calls, which failed before a request was sent, e.g. by an interrupt. */
+    public long getUnsentCount() {
+        return unsent.sum();
+    }
+
+    public void reset() {
+        endpoints.values().forEach(m -> m.values().forEach(Endpoint::reset));
+        unsent.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Endpoint endpoint : getEndpoints()) {
+            sb.append(endpoint).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.AggregatedTrades;
+import com.webcerebrium.binance.datatype.AggregatedTradesRequest;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.CandlesticksRequest;
+import com.webcerebrium.binance.datatype.ExchangeInfo;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Market data of the live exchange, fetched with an {@link Api}. The exchange info is cached.
+ */
+public class LiveMarketData implements MarketData {
+
+    private final Api api;
+    private volatile ExchangeInfo exchangeInfo;
+
+    public LiveMarketData(Api api) {
+        this.api = Objects.requireNonNull(api);
+    }
+
+    @Override
+    public ExchangeInfo getExchangeInfo() throws ApiException {
+        ExchangeInfo info = exchangeInfo;
+        if (info == null) {
+            info = api.getExchangeInfo();
+            exchangeInfo = info;
+        }
+        return info;
+    }
+
+    @Override
+    public Double getPrice(String symbol) throws ApiException {
+        return api.getPrice(symbol);
+    }
+
+    @Override
+    public List<Candlestick> getCandlestickBars(CandlesticksRequest request) throws ApiException {
+        return api.getCandlestickBars(request);
+    }
+
+    @Override
+    public List<AggregatedTrades> getAggregatedTrades(AggregatedTradesRequest request) throws ApiException {
+        return api.getAggregatedTrades(request);
+    }
+}
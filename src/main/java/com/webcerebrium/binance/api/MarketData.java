@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.AggregatedTrades;
+import com.webcerebrium.binance.datatype.AggregatedTradesRequest;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.CandlesticksRequest;
+import com.webcerebrium.binance.datatype.ExchangeInfo;
+
+import java.util.List;
+
+/**
+ * The market data a {@link SimulatorApi} serves, from the live {@link Api} or from recordings, e.g. a
+ * {@link com.webcerebrium.binance.replay.RecordedMarketData}.
+ */
+public interface MarketData {
+
+    /**
+     * Get the exchange info, with the symbols and their filters.
+     * @return the exchange info, not null.
+     * @throws ApiException if not available.
+     */
+    ExchangeInfo getExchangeInfo() throws ApiException;
+
+    /**
+     * Get the current price of a symbol.
+     * @param symbol the symbol, e.g. "BNBBTC".
+     * @return the price, or null if not known.
+     * @throws ApiException if not available.
+     */
+    Double getPrice(String symbol) throws ApiException;
+
+    /**
+     * Get candlesticks, like {@link Api#getCandlestickBars(CandlesticksRequest)}.
+     * @param request the request, not null.
+     * @return the candles, ascending.
+     * @throws ApiException if not available.
+     */
+    List<Candlestick> getCandlestickBars(CandlesticksRequest request) throws ApiException;
+
+    /**
+     * Get aggregated trades, like {@link Api#getAggregatedTrades(AggregatedTradesRequest)}.
+     * @param request the request, not null.
+     * @return the trades, ascending.
+     * @throws ApiException if not available.
+     */
+    List<AggregatedTrades> getAggregatedTrades(AggregatedTradesRequest request) throws ApiException;
+}
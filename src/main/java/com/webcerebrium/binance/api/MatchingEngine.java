@@ -0,0 +1,556 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.BidOrAsk;
+import com.webcerebrium.binance.datatype.BidType;
+import com.webcerebrium.binance.datatype.Depth;
+import com.webcerebrium.binance.datatype.ExecutionType;
+import com.webcerebrium.binance.datatype.Order;
+import com.webcerebrium.binance.datatype.OrderSide;
+import com.webcerebrium.binance.datatype.OrderStatus;
+import com.webcerebrium.binance.datatype.OrderType;
+import com.webcerebrium.binance.datatype.TimeInForce;
+import com.webcerebrium.binance.datatype.Trade;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulated exchange matching the orders of a {@link TestAccountManager} account against market data.
+ * <p>
+ * Each symbol has a book of the resting orders in price-time priority. Incoming orders take the liquidity of
+ * the last depth snapshot, level by level, or trade at the last trade price, when no depth is known. Resting
+ * orders are filled by market trades at or through their price, up to the traded quantity, and when the
+ * market depth crosses them. Stop orders trigger on the last trade price. Time in force is applied like on
+ * Binance: IOC and FOK orders and market orders exceeding the liquidity expire, GTC orders rest in the book.
+ * <p>
+ * Liquidity taken by simulated fills is removed from the depth snapshot until the next one arrives. The balance
+ * an order needs is locked when it is placed, orders exceeding the free balance are rejected, and what is left
+ * is unlocked when the order is filled, canceled or expires. Books are locked per symbol, balances by the
+ * account manager. Every change of an order is reported to the {@link ExecutionListener}s, outside of any lock,
+ * so listeners may place further orders.
+ */
+@Slf4j
+public class MatchingEngine {
+
+    private static final double EPSILON = 1e-10;
+
+    private final TestAccountManager accountManager;
+    private final Map<String, Book> books = new ConcurrentHashMap<>();
+    private final List<ExecutionListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong nextTradeId = new AtomicLong(1);
+
+    public MatchingEngine(TestAccountManager accountManager) {
+        this.accountManager = Objects.requireNonNull(accountManager);
+    }
+
+    /** The resting orders and the market state of a symbol. */
+    private static final class Book {
+        final String symbol;
+        final TreeMap<Double, ArrayDeque<Order>> bids = new TreeMap<>(Comparator.reverseOrder());
+        final TreeMap<Double, ArrayDeque<Order>> asks = new TreeMap<>();
+        final List<Order> stops = new ArrayList<>();
+        final Liquidity marketBids = new Liquidity();
+        final Liquidity marketAsks = new Liquidity();
+        double lastPrice = Double.NaN;
+
+        Book(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    /** The levels of a depth snapshot, best first, reduced by simulated fills. */
+    private static final class Liquidity {
+        double[] prices = new double[20];
+        double[] quantities = new double[20];
+        int start;
+        int end;
+
+        void set(List<BidOrAsk> levels) {
+            if (levels.size() > prices.length) {
+                prices = Arrays.copyOf(prices, levels.size());
+                quantities = Arrays.copyOf(quantities, levels.size());
+            }
+            start = 0;
+            end = 0;
+            for (BidOrAsk level : levels) {
+                if (level.getPrice() != null && level.getQuantity() != null && level.getQuantity() > 0) {
+                    prices[end] = level.getPrice();
+                    quantities[end++] = level.getQuantity();
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return start >= end;
+        }
+
+        BidOrAsk best(BidType type) {
+            return level(type, start);
+        }
+
+        BidOrAsk level(BidType type, int index) {
+            BidOrAsk level = new BidOrAsk();
+            level.setType(type);
+            level.setPrice(prices[index]);
+            level.setQuantity(quantities[index]);
+            return level;
+        }
+
+        double available(boolean buy, double limit) {
+            double sum = 0;
+            for (int i = start; i < end && crosses(buy, prices[i], limit); i++) {
+                sum += quantities[i];
+            }
+            return sum;
+        }
+
+        void consume(double quantity) {
+            quantities[start] -= quantity;
+            if (quantities[start] <= EPSILON) {
+                start++;
+            }
+        }
+    }
+
+    private static final class Event {
+        final Order order;
+        final ExecutionType type;
+        final Trade trade;
+
+        Event(Order order, ExecutionType type, Trade trade) {
+            this.order = order;
+            this.type = type;
+            this.trade = trade;
+        }
+    }
+
+    public void addListener(ExecutionListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeListener(ExecutionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get the last trade price of a symbol.
+     * @param symbol the symbol.
+     * @return the price, or NaN if no trade was seen.
+     */
+    public double getLastPrice(String symbol) {
+        Book book = books.get(symbol);
+        if (book == null) {
+            return Double.NaN;
+        }
+        synchronized (book) {
+            return book.lastPrice;
+        }
+    }
+
+    /**
+     * Get the best levels of the last depth snapshot of a symbol, reduced by simulated fills.
+     * @param symbol the symbol.
+     * @return the depth, or null if no snapshot with bids and asks is known.
+     */
+    public Depth getDepth(String symbol) {
+        Book book = books.get(symbol);
+        if (book == null) {
+            return null;
+        }
+        synchronized (book) {
+            if (book.marketBids.isEmpty() || book.marketAsks.isEmpty()) {
+                return null;
+            }
+            return new Depth(symbol, book.marketAsks.best(BidType.ASK), book.marketBids.best(BidType.BID));
+        }
+    }
+
+    /**
+     * Get the levels of one side of the last depth snapshot of a symbol, reduced by simulated fills.
+     * @param symbol the symbol.
+     * @param type the side, bids or asks.
+     * @param limit the maximal number of levels.
+     * @return the levels, best first, empty if no snapshot is known.
+     */
+    public List<BidOrAsk> getDepthLevels(String symbol, BidType type, int limit) {
+        Book book = books.get(symbol);
+        if (book == null) {
+            return Collections.emptyList();
+        }
+        synchronized (book) {
+            Liquidity liquidity = type == BidType.BID ? book.marketBids : book.marketAsks;
+            List<BidOrAsk> levels = new ArrayList<>(Math.max(0, Math.min(limit, liquidity.end - liquidity.start)));
+            for (int i = liquidity.start; i < liquidity.end && levels.size() < limit; i++) {
+                levels.add(liquidity.level(type, i));
+            }
+            return levels;
+        }
+    }
+
+    /**
+     * Places an order. The order is updated with its status and fills before this method returns.
+     * @param order the new order, with id and time set.
+     * @throws ApiException if mandatory fields of the order type are missing.
+     */
+    public void place(Order order) throws ApiException {
+        validate(order);
+        order.setExecutedQty(0.0);
+        order.setStatus(OrderStatus.NEW);
+        Book book = books.computeIfAbsent(order.getSymbol(), Book::new);
+        List<Event> events = new ArrayList<>();
+        synchronized (book) {
+            Double price = expectedPrice(book, order);
+            if (price == null) {
+                log.warn("No price available for order of {}", order.getSymbol());
+                reject(order, events);
+            } else if (order.getType() == OrderType.LIMIT_MAKER && wouldTake(book, order)) {
+                reject(order, events);
+            } else if (!accountManager.reserve(order, price)) {
+                log.warn("Insufficient balance for order {} of {}", order.getOrderId(), order.getSymbol());
+                reject(order, events);
+            } else {
+                events.add(new Event(snapshot(order), ExecutionType.NEW, null));
+                if (isStop(order.getType())) {
+                    book.stops.add(order);
+                    if (!Double.isNaN(book.lastPrice)) {
+                        triggerStops(book, book.lastPrice, events);
+                    }
+                } else {
+                    execute(book, order, events);
+                }
+            }
+        }
+        dispatch(events);
+    }
+
+    /**
+     * Cancels an open order.
+     * @param order the order.
+     * @return true, if the order was open and is canceled now.
+     */
+    public boolean cancel(Order order) {
+        Book book = books.get(order.getSymbol());
+        if (book == null) {
+            return false;
+        }
+        List<Event> events = new ArrayList<>();
+        synchronized (book) {
+            if (!book.stops.remove(order) && !removeResting(book, order)) {
+                return false;
+            }
+            order.setStatus(OrderStatus.CANCELED);
+            accountManager.release(order);
+            events.add(new Event(snapshot(order), ExecutionType.CANCELED, null));
+        }
+        dispatch(events);
+        return true;
+    }
+
+    /**
+     * Feeds a market trade. Resting orders at or through the price are filled, up to the traded quantity,
+     * and stop orders are triggered.
+     * @param symbol the symbol.
+     * @param price the price.
+     * @param quantity the quantity.
+     * @param buyerMaker true, if the seller was the aggressor.
+     */
+    public void onTrade(String symbol, double price, double quantity, boolean buyerMaker) {
+        Book book = books.computeIfAbsent(symbol, Book::new);
+        List<Event> events = new ArrayList<>();
+        synchronized (book) {
+            book.lastPrice = price;
+            TreeMap<Double, ArrayDeque<Order>> levels = buyerMaker ? book.bids : book.asks;
+            double left = quantity;
+            Iterator<Map.Entry<Double, ArrayDeque<Order>>> it = levels.entrySet().iterator();
+            while (left > EPSILON && it.hasNext()) {
+                Map.Entry<Double, ArrayDeque<Order>> level = it.next();
+                if (!crosses(buyerMaker, price, level.getKey())) {
+                    break;
+                }
+                ArrayDeque<Order> orders = level.getValue();
+                while (left > EPSILON && !orders.isEmpty()) {
+                    Order order = orders.peekFirst();
+                    double fill = Math.min(remaining(order), left);
+                    fill(order, fill, level.getKey(), true, events);
+                    left -= fill;
+                    if (remaining(order) <= EPSILON) {
+                        orders.pollFirst();
+                    }
+                }
+                if (orders.isEmpty()) {
+                    it.remove();
+                }
+            }
+            triggerStops(book, price, events);
+        }
+        dispatch(events);
+    }
+
+    /**
+     * Feeds a depth snapshot, e.g. of a partial book depth stream. Resting orders crossed by the market are
+     * filled at their price.
+     * @param symbol the symbol.
+     * @param bids the bids, best first.
+     * @param asks the asks, best first.
+     */
+    public void onDepth(String symbol, List<BidOrAsk> bids, List<BidOrAsk> asks) {
+        Book book = books.computeIfAbsent(symbol, Book::new);
+        List<Event> events = new ArrayList<>();
+        synchronized (book) {
+            book.marketBids.set(bids);
+            book.marketAsks.set(asks);
+            fillCrossed(book.bids, book.marketAsks, true, events);
+            fillCrossed(book.asks, book.marketBids, false, events);
+        }
+        dispatch(events);
+    }
+
+    private void fillCrossed(TreeMap<Double, ArrayDeque<Order>> levels, Liquidity liquidity, boolean buy,
+                             List<Event> events) {
+        Iterator<Map.Entry<Double, ArrayDeque<Order>>> it = levels.entrySet().iterator();
+        while (!liquidity.isEmpty() && it.hasNext()) {
+            Map.Entry<Double, ArrayDeque<Order>> level = it.next();
+            ArrayDeque<Order> orders = level.getValue();
+            while (!orders.isEmpty() && !liquidity.isEmpty()
+                    && crosses(buy, liquidity.prices[liquidity.start], level.getKey())) {
+                Order order = orders.peekFirst();
+                double fill = Math.min(remaining(order), liquidity.quantities[liquidity.start]);
+                fill(order, fill, level.getKey(), true, events);
+                liquidity.consume(fill);
+                if (remaining(order) <= EPSILON) {
+                    orders.pollFirst();
+                }
+            }
+            if (!orders.isEmpty()) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private void triggerStops(Book book, double price, List<Event> events) {
+        if (book.stops.isEmpty()) {
+            return;
+        }
+        List<Order> triggered = new ArrayList<>();
+        for (Iterator<Order> it = book.stops.iterator(); it.hasNext(); ) {
+            Order order = it.next();
+            boolean up = order.getType() == OrderType.STOP_LOSS || order.getType() == OrderType.STOP_LOSS_LIMIT
+                    ? order.getSide() == OrderSide.BUY : order.getSide() == OrderSide.SELL;
+            if (up ? price >= order.getStopPrice() : price <= order.getStopPrice()) {
+                it.remove();
+                triggered.add(order);
+            }
+        }
+        for (Order order : triggered) {
+            execute(book, order, events);
+        }
+    }
+
+    /** Takes the available liquidity, then rests or expires the remainder. */
+    private void execute(Book book, Order order, List<Event> events) {
+        boolean buy = order.getSide() == OrderSide.BUY;
+        boolean market = isMarket(order.getType());
+        double limit = market ? (buy ? Double.POSITIVE_INFINITY : 0.0) : order.getPrice();
+        Liquidity liquidity = buy ? book.marketAsks : book.marketBids;
+        if (liquidity.isEmpty()) {
+            Double price = referencePrice(book);
+            if (price != null && crosses(buy, price, limit)) {
+                fill(order, remaining(order), price, false, events);
+            }
+        } else if (order.getTimeInForce() != TimeInForce.FOK || market
+                || liquidity.available(buy, limit) >= remaining(order) - EPSILON) {
+            while (remaining(order) > EPSILON && !liquidity.isEmpty()
+                    && crosses(buy, liquidity.prices[liquidity.start], limit)) {
+                double fill = Math.min(remaining(order), liquidity.quantities[liquidity.start]);
+                fill(order, fill, liquidity.prices[liquidity.start], false, events);
+                liquidity.consume(fill);
+            }
+        }
+        if (remaining(order) <= EPSILON) {
+            return;
+        }
+        if (market || order.getTimeInForce() == TimeInForce.IOC || order.getTimeInForce() == TimeInForce.FOK) {
+            order.setStatus(OrderStatus.EXPIRED);
+            accountManager.release(order);
+            events.add(new Event(snapshot(order), ExecutionType.EXPIRED, null));
+        } else {
+            (buy ? book.bids : book.asks).computeIfAbsent(order.getPrice(), p -> new ArrayDeque<>()).addLast(order);
+        }
+    }
+
+    private void fill(Order order, double quantity, double price, boolean maker, List<Event> events) {
+        Trade trade = accountManager.adaptBalance(order, quantity, price, maker);
+        trade.setId(nextTradeId.getAndIncrement());
+        order.setExecutedQty(order.getExecutedQty() + quantity);
+        order.setStatus(remaining(order) <= EPSILON ? OrderStatus.FILLED : OrderStatus.PARTIALLY_FILLED);
+        if (order.getStatus() == OrderStatus.FILLED) {
+            // fills at better prices leave part of the locked balance
+            accountManager.release(order);
+        }
+        events.add(new Event(snapshot(order), ExecutionType.TRADE, trade));
+    }
+
+    private void reject(Order order, List<Event> events) {
+        order.setStatus(OrderStatus.REJECTED);
+        events.add(new Event(snapshot(order), ExecutionType.REJECTED, null));
+    }
+
+    private boolean removeResting(Book book, Order order) {
+        if (order.getPrice() == null) {
+            return false;
+        }
+        TreeMap<Double, ArrayDeque<Order>> levels = order.getSide() == OrderSide.BUY ? book.bids : book.asks;
+        ArrayDeque<Order> orders = levels.get(order.getPrice());
+        if (orders == null || !orders.remove(order)) {
+            return false;
+        }
+        if (orders.isEmpty()) {
+            levels.remove(order.getPrice());
+        }
+        return true;
+    }
+
+    private boolean wouldTake(Book book, Order order) {
+        boolean buy = order.getSide() == OrderSide.BUY;
+        Liquidity liquidity = buy ? book.marketAsks : book.marketBids;
+        if (!liquidity.isEmpty()) {
+            return crosses(buy, liquidity.prices[liquidity.start], order.getPrice());
+        }
+        Double price = referencePrice(book);
+        return price != null && crosses(buy, price, order.getPrice());
+    }
+
+    /** The price used for the balance check. */
+    private Double expectedPrice(Book book, Order order) {
+        if (!isMarket(order.getType())) {
+            return order.getPrice();
+        }
+        if (order.getStopPrice() != null) {
+            return order.getStopPrice();
+        }
+        Liquidity liquidity = order.getSide() == OrderSide.BUY ? book.marketAsks : book.marketBids;
+        if (!liquidity.isEmpty()) {
+            return liquidity.prices[liquidity.start];
+        }
+        return referencePrice(book);
+    }
+
+    /** The price taken without depth: the last trade price, else the current price of the api. */
+    private Double referencePrice(Book book) {
+        if (!Double.isNaN(book.lastPrice)) {
+            return book.lastPrice;
+        }
+        try {
+            Double price = accountManager.getPrice(book.symbol);
+            return price == null || price <= 0 ? null : price;
+        } catch (RuntimeException e) {
+            log.debug("No price of {}: {}", book.symbol, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean crosses(boolean buy, double price, double limit) {
+        return buy ? price <= limit : price >= limit;
+    }
+
+    private static double remaining(Order order) {
+        return order.getOrigQty() - order.getExecutedQty();
+    }
+
+    private static boolean isMarket(OrderType type) {
+        return type == OrderType.MARKET || type == OrderType.STOP_LOSS || type == OrderType.TAKE_PROFIT;
+    }
+
+    private static boolean isStop(OrderType type) {
+        return type == OrderType.STOP_LOSS || type == OrderType.STOP_LOSS_LIMIT
+                || type == OrderType.TAKE_PROFIT || type == OrderType.TAKE_PROFIT_LIMIT;
+    }
+
+    private static void validate(Order order) throws ApiException {
+        if (order.getSymbol() == null || order.getSide() == null || order.getType() == null) {
+            throw new ApiException("ERROR: -1102, Mandatory parameter symbol, side or type was not sent.");
+        }
+        if (order.getOrigQty() == null || order.getOrigQty() <= 0) {
+            throw new ApiException("ERROR: -1102, Mandatory parameter quantity was not sent or invalid.");
+        }
+        if (!isMarket(order.getType()) && (order.getPrice() == null || order.getPrice() <= 0)) {
+            throw new ApiException("ERROR: -1102, Mandatory parameter price was not sent or invalid.");
+        }
+        if (isStop(order.getType()) && order.getStopPrice() == null) {
+            throw new ApiException("ERROR: -1102, Mandatory parameter stopPrice was not sent.");
+        }
+        if (order.getTimeInForce() == null) {
+            order.setTimeInForce(TimeInForce.GTC);
+        }
+    }
+
+    private static Order snapshot(Order order) {
+        Order copy = new Order();
+        copy.setSymbol(order.getSymbol());
+        copy.setOrderId(order.getOrderId());
+        copy.setClientOrderId(order.getClientOrderId());
+        copy.setPrice(order.getPrice());
+        copy.setOrigQty(order.getOrigQty());
+        copy.setExecutedQty(order.getExecutedQty());
+        copy.setStatus(order.getStatus());
+        copy.setTimeInForce(order.getTimeInForce());
+        copy.setType(order.getType());
+        copy.setSide(order.getSide());
+        copy.setStopPrice(order.getStopPrice());
+        copy.setTrailingDelta(order.getTrailingDelta());
+        copy.setIcebergQty(order.getIcebergQty());
+        copy.setTime(order.getTime());
+        copy.setTest(order.isTest());
+        return copy;
+    }
+
+    private void dispatch(List<Event> events) {
+        for (Event event : events) {
+            for (ExecutionListener listener : listeners) {
+                try {
+                    listener.onExecution(event.order, event.type, event.trade);
+                } catch (RuntimeException e) {
+                    log.error("Execution listener failed on order {}: {}", event.order.getOrderId(), e.toString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds the call metrics to a Micrometer {@link MeterRegistry}. Each phase of an endpoint is published as timer
+ * {@code binance.api.call} tagged with {@code method}, {@code path} and {@code phase}, the charged weight as
+ * counter {@code binance.api.weight} and the failed calls as counter {@code binance.api.errors}.
+ * Requires {@code io.micrometer:micrometer-core} on the classpath.
+ */
+public final class MicrometerApiMetrics implements ApiMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Map<String, Meters>> meters = new ConcurrentHashMap<>();
+
+    public MicrometerApiMetrics(MeterRegistry registry) {
+        this.registry = Objects.requireNonNull(registry);
+    }
+
+    private final class Meters {
+        final Timer[] timers = new Timer[ApiCall.phases().length];
+        final Counter weight;
+        final Counter errors;
+
+        Meters(String method, String path) {
+            for (ApiCall.Phase phase : ApiCall.phases()) {
+                timers[phase.ordinal()] = Timer.builder("binance.api.call")
+                        .tag("method", method)
+                        .tag("path", path)
+                        .tag("phase", phase.name().toLowerCase())
+                        .publishPercentileHistogram()
+                        .register(registry);
+            }
+            weight = Counter.builder("binance.api.weight")
+                    .tag("method", method).tag("path", path).register(registry);
+            errors = Counter.builder("binance.api.errors")
+                    .tag("method", method).tag("path", path).register(registry);
+        }
+    }
+
+    @Override
+    public void record(ApiCall call) {
+        String path = call.getPath();
+        if (path == null) {
+            return;
+        }
+        Map<String, Meters> byMethod = meters.computeIfAbsent(path, p -> new ConcurrentHashMap<>());
+        Meters m = byMethod.computeIfAbsent(call.getMethod(), method -> new Meters(method, path));
+        for (ApiCall.Phase phase : ApiCall.phases()) {
+            m.timers[phase.ordinal()].record(call.getNanos(phase), TimeUnit.NANOSECONDS);
+        }
+        m.weight.increment(call.getWeight());
+        if (call.isError()) {
+            m.errors.increment();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import com.webcerebrium.binance.datatype.OrderRef;
+import com.webcerebrium.binance.datatype.OrderResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Submits the orders of a batch on an executor and collects the per-order results. With a direct executor
+ * the orders are submitted sequentially, with a pool they are pipelined, bounded by the connection and rate
+ * limits of the api.
+ */
+@Slf4j
+final class OrderBatch {
+
+    private OrderBatch(){}
+
+    static List<OrderResult> createOrders(Api api, Executor executor, List<OrderPlacement> placements,
+                                          boolean allOrNothing) {
+        List<OrderResult> results = new ArrayList<>(placements.size());
+        for (int i = 0; i < placements.size(); i++) {
+            results.add(new OrderResult(i, placements.get(i)));
+        }
+        run(executor, results, r -> r.setOrderRef(api.createOrder(r.getPlacement())));
+        if (allOrNothing && results.stream().anyMatch(r -> !r.isSuccess())) {
+            rollback(api, executor, results);
+        }
+        return results;
+    }
+
+    static List<OrderResult> cancelOrders(Api api, Executor executor, List<OrderRef> orders) {
+        List<OrderResult> results = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            results.add(new OrderResult(i, orders.get(i)));
+        }
+        run(executor, results, r -> r.setCanceledOrder(
+                api.deleteOrderById(r.getSymbol(), r.getOrderRef().getOrderId())));
+        return results;
+    }
+
+    private static void rollback(Api api, Executor executor, List<OrderResult> results) {
+        List<OrderRef> placed = new ArrayList<>();
+        List<OrderResult> placedResults = new ArrayList<>();
+        for (OrderResult result : results) {
+            if (result.isSuccess()) {
+                placed.add(result.getOrderRef());
+                placedResults.add(result);
+            }
+        }
+        log.info("Batch placement failed, rolling back {} of {} orders.", placed.size(), results.size());
+        List<OrderResult> canceled = cancelOrders(api, executor, placed);
+        for (int i = 0; i < canceled.size(); i++) {
+            OrderResult cancel = canceled.get(i);
+            if (cancel.isSuccess()) {
+                placedResults.get(i).setRolledBack(true);
+            } else {
+                log.error("Failed to roll back order {} of {}.", cancel.getOrderRef().getOrderId(),
+                        cancel.getSymbol(), cancel.getError());
+            }
+        }
+    }
+
+    private static void run(Executor executor, List<OrderResult> results, Consumer<OrderResult> call) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(results.size());
+        for (OrderResult result : results) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    call.accept(result);
+                } catch (ApiException e) {
+                    result.setError(e);
+                } catch (RuntimeException e) {
+                    result.setError(new ApiException(e.toString()));
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+/**
+ * Listener notified by an {@link OrderTracker} when a tracked order changes its state.
+ */
+public interface OrderListener {
+
+    /**
+     * Called on every state change of an order, before the more specific callbacks.
+     * @param order the order, not null.
+     */
+    default void onUpdate(TrackedOrder order){}
+
+    /**
+     * Called when an order has been filled partially.
+     * @param order the order, not null.
+     */
+    default void onPartiallyFilled(TrackedOrder order){}
+
+    /**
+     * Called when an order has been filled completely.
+     * @param order the order, not null.
+     */
+    default void onFilled(TrackedOrder order){}
+
+    /**
+     * Called when an order has been canceled, rejected or expired.
+     * @param order the order, not null.
+     */
+    default void onCanceled(TrackedOrder order){}
+}
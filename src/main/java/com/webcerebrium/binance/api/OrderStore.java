@@ -0,0 +1,306 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.Order;
+import com.webcerebrium.binance.datatype.OrderStatus;
+import com.webcerebrium.binance.datatype.Trade;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Thread safe store of the orders and trades of a simulated account. Orders are indexed by id, client order id,
+ * symbol, open status and time, trades by id, order, symbol and time, so lookups take constant or logarithmic
+ * time, plus the size of the result.
+ * <p>
+ * Orders are changed in place by the {@link MatchingEngine}, {@link #update(Order)} re-indexes their status.
+ * Results are in ascending id or time order, like the Binance REST API answers them.
+ */
+public class OrderStore {
+
+    /** Default number of results, as on Binance. */
+    public static final int DEFAULT_LIMIT = 500;
+
+    private static final Comparator<Order> ORDER_TIME = Comparator.comparing(Order::getTime)
+            .thenComparing(Order::getOrderId);
+    private static final Comparator<Trade> TRADE_TIME = Comparator.comparing(Trade::getTime)
+            .thenComparing(Trade::getId);
+
+    private final Map<Long, Order> orders = new ConcurrentHashMap<>();
+    private final Map<String, Order> ordersByClientId = new ConcurrentHashMap<>();
+    private final Map<String, Orders> ordersBySymbol = new ConcurrentHashMap<>();
+    private final Map<Long, List<Trade>> tradesByOrder = new ConcurrentHashMap<>();
+    private final Map<String, Trades> tradesBySymbol = new ConcurrentHashMap<>();
+
+    /** The orders of a symbol. */
+    private static final class Orders {
+        final ConcurrentSkipListMap<Long, Order> byId = new ConcurrentSkipListMap<>();
+        final ConcurrentSkipListSet<Order> byTime = new ConcurrentSkipListSet<>(ORDER_TIME);
+        final ConcurrentSkipListMap<Long, Order> open = new ConcurrentSkipListMap<>();
+    }
+
+    /** The trades of a symbol. */
+    private static final class Trades {
+        final ConcurrentSkipListMap<Long, Trade> byId = new ConcurrentSkipListMap<>();
+        final ConcurrentSkipListSet<Trade> byTime = new ConcurrentSkipListSet<>(TRADE_TIME);
+    }
+
+    /**
+     * Checks if an order is open, e.g. new or partially filled.
+     * @param order the order.
+     * @return true, if the order is open.
+     */
+    public static boolean isOpen(Order order) {
+        return order.getStatus() == OrderStatus.NEW || order.getStatus() == OrderStatus.PARTIALLY_FILLED;
+    }
+
+    /**
+     * Adds an order.
+     * @param order the order, with symbol, id and time set.
+     */
+    public void add(Order order) {
+        Objects.requireNonNull(order.getSymbol());
+        Objects.requireNonNull(order.getOrderId());
+        Objects.requireNonNull(order.getTime());
+        if (orders.putIfAbsent(order.getOrderId(), order) != null) {
+            throw new IllegalArgumentException("Duplicate order id: " + order.getOrderId());
+        }
+        if (order.getClientOrderId() != null && !order.getClientOrderId().isEmpty()) {
+            ordersByClientId.put(order.getClientOrderId(), order);
+        }
+        Orders symbolOrders = ordersBySymbol.computeIfAbsent(order.getSymbol(), s -> new Orders());
+        symbolOrders.byId.put(order.getOrderId(), order);
+        symbolOrders.byTime.add(order);
+        update(order);
+    }
+
+    /**
+     * Re-indexes the status of an order after a change.
+     * @param order the order or a snapshot of it.
+     */
+    public void update(Order order) {
+        Order stored = orders.get(order.getOrderId());
+        if (stored == null) {
+            return;
+        }
+        Orders symbolOrders = ordersBySymbol.get(stored.getSymbol());
+        // the last update reads the latest status
+        synchronized (stored) {
+            if (isOpen(stored)) {
+                symbolOrders.open.put(stored.getOrderId(), stored);
+            } else {
+                symbolOrders.open.remove(stored.getOrderId());
+            }
+        }
+    }
+
+    /**
+     * Adds a trade.
+     * @param trade the trade, with symbol, id, order id and time set.
+     */
+    public void addTrade(Trade trade) {
+        Objects.requireNonNull(trade.getSymbol());
+        Objects.requireNonNull(trade.getId());
+        Objects.requireNonNull(trade.getTime());
+        Trades trades = tradesBySymbol.computeIfAbsent(trade.getSymbol(), s -> new Trades());
+        trades.byId.put(trade.getId(), trade);
+        trades.byTime.add(trade);
+        if (trade.getOrderId() != null) {
+            tradesByOrder.computeIfAbsent(trade.getOrderId(), id -> new CopyOnWriteArrayList<>()).add(trade);
+        }
+    }
+
+    public Order getOrder(long orderId) {
+        return orders.get(orderId);
+    }
+
+    public Order getOrderByClientOrderId(String clientOrderId) {
+        return ordersByClientId.get(clientOrderId);
+    }
+
+    /**
+     * Get the symbols with orders.
+     */
+    public Set<String> getSymbols() {
+        return Collections.unmodifiableSet(ordersBySymbol.keySet());
+    }
+
+    public int getOrderCount() {
+        return orders.size();
+    }
+
+    /**
+     * Get the open orders.
+     * @param symbol the symbol, or null for all symbols.
+     * @return the open orders, by symbol and id.
+     */
+    public List<Order> getOpenOrders(String symbol) {
+        List<Order> result = new ArrayList<>();
+        if (symbol != null) {
+            Orders symbolOrders = ordersBySymbol.get(symbol);
+            if (symbolOrders != null) {
+                collect(symbolOrders.open.values(), OrderStore::isOpen, 0, Integer.MAX_VALUE, result);
+            }
+            return result;
+        }
+        for (Orders symbolOrders : ordersBySymbol.values()) {
+            collect(symbolOrders.open.values(), OrderStore::isOpen, 0, Integer.MAX_VALUE, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the orders of a symbol, like the allOrders endpoint: from an order id on, else in a time range, else
+     * the most recent.
+     * @param symbol the symbol, not null.
+     * @param fromOrderId the first order id, or null.
+     * @param startTime the first time in epoch millis, or null.
+     * @param endTime the last time in epoch millis, inclusive, or null.
+     * @param limit the maximal number of orders, {@link #DEFAULT_LIMIT} if not positive.
+     * @return the orders, ascending.
+     */
+    public List<Order> getOrders(String symbol, Long fromOrderId, Long startTime, Long endTime, int limit) {
+        return getOrders(symbol, fromOrderId, startTime, endTime, o -> true, 0, limit);
+    }
+
+    /**
+     * Get the orders of a symbol matching a filter.
+     * @param symbol the symbol, not null.
+     * @param fromOrderId the first order id, or null.
+     * @param startTime the first time in epoch millis, or null.
+     * @param endTime the last time in epoch millis, inclusive, or null.
+     * @param filter the filter, not null.
+     * @param offset the number of matching orders to skip.
+     * @param limit the maximal number of orders, {@link #DEFAULT_LIMIT} if not positive.
+     * @return the orders, ascending.
+     */
+    public List<Order> getOrders(String symbol, Long fromOrderId, Long startTime, Long endTime,
+                                 Predicate<Order> filter, int offset, int limit) {
+        List<Order> result = new ArrayList<>();
+        Orders symbolOrders = ordersBySymbol.get(Objects.requireNonNull(symbol));
+        if (symbolOrders == null) {
+            return result;
+        }
+        limit = limit > 0 ? limit : DEFAULT_LIMIT;
+        if (fromOrderId != null) {
+            collect(symbolOrders.byId.tailMap(fromOrderId).values(), filter, offset, limit, result);
+        } else if (startTime != null || endTime != null) {
+            collect(range(symbolOrders.byTime, orderProbe(startTime, Long.MIN_VALUE),
+                    orderProbe(endTime, Long.MAX_VALUE)), filter, offset, limit, result);
+        } else {
+            collectLast(symbolOrders.byId.descendingMap().values(), filter, offset, limit, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the trades of a symbol, like the myTrades endpoint: of an order, else from a trade id on, else in a
+     * time range, else the most recent.
+     * @param symbol the symbol, or null for the trades of an order.
+     * @param orderId the order, or null.
+     * @param fromId the first trade id, or null.
+     * @param startTime the first time in epoch millis, or null.
+     * @param endTime the last time in epoch millis, inclusive, or null.
+     * @param limit the maximal number of trades, {@link #DEFAULT_LIMIT} if not positive.
+     * @return the trades, ascending.
+     */
+    public List<Trade> getTrades(String symbol, Long orderId, Long fromId, Long startTime, Long endTime, int limit) {
+        List<Trade> result = new ArrayList<>();
+        limit = limit > 0 ? limit : DEFAULT_LIMIT;
+        if (orderId != null) {
+            List<Trade> trades = tradesByOrder.get(orderId);
+            if (trades != null) {
+                Predicate<Trade> filter = t -> (symbol == null || symbol.equals(t.getSymbol()))
+                        && (startTime == null || t.getTime() >= startTime)
+                        && (endTime == null || t.getTime() <= endTime);
+                collect(trades, filter, 0, limit, result);
+            }
+            return result;
+        }
+        Trades trades = tradesBySymbol.get(Objects.requireNonNull(symbol));
+        if (trades == null) {
+            return result;
+        }
+        if (fromId != null) {
+            collect(trades.byId.tailMap(fromId).values(), t -> true, 0, limit, result);
+        } else if (startTime != null || endTime != null) {
+            collect(range(trades.byTime, tradeProbe(startTime, Long.MIN_VALUE), tradeProbe(endTime, Long.MAX_VALUE)),
+                    t -> true, 0, limit, result);
+        } else {
+            collectLast(trades.byId.descendingMap().values(), t -> true, 0, limit, result);
+        }
+        return result;
+    }
+
+    private static <T> NavigableSet<T> range(ConcurrentSkipListSet<T> set, T from, T to) {
+        return set.subSet(from, true, to, true);
+    }
+
+    private static Order orderProbe(Long time, long orderId) {
+        Order probe = new Order();
+        probe.setTime(time != null ? time : orderId);
+        probe.setOrderId(orderId);
+        return probe;
+    }
+
+    private static Trade tradeProbe(Long time, long id) {
+        Trade probe = new Trade();
+        probe.setTime(time != null ? time : id);
+        probe.setId(id);
+        return probe;
+    }
+
+    private static <T> void collect(Collection<T> values, Predicate<? super T> filter, int offset, int limit,
+                                    List<T> result) {
+        for (Iterator<T> it = values.iterator(); it.hasNext() && result.size() < limit; ) {
+            T value = it.next();
+            if (filter.test(value) && offset-- <= 0) {
+                result.add(value);
+            }
+        }
+    }
+
+    private static <T> void collectLast(Collection<T> descending, Predicate<? super T> filter, int offset, int limit,
+                                        List<T> result) {
+        int start = result.size();
+        collect(descending, filter, offset, limit, result);
+        Collections.reverse(result.subList(start, result.size()));
+    }
+}
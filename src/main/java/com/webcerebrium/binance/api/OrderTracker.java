@@ -0,0 +1,423 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.google.common.base.Strings;
+import com.webcerebrium.binance.datatype.Order;
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import com.webcerebrium.binance.datatype.OrderRef;
+import com.webcerebrium.binance.datatype.OrderRequest;
+import com.webcerebrium.binance.datatype.OrderStatus;
+import com.webcerebrium.binance.datatype.events.ExecutionReportEvent;
+import com.webcerebrium.binance.datatype.events.OutboundAccountInfoEvent;
+import com.webcerebrium.binance.jfr.OrderRoundTripEvent;
+import com.webcerebrium.binance.websocket.WebSocketUserDataAdapter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory order state machine fed by {@link ExecutionReportEvent}s of a user data stream. Orders are
+ * indexed by order id and client order id, so open orders can be queried without any REST call. The REST
+ * API is only used to reconcile an order when missed execution reports are detected.
+ */
+@Slf4j
+public class OrderTracker {
+
+    private static final ExecutorService RECONCILE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "OrderTracker-reconcile");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Api api;
+    private final Map<Long, TrackedOrder> ordersById = new ConcurrentHashMap<>();
+    private final Map<String, TrackedOrder> ordersByClientId = new ConcurrentHashMap<>();
+    private final Map<Long, TrackedOrder> openOrders = new ConcurrentHashMap<>();
+    private final List<OrderListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong gapCount = new AtomicLong();
+    private final Executor reconcileExecutor;
+
+    /**
+     * Creates a new tracker, reconciling orders on a shared background thread.
+     * @param api the api used for placing orders and for reconciling orders, not null.
+     */
+    public OrderTracker(Api api) {
+        this(api, RECONCILE_EXECUTOR);
+    }
+
+    /**
+     * Creates a new tracker.
+     * @param api the api used for placing orders and for reconciling orders, not null.
+     * @param reconcileExecutor runs the REST calls reconciling orders after missed execution reports, so they
+     *                          do not block the thread delivering the reports, not null.
+     */
+    public OrderTracker(Api api, Executor reconcileExecutor) {
+        this.api = Objects.requireNonNull(api);
+        this.reconcileExecutor = Objects.requireNonNull(reconcileExecutor);
+    }
+
+    public void addListener(OrderListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeListener(OrderListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Places a new order and tracks it.
+     * @param placement the placement, not null.
+     * @return the tracked order.
+     * @throws ApiException in case of any error
+     */
+    public TrackedOrder createOrder(OrderPlacement placement) throws ApiException {
+        if (!OrderRoundTripEvent.isTypeEnabled()) {
+            return track(api.createOrder(placement));
+        }
+        OrderRoundTripEvent event = OrderRoundTripEvent.placing(placement);
+        OrderRef ref = api.createOrder(placement);
+        event.acknowledged(ref.getOrderId(), ref.getClientOrderId());
+        TrackedOrder order = track(ref);
+        synchronized (order) {
+            order.roundTrip = event;
+            // execution reports may have arrived before the acknowledgement
+            roundTrip(order);
+        }
+        return order;
+    }
+
+    /**
+     * Starts tracking an order that has been placed. Execution reports may arrive before the order
+     * reference is known, they are merged with the tracked order.
+     * @param ref the reference returned from {@link Api#createOrder(OrderPlacement)}, not null.
+     * @return the tracked order.
+     */
+    public TrackedOrder track(OrderRef ref) {
+        TrackedOrder order = resolve(ref.getSymbol(), ref.getOrderId(), ref.getClientOrderId());
+        synchronized (order) {
+            order.placed(ref);
+            index(order);
+        }
+        return order;
+    }
+
+    /**
+     * Updates the tracked order from an execution report. Unknown orders are tracked from now on. If the
+     * report shows that previous reports have been missed, the order is reconciled asynchronously using the
+     * REST API, listeners are notified afterwards.
+     * @param event the execution report, not null.
+     * @return the updated order.
+     */
+    public TrackedOrder onExecutionReport(ExecutionReportEvent event) {
+        String clientOrderId = event.getOriginalClientOrderId() != null
+                ? event.getOriginalClientOrderId() : event.getNewClientOrderId();
+        TrackedOrder order = resolve(event.getSymbol(), event.getOrderId(), clientOrderId);
+        boolean gap;
+        OrderStatus previousStatus;
+        double previousQty;
+        synchronized (order) {
+            previousStatus = order.getStatus();
+            previousQty = order.getExecutedQty();
+            gap = order.apply(event);
+            index(order);
+            roundTrip(order);
+        }
+        if (gap) {
+            gapCount.incrementAndGet();
+            log.info("Missed execution reports for order {} of {}, reconciling.", order.getOrderId(), order.getSymbol());
+            reconcileExecutor.execute(() -> reconcileAfterGap(order, previousStatus, previousQty));
+        } else {
+            notifyListeners(order, previousStatus, event.getQuantityOfLastFilledTrade());
+        }
+        return order;
+    }
+
+    /**
+     * Reloads the order's state using the REST API.
+     * @param order the order, not null.
+     * @return the order.
+     * @throws ApiException in case of any error
+     */
+    public TrackedOrder reconcile(TrackedOrder order) throws ApiException {
+        OrderStatus previousStatus;
+        double previousQty;
+        synchronized (order) {
+            previousStatus = order.getStatus();
+            previousQty = order.getExecutedQty();
+        }
+        update(order, fetch(order), previousStatus, previousQty);
+        return order;
+    }
+
+    /**
+     * Reconciles an order whose report revealed a gap. The report has been applied already, so listeners are
+     * notified relative to the state before the report. If the order cannot be loaded, the reported state is
+     * kept and notified.
+     */
+    private void reconcileAfterGap(TrackedOrder order, OrderStatus previousStatus, double previousQty) {
+        Order remote = null;
+        try {
+            remote = fetch(order);
+        } catch (RuntimeException e) {
+            log.warn("Cannot reconcile order {} of {}, keeping the reported state: {}", order.getOrderId(),
+                    order.getSymbol(), e.getMessage());
+        }
+        update(order, remote, previousStatus, previousQty);
+    }
+
+    private Order fetch(TrackedOrder order) throws ApiException {
+        return api.getOrder(OrderRequest.builder()
+                .symbol(order.getSymbol())
+                .orderId(order.getOrderId())
+                .build());
+    }
+
+    private void update(TrackedOrder order, Order remote, OrderStatus previousStatus, double previousQty) {
+        double executedQty;
+        synchronized (order) {
+            if (remote != null) {
+                order.apply(remote);
+            }
+            index(order);
+            roundTrip(order);
+            executedQty = order.getExecutedQty();
+        }
+        notifyListeners(order, previousStatus, executedQty - previousQty);
+    }
+
+    /**
+     * Get an order by its order id.
+     * @param orderId the order id.
+     * @return the order, or null.
+     */
+    public TrackedOrder getOrder(long orderId) {
+        return ordersById.get(orderId);
+    }
+
+    /**
+     * Get an order by its client order id.
+     * @param clientOrderId the client order id, not null.
+     * @return the order, or null.
+     */
+    public TrackedOrder getOrderByClientOrderId(String clientOrderId) {
+        return ordersByClientId.get(clientOrderId);
+    }
+
+    /**
+     * Get all open orders.
+     * @return the open orders, never null.
+     */
+    public Collection<TrackedOrder> getOpenOrders() {
+        return Collections.unmodifiableCollection(openOrders.values());
+    }
+
+    /**
+     * Get all open orders of a symbol.
+     * @param symbol the symbol, not null.
+     * @return the open orders, never null.
+     */
+    public List<TrackedOrder> getOpenOrders(String symbol) {
+        List<TrackedOrder> result = new ArrayList<>();
+        for (TrackedOrder order : openOrders.values()) {
+            if (symbol.equals(order.getSymbol())) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if an order is open.
+     * @param orderId the order id.
+     * @return true, if the order is known and open.
+     */
+    public boolean isOpen(long orderId) {
+        return openOrders.containsKey(orderId);
+    }
+
+    /**
+     * Get the number of times missed execution reports were detected.
+     * @return the count.
+     */
+    public long getGapCount() {
+        return gapCount.get();
+    }
+
+    /**
+     * Removes closed orders whose last update is older than the given time.
+     * @param olderThan the epoch millis.
+     * @return the number of orders removed.
+     */
+    public int purgeClosedOrders(long olderThan) {
+        int count = 0;
+        for (TrackedOrder order : ordersById.values()) {
+            if (!order.isOpen() && order.getUpdateTime() < olderThan) {
+                ordersById.remove(order.getOrderId());
+                if (order.getClientOrderId() != null) {
+                    ordersByClientId.remove(order.getClientOrderId());
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates a user data adapter that feeds this tracker, e.g. to be used with a {@link UserDataStreamManager}.
+     * @return the adapter, never null.
+     */
+    public WebSocketUserDataAdapter createAdapter() {
+        return new WebSocketUserDataAdapter() {
+            @Override
+            public void onOutboundAccountInfo(OutboundAccountInfoEvent event) throws ApiException {
+                // not relevant for orders
+            }
+
+            @Override
+            public void onExecutionReport(ExecutionReportEvent event) throws ApiException {
+                OrderTracker.this.onExecutionReport(event);
+            }
+        };
+    }
+
+    /**
+     * Get the single instance of an order, creating and indexing it if it is unknown. Acknowledgements and
+     * execution reports of the same order may race, so unknown orders are resolved under one lock.
+     */
+    private TrackedOrder resolve(String symbol, Long orderId, String clientOrderId) {
+        TrackedOrder order = orderId != null ? ordersById.get(orderId) : null;
+        if (order != null) {
+            return order;
+        }
+        synchronized (ordersById) {
+            order = lookup(orderId, clientOrderId);
+            if (order == null) {
+                order = new TrackedOrder(symbol, orderId, emptyToNull(clientOrderId));
+            }
+            if (orderId != null) {
+                ordersById.putIfAbsent(orderId, order);
+            }
+            if (!Strings.isNullOrEmpty(clientOrderId)) {
+                ordersByClientId.putIfAbsent(clientOrderId, order);
+            }
+            return order;
+        }
+    }
+
+    private TrackedOrder lookup(Long orderId, String clientOrderId) {
+        TrackedOrder order = null;
+        if (orderId != null) {
+            order = ordersById.get(orderId);
+        }
+        if (order == null && !Strings.isNullOrEmpty(clientOrderId)) {
+            order = ordersByClientId.get(clientOrderId);
+        }
+        return order;
+    }
+
+    private void index(TrackedOrder order) {
+        if (order.getOrderId() != null) {
+            if (ordersById.get(order.getOrderId()) == null) {
+                synchronized (ordersById) {
+                    ordersById.putIfAbsent(order.getOrderId(), order);
+                }
+            }
+            if (order.isOpen()) {
+                openOrders.put(order.getOrderId(), order);
+            } else {
+                openOrders.remove(order.getOrderId());
+            }
+        }
+        if (order.getClientOrderId() != null && ordersByClientId.get(order.getClientOrderId()) == null) {
+            synchronized (ordersById) {
+                ordersByClientId.putIfAbsent(order.getClientOrderId(), order);
+            }
+        }
+    }
+
+    /**
+     * Commits the order's round trip event, once the order has been filled or has terminated. Must be called
+     * while holding the order's lock.
+     */
+    private static void roundTrip(TrackedOrder order) {
+        OrderRoundTripEvent event = order.roundTrip;
+        if (order.getExecutedQty() > TrackedOrder.EPSILON && order.firstFillNanos == 0
+                && (event != null || OrderRoundTripEvent.isTypeEnabled())) {
+            order.firstFillNanos = System.nanoTime();
+        }
+        if (event != null && (order.firstFillNanos != 0 || !order.isOpen())) {
+            order.roundTrip = null;
+            event.finish(String.valueOf(order.getStatus()), order.firstFillNanos);
+        }
+    }
+
+    private void notifyListeners(TrackedOrder order, OrderStatus previousStatus, Double filledQty) {
+        OrderStatus status = order.getStatus();
+        boolean changed = status != previousStatus || (filledQty != null && filledQty > TrackedOrder.EPSILON);
+        if (!changed) {
+            return;
+        }
+        order.complete();
+        for (OrderListener listener : listeners) {
+            try {
+                listener.onUpdate(order);
+                switch (status) {
+                    case PARTIALLY_FILLED:
+                        listener.onPartiallyFilled(order);
+                        break;
+                    case FILLED:
+                        listener.onFilled(order);
+                        break;
+                    case CANCELED:
+                    case REJECTED:
+                    case EXPIRED:
+                        listener.onCanceled(order);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                log.error("Order listener failed for order {}.", order.getOrderId(), e);
+            }
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return Strings.isNullOrEmpty(value) ? null : value;
+    }
+}
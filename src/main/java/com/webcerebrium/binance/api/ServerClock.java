@@ -0,0 +1,300 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Estimates the exchange's clock from periodic server time samples, NTP style: each sync takes a few samples
+ * and keeps the one with the smallest round trip, since its midpoint brackets the server time most tightly.
+ * The offsets of successive syncs are used to estimate the drift of the local clock. Signed requests use
+ * {@link #timestamp()} and {@link #getRecvWindow()}, so the window is only as wide as the measured network
+ * conditions require.
+ */
+@Slf4j
+public final class ServerClock {
+
+    /** Uncertainty assumed while no sample has been taken. */
+    static final long DEFAULT_UNCERTAINTY_MILLIS = 50;
+    /** Drift is only estimated when the syncs span at least this time. */
+    private static final long MIN_DRIFT_SPAN_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final int HISTORY_SIZE = 16;
+
+    private static final ScheduledExecutorService SYNC_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ServerClock-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Immutable snapshot of the current estimate, read by signing threads without locking. */
+    private static final class Estimate {
+        final long offset;
+        final long localTime;
+        final double drift;
+        final long uncertainty;
+        final long rtt;
+
+        Estimate(long offset, long localTime, double drift, long uncertainty, long rtt) {
+            this.offset = offset;
+            this.localTime = localTime;
+            this.drift = drift;
+            this.uncertainty = uncertainty;
+            this.rtt = rtt;
+        }
+    }
+
+    private final LongSupplier serverTime;
+    private final LongSupplier localTime;
+    private final Deque<long[]> history = new ArrayDeque<>();
+    private volatile Estimate estimate;
+    private volatile int samplesPerSync = 4;
+    private volatile long minRecvWindow = 7000;
+    private volatile long maxRecvWindow = 7000;
+    private volatile long recvWindowMarginMillis = 250;
+    private ScheduledFuture<?> syncTask;
+
+    /**
+     * Creates a clock synchronized with the given api's server time.
+     * @param api the api, not null.
+     */
+    public ServerClock(Api api) {
+        this(Objects.requireNonNull(api)::getServerTime, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a clock with a fixed offset, which is never synchronized.
+     * @param offset the server time offset in milliseconds.
+     */
+    public ServerClock(long offset) {
+        this(() -> {
+            throw new ApiException("Server clock is not synchronized.");
+        }, System::currentTimeMillis);
+        setOffset(offset);
+    }
+
+    ServerClock(LongSupplier serverTime, LongSupplier localTime) {
+        this.serverTime = Objects.requireNonNull(serverTime);
+        this.localTime = Objects.requireNonNull(localTime);
+        this.estimate = new Estimate(0, localTime.getAsLong(), 0.0, DEFAULT_UNCERTAINTY_MILLIS, -1);
+    }
+
+    /**
+     * Sets the offset, discarding all samples.
+     * @param offset the server time offset in milliseconds.
+     */
+    public synchronized void setOffset(long offset) {
+        history.clear();
+        estimate = new Estimate(offset, localTime.getAsLong(), 0.0, DEFAULT_UNCERTAINTY_MILLIS, -1);
+    }
+
+    /**
+     * Samples the server time and updates the estimate.
+     * @throws ApiException if no sample could be taken.
+     */
+    public void sync() throws ApiException {
+        long bestRtt = Long.MAX_VALUE;
+        long bestOffset = 0;
+        long bestTime = 0;
+        ApiException error = null;
+        for (int i = 0; i < samplesPerSync; i++) {
+            try {
+                long t0 = localTime.getAsLong();
+                long server = serverTime.getAsLong();
+                long t1 = localTime.getAsLong();
+                long rtt = t1 - t0;
+                if (rtt < bestRtt) {
+                    bestRtt = rtt;
+                    bestTime = t0 + rtt / 2;
+                    bestOffset = server - bestTime;
+                }
+            } catch (ApiException e) {
+                error = e;
+            }
+        }
+        if (bestRtt == Long.MAX_VALUE) {
+            throw error != null ? error : new ApiException("No server time sample taken.");
+        }
+        update(bestTime, bestOffset, bestRtt);
+    }
+
+    private synchronized void update(long sampleTime, long offset, long rtt) {
+        history.addLast(new long[]{sampleTime, offset, rtt});
+        while (history.size() > HISTORY_SIZE) {
+            history.removeFirst();
+        }
+        double drift = estimateDrift();
+        // the true offset lies within +-rtt/2 of the midpoint estimate, plus one tick of rounding
+        long uncertainty = rtt / 2 + 1;
+        estimate = new Estimate(offset, sampleTime, drift, uncertainty, rtt);
+        log.debug("Server clock synced: offset={}ms rtt={}ms drift={}ppm", offset, rtt, drift * 1e6);
+    }
+
+    /** Least squares slope of the offsets over local time, in ms per ms. */
+    private double estimateDrift() {
+        if (history.size() < 3 || history.getLast()[0] - history.getFirst()[0] < MIN_DRIFT_SPAN_MILLIS) {
+            return 0.0;
+        }
+        long t0 = history.getFirst()[0];
+        double n = history.size(), sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (long[] s : history) {
+            double x = s[0] - t0;
+            sx += x;
+            sy += s[1];
+            sxx += x * x;
+            sxy += x * s[1];
+        }
+        double denominator = n * sxx - sx * sx;
+        return denominator == 0 ? 0.0 : (n * sxy - sx * sy) / denominator;
+    }
+
+    /**
+     * Starts synchronizing periodically in the background. The first background sync runs after one period,
+     * call {@link #sync()} to synchronize right away.
+     * @param periodMillis the sync period.
+     */
+    public synchronized void start(long periodMillis) {
+        stop();
+        syncTask = SYNC_EXECUTOR.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (Exception e) {
+                log.warn("Server clock sync failed: {}", e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background synchronization.
+     */
+    public synchronized void stop() {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+            syncTask = null;
+        }
+    }
+
+    /**
+     * Get the current offset of the server clock, including the estimated drift since the last sync.
+     * @return the offset in milliseconds.
+     */
+    public long getOffset() {
+        Estimate e = estimate;
+        return e.offset + Math.round(e.drift * (localTime.getAsLong() - e.localTime));
+    }
+
+    /**
+     * Get the estimated server time.
+     * @return the server time in epoch milliseconds.
+     */
+    public long currentTimeMillis() {
+        return localTime.getAsLong() + getOffset();
+    }
+
+    /**
+     * Get the timestamp to sign requests with. It is biased back by the estimate's uncertainty, so requests
+     * are not rejected for being ahead of the server.
+     * @return the timestamp in epoch milliseconds.
+     */
+    public long timestamp() {
+        return currentTimeMillis() - estimate.uncertainty;
+    }
+
+    /**
+     * Get the receive window to sign requests with. It covers the last round trip and the uncertainty of
+     * the estimate plus a margin, bounded by the min and max receive window. Before the first sync the max
+     * receive window is returned.
+     * <p>
+     * The round trip is measured on {@code /time} over a warm connection, while a signed request may still
+     * open a new TLS connection after being signed. The min receive window therefore defaults to the max,
+     * 7000 ms, as before; lowering it narrows the window to the measured network conditions at the risk of
+     * -1021 rejections for requests delayed after signing.
+     * @return the receive window in milliseconds.
+     */
+    public long getRecvWindow() {
+        Estimate e = estimate;
+        if (e.rtt < 0) {
+            return maxRecvWindow;
+        }
+        long window = e.rtt + 2 * e.uncertainty + recvWindowMarginMillis;
+        return Math.max(minRecvWindow, Math.min(maxRecvWindow, window));
+    }
+
+    /**
+     * Get the drift of the local clock.
+     * @return the drift in parts per million, positive if the local clock is slow.
+     */
+    public double getDriftPpm() {
+        return estimate.drift * 1e6;
+    }
+
+    /**
+     * Get the round trip time of the sample the estimate is based on.
+     * @return the round trip in milliseconds, or -1 if not synchronized.
+     */
+    public long getRoundTripMillis() {
+        return estimate.rtt;
+    }
+
+    public long getUncertaintyMillis() {
+        return estimate.uncertainty;
+    }
+
+    public boolean isSynchronized() {
+        return estimate.rtt >= 0;
+    }
+
+    public void setSamplesPerSync(int samplesPerSync) {
+        if (samplesPerSync < 1) {
+            throw new IllegalArgumentException("At least one sample required.");
+        }
+        this.samplesPerSync = samplesPerSync;
+    }
+
+    /**
+     * Sets the lower bound of the receive window, 7000 ms by default.
+     * @param minRecvWindow the min receive window in milliseconds.
+     */
+    public void setMinRecvWindow(long minRecvWindow) {
+        this.minRecvWindow = minRecvWindow;
+    }
+
+    public void setMaxRecvWindow(long maxRecvWindow) {
+        this.maxRecvWindow = maxRecvWindow;
+    }
+
+    public void setRecvWindowMarginMillis(long recvWindowMarginMillis) {
+        this.recvWindowMarginMillis = recvWindowMarginMillis;
+    }
+}
@@ -26,10 +26,16 @@
 package com.webcerebrium.binance.api;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.webcerebrium.binance.datatype.*;
+import com.webcerebrium.binance.datatype.events.AggregatedTradeEvent;
+import com.webcerebrium.binance.datatype.events.DepthLevelUpdateEvent;
+import com.webcerebrium.binance.replay.MarketReplay;
+import com.webcerebrium.binance.websocket.WebSocketAggTradesAdapter;
+import com.webcerebrium.binance.websocket.WebSocketDepthLevelAdapter;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jetty.websocket.api.*;
@@ -37,6 +43,7 @@ import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.time.Clock;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -44,18 +51,104 @@ import java.util.concurrent.ConcurrentHashMap;
 @Data
 public class SimulatorApi implements Api {
 
+    /** The live api, null if the simulator runs offline. */
     private DefaultApi defaultApi;
+    private MarketData marketData;
     private TestAccountManager testAccountManager;
     private TestOrderManager testOrderManager;
     private TestDepositManager depositManager;
     private Map<String,MockSession> sessions = new ConcurrentHashMap<>();
-    private Set<String> sessionKeys = new HashSet<>();
-
+    private Set<String> sessionKeys = ConcurrentHashMap.newKeySet();
+    /** Optional replay feeding the market data streams. */
+    private MarketReplay replay;
+    /** Optional clock replacing the server time, e.g. the clock of the replay. */
+    private Clock clock;
+    /** If set, orders are matched against the live streams, when no replay is set. */
+    private boolean liveMarketData;
+    private Set<String> marketDataSymbols = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a simulator of the account of a live api, serving the live market data.
+     * @param defaultApi the api, not null.
+     */
     public SimulatorApi(DefaultApi defaultApi) throws ApiException {
         this.defaultApi = Objects.requireNonNull(defaultApi);
+        this.marketData = new LiveMarketData(defaultApi);
         this.testAccountManager = new TestAccountManager(defaultApi);
+        init();
+    }
+
+    /**
+     * Creates an offline simulator. Calls without a local counterpart, e.g. the node info, fail with an
+     * {@link ApiException}.
+     * @param marketData the market data, e.g. a {@link com.webcerebrium.binance.replay.RecordedMarketData}.
+     * @param account the starting account, see {@link TestAccountManager#createAccount(Map)}.
+     */
+    public SimulatorApi(MarketData marketData, Account account) throws ApiException {
+        this.marketData = Objects.requireNonNull(marketData);
+        this.testAccountManager = new TestAccountManager(marketData, account);
+        init();
+    }
+
+    private void init() {
         this.testOrderManager = new TestOrderManager(testAccountManager);
         this.depositManager = new TestDepositManager(testAccountManager);
+        this.testOrderManager.getMatchingEngine().addListener(this::pushExecution);
+    }
+
+    /**
+     * Checks if the simulator runs without live api.
+     */
+    public boolean isOffline() {
+        return defaultApi == null;
+    }
+
+    private DefaultApi online(String operation) throws ApiException {
+        if (defaultApi == null) {
+            throw new ApiException(operation + " is not available in an offline simulator.");
+        }
+        return defaultApi;
+    }
+
+    private void pushExecution(Order order, ExecutionType type, Trade trade) {
+        for (Map.Entry<String, MockSession> en : sessions.entrySet()) {
+            if (sessionKeys.contains(en.getKey()) && en.getValue().isOpen()) {
+                en.getValue().pushOrderUpdate(order, type, trade);
+            }
+        }
+    }
+
+    /**
+     * Connects the matching engine to the trades and the partial depth of a symbol, from the replay or the live
+     * streams.
+     */
+    private void connectMarketData(String symbol) {
+        if ((replay == null && (!liveMarketData || defaultApi == null)) || !marketDataSymbols.add(symbol)) {
+            return;
+        }
+        MatchingEngine engine = testOrderManager.getMatchingEngine();
+        WebSocketAggTradesAdapter trades = new WebSocketAggTradesAdapter() {
+            @Override
+            public void onMessage(AggregatedTradeEvent event) {
+                engine.onTrade(symbol, event.getPrice(), event.getQuantity(), event.isMaker());
+            }
+        };
+        WebSocketDepthLevelAdapter depth = new WebSocketDepthLevelAdapter() {
+            @Override
+            public void onMessage(DepthLevelUpdateEvent event) {
+                engine.onDepth(symbol, event.getBids(), event.getAsks());
+            }
+        };
+        if (replay != null) {
+            String stream = symbol.toLowerCase();
+            replay.subscribe(stream + "@aggTrade", trades);
+            replay.subscribe(stream + "@depth5", depth);
+            replay.subscribe(stream + "@depth10", depth);
+            replay.subscribe(stream + "@depth20", depth);
+        } else {
+            defaultApi.websocketTrades(symbol, trades);
+            defaultApi.websocketDepth20(symbol, depth);
+        }
     }
 
     public void initialize(){
@@ -64,57 +157,82 @@ public class SimulatorApi implements Api {
 
     @Override
     public boolean ping() {
-        return defaultApi.ping();
+        return defaultApi == null || defaultApi.ping();
     }
 
     @Override
     public Long getServerTime() throws ApiException {
+        if (clock != null || defaultApi == null) {
+            return currentTimeMillis();
+        }
         return defaultApi.getServerTime();
     }
 
+    /**
+     * Sets the replay feeding the market data streams. Sessions opened afterwards receive the replayed frames of
+     * their stream, the server time and the time of simulated trades follow the replay's clock.
+     * @param replay the replay, or null.
+     */
+    public void setReplay(MarketReplay replay) {
+        this.replay = replay;
+        this.marketDataSymbols.clear();
+        setClock(replay == null ? null : replay.getClock());
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        testAccountManager.setClock(clock == null ? Clock.systemUTC() : clock);
+    }
+
+    private long currentTimeMillis() {
+        return clock != null ? clock.millis() : System.currentTimeMillis();
+    }
+
     @Override
     public NodeInfos getNodeInfo() throws ApiException {
-        return defaultApi.getNodeInfo();
+        return online("getNodeInfo").getNodeInfo();
     }
 
     @Override
     public List<Peer> getPeers() throws ApiException {
-        return defaultApi.getPeers();
+        return online("getPeers").getPeers();
     }
 
     @Override
     public Depth getDepth(String symbol) throws ApiException {
-        return defaultApi.getDepth(symbol);
+        Depth depth = testOrderManager.getMatchingEngine().getDepth(symbol);
+        return depth != null ? depth : online("getDepth").getDepth(symbol);
     }
 
     @Override
     public Depth getDepth(String symbol, int limit) throws ApiException {
-        return defaultApi.getDepth(symbol, limit);
+        Depth depth = testOrderManager.getMatchingEngine().getDepth(symbol);
+        return depth != null ? depth : online("getDepth").getDepth(symbol, limit);
     }
 
     @Override
     public JsonObject getOptionInfo() throws ApiException {
-        return defaultApi.getOptionInfo();
+        return online("getOptionInfo").getOptionInfo();
     }
 
     @Override
     public JsonObject getSpotTickers() throws ApiException {
-        return defaultApi.getSpotTickers();
+        return online("getSpotTickers").getSpotTickers();
     }
 
     @Override
     public JsonObject getMarkPrice(String symbol) throws ApiException {
-        return defaultApi.getMarkPrice(symbol);
+        return online("getMarkPrice").getMarkPrice(symbol);
     }
 
     @Override
     public List<MarketPair> getIsolatedPairs(Integer recvWindow) throws ApiException {
-        return defaultApi.getIsolatedPairs(recvWindow);
+        return online("getIsolatedPairs").getIsolatedPairs(recvWindow);
     }
 
     @Override
     public List<MarketPair> getCrossMargingPairs() throws ApiException {
-        return defaultApi.getCrossMargingPairs();
+        return online("getCrossMargingPairs").getCrossMargingPairs();
     }
 
     @Override
@@ -124,52 +242,63 @@ public class SimulatorApi implements Api {
 
     @Override
     public List<AggregatedTrades> getAggregatedTrades(AggregatedTradesRequest request) throws ApiException {
-        return testOrderManager.getAggregatedTrades(request);
+        return marketData.getAggregatedTrades(request);
     }
 
     @Override
     public List<Candlestick> getCandlestickBars(CandlesticksRequest request) throws ApiException {
-        return defaultApi.getCandlestickBars(request);
+        return marketData.getCandlestickBars(request);
     }
 
     @Override
     public ExchangeInfo getExchangeInfo() throws ApiException {
-        return defaultApi.getExchangeInfo();
+        return marketData.getExchangeInfo();
     }
 
     @Override
     public List<Ticker24> get24HrPriceStatistics() throws ApiException {
-        return defaultApi.get24HrPriceStatistics();
+        return online("get24HrPriceStatistics").get24HrPriceStatistics();
     }
 
     @Override
     public Ticker24 get24HrPriceStatistics(String symbol) throws ApiException {
-        return defaultApi.get24HrPriceStatistics(symbol);
+        return online("get24HrPriceStatistics").get24HrPriceStatistics(symbol);
     }
 
     @Override
     public Double getPrice(String symbol) throws ApiException {
-        return defaultApi.getPrice(symbol);
+        double last = testOrderManager.getMatchingEngine().getLastPrice(symbol);
+        return Double.isNaN(last) ? marketData.getPrice(symbol) : last;
     }
 
     @Override
     public Map<String, Double> getPrices() throws ApiException {
-        return defaultApi.getPrices();
+        if (defaultApi != null) {
+            return defaultApi.getPrices();
+        }
+        Map<String, Double> prices = new TreeMap<>();
+        for (String symbol : marketData.getExchangeInfo().getSymbols()) {
+            Double price = getPrice(symbol);
+            if (price != null) {
+                prices.put(symbol, price);
+            }
+        }
+        return prices;
     }
 
     @Override
     public AveragePrice getAveragePrice(String symbol) throws ApiException {
-        return defaultApi.getAveragePrice(symbol);
+        return online("getAveragePrice").getAveragePrice(symbol);
     }
 
     @Override
     public List<Ticker> getBookTickers() throws ApiException {
-        return defaultApi.getBookTickers();
+        return online("getBookTickers").getBookTickers();
     }
 
     @Override
     public Ticker getBookTicker(String symbol) throws ApiException {
-        return defaultApi.getBookTicker(symbol);
+        return online("getBookTicker").getBookTicker(symbol);
     }
 
     @Override
@@ -179,7 +308,15 @@ public class SimulatorApi implements Api {
 
     @Override
     public TradeFee getTradeFee(String symbol, Integer recvWindow) throws ApiException {
-        return defaultApi.getTradeFee(symbol, recvWindow);
+        if (defaultApi != null) {
+            return defaultApi.getTradeFee(symbol, recvWindow);
+        }
+        TradeFee fee = new TradeFee();
+        fee.setSymbol(symbol);
+        fee.setMakerCommission(TestAccountManager.COMMISSION_RATE);
+        fee.setTakerCommission(TestAccountManager.COMMISSION_RATE);
+        fee.setTimestamp(currentTimeMillis());
+        return fee;
     }
 
     @Override
@@ -234,6 +371,9 @@ public class SimulatorApi implements Api {
 
     @Override
     public OrderRef createOrder(OrderPlacement orderPlacement) throws ApiException {
+        if (orderPlacement.getSymbol() != null) {
+            connectMarketData(orderPlacement.getSymbol());
+        }
         return testOrderManager.createOrder(orderPlacement);
     }
 
@@ -279,7 +419,12 @@ public class SimulatorApi implements Api {
 
     @Override
     public SystemStatus getSystemStatus() throws ApiException {
-        return defaultApi.getSystemStatus();
+        if (defaultApi != null) {
+            return defaultApi.getSystemStatus();
+        }
+        SystemStatus status = new SystemStatus();
+        status.setMessage("normal");
+        return status;
     }
 
     @Override
@@ -340,6 +485,9 @@ public class SimulatorApi implements Api {
         MockSession session = new MockSession(url, adapter);
         this.sessions.put(url, session);
         adapter.onWebSocketConnect(session);
+        if (replay != null) {
+            replay.subscribe(url, adapter);
+        }
         return session;
     }
 
@@ -348,7 +496,7 @@ public class SimulatorApi implements Api {
 
         private final String url;
         private final WebSocketAdapter adapter;
-        private Gson gson = new Gson();
+        private Gson gson = new GsonBuilder().serializeNulls().create();
         
         private WebSocketPolicy clientPolicy = WebSocketPolicy.newClientPolicy();
         private InetSocketAddress remoteAddress = InetSocketAddress.createUnresolved("simluator.binance.com", 8899);
@@ -372,6 +520,10 @@ public class SimulatorApi implements Api {
 
         @Override
         public void close(int i, String s) {
+            MarketReplay replay = SimulatorApi.this.replay;
+            if (replay != null) {
+                replay.unsubscribe(url, adapter);
+            }
             this.adapter.onWebSocketClose(i, s);
             closed = true;
         }
@@ -444,7 +596,7 @@ public class SimulatorApi implements Api {
         public void pushAccountUpdate(Account account){
             JsonObject o = new JsonObject();
             o.addProperty("e", "outboundAccountInfo");
-            o.get("E").getAsLong();
+            o.addProperty("E", currentTimeMillis());
             o.addProperty("m", 0L);
             o.addProperty("t", 0L);
             o.addProperty("b", 0L);
@@ -464,7 +616,7 @@ public class SimulatorApi implements Api {
         public void pushAssetUpdate(Asset asset){
             JsonObject o = new JsonObject();
             o.addProperty("e", "outboundAccountInfo");
-            o.get("E").getAsLong();
+            o.addProperty("E", currentTimeMillis());
             o.addProperty("m", 0L);
             o.addProperty("t", 0L);
             o.addProperty("b", 0L);
@@ -479,34 +631,36 @@ public class SimulatorApi implements Api {
             adapter.onWebSocketText(gson.toJson(o));
         }
 
-        public void pushOrderUpdate(Order order, Trade trade){
+        public void pushOrderUpdate(Order order, ExecutionType type, Trade trade){
             JsonObject o = new JsonObject();
             o.addProperty("e", "executionReport");
-            o.addProperty("E", order.getTime());
+            o.addProperty("E", currentTimeMillis());
             o.addProperty("s", order.getSymbol());
             o.addProperty("c", order.getClientOrderId());
 
             o.addProperty("S", order.getSide().toString()); // was using "c" again
             o.addProperty("o", order.getType().toString());
-            o.addProperty("f", order.getTimeInForce().toString());
+            o.addProperty("f", (order.getTimeInForce() == null ? TimeInForce.GTC : order.getTimeInForce()).toString());
 
-            o.addProperty("p", order.getPrice());
-            o.addProperty("q", order.getExecutedQty());
+            o.addProperty("p", order.getPrice() == null ? 0.0 : order.getPrice());
+            o.addProperty("q", order.getOrigQty());
+            o.addProperty("P", order.getStopPrice() == null ? 0.0 : order.getStopPrice());
 
-            o.addProperty("x", order.getStatus().toString()); // BinanceExecutionType
-            o.addProperty("X", order.getStatus().toString()); // BinanceExecutionType
+            o.addProperty("x", type.toString());
+            o.addProperty("X", order.getStatus().toString());
             o.addProperty("r", RejectReason.NONE.toString());
 
             o.addProperty("i", order.getOrderId());
-            o.addProperty("l", order.getExecutedQty());
-            o.addProperty("z", order.getExecutedQty());
-            o.addProperty("L", order.getPrice());
+            o.addProperty("l", trade == null ? 0.0 : trade.getQty());
+            o.addProperty("z", order.getExecutedQty() == null ? 0.0 : order.getExecutedQty());
+            o.addProperty("L", trade == null ? 0.0 : trade.getPrice());
 
-            o.addProperty("L", trade.getCommission());
+            o.addProperty("n", trade == null ? 0.0 : trade.getCommission());
+            o.addProperty("N", trade == null ? null : trade.getCommissionAsset());
 
-            o.addProperty("T", trade.getTime());
-            o.addProperty("t", trade.getId());
-            o.addProperty("m", trade.isMaker());
+            o.addProperty("T", trade == null ? currentTimeMillis() : trade.getTime());
+            o.addProperty("t", trade == null ? -1L : trade.getId());
+            o.addProperty("m", trade != null && trade.isMaker());
             adapter.onWebSocketText(gson.toJson(o));
         }
 
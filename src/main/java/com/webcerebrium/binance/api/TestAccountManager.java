@@ -28,121 +28,222 @@ package com.webcerebrium.binance.api;
 import com.webcerebrium.binance.datatype.*;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class TestAccountManager {
 
+    /** Commission charged on simulated trades, 0.1% like the Binance base tier. */
+    static final double COMMISSION_RATE = 0.001;
+
     private Api api;
+    private MarketData marketData;
     private Account account;
     private ExchangeInfo exchangeInfo;
+    private Clock clock = Clock.systemUTC();
+    /** Guards all balances of the account, which are shared by the books of all symbols. */
+    private final Object balanceLock = new Object();
+    /** The balance still locked per open order id, guarded by the balance lock. */
+    private final Map<Long, Double> reservations = new HashMap<>();
 
+    /**
+     * Creates a manager simulating the account of a live api.
+     * @param api the api, not null.
+     */
     public TestAccountManager(Api api){
         this.api = Objects.requireNonNull(api);
+        this.marketData = new LiveMarketData(api);
+        checkService();
+    }
+
+    /**
+     * Creates a manager simulating an account offline.
+     * @param marketData the market data, not null.
+     * @param account the starting account, not null.
+     */
+    public TestAccountManager(MarketData marketData, Account account){
+        this.marketData = Objects.requireNonNull(marketData);
+        this.account = Objects.requireNonNull(account);
         checkService();
     }
 
+    /**
+     * Creates an account, e.g. as starting account of an offline simulation.
+     * @param balances the free balances by asset, e.g. "BTC".
+     * @return the account.
+     */
+    public static Account createAccount(Map<String, Double> balances) {
+        Account account = new Account();
+        account.setCanTrade(true);
+        account.setAccountType("SPOT");
+        account.setMakerCommission(COMMISSION_RATE * 10_000);
+        account.setTakerCommission(COMMISSION_RATE * 10_000);
+        Map<String, Asset> assets = new ConcurrentHashMap<>();
+        balances.forEach((name, free) -> {
+            Asset asset = new Asset(name);
+            asset.setFree(free);
+            asset.setLocked(0.0);
+            assets.put(name, asset);
+        });
+        account.setAssets(assets);
+        return account;
+    }
+
     private void checkService() {
         try {
-            if(account==null)
+            if(account==null && api!=null)
                 account = api.getAccount();
             if(exchangeInfo==null)
-                exchangeInfo = api.getExchangeInfo();
+                exchangeInfo = marketData.getExchangeInfo();
         }catch(Exception e){
             log.error("Error initializing account manager.", e);
         }
     }
 
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets the clock used for the time of simulated trades.
+     * @param clock the clock, not null.
+     */
+    public void setClock(Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
+
     public Account getAccount()throws ApiException {
         checkService();
         return account;
     }
 
-    public Trade adaptBalance(Order order) throws ApiException {
+    /**
+     * Locks the balance an order needs for its remaining quantity, like the exchange does when an order is
+     * placed: the quote asset including the commission for buy orders, the base asset for sell orders.
+     * @param order the order, not null, with its order id set.
+     * @param price the expected price of the fills.
+     * @return true, if the free balance covered the order and is locked now, false if it is insufficient.
+     */
+    public boolean reserve(Order order, double price) throws ApiException {
         checkService();
-        String symbol = order.getSymbol();
-        ExchangeSymbol exchangeData = exchangeInfo.getSymbol(symbol);
-        String baseCoin = exchangeData.getBaseAsset();
-        String targetCoin = exchangeData.getQuoteAsset();
-        Asset baseAsset = account.getAsset(baseCoin);
-        Asset targetAsset = account.getAsset(targetCoin);
-        if(baseAsset == null){
-            throw new ApiException("Unknown base coin: " + baseCoin + " in symbol " + symbol);
-        }
-        if(targetAsset == null){
-            throw new ApiException("Unknown target coin: " + targetCoin + " in symbol " + symbol);
+        ExchangeSymbol exchangeData = getExchangeSymbol(order.getSymbol());
+        double amount = order.getOrigQty() - (order.getExecutedQty() == null ? 0.0 : order.getExecutedQty());
+        boolean buy = order.getSide() == OrderSide.BUY;
+        double required = buy ? amount * price * (1 + COMMISSION_RATE) : amount;
+        synchronized (balanceLock) {
+            Asset asset = account.getAsset(buy ? exchangeData.getQuoteAsset() : exchangeData.getBaseAsset());
+            if (asset == null || value(asset.getFree()) < required) {
+                return false;
+            }
+            asset.setFree(value(asset.getFree()) - required);
+            asset.setLocked(value(asset.getLocked()) + required);
+            reservations.merge(order.getOrderId(), required, Double::sum);
+            return true;
         }
-        double amount = order.getOrigQty();
-        double price = 0.0;
-        if(order.getPrice()!=null){
-            price = order.getPrice();
-        }else{
-            Double d = api.getPrice(order.getSymbol());
-            if(d!=null){
-                price = d;
+    }
+
+    /**
+     * Unlocks what is left of the balance locked for an order, once it is filled, canceled or expired.
+     * @param order the order, not null.
+     */
+    public void release(Order order) throws ApiException {
+        checkService();
+        ExchangeSymbol exchangeData = getExchangeSymbol(order.getSymbol());
+        synchronized (balanceLock) {
+            Double reserved = reservations.remove(order.getOrderId());
+            if (reserved == null) {
+                return;
             }
+            Asset asset = account.getAsset(order.getSide() == OrderSide.BUY
+                    ? exchangeData.getQuoteAsset() : exchangeData.getBaseAsset());
+            asset.setLocked(value(asset.getLocked()) - reserved);
+            asset.setFree(value(asset.getFree()) + reserved);
         }
-        order.setPrice(price);
+    }
 
+    /**
+     * Books a (partial) fill of an order, charging the commission in the quote asset. The balance locked for
+     * the order is used first. The order itself is not changed.
+     * @param order the order, not null.
+     * @param quantity the quantity filled.
+     * @param price the price of the fill.
+     * @param maker true, if the order was resting in the book.
+     * @return the trade, without id.
+     */
+    public Trade adaptBalance(Order order, double quantity, double price, boolean maker) throws ApiException {
+        checkService();
+        ExchangeSymbol exchangeData = getExchangeSymbol(order.getSymbol());
+        Asset baseAsset = account.getAsset(exchangeData.getBaseAsset());
+        Asset targetAsset = account.getAsset(exchangeData.getQuoteAsset());
+        if (baseAsset == null || targetAsset == null) {
+            throw new ApiException("Unknown coin in symbol " + order.getSymbol());
+        }
+        double quoteAmount = quantity * price;
+        double commission = quoteAmount * COMMISSION_RATE;
         Trade trade = new Trade();
-        trade.setTime(System.currentTimeMillis());
+        trade.setSymbol(order.getSymbol());
+        trade.setOrderId(order.getOrderId());
+        trade.setTime(clock.millis());
+        trade.setPrice(price);
+        trade.setQty(quantity);
+        trade.setMaker(maker);
         trade.setBestMatch(true);
-
-        if(price==0.0){
-            log.warn("No price available for order of {}", symbol);
-            order.setExecutedQty(0.0);
-            trade.setBestMatch(false);
-            order.setStatus(OrderStatus.REJECTED);
-            trade.setCommission(0.0);
-        }else {
-            double quoteAmount = amount * price;
-            double commission = quoteAmount * 0.001;
-
-            order.setExecutedQty(amount);
-            order.setStatus(OrderStatus.FILLED);
-            trade.setCommission(commission);
-            trade.setCommissionAsset(targetCoin);
-
-            switch(order.getSide()){
-                case BUY:
-                    trade.setBuyer(true);
-                    if(targetAsset.getFree()<(quoteAmount+commission)){
-                        log.warn("Not enough balance on {} , required: {}, available: {}, correcting...", targetCoin, quoteAmount, targetAsset.getFree());
-                        quoteAmount = targetAsset.getFree() - commission;
-                        amount = targetAsset.getFree() / price;
-                    }
-                    targetAsset.setFree(targetAsset.getFree()-quoteAmount);
-                    targetAsset.setFree(targetAsset.getFree()-commission);
-                    baseAsset.setFree(baseAsset.getFree()+amount);
-                    break;
-                case SELL:
-                    trade.setBuyer(false);
-                    if(baseAsset.getFree()<amount){
-                        log.warn("Not enough balance on {} , required: {}, available: {}, correcting...", baseCoin, amount, baseAsset.getFree());
-                        amount = baseAsset.getFree();
-                        quoteAmount = baseAsset.getFree() * price;
-                    }
-                    targetAsset.setFree(targetAsset.getFree()+quoteAmount);
-                    targetAsset.setFree(targetAsset.getFree()-commission);
-                    baseAsset.setFree(baseAsset.getFree()-amount);
-                    break;
+        trade.setCommission(commission);
+        trade.setCommissionAsset(exchangeData.getQuoteAsset());
+        synchronized (balanceLock) {
+            if (order.getSide() == OrderSide.BUY) {
+                trade.setBuyer(true);
+                spend(order, targetAsset, quoteAmount + commission);
+                baseAsset.setFree(value(baseAsset.getFree()) + quantity);
+            } else {
+                spend(order, baseAsset, quantity);
+                targetAsset.setFree(value(targetAsset.getFree()) + quoteAmount - commission);
             }
         }
-        trade.setQty(amount);
-        order.setExecutedQty(amount);
-        log.info("New free balance " + baseCoin + " " + baseAsset.getFree());
-        log.info("New free balance " + targetCoin + " " + targetAsset.getFree());
         return trade;
     }
 
+    /** Takes an amount from the balance locked for an order, the part exceeding it from the free balance. */
+    private void spend(Order order, Asset asset, double amount) {
+        double reserved = reservations.getOrDefault(order.getOrderId(), 0.0);
+        double fromLocked = Math.min(reserved, amount);
+        if (fromLocked > 0) {
+            reservations.put(order.getOrderId(), reserved - fromLocked);
+            asset.setLocked(value(asset.getLocked()) - fromLocked);
+        }
+        asset.setFree(value(asset.getFree()) - (amount - fromLocked));
+    }
+
+    private static double value(Double amount) {
+        return amount == null ? 0.0 : amount;
+    }
+
+    Double getPrice(String symbol) {
+        return marketData.getPrice(symbol);
+    }
+
+    private ExchangeSymbol getExchangeSymbol(String symbol) {
+        ExchangeSymbol exchangeData = exchangeInfo == null ? null : exchangeInfo.getSymbol(symbol);
+        if (exchangeData == null) {
+            throw new ApiException("ERROR: -1121, Invalid symbol: " + symbol);
+        }
+        return exchangeData;
+    }
+
     public void adaptBalance(WithdrawOrder order) {
         checkService();
         Asset asset = account.getAsset(order.getCoin());
         if(asset!=null){
-            if(asset.getFree()<order.getAmount()){
-                throw new ApiException("Insufficient fiat balance for " + asset.getName() + ", required: " + order.getAmount() + ", free: " + asset.getFree());
+            synchronized (balanceLock) {
+                if(asset.getFree()<order.getAmount()){
+                    throw new ApiException("Insufficient fiat balance for " + asset.getName() + ", required: " + order.getAmount() + ", free: " + asset.getFree());
+                }
+                asset.setFree(asset.getFree()-order.getAmount());
             }
-            asset.setFree(asset.getFree()-order.getAmount());
         }
     }
 
@@ -150,7 +251,9 @@ public class TestAccountManager {
         checkService();
         Asset asset = account.getAsset(order.getCryptoCurrency());
         if(asset!=null){
-            asset.setFree(asset.getFree()+order.getObtainAmount());
+            synchronized (balanceLock) {
+                asset.setFree(asset.getFree()+order.getObtainAmount());
+            }
         }
     }
 }
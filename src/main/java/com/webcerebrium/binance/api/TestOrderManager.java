@@ -33,64 +33,62 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.Predicate;
 
 @Slf4j
 public class TestOrderManager {
 
-    private List<Order> orders = new ArrayList<>();
-    private List<Trade> trades = new ArrayList<>();
+    private final OrderStore store = new OrderStore();
 
     private AtomicLong nextOrderId = new AtomicLong(System.currentTimeMillis());
     private TestAccountManager testAccountManager;
+    private final MatchingEngine matchingEngine;
 
     public TestOrderManager(TestAccountManager testAccountManager) {
         this.testAccountManager = Objects.requireNonNull(testAccountManager);
+        this.matchingEngine = new MatchingEngine(testAccountManager);
+        this.matchingEngine.addListener((order, type, trade) -> {
+            if (trade != null) {
+                store.addTrade(trade);
+            }
+            store.update(order);
+        });
+    }
+
+    /**
+     * Get the engine matching the orders placed.
+     */
+    public MatchingEngine getMatchingEngine() {
+        return matchingEngine;
+    }
+
+    /**
+     * Get the store of the orders and trades.
+     */
+    public OrderStore getStore() {
+        return store;
     }
 
     public Order getOrder(OrderRef orderRef) {
-        return orders.stream().filter(o -> orderRef.getOrderId()==o.getOrderId()).findFirst().orElse(null);
+        return orderRef.getOrderId() == null ? null : store.getOrder(orderRef.getOrderId());
     }
 
     public Order getOrder(OrderRequest request) throws ApiException {
         if(request.getOrderId()!=null) {
-            return getOrderById(request.getOrderId());
+            return store.getOrder(request.getOrderId());
         }
         if(request.getOrigClientOrderId()!=null){
-            return getOrderByClientOrdertId(request.getOrigClientOrderId());
+            return store.getOrderByClientOrderId(request.getOrigClientOrderId());
         }
         if(request.getSymbol()!=null){
-            return orders.stream().filter(o -> request.getSymbol() == o.getSymbol()).filter(o -> request.getTimestamp() == o.getTime()).findFirst().orElse(null);
+            List<Order> orders = store.getOrders(request.getSymbol(), null, request.getTimestamp(), request.getTimestamp(), 1);
+            return orders.isEmpty() ? null : orders.get(0);
         }
         return null;
     }
 
-    private Order getOrderById(Long orderId) {
-        return orders.stream().filter(o -> orderId == o.getOrderId()).findFirst().orElse(null);
-    }
-
-    private Order getOrderByClientOrdertId(String clientOrderId) {
-        return orders.stream().filter(o -> clientOrderId.equals(o.getClientOrderId())).findFirst().orElse(null);
-    }
-
-    /**
-     * Calculates the DMI:
-     * <ol>
-     *     <li>Calculate +DM = the current high - previous high</li>
-     *     <li>Calculate -DM = the previous low - current low</li>
-     *     <li>Use +DM when the current high - previous high is greater than the previous low - current low. </li>
-     *     <li>Use -DM when the previous low - current low is greater than the current high - previous high.</li>
-     *     <li>The TR is the greater of the current high - current low, the current high - previous close, or the current low - previous close.</li>
-     *     <li>Smooth the 14-period averages of +DM, -DM, and the TR. </li>
-     * </ol>
-     * @param orderPlacement
-     * @return
-     * @throws ApiException
-     */
     public OrderRef createOrder(OrderPlacement orderPlacement) throws ApiException {
         Order order = createOrderInternal(orderPlacement, false);
-        this.orders.add(order);
         OrderRef ref = new OrderRef(order);
         ref.setPlacement(orderPlacement);
         return ref;
@@ -98,7 +96,6 @@ public class TestOrderManager {
 
     public OrderRef createTestOrder(OrderPlacement orderPlacement) throws ApiException {
         Order order = createOrderInternal(orderPlacement, true);
-        this.orders.add(order);
         OrderRef ref = new OrderRef(order);
         ref.setPlacement(orderPlacement);
         return ref;
@@ -116,41 +113,25 @@ public class TestOrderManager {
         order.setType(orderPlacement.getType());
         order.setSymbol(orderPlacement.getSymbol());
         order.setStatus(OrderStatus.NEW);
+        order.setTime(testAccountManager.getClock().millis());
         if(test){
             order.setTest(true);
+            store.add(order);
         }else {
-            switch(order.getType()){
-                case MARKET:
-                    Trade trade = testAccountManager.adaptBalance(order);
-                    if(trade!=null) {
-                        this.trades.add(trade);
-                    }
-                    break;
-                case LIMIT:
-                case STOP_LOSS:
-                case LIMIT_MAKER:
-                case TAKE_PROFIT:
-                    // handle orders as open/pending orders
-                    break;
-                case STOP_LOSS_LIMIT:
-                case TAKE_PROFIT_LIMIT:
-                default:
-                    order.setStatus(OrderStatus.REJECTED);
-                    break;
-            }
+            // stored first, the engine reports fills while placing
+            store.add(order);
+            matchingEngine.place(order);
         }
         return order;
     }
 
     public Order deleteOrderById(String symbol, Long orderId) throws ApiException {
-        Order order = getOrderById(orderId);
+        Order order = orderId == null ? null : store.getOrder(orderId);
         if(order!=null){
             if(!order.getSymbol().equals(symbol)){
                 throw new IllegalArgumentException("Invalid symbol");
             }
-            if(order.getStatus()== OrderStatus.NEW)
-                order.setStatus(OrderStatus.CANCELED);
-            else
+            if(!matchingEngine.cancel(order))
                 throw new ApiException("Order is not pending: "+orderId);
             return order;
         }
@@ -158,14 +139,12 @@ public class TestOrderManager {
     }
 
     public Order deleteOrderByClientOrderId(String symbol, String clientOrderId) throws ApiException {
-        Order order = getOrderByClientOrdertId(clientOrderId);
+        Order order = store.getOrderByClientOrderId(clientOrderId);
         if(order!=null){
             if(!order.getSymbol().equals(symbol)){
                 throw new IllegalArgumentException("Invalid symbol");
             }
-            if(order.getStatus()== OrderStatus.NEW)
-                order.setStatus(OrderStatus.CANCELED);
-            else
+            if(!matchingEngine.cancel(order))
                 throw new ApiException("Order is not pending (client order): "+clientOrderId);
             return order;
         }
@@ -173,85 +152,86 @@ public class TestOrderManager {
     }
 
     public List<Order> getOpenOrders() throws ApiException {
-        return orders.stream().filter(o -> o.getStatus()== OrderStatus.NEW).collect(Collectors.toList());
+        return store.getOpenOrders(null);
     }
 
     public List<Order> getOpenOrders(OpenOrderRequest request) throws ApiException {
-        Stream<Order> stream = orders.stream().filter(r -> r.getStatus()== OrderStatus.NEW);
-        if(request.getSymbol()!=null){
-            stream.filter(r -> r.getSymbol().equals(request.getSymbol()));
-        }
-        if(request.getOffset()!=null){
-            stream.skip(request.getOffset());
-        }
-        if(request.getLimit()!=null){
-            stream.limit(request.getLimit());
-        }
-        return stream.collect(Collectors.toList());
+        List<Order> open = store.getOpenOrders(request.getSymbol());
+        int offset = request.getOffset() == null ? 0 : Math.min(request.getOffset(), open.size());
+        int limit = request.getLimit() == null ? open.size() : request.getLimit();
+        return new ArrayList<>(open.subList(offset, Math.min(open.size(), offset + limit)));
     }
 
     public List<Order> cancelOpenOrder(DeleteOrderRequest request) throws ApiException {
-        return Collections.emptyList();
+        List<Order> canceled = new ArrayList<>();
+        for(Order order:store.getOpenOrders(request.getSymbol())){
+            if(matchingEngine.cancel(order)){
+                canceled.add(order);
+            }
+        }
+        return canceled;
     }
 
     public List<Order> getOrders(AllOrderRequest request) throws ApiException {
-        Stream<Order> stream = orders.stream().filter(r -> r.getStatus()== OrderStatus.NEW);
-        if(request.getSymbol()!=null){
-            stream.filter(r -> r.getSymbol().equals(request.getSymbol()));
-        }
-        if(request.getOrderId()!=null){
-            stream.filter(r -> r.getOrderId().equals(request.getOrderId()));
-        }
-        if(request.getLimit()>0){
-            stream.limit(request.getLimit());
-        }
-        if(request.getOrigClientOrderId()!=null){
-            stream.filter(i -> i.getClientOrderId().equals(request.getOrigClientOrderId()));
-        }
-        return stream.collect(Collectors.toList());
+        Predicate<Order> filter = request.getOrigClientOrderId() == null ? o -> true
+                : o -> request.getOrigClientOrderId().equals(o.getClientOrderId());
+        return store.getOrders(requireSymbol(request.getSymbol()), request.getOrderId(), request.getStartTime(),
+                request.getEndTime(), filter, 0, request.getLimit());
     }
 
     public List<Order> geClosedOrders(ClosedOrderRequest request) throws ApiException {
-        return orders.stream().filter(p -> p.getStatus()!= OrderStatus.NEW).collect(Collectors.toList());
+        Predicate<Order> filter = o -> !OrderStore.isOpen(o)
+                && (request.getSide() == null || request.getSide() == o.getSide())
+                && (request.getStatus() == null || matches(request.getStatus(), o.getStatus()));
+        int offset = request.getOffset() == null ? 0 : request.getOffset();
+        int limit = request.getLimit() == null ? 0 : request.getLimit();
+        if (request.getSymbol() != null) {
+            return store.getOrders(request.getSymbol(), null, request.getStart(), request.getEnd(), filter, offset, limit);
+        }
+        List<Order> result = new ArrayList<>();
+        for (String symbol : store.getSymbols()) {
+            result.addAll(store.getOrders(symbol, null, request.getStart(), request.getEnd(), filter, 0, 0));
+        }
+        return result;
+    }
+
+    private static boolean matches(OrderStatus2 status, OrderStatus orderStatus) {
+        switch (status) {
+            case FullyFill:
+                return orderStatus == OrderStatus.FILLED;
+            case Canceled:
+                return orderStatus == OrderStatus.CANCELED;
+            case Expired:
+            case IocExpire:
+            case IocNoFill:
+                return orderStatus == OrderStatus.EXPIRED;
+            case FailedBlocking:
+            case FailedMatching:
+                return orderStatus == OrderStatus.REJECTED;
+            default:
+                return orderStatus == OrderStatus.NEW;
+        }
     }
 
     public List<Order> getOrders(String symbol, Long orderId, int limit) throws ApiException {
-        Stream<Order> stream = orders.stream().filter(r -> r.getStatus()== OrderStatus.NEW);
-        if(symbol!=null){
-            stream.filter(r -> r.getSymbol().equals(symbol));
-        }
-        if(orderId!=null){
-            stream.filter(r -> r.getOrderId().equals(orderId));
-        }
-        if(limit>0)
-            stream.limit(limit);
-        return stream.collect(Collectors.toList());
+        return store.getOrders(requireSymbol(symbol), orderId, null, null, limit);
     }
 
     public List<Trade> getMyTrades(TradesRequest request) throws ApiException {
-        Stream<Trade> tradeStream = trades.stream();
-        if(request.getOrderId()!=null){
-            tradeStream.filter(t -> t.getId().equals(request.getOrderId()));
-        }
-        if(request.getSymbol()!=null){
-            tradeStream.filter(t -> request.getSymbol().contains(t.getCommissionAsset()));
-        }
-        if(request.getStartTime()!=null){
-            tradeStream.filter(t -> t.getTime()>=request.getStartTime());
-        }
-        if(request.getEndTime()!=null){
-            tradeStream.filter(t -> t.getTime()<request.getEndTime());
-        }
-        if(request.getFromId()!=null){
-            tradeStream.filter(t -> t.getId()>=(request.getFromId()));
-        }
-        return tradeStream.collect(Collectors.toList());
+        return store.getTrades(requireSymbol(request.getSymbol()), request.getOrderId() == null ? null : request.getOrderId().longValue(),
+                request.getFromId(), request.getStartTime(), request.getEndTime(),
+                request.getLimit() == null ? 0 : request.getLimit());
     }
 
     public List<Trade> getTrades(String symbol, int limit) throws ApiException {
-        Stream<Trade> tradeStream = trades.stream();
-        tradeStream.filter(t -> symbol.contains(t.getCommissionAsset()));
-        return tradeStream.limit(limit).collect(Collectors.toList());
+        return store.getTrades(requireSymbol(symbol), null, null, null, null, limit);
+    }
+
+    private static String requireSymbol(String symbol) throws ApiException {
+        if (symbol == null) {
+            throw new ApiException("ERROR: -1102, Mandatory parameter 'symbol' was not sent.");
+        }
+        return symbol;
     }
 
     public List<AggregatedTrades> getAggregatedTrades(AggregatedTradesRequest request) {
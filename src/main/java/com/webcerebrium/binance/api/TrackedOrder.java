@@ -0,0 +1,260 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.*;
+import com.webcerebrium.binance.datatype.events.ExecutionReportEvent;
+import com.webcerebrium.binance.jfr.OrderRoundTripEvent;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The in-memory state of an order tracked by an {@link OrderTracker}. The state is updated from execution
+ * reports, the futures complete when the order reaches the corresponding state.
+ */
+@Getter
+@ToString(exclude = {"filled", "canceled", "done", "roundTrip"})
+public final class TrackedOrder implements HasSymbol {
+
+    /** Tolerance used when comparing quantities. */
+    static final double EPSILON = 1e-12;
+
+    private final String symbol;
+    private volatile Long orderId;
+    private volatile String clientOrderId;
+    private volatile OrderSide side;
+    private volatile OrderType type;
+    private volatile Double price;
+    private volatile Double origQty;
+
+    private volatile OrderStatus status = OrderStatus.NEW;
+    private volatile double executedQty;
+    private volatile double lastFillQty;
+    private volatile double lastFillPrice;
+    private volatile Long lastTradeId;
+    private volatile double commission;
+    private volatile long updateTime;
+    private volatile long placedAt = System.currentTimeMillis();
+
+    @Getter(AccessLevel.NONE)
+    private final CompletableFuture<TrackedOrder> filled = new CompletableFuture<>();
+    @Getter(AccessLevel.NONE)
+    private final CompletableFuture<TrackedOrder> canceled = new CompletableFuture<>();
+    @Getter(AccessLevel.NONE)
+    private final CompletableFuture<TrackedOrder> done = new CompletableFuture<>();
+
+    /** The pending flight recorder event, only set while the event is enabled. Guarded by this. */
+    @Getter(AccessLevel.NONE)
+    OrderRoundTripEvent roundTrip;
+    /** The {@link System#nanoTime()} of the first fill, only recorded for a pending event. Guarded by this. */
+    @Getter(AccessLevel.NONE)
+    long firstFillNanos;
+
+    TrackedOrder(String symbol, Long orderId, String clientOrderId) {
+        this.symbol = symbol;
+        this.orderId = orderId;
+        this.clientOrderId = clientOrderId;
+    }
+
+    /**
+     * Future completing when the order is filled completely. It completes exceptionally if the order is
+     * canceled, rejected or expires before.
+     * @return the future, never null.
+     */
+    public CompletableFuture<TrackedOrder> whenFilled() {
+        return filled;
+    }
+
+    /**
+     * Future completing when the order is canceled, rejected or expires. It never completes if the order
+     * is filled.
+     * @return the future, never null.
+     */
+    public CompletableFuture<TrackedOrder> whenCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Future completing when the order reaches any terminal state.
+     * @return the future, never null.
+     */
+    public CompletableFuture<TrackedOrder> whenDone() {
+        return done;
+    }
+
+    /**
+     * Checks if the order is still open, meaning it can still be filled.
+     * @return true, if the order is new or partially filled.
+     */
+    public boolean isOpen() {
+        return isOpen(status);
+    }
+
+    /**
+     * Get the quantity still open.
+     * @return the remaining quantity, or 0 if the original quantity is unknown.
+     */
+    public double getRemainingQty() {
+        Double qty = origQty;
+        return qty == null ? 0.0 : Math.max(0.0, qty - executedQty);
+    }
+
+    /**
+     * Creates a snapshot of this order.
+     * @return the order, never null.
+     */
+    public Order toOrder() {
+        Order order = new Order();
+        order.setSymbol(symbol);
+        order.setOrderId(orderId);
+        order.setClientOrderId(clientOrderId);
+        order.setSide(side);
+        order.setType(type);
+        order.setPrice(price);
+        order.setOrigQty(origQty);
+        order.setExecutedQty(executedQty);
+        order.setStatus(status);
+        order.setTime(updateTime);
+        return order;
+    }
+
+    static boolean isOpen(OrderStatus status) {
+        return status == OrderStatus.NEW || status == OrderStatus.PARTIALLY_FILLED
+                || status == OrderStatus.PENDING_CANCEL;
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - -
+    // State updates, always called while holding the order's monitor.
+    // - - - - - - - - - - - - - - - - - - - - - - - -
+
+    void placed(OrderRef ref) {
+        if (orderId == null) {
+            orderId = ref.getOrderId();
+        }
+        if (clientOrderId == null) {
+            clientOrderId = ref.getClientOrderId();
+        }
+        OrderPlacement placement = ref.getPlacement();
+        if (placement != null) {
+            if (side == null) side = placement.getSide();
+            if (type == null) type = placement.getType();
+            if (price == null) price = placement.getPrice();
+            if (origQty == null) origQty = placement.getQuantity();
+        }
+        if (ref.getTransactTime() != null && updateTime == 0) {
+            updateTime = ref.getTransactTime();
+        }
+    }
+
+    /**
+     * Applies an execution report.
+     * @param event the event, not null.
+     * @return true, if the report does not continue the known state, meaning reports have been missed.
+     */
+    boolean apply(ExecutionReportEvent event) {
+        if (orderId == null) {
+            orderId = event.getOrderId();
+        }
+        if (clientOrderId == null) {
+            clientOrderId = event.getOriginalClientOrderId() != null
+                    ? event.getOriginalClientOrderId() : event.getNewClientOrderId();
+        }
+        side = event.getSide();
+        type = event.getType();
+        price = event.getPrice();
+        origQty = event.getQuantity();
+        double previousQty = executedQty;
+        double cumulativeQty = value(event.getAccumulatedQuantityOfFilledTrades());
+        double lastQty = value(event.getQuantityOfLastFilledTrade());
+        boolean gap = cumulativeQty - previousQty > lastQty + EPSILON;
+        if (cumulativeQty + EPSILON >= previousQty) {
+            executedQty = cumulativeQty;
+        }
+        if (lastQty > 0) {
+            lastFillQty = lastQty;
+            lastFillPrice = value(event.getPriceOfLastFilledTrade());
+            lastTradeId = event.getTradeId();
+            commission += value(event.getCommission());
+        }
+        if (event.getEventTime() != null) {
+            updateTime = event.getEventTime();
+        }
+        updateStatus(event.getStatus());
+        return gap;
+    }
+
+    /**
+     * Applies the state as read from the exchange's REST API.
+     * @param order the order, not null.
+     */
+    void apply(Order order) {
+        if (order.getExecutedQty() != null && order.getExecutedQty() > executedQty) {
+            executedQty = order.getExecutedQty();
+        }
+        if (order.getOrigQty() != null) origQty = order.getOrigQty();
+        if (order.getSide() != null) side = order.getSide();
+        if (order.getType() != null) type = order.getType();
+        if (order.getPrice() != null) price = order.getPrice();
+        if (order.getTime() != null) updateTime = order.getTime();
+        if (order.getStatus() != null) {
+            updateStatus(order.getStatus());
+        }
+    }
+
+    private void updateStatus(OrderStatus newStatus) {
+        if (newStatus == null || !isOpen(status)) {
+            // terminal states are final
+            return;
+        }
+        status = newStatus;
+    }
+
+    void complete() {
+        switch (status) {
+            case FILLED:
+                filled.complete(this);
+                done.complete(this);
+                break;
+            case CANCELED:
+            case REJECTED:
+            case EXPIRED:
+                canceled.complete(this);
+                done.complete(this);
+                filled.completeExceptionally(new ApiException("Order " + orderId + " of " + symbol
+                        + " terminated with status " + status));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static double value(Double d) {
+        return d == null ? 0.0 : d;
+    }
+}
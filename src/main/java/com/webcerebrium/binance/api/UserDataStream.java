@@ -0,0 +1,313 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A user data stream managed by a {@link UserDataStreamManager}. The manager keeps the listen key alive,
+ * rotates it on failure and reconnects the websocket, so the instance always reflects the current key
+ * and session.
+ */
+@ToString(of = {"type", "listenKey", "keepAliveCount", "failureCount", "rotationCount"})
+public final class UserDataStream {
+
+    /**
+     * The kind of user data stream, each backed by its own listen key endpoints.
+     */
+    public enum Type {
+        SPOT {
+            @Override
+            String start(Api api) throws ApiException {
+                return api.startUserDataStream();
+            }
+
+            @Override
+            void keep(Api api, String listenKey) throws ApiException {
+                api.keepUserDataStream(listenKey);
+            }
+
+            @Override
+            void delete(Api api, String listenKey) throws ApiException {
+                api.deleteUserDataStream(listenKey);
+            }
+        },
+        MARGIN {
+            @Override
+            String start(Api api) throws ApiException {
+                return api.startMarginStream();
+            }
+
+            @Override
+            void keep(Api api, String listenKey) throws ApiException {
+                api.keepMarginStream(listenKey);
+            }
+
+            @Override
+            void delete(Api api, String listenKey) throws ApiException {
+                api.deleteMarginStream(listenKey);
+            }
+        },
+        ISOLATED_MARGIN {
+            @Override
+            String start(Api api) throws ApiException {
+                return api.startIsolatedMarginStream();
+            }
+
+            @Override
+            void keep(Api api, String listenKey) throws ApiException {
+                api.keepIsolatedMarginStream(listenKey);
+            }
+
+            @Override
+            void delete(Api api, String listenKey) throws ApiException {
+                api.deleteIsolatedMarginStream(listenKey);
+            }
+        };
+
+        abstract String start(Api api) throws ApiException;
+
+        abstract void keep(Api api, String listenKey) throws ApiException;
+
+        abstract void delete(Api api, String listenKey) throws ApiException;
+    }
+
+    @Getter
+    private final Api api;
+    @Getter
+    private final Type type;
+    @Getter
+    private final WebSocketAdapter adapter;
+
+    @Getter
+    private volatile String listenKey;
+    @Getter
+    private volatile Session session;
+    private volatile long keyCreatedAt;
+    private volatile long nextKeepAliveAt;
+    @Getter
+    private volatile boolean closed;
+    private final Object lock = new Object();
+
+    @Getter
+    private volatile long keepAliveCount;
+    @Getter
+    private volatile long failureCount;
+    @Getter
+    private volatile long rotationCount;
+    @Getter
+    private volatile long reconnectCount;
+    private volatile long lastKeepAliveNanos = -1;
+    private volatile long maxKeepAliveNanos;
+    private volatile long totalKeepAliveNanos;
+
+    UserDataStream(Api api, Type type, WebSocketAdapter adapter) {
+        this.api = Objects.requireNonNull(api);
+        this.type = Objects.requireNonNull(type);
+        this.adapter = Objects.requireNonNull(adapter);
+    }
+
+    /**
+     * Get the age of the current listen key.
+     * @return the age in milliseconds, or -1 if no key has been obtained yet.
+     */
+    public long getKeyAgeMillis() {
+        if (listenKey == null) {
+            return -1;
+        }
+        return System.currentTimeMillis() - keyCreatedAt;
+    }
+
+    /**
+     * Get the latency of the last successful keepalive call.
+     * @return the latency in milliseconds, or -1 if no keepalive has been sent yet.
+     */
+    public long getLastKeepAliveLatencyMillis() {
+        long nanos = lastKeepAliveNanos;
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Get the maximal latency of all successful keepalive calls.
+     * @return the latency in milliseconds.
+     */
+    public long getMaxKeepAliveLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxKeepAliveNanos);
+    }
+
+    /**
+     * Get the average latency of all successful keepalive calls.
+     * @return the latency in milliseconds, or -1 if no keepalive has been sent yet.
+     */
+    public double getAverageKeepAliveLatencyMillis() {
+        long count = keepAliveCount;
+        if (count == 0) {
+            return -1;
+        }
+        return totalKeepAliveNanos / (double) count / 1_000_000d;
+    }
+
+    /**
+     * Get the time when the next keepalive is due.
+     * @return the epoch millis of the next keepalive.
+     */
+    public long getNextKeepAliveAt() {
+        return nextKeepAliveAt;
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - -
+    // Lifecycle, only called from the manager's scheduler thread, except close(). The lock guards the
+    // swap of key and session against a concurrent close.
+    // - - - - - - - - - - - - - - - - - - - - - - - -
+
+    void open(long keepAliveIntervalMillis) throws ApiException {
+        String key = type.start(api);
+        Session newSession;
+        try {
+            newSession = api.getWebsocketSession(key, adapter);
+        } catch (ApiException e) {
+            deleteQuietly(key);
+            throw e;
+        }
+        synchronized (lock) {
+            if (!closed) {
+                this.listenKey = key;
+                this.keyCreatedAt = System.currentTimeMillis();
+                this.session = newSession;
+                this.nextKeepAliveAt = keyCreatedAt + keepAliveIntervalMillis;
+                return;
+            }
+        }
+        // closed while the key was obtained
+        closeQuietly(newSession);
+        deleteQuietly(key);
+    }
+
+    void keepAlive(long keepAliveIntervalMillis) throws ApiException {
+        long start = System.nanoTime();
+        try {
+            type.keep(api, listenKey);
+        } catch (ApiException e) {
+            failureCount++;
+            throw e;
+        }
+        long duration = System.nanoTime() - start;
+        lastKeepAliveNanos = duration;
+        totalKeepAliveNanos += duration;
+        if (duration > maxKeepAliveNanos) {
+            maxKeepAliveNanos = duration;
+        }
+        keepAliveCount++;
+        nextKeepAliveAt = System.currentTimeMillis() + keepAliveIntervalMillis;
+    }
+
+    /**
+     * Replaces the listen key and the session, after a failed keepalive or reconnect which has been counted as
+     * failure already. Does nothing if the stream is closed, before or while rotating.
+     */
+    void rotate(long keepAliveIntervalMillis) throws ApiException {
+        String oldKey;
+        Session oldSession;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            oldKey = listenKey;
+            oldSession = session;
+        }
+        closeQuietly(oldSession);
+        if (oldKey != null) {
+            // the key is most probably expired already
+            deleteQuietly(oldKey);
+        }
+        open(keepAliveIntervalMillis);
+        if (!closed) {
+            rotationCount++;
+        }
+    }
+
+    void reconnect() throws ApiException {
+        closeQuietly(session);
+        Session newSession;
+        try {
+            newSession = api.getWebsocketSession(listenKey, adapter);
+        } catch (ApiException e) {
+            failureCount++;
+            throw e;
+        }
+        synchronized (lock) {
+            if (!closed) {
+                session = newSession;
+                reconnectCount++;
+                return;
+            }
+        }
+        closeQuietly(newSession);
+    }
+
+    void retryIn(long retryDelayMillis) {
+        nextKeepAliveAt = System.currentTimeMillis() + retryDelayMillis;
+    }
+
+    void close() {
+        String key;
+        Session current;
+        synchronized (lock) {
+            closed = true;
+            key = listenKey;
+            current = session;
+        }
+        closeQuietly(current);
+        if (key != null) {
+            // ignore failures, the key will expire anyway
+            deleteQuietly(key);
+        }
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            type.delete(api, key);
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
+    private static void closeQuietly(Session session) {
+        if (session != null && session.isOpen()) {
+            try {
+                session.close();
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages the listen key lifecycle of user data streams. Listen keys expire after 60 minutes unless a keepalive
+ * is sent, so the manager obtains the keys, sends keepalives, rotates keys that cannot be kept alive anymore and
+ * reconnects closed websockets. All streams, across any number of accounts ({@link Api} instances), are served
+ * by a single scheduler thread.
+ */
+@Slf4j
+public class UserDataStreamManager implements AutoCloseable {
+
+    /** Default keepalive interval, Binance recommends sending a keepalive every 30 minutes. */
+    public static final long DEFAULT_KEEPALIVE_INTERVAL = TimeUnit.MINUTES.toMillis(30);
+    /** Default interval for checking the streams for due keepalives and closed sessions. */
+    public static final long DEFAULT_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+    /** Default delay before retrying a failed keepalive or rotation. */
+    public static final long DEFAULT_RETRY_DELAY = TimeUnit.SECONDS.toMillis(10);
+
+    private final List<UserDataStream> streams = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledFuture<?> checkTask;
+
+    @Getter
+    private final long keepAliveIntervalMillis;
+    @Getter
+    private final long retryDelayMillis;
+
+    public UserDataStreamManager() {
+        this(DEFAULT_KEEPALIVE_INTERVAL, DEFAULT_CHECK_INTERVAL, DEFAULT_RETRY_DELAY);
+    }
+
+    /**
+     * Creates a new manager.
+     * @param keepAliveIntervalMillis the interval between two keepalives of a stream.
+     * @param checkIntervalMillis the interval the streams are checked for due keepalives and closed sessions.
+     * @param retryDelayMillis the delay before a failed keepalive or rotation is retried.
+     */
+    public UserDataStreamManager(long keepAliveIntervalMillis, long checkIntervalMillis, long retryDelayMillis) {
+        this.keepAliveIntervalMillis = keepAliveIntervalMillis;
+        this.retryDelayMillis = retryDelayMillis;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "UserDataStreamManager");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+        this.checkTask = scheduler.scheduleWithFixedDelay(this::checkStreams,
+                checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a new spot user data stream.
+     * @param api the account's api, not null.
+     * @param adapter the adapter receiving the events, not null.
+     * @return the managed stream.
+     * @throws ApiException if no listen key could be obtained or the websocket could not be connected.
+     */
+    public UserDataStream open(Api api, WebSocketAdapter adapter) throws ApiException {
+        return open(api, UserDataStream.Type.SPOT, adapter);
+    }
+
+    /**
+     * Opens a new user data stream.
+     * @param api the account's api, not null.
+     * @param type the stream type, not null.
+     * @param adapter the adapter receiving the events, not null.
+     * @return the managed stream.
+     * @throws ApiException if no listen key could be obtained or the websocket could not be connected.
+     */
+    public UserDataStream open(Api api, UserDataStream.Type type, WebSocketAdapter adapter) throws ApiException {
+        UserDataStream stream = new UserDataStream(api, type, adapter);
+        stream.open(keepAliveIntervalMillis);
+        streams.add(stream);
+        log.debug("Opened {} user data stream.", type);
+        return stream;
+    }
+
+    /**
+     * Closes the given stream, its websocket and listen key.
+     * @param stream the stream, not null.
+     */
+    public void close(UserDataStream stream) {
+        if (streams.remove(stream)) {
+            stream.close();
+        }
+    }
+
+    /**
+     * Get all streams currently managed.
+     * @return the streams, never null.
+     */
+    public List<UserDataStream> getStreams() {
+        return new ArrayList<>(streams);
+    }
+
+    /**
+     * Requests an immediate check of all streams, without waiting for the next scheduled run.
+     */
+    public void checkNow() {
+        scheduler.execute(this::checkStreams);
+    }
+
+    /**
+     * Closes all streams and stops the scheduler.
+     */
+    @Override
+    public void close() {
+        checkTask.cancel(false);
+        for (UserDataStream stream : streams) {
+            stream.close();
+        }
+        streams.clear();
+        scheduler.shutdown();
+    }
+
+    void checkStreams() {
+        long now = System.currentTimeMillis();
+        for (UserDataStream stream : streams) {
+            if (stream.isClosed()) {
+                continue;
+            }
+            try {
+                check(stream, now);
+            } catch (Exception e) {
+                log.error("Unexpected error managing {} user data stream.", stream.getType(), e);
+            }
+        }
+    }
+
+    private void check(UserDataStream stream, long now) {
+        if (now >= stream.getNextKeepAliveAt()) {
+            try {
+                stream.keepAlive(keepAliveIntervalMillis);
+                log.debug("Kept {} user data stream alive in {} ms.", stream.getType(),
+                        stream.getLastKeepAliveLatencyMillis());
+            } catch (ApiException e) {
+                log.warn("Keepalive of {} user data stream failed, rotating listen key: {}",
+                        stream.getType(), e.getMessage());
+                rotate(stream);
+                return;
+            }
+        }
+        Session session = stream.getSession();
+        if (!stream.isClosed() && (session == null || !session.isOpen())) {
+            try {
+                stream.reconnect();
+                log.info("Reconnected {} user data stream.", stream.getType());
+            } catch (ApiException e) {
+                log.warn("Reconnect of {} user data stream failed, rotating listen key: {}",
+                        stream.getType(), e.getMessage());
+                rotate(stream);
+            }
+        }
+    }
+
+    private void rotate(UserDataStream stream) {
+        try {
+            stream.rotate(keepAliveIntervalMillis);
+            log.info("Rotated listen key of {} user data stream.", stream.getType());
+        } catch (ApiException e) {
+            log.error("Rotating listen key of {} user data stream failed, retrying in {} ms: {}",
+                    stream.getType(), retryDelayMillis, e.getMessage());
+            stream.retryIn(retryDelayMillis);
+        }
+    }
+
+}
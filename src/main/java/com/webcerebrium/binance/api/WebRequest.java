@@ -38,6 +38,7 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.io.BufferedReader;
@@ -55,13 +56,14 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Data
 @Slf4j
 public class WebRequest {
 
     public String userAgent = "Mozilla/5.0 (Windows NT 5.1; rv:19.0) Gecko/20100101 Firefox/19.0";
-    public HttpsURLConnection conn = null;
+    public HttpURLConnection conn = null;
     public String requestUrl = "";
     public String method = "GET";
     public String lastResponse = "";
@@ -75,12 +77,23 @@ public class WebRequest {
     // Internal JSON parser
     private JsonParser jsonParser = new JsonParser();
     private String requestBody = "";
-    private long serverTimeOffset = 0L;
+    private ServerClock clock;
+
+    /**
+     * Shared socket factory. Creating a new factory per request prevents the JDK from reusing
+     * keep-alive connections, so every request would pay for a new TLS handshake.
+     */
+    private static volatile SSLSocketFactory sslSocketFactory;
 
     // Creating public request
     public WebRequest(long serverTimeOffset, String requestUrl) {
+        this(new ServerClock(serverTimeOffset), requestUrl);
+    }
+
+    // Creating request signed with the timestamp and receive window of the given clock
+    public WebRequest(ServerClock clock, String requestUrl) {
         this.requestUrl = requestUrl;
-        this.serverTimeOffset = serverTimeOffset;
+        this.clock = Objects.requireNonNull(clock);
     }
 
     // HMAC encoding
@@ -113,21 +126,31 @@ public class WebRequest {
                     list.add(key + "=" + options.get(key));
                 }
             }
-            list.add("recvWindow=" + 7000);
-            list.add("timestamp=" + String.valueOf(System.currentTimeMillis()-50+ serverTimeOffset));
+            // parameters already given by the request take precedence
+            if (!hasParameter("recvWindow")) {
+                list.add("recvWindow=" + clock.getRecvWindow());
+            }
+            if (!hasParameter("timestamp")) {
+                list.add("timestamp=" + clock.timestamp());
+            }
             String queryToAdd = String.join("&", list);
             String query = "";
             log.debug("Signature: RequestUrl = {}", requestUrl);
             if (requestUrl.contains("?")) {
-                query = requestUrl.substring(requestUrl.indexOf('?') + 1) + "&";
+                query = requestUrl.substring(requestUrl.indexOf('?') + 1);
+            }
+            // nothing is added if the request carries all parameters already
+            if (!queryToAdd.isEmpty()) {
+                query = query.isEmpty() ? queryToAdd : query + "&" + queryToAdd;
             }
-            query = query.concat(queryToAdd);
 
             log.debug("Signature: query to be included  = {} queryToAdd={}", query, queryToAdd);
             try {
                 String signature = encode(secretKey, query); // set the HMAC hash header
-                String concatenator = requestUrl.contains("?") ? "&" : "?";
-                requestUrl += concatenator + queryToAdd + "&signature=" + signature;
+                if (!queryToAdd.isEmpty()) {
+                    requestUrl += (requestUrl.contains("?") ? "&" : "?") + queryToAdd;
+                }
+                requestUrl += (requestUrl.contains("?") ? "&" : "?") + "signature=" + signature;
             } catch (Exception e ) {
                 throw new ApiException("Encryption error " + e.getMessage());
             }
@@ -137,6 +160,10 @@ public class WebRequest {
         return this;
     }
 
+    private boolean hasParameter(String name) {
+        return requestUrl.contains("?" + name + "=") || requestUrl.contains("&" + name + "=");
+    }
+
     /**
      * Requests signing - just with a public key
      * @param apiKey public key string
@@ -181,13 +208,20 @@ public class WebRequest {
         return this;
     }
 
-    /**
-     * Opens HTTPS connection and save connection Handler
-      @return this request object
-     * @throws ApiException in case of any error
-     */
-    public WebRequest connect() throws ApiException {
+    private static SSLSocketFactory getSslSocketFactory() throws ApiException {
+        SSLSocketFactory factory = sslSocketFactory;
+        if (factory != null) {
+            return factory;
+        }
+        synchronized (WebRequest.class) {
+            if (sslSocketFactory == null) {
+                sslSocketFactory = createSslSocketFactory();
+            }
+            return sslSocketFactory;
+        }
+    }
 
+    private static SSLSocketFactory createSslSocketFactory() throws ApiException {
         TrustManager[] trustAllCerts = new TrustManager[]{
             new X509TrustManager() {
                 public java.security.cert.X509Certificate[] getAcceptedIssuers() {
@@ -202,29 +236,39 @@ public class WebRequest {
             }
         };
 
-        URL url = null;
         try {
-            url = new URL(requestUrl);
-            log.debug("{} {}", getMethod(), url);
-        } catch (MalformedURLException e) {
-            throw new ApiException("Mailformed URL " + e.getMessage());
-        }
-        SSLContext sc = null;
-        try {
-            sc = SSLContext.getInstance("SSL");
+            SSLContext sc = SSLContext.getInstance("SSL");
             sc.init(null, trustAllCerts, new java.security.SecureRandom());
-            HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
+            return sc.getSocketFactory();
         } catch (NoSuchAlgorithmException e) {
             throw new ApiException("SSL Error " + e.getMessage() );
         } catch (KeyManagementException e) {
             throw new ApiException("Key Management Error " + e.getMessage() );
         }
+    }
+
+    /**
+     * Opens HTTPS connection and save connection Handler
+      @return this request object
+     * @throws ApiException in case of any error
+     */
+    public WebRequest connect() throws ApiException {
+        URL url = null;
+        try {
+            url = new URL(requestUrl);
+            log.debug("{} {}", getMethod(), url);
+        } catch (MalformedURLException e) {
+            throw new ApiException("Mailformed URL " + e.getMessage());
+        }
 
         try {
-            conn = (HttpsURLConnection)url.openConnection();
+            conn = (HttpURLConnection)url.openConnection();
         } catch (IOException e) {
             throw new ApiException("HTTPS Connection error " + e.getMessage());
         }
+        if (conn instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) conn).setSSLSocketFactory(getSslSocketFactory());
+        }
 
         try {
             conn.setRequestMethod(method);
@@ -247,10 +291,17 @@ public class WebRequest {
      * @throws ApiException in case of any error
      */
     public WebRequest read() throws ApiException {
+        ApiCall call = ApiCall.current();
         if (conn == null) {
             connect();
         }
         try {
+            if (call != null) {
+                call.request(method, conn.getURL().getPath());
+                call.lap(ApiCall.Phase.PREPARE);
+                conn.connect();
+                call.lap(ApiCall.Phase.CONNECT);
+            }
 
             // posting payload it we do not have it yet
             if (!Strings.isNullOrEmpty(getRequestBody())) {
@@ -263,18 +314,28 @@ public class WebRequest {
             }
 
             InputStream is;
-            if (conn.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST) {
+            int status = conn.getResponseCode();
+            if (call != null) {
+                call.lap(ApiCall.Phase.FIRST_BYTE);
+                call.response(status, usedWeight(conn));
+            }
+            if (status < HttpURLConnection.HTTP_BAD_REQUEST) {
                 is = conn.getInputStream();
             } else {
                 /* error from server */
                 is = conn.getErrorStream();
             }
 
-            BufferedReader br = new BufferedReader( new InputStreamReader(is));
-            lastResponse = IOUtils.toString(br);
+            // reading to the end and closing returns the connection to the keep-alive cache
+            try (BufferedReader br = new BufferedReader( new InputStreamReader(is))) {
+                lastResponse = IOUtils.toString(br);
+            }
+            if (call != null) {
+                call.responseRead();
+            }
             log.debug("Response: {}", lastResponse);
 
-            if (conn.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
                 // Try to parse JSON
                 JsonObject obj = (JsonObject)jsonParser.parse(lastResponse);
                 if (obj.has("code") && obj.has("msg")) {
@@ -288,6 +349,18 @@ public class WebRequest {
         return this;
     }
 
+    private static int usedWeight(HttpURLConnection conn) {
+        String header = conn.getHeaderField("X-MBX-USED-WEIGHT-1M");
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(header.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     public WebRequest payload(JsonObject payload) {
         if (payload == null) return this; // this is a valid case
         // according to documentation we need to have this header if we have preload
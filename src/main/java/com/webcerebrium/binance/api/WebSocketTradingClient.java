@@ -0,0 +1,290 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.webcerebrium.binance.datatype.Order;
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import com.webcerebrium.binance.datatype.OrderRef;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client of the websocket trading API. Signed requests are sent over one persistent connection and the
+ * responses are correlated to the waiting callers by request id, so requests of several threads are
+ * pipelined without any HTTP framing or connection setup.
+ */
+@Slf4j
+public class WebSocketTradingClient extends WebSocketAdapter implements AutoCloseable {
+
+    private final DefaultApi api;
+    private final Gson gson = new Gson();
+    private final Map<String, CompletableFuture<JsonElement>> pendingRequests = new ConcurrentHashMap<>();
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private WebSocketClient client;
+
+    /**
+     * Creates a new client, using the url, credentials and server clock of the given api.
+     * @param api the api, not null.
+     */
+    public WebSocketTradingClient(DefaultApi api) {
+        this.api = Objects.requireNonNull(api);
+    }
+
+    /**
+     * Opens the connection, if not yet open. An open connection is detected without locking, as the session
+     * is held in a volatile field; only (re)connecting is serialized.
+     * @throws ApiException in case of any error
+     */
+    public void connect() throws ApiException {
+        if (isConnected()) {
+            return;
+        }
+        synchronized (this) {
+            if (isConnected()) {
+                return;
+            }
+            stopClient();
+            try {
+                // the http client is managed by, and started and stopped with the websocket client
+                client = new WebSocketClient(new HttpClient(new SslContextFactory.Client(true)));
+                client.start();
+                client.connect(this, new URI(api.getWebsocketApiUrl())).get(timeoutSeconds(), TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new ApiException(e.toString());
+            } catch (Exception e) {
+                stopClient();
+                throw new ApiException("Websocket error: " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean isConnected() {
+        Session session = getSession();
+        return session != null && session.isOpen();
+    }
+
+    /**
+     * Places an order using {@code order.place}.
+     * @param placement the placement, not null.
+     * @return the order reference.
+     * @throws ApiException in case of any error
+     */
+    public OrderRef placeOrder(OrderPlacement placement) throws ApiException {
+        JsonElement result = request("order.place", new TreeMap<>(placement.getAsParameters()));
+        OrderRef ref = gson.fromJson(result, OrderRef.class);
+        ref.setPlacement(placement);
+        return ref;
+    }
+
+    /**
+     * Cancels an order using {@code order.cancel}.
+     * @param symbol the symbol, not null.
+     * @param orderId the order id.
+     * @return the canceled order.
+     * @throws ApiException in case of any error
+     */
+    public Order cancelOrder(String symbol, long orderId) throws ApiException {
+        TreeMap<String, String> params = new TreeMap<>();
+        params.put("symbol", Objects.requireNonNull(symbol));
+        params.put("orderId", String.valueOf(orderId));
+        return gson.fromJson(request("order.cancel", params), Order.class);
+    }
+
+    /**
+     * Queries an order using {@code order.status}.
+     * @param symbol the symbol, not null.
+     * @param orderId the order id.
+     * @return the order.
+     * @throws ApiException in case of any error
+     */
+    public Order getOrder(String symbol, long orderId) throws ApiException {
+        TreeMap<String, String> params = new TreeMap<>();
+        params.put("symbol", Objects.requireNonNull(symbol));
+        params.put("orderId", String.valueOf(orderId));
+        return gson.fromJson(request("order.status", params), Order.class);
+    }
+
+    /**
+     * Sends a signed request and waits for its response.
+     * @param method the method, e.g. {@code order.place}.
+     * @param params the request parameters, sorted by name, not null.
+     * @return the result element of the response.
+     * @throws ApiException in case of any error, including error responses.
+     */
+    JsonElement request(String method, TreeMap<String, String> params) throws ApiException {
+        connect();
+        String id = String.valueOf(nextRequestId.incrementAndGet());
+        JsonObject request = new JsonObject();
+        request.addProperty("id", id);
+        request.addProperty("method", method);
+        request.add("params", sign(params));
+        CompletableFuture<JsonElement> response = new CompletableFuture<>();
+        pendingRequests.put(id, response);
+        try {
+            Session session = getSession();
+            if (session == null) {
+                throw new ApiException("Websocket not connected.");
+            }
+            // blocking sends must not overlap
+            synchronized (session) {
+                session.getRemote().sendString(gson.toJson(request));
+            }
+            return response.get(timeoutSeconds(), TimeUnit.SECONDS);
+        } catch (IOException e) {
+            throw new ApiException("Websocket error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            throw new ApiException(e.toString());
+        } catch (TimeoutException e) {
+            throw new ApiException("No response for " + method + " request " + id);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ApiException) {
+                throw (ApiException) e.getCause();
+            }
+            throw new ApiException(String.valueOf(e.getCause()));
+        } finally {
+            pendingRequests.remove(id);
+        }
+    }
+
+    private JsonObject sign(TreeMap<String, String> params) throws ApiException {
+        params.put("apiKey", api.getApiKey());
+        params.putIfAbsent("recvWindow", String.valueOf(api.getClock().getRecvWindow()));
+        params.put("timestamp", String.valueOf(api.getClock().timestamp()));
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String> en : params.entrySet()) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(en.getKey()).append('=').append(en.getValue());
+        }
+        JsonObject result = new JsonObject();
+        params.forEach(result::addProperty);
+        try {
+            result.addProperty("signature", WebRequest.encode(api.getSecretKey(), query.toString()));
+        } catch (Exception e) {
+            throw new ApiException("Encryption error " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Completes the pending request a response belongs to. A malformed response fails its request, if the
+     * request id can be read, so the caller does not wait for the timeout.
+     */
+    @Override
+    public void onWebSocketText(String message) {
+        CompletableFuture<JsonElement> request = null;
+        try {
+            JsonObject response = gson.fromJson(message, JsonObject.class);
+            if (response == null || !response.has("id") || response.get("id").isJsonNull()) {
+                log.debug("Ignoring websocket message without id: {}", message);
+                return;
+            }
+            request = pendingRequests.get(response.get("id").getAsString());
+            if (request == null) {
+                log.debug("No pending request for response: {}", message);
+                return;
+            }
+            int status = response.has("status") ? response.get("status").getAsInt() : 200;
+            if (status < 400 && response.has("result")) {
+                request.complete(response.get("result"));
+            } else if (response.has("error") && response.get("error").isJsonObject()) {
+                JsonObject error = response.getAsJsonObject("error");
+                String code = error.has("code") ? error.get("code").getAsString() : String.valueOf(status);
+                String msg = error.has("msg") ? error.get("msg").getAsString() : "no message";
+                request.completeExceptionally(new ApiException("ERROR: " + code + ", " + msg));
+            } else {
+                request.completeExceptionally(new ApiException("ERROR: status " + status));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Malformed websocket response: {}", message);
+            if (request != null) {
+                request.completeExceptionally(new ApiException("Malformed response: " + e.getMessage()));
+            }
+        }
+    }
+
+    @Override
+    public void onWebSocketClose(int statusCode, String reason) {
+        super.onWebSocketClose(statusCode, reason);
+        log.debug("Trading websocket closed: {} {}", statusCode, reason);
+        failPending(new ApiException("Websocket closed: " + statusCode + " " + reason));
+    }
+
+    @Override
+    public void onWebSocketError(Throwable cause) {
+        log.error("Trading websocket error.", cause);
+        failPending(new ApiException("Websocket error: " + cause.getMessage()));
+    }
+
+    private void failPending(ApiException e) {
+        pendingRequests.values().forEach(f -> f.completeExceptionally(e));
+    }
+
+    private int timeoutSeconds() {
+        Integer timeout = api.getConnectionTimeoutSeconds();
+        return timeout == null ? 10 : timeout;
+    }
+
+    private void stopClient() {
+        if (client != null) {
+            try {
+                client.stop();
+            } catch (Exception e) {
+                log.debug("Failed to stop websocket client.", e);
+            }
+            client = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        Session session = getSession();
+        if (session != null && session.isOpen()) {
+            session.close();
+        }
+        stopClient();
+    }
+}
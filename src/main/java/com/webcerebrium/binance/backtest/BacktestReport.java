@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.backtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+/**
+ * The results of a {@link BacktestRunner} sweep, stored column wise with one row per strategy, in the order
+ * of the strategies. Values are in the valuation asset of the runner.
+ */
+public class BacktestReport {
+
+    private final String valuationAsset;
+    private final String[] names;
+    private final double[] startValues;
+    private final double[] endValues;
+    private final int[] orders;
+    private final int[] fills;
+    private final double[] volumes;
+    private final double[] fees;
+    private final long[] elapsedNanos;
+    private final Exception[] errors;
+    private long totalNanos;
+
+    BacktestReport(String valuationAsset, int size) {
+        this.valuationAsset = valuationAsset;
+        this.names = new String[size];
+        this.startValues = new double[size];
+        this.endValues = new double[size];
+        this.orders = new int[size];
+        this.fills = new int[size];
+        this.volumes = new double[size];
+        this.fees = new double[size];
+        this.elapsedNanos = new long[size];
+        this.errors = new Exception[size];
+    }
+
+    void setRow(int row, String name, double startValue, double endValue, int orders, int fills, double volume,
+                double fees, long elapsedNanos, Exception error) {
+        this.names[row] = name;
+        this.startValues[row] = startValue;
+        this.endValues[row] = endValue;
+        this.orders[row] = orders;
+        this.fills[row] = fills;
+        this.volumes[row] = volume;
+        this.fees[row] = fees;
+        this.elapsedNanos[row] = elapsedNanos;
+        this.errors[row] = error;
+    }
+
+    void setTotalNanos(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    public String getValuationAsset() {
+        return valuationAsset;
+    }
+
+    /** The number of rows. */
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int row) {
+        return names[row];
+    }
+
+    /** The account value at the start, NaN if an asset could not be valued. */
+    public double getStartValue(int row) {
+        return startValues[row];
+    }
+
+    /** The account value at the end, NaN if an asset could not be valued. */
+    public double getEndValue(int row) {
+        return endValues[row];
+    }
+
+    /** The profit or loss, net of fees. */
+    public double getPnl(int row) {
+        return endValues[row] - startValues[row];
+    }
+
+    public int getOrders(int row) {
+        return orders[row];
+    }
+
+    public int getFills(int row) {
+        return fills[row];
+    }
+
+    /** The traded volume, valued at the fill times. */
+    public double getVolume(int row) {
+        return volumes[row];
+    }
+
+    /** The fees paid, valued at the fill times. */
+    public double getFees(int row) {
+        return fees[row];
+    }
+
+    public long getElapsedNanos(int row) {
+        return elapsedNanos[row];
+    }
+
+    /** The error failing the run, null if it completed. */
+    public Exception getError(int row) {
+        return errors[row];
+    }
+
+    /** The wall clock time of the sweep. */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Finds the completed run with the highest profit.
+     * @return the row, or -1 if no run completed with a valued account.
+     */
+    public int getBest() {
+        int best = -1;
+        for (int i = 0; i < names.length; i++) {
+            if (errors[i] == null && !Double.isNaN(getPnl(i)) && (best < 0 || getPnl(i) > getPnl(best))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the report as CSV, with a header line.
+     * @param out the target, not null.
+     */
+    public void writeCsv(Appendable out) {
+        try {
+            out.append("name,startValue,endValue,pnl,orders,fills,volume,fees,elapsedMillis,error\n");
+            for (int i = 0; i < names.length; i++) {
+                out.append(quote(names[i])).append(',')
+                        .append(format(startValues[i])).append(',')
+                        .append(format(endValues[i])).append(',')
+                        .append(format(getPnl(i))).append(',')
+                        .append(Integer.toString(orders[i])).append(',')
+                        .append(Integer.toString(fills[i])).append(',')
+                        .append(format(volumes[i])).append(',')
+                        .append(format(fees[i])).append(',')
+                        .append(Long.toString(elapsedNanos[i] / 1_000_000)).append(',')
+                        .append(errors[i] == null ? "" : quote(errors[i].getMessage())).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.8f", value);
+    }
+
+    private static String quote(String value) {
+        return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        writeCsv(b);
+        return b.toString();
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.backtest;
+
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.api.SimulatorApi;
+import com.webcerebrium.binance.api.TestAccountManager;
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.Account;
+import com.webcerebrium.binance.datatype.Asset;
+import com.webcerebrium.binance.datatype.ExchangeInfo;
+import com.webcerebrium.binance.datatype.Trade;
+import com.webcerebrium.binance.history.AggTradeArchive;
+import com.webcerebrium.binance.replay.AggTradeDays;
+import com.webcerebrium.binance.replay.MarketReplay;
+import com.webcerebrium.binance.replay.RecordedMarketData;
+import com.webcerebrium.binance.replay.ReplayClock;
+import com.webcerebrium.binance.replay.ReplaySource;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Runs parameter sweeps: every strategy is backtested in an isolated offline {@link SimulatorApi} with its own
+ * account, orders and {@link ReplayClock}, in parallel on a {@link ForkJoinPool}. The recorded candles and
+ * trades are shared read-only by all runs, e.g. memory-mapped {@link com.webcerebrium.binance.candles.CandleStore}
+ * series and the trade days decoded once by {@link #getTradeDays()}, only the replay sources are created per run.
+ * Runs are single threaded, so throughput grows with the number of cores.
+ */
+@Slf4j
+@Getter
+@Setter
+public class BacktestRunner {
+
+    /** The decoded trade days kept per symbol, covering runs replaying different days at a time. */
+    private static final int TRADE_DAYS = 4;
+
+    private final ExchangeInfo exchangeInfo;
+    private final String valuationAsset;
+    private final int parallelism;
+    private final List<CandleSeries> candles = new ArrayList<>();
+    /** The archive serving trades and prices, optional. */
+    private AggTradeArchive trades;
+    /** The trades decoded once for all runs, to be passed to their
+     * {@link com.webcerebrium.binance.replay.AggTradeReplaySource}s. */
+    @Setter(AccessLevel.NONE)
+    private AggTradeDays tradeDays;
+    /** Creates the replay sources of a run, e.g. a {@link com.webcerebrium.binance.replay.CandleReplaySource}. */
+    private Supplier<List<ReplaySource>> sources;
+    /** The starting balances of each run. */
+    private Map<String, Double> balances = new HashMap<>();
+    private long startTime;
+    private long endTime = Long.MAX_VALUE;
+
+    /**
+     * Creates a new runner.
+     * @param exchangeInfo the recorded exchange info, not null.
+     * @param valuationAsset the asset accounts are valued in, e.g. "BTC".
+     * @param parallelism the number of runs executed concurrently.
+     */
+    public BacktestRunner(ExchangeInfo exchangeInfo, String valuationAsset, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive.");
+        }
+        this.exchangeInfo = Objects.requireNonNull(exchangeInfo);
+        this.valuationAsset = Objects.requireNonNull(valuationAsset);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the archive serving trades and prices, decoded once for all runs. The replay sources should read the
+     * same decoded days, e.g. {@code new AggTradeReplaySource(runner.getTradeDays(), symbol, from, to)}.
+     * @param trades the archive, or null.
+     */
+    public void setTrades(AggTradeArchive trades) {
+        this.trades = trades;
+        this.tradeDays = trades == null ? null : new AggTradeDays(trades, TRADE_DAYS);
+    }
+
+    /**
+     * Adds a shared candle series.
+     * @param series the series, not modified during the runs.
+     * @return this instance, for chaining.
+     */
+    public BacktestRunner addCandles(CandleSeries series) {
+        candles.add(Objects.requireNonNull(series));
+        return this;
+    }
+
+    /**
+     * Runs the strategies and waits for their completion. Failing runs do not affect the other runs.
+     * @param strategies the strategies, not null.
+     * @return the report, with the rows in the order of the strategies.
+     * @throws ApiException if the sweep is interrupted.
+     */
+    public BacktestReport run(List<? extends BacktestStrategy> strategies) throws ApiException {
+        Objects.requireNonNull(sources, "sources not set.");
+        BacktestReport report = new BacktestReport(valuationAsset, strategies.size());
+        log.info("Backtesting {} strategies on {} threads.", strategies.size(), parallelism);
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, strategies.size()).parallel()
+                    .forEach(i -> run(i, strategies.get(i), report))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(e.toString());
+        } catch (ExecutionException e) {
+            throw new ApiException(e.getCause().toString());
+        } finally {
+            pool.shutdownNow();
+        }
+        report.setTotalNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    private void run(int row, BacktestStrategy strategy, BacktestReport report) {
+        long started = System.nanoTime();
+        ReplayClock clock = new ReplayClock(startTime);
+        RecordedMarketData marketData = new RecordedMarketData(exchangeInfo, clock).setTrades(tradeDays);
+        candles.forEach(marketData::addCandles);
+        double startValue = Double.NaN;
+        double[] fills = new double[3];
+        SimulatorApi api = null;
+        MarketReplay replay = new MarketReplay(clock);
+        try {
+            sources.get().forEach(replay::addSource);
+            api = new SimulatorApi(marketData, TestAccountManager.createAccount(balances));
+            api.setReplay(replay);
+            SimulatorApi simulator = api;
+            api.getTestOrderManager().getMatchingEngine().addListener((order, type, trade) -> {
+                if (trade != null) {
+                    fills[0]++;
+                    fills[1] += value(simulator, quoteAsset(trade), trade.getQty() * trade.getPrice());
+                    fills[2] += value(simulator, trade.getCommissionAsset(), trade.getCommission());
+                }
+            });
+            startValue = value(api, api.getAccount());
+            strategy.start(api);
+            replay.runUntil(endTime);
+            strategy.finish(api);
+            report.setRow(row, strategy.getName(), startValue, value(api, api.getAccount()), orders(api),
+                    (int) fills[0], fills[1], fills[2], System.nanoTime() - started, null);
+        } catch (Exception e) {
+            log.warn("Backtest of {} failed: {}", strategy.getName(), e.toString());
+            report.setRow(row, strategy.getName(), startValue, Double.NaN, api == null ? 0 : orders(api),
+                    (int) fills[0], fills[1], fills[2], System.nanoTime() - started, e);
+        } finally {
+            replay.close();
+        }
+    }
+
+    private static int orders(SimulatorApi api) {
+        return api.getTestOrderManager().getStore().getOrderCount();
+    }
+
+    private String quoteAsset(Trade trade) {
+        return exchangeInfo.getSymbol(trade.getSymbol()).getQuoteAsset();
+    }
+
+    private double value(SimulatorApi api, Account account) {
+        double total = 0;
+        for (Asset asset : account.getAssets().values()) {
+            double amount = (asset.getFree() == null ? 0 : asset.getFree())
+                    + (asset.getLocked() == null ? 0 : asset.getLocked());
+            total += value(api, asset.getName(), amount);
+        }
+        return total;
+    }
+
+    /** Values an amount in the valuation asset at the current price, NaN if there is no price. */
+    private double value(SimulatorApi api, String asset, double amount) {
+        if (amount == 0 || valuationAsset.equals(asset)) {
+            return amount;
+        }
+        if (exchangeInfo.getSymbol(asset + valuationAsset) != null) {
+            Double price = api.getPrice(asset + valuationAsset);
+            return price == null ? Double.NaN : amount * price;
+        }
+        if (exchangeInfo.getSymbol(valuationAsset + asset) != null) {
+            Double price = api.getPrice(valuationAsset + asset);
+            return price == null ? Double.NaN : amount / price;
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.backtest;
+
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.api.SimulatorApi;
+
+/**
+ * A strategy run by a {@link BacktestRunner}. Each run gets its own offline {@link SimulatorApi}, so a
+ * strategy must not share mutable state with the other strategies of a sweep.
+ */
+public interface BacktestStrategy {
+
+    /**
+     * Get the name of the strategy, e.g. its parameters, identifying it in the {@link BacktestReport}.
+     * @return the name, not null.
+     */
+    String getName();
+
+    /**
+     * Called before the replay starts, e.g. to subscribe to streams of the api.
+     * @param api the simulator of this run.
+     * @throws ApiException to fail the run.
+     */
+    void start(SimulatorApi api) throws ApiException;
+
+    /**
+     * Called after the replay ended, e.g. to cancel open orders.
+     * @param api the simulator of this run.
+     * @throws ApiException to fail the run.
+     */
+    default void finish(SimulatorApi api) throws ApiException {
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.Interval;
+
+import java.util.Objects;
+
+/**
+ * Base class of the column storages. Subclasses store 11 columns of 8 byte values, the append logic and the
+ * publication of new rows to readers is implemented here.
+ */
+abstract class AbstractCandleSeries implements CandleSeries {
+
+    static final int OPEN_TIME = 0;
+    static final int CLOSE_TIME = 1;
+    static final int OPEN = 2;
+    static final int HIGH = 3;
+    static final int LOW = 4;
+    static final int CLOSE = 5;
+    static final int VOLUME = 6;
+    static final int QUOTE_VOLUME = 7;
+    static final int TRADES = 8;
+    static final int TAKER_BASE = 9;
+    static final int TAKER_QUOTE = 10;
+    static final int COLUMNS = 11;
+
+    private final String symbol;
+    private final Interval interval;
+    /** Rows below size are complete, written before size is incremented. */
+    private volatile int size;
+
+    AbstractCandleSeries(String symbol, Interval interval, int size) {
+        this.symbol = Objects.requireNonNull(symbol);
+        this.interval = Objects.requireNonNull(interval);
+        this.size = size;
+    }
+
+    abstract long getLong(int column, int index);
+
+    abstract double getDouble(int column, int index);
+
+    abstract void putLong(int column, int index, long value);
+
+    abstract void putDouble(int column, int index, double value);
+
+    /** Ensures the row can be written. */
+    abstract void ensureCapacity(int rows);
+
+    /** Called after a row has been written, before it is published. */
+    void rowWritten(int newSize) {
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    @Override
+    public Interval getInterval() {
+        return interval;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void append(Candlestick candle) {
+        long openTime = Objects.requireNonNull(candle.getOpenTime(), "openTime");
+        int index = size;
+        if (index > 0) {
+            long last = getLong(OPEN_TIME, index - 1);
+            if (openTime < last) {
+                throw new IllegalArgumentException("Candle at " + openTime + " is older than the last candle at "
+                        + last + " of " + symbol + " " + interval);
+            }
+            if (openTime == last) {
+                index--;
+            }
+        }
+        ensureCapacity(index + 1);
+        putLong(OPEN_TIME, index, openTime);
+        putLong(CLOSE_TIME, index, value(candle.getCloseTime()));
+        putDouble(OPEN, index, value(candle.getOpen()));
+        putDouble(HIGH, index, value(candle.getHigh()));
+        putDouble(LOW, index, value(candle.getLow()));
+        putDouble(CLOSE, index, value(candle.getClose()));
+        putDouble(VOLUME, index, value(candle.getVolume()));
+        putDouble(QUOTE_VOLUME, index, value(candle.getQuoteAssetVolume()));
+        putLong(TRADES, index, value(candle.getNumberOfTrades()));
+        putDouble(TAKER_BASE, index, value(candle.getTakerBuyBaseAssetVolume()));
+        putDouble(TAKER_QUOTE, index, value(candle.getTakerBuyQuoteAssetVolume()));
+        if (index == size) {
+            rowWritten(index + 1);
+            size = index + 1;
+        }
+    }
+
+    private static long value(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private static double value(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    @Override
+    public long getOpenTime(int index) {
+        return getLong(OPEN_TIME, checkIndex(index));
+    }
+
+    @Override
+    public long getCloseTime(int index) {
+        return getLong(CLOSE_TIME, checkIndex(index));
+    }
+
+    @Override
+    public double getOpen(int index) {
+        return getDouble(OPEN, checkIndex(index));
+    }
+
+    @Override
+    public double getHigh(int index) {
+        return getDouble(HIGH, checkIndex(index));
+    }
+
+    @Override
+    public double getLow(int index) {
+        return getDouble(LOW, checkIndex(index));
+    }
+
+    @Override
+    public double getClose(int index) {
+        return getDouble(CLOSE, checkIndex(index));
+    }
+
+    @Override
+    public double getVolume(int index) {
+        return getDouble(VOLUME, checkIndex(index));
+    }
+
+    @Override
+    public double getQuoteAssetVolume(int index) {
+        return getDouble(QUOTE_VOLUME, checkIndex(index));
+    }
+
+    @Override
+    public long getNumberOfTrades(int index) {
+        return getLong(TRADES, checkIndex(index));
+    }
+
+    @Override
+    public double getTakerBuyBaseAssetVolume(int index) {
+        return getDouble(TAKER_BASE, checkIndex(index));
+    }
+
+    @Override
+    public double getTakerBuyQuoteAssetVolume(int index) {
+        return getDouble(TAKER_QUOTE, checkIndex(index));
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{symbol=" + symbol + ", interval=" + interval + ", size=" + size + "}";
+    }
+}
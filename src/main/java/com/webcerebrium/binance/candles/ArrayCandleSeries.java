@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.datatype.Interval;
+
+import java.util.Arrays;
+
+/**
+ * Heap based candle series, storing each column in a primitive array.
+ */
+public class ArrayCandleSeries extends AbstractCandleSeries {
+
+    private final long[][] longs = new long[COLUMNS][];
+    private final double[][] doubles = new double[COLUMNS][];
+
+    public ArrayCandleSeries(String symbol, Interval interval) {
+        this(symbol, interval, 1024);
+    }
+
+    public ArrayCandleSeries(String symbol, Interval interval, int initialCapacity) {
+        super(symbol, interval, 0);
+        for (int column : new int[]{OPEN_TIME, CLOSE_TIME, TRADES}) {
+            longs[column] = new long[initialCapacity];
+        }
+        for (int column : new int[]{OPEN, HIGH, LOW, CLOSE, VOLUME, QUOTE_VOLUME, TAKER_BASE, TAKER_QUOTE}) {
+            doubles[column] = new double[initialCapacity];
+        }
+    }
+
+    @Override
+    long getLong(int column, int index) {
+        return longs[column][index];
+    }
+
+    @Override
+    double getDouble(int column, int index) {
+        return doubles[column][index];
+    }
+
+    @Override
+    void putLong(int column, int index, long value) {
+        longs[column][index] = value;
+    }
+
+    @Override
+    void putDouble(int column, int index, double value) {
+        doubles[column][index] = value;
+    }
+
+    @Override
+    void ensureCapacity(int rows) {
+        int capacity = longs[OPEN_TIME].length;
+        if (rows <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(rows, capacity + (capacity >> 1) + 16);
+        // readers may still see the old arrays, which hold all published rows
+        for (int i = 0; i < COLUMNS; i++) {
+            if (longs[i] != null) {
+                longs[i] = Arrays.copyOf(longs[i], newCapacity);
+            }
+            if (doubles[i] != null) {
+                doubles[i] = Arrays.copyOf(doubles[i], newCapacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.HasSymbol;
+
+/**
+ * A bar built by a {@link CandleBuilder}. Bars are mutable and reused by the builder: a bar passed to a
+ * {@link BarListener} is only valid during the callback, use {@link #copy()} or {@link #toCandlestick()} to
+ * keep it.
+ */
+public final class Bar implements HasSymbol {
+
+    private final String symbol;
+    private final BarSpec spec;
+    long openTime;
+    long closeTime;
+    double open;
+    double high;
+    double low;
+    double close;
+    double volume;
+    double quoteVolume;
+    double takerBuyVolume;
+    double takerBuyQuoteVolume;
+    long trades;
+    long firstTradeId;
+    long lastTradeId;
+
+    Bar(String symbol, BarSpec spec) {
+        this.symbol = symbol;
+        this.spec = spec;
+    }
+
+    void reset(long openTime, long closeTime) {
+        this.openTime = openTime;
+        this.closeTime = closeTime;
+        this.open = this.high = this.low = this.close = Double.NaN;
+        this.volume = this.quoteVolume = this.takerBuyVolume = this.takerBuyQuoteVolume = 0.0;
+        this.trades = 0;
+        this.firstTradeId = this.lastTradeId = -1;
+    }
+
+    void add(double price, double quantity, boolean takerBuy, long tradeId, int count) {
+        if (trades == 0) {
+            open = high = low = price;
+            firstTradeId = tradeId;
+        } else {
+            if (price > high) high = price;
+            if (price < low) low = price;
+        }
+        close = price;
+        double quote = price * quantity;
+        volume += quantity;
+        quoteVolume += quote;
+        if (takerBuy) {
+            takerBuyVolume += quantity;
+            takerBuyQuoteVolume += quote;
+        }
+        trades += count;
+        lastTradeId = tradeId;
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public BarSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Get the open time: the bucket start for time bars, the time of the first trade otherwise.
+     * @return the open time in epoch millis.
+     */
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    /**
+     * Get the close time: the last milli of the bucket for time bars, the time of the last trade otherwise.
+     * @return the close time in epoch millis.
+     */
+    public long getCloseTime() {
+        return closeTime;
+    }
+
+    public double getOpen() {
+        return open;
+    }
+
+    public double getHigh() {
+        return high;
+    }
+
+    public double getLow() {
+        return low;
+    }
+
+    public double getClose() {
+        return close;
+    }
+
+    public double getVolume() {
+        return volume;
+    }
+
+    public double getQuoteVolume() {
+        return quoteVolume;
+    }
+
+    public double getTakerBuyVolume() {
+        return takerBuyVolume;
+    }
+
+    public double getTakerBuyQuoteVolume() {
+        return takerBuyQuoteVolume;
+    }
+
+    public long getTrades() {
+        return trades;
+    }
+
+    public long getFirstTradeId() {
+        return firstTradeId;
+    }
+
+    public long getLastTradeId() {
+        return lastTradeId;
+    }
+
+    /**
+     * Creates a copy, which is not reused by the builder.
+     * @return the copy, never null.
+     */
+    public Bar copy() {
+        Bar bar = new Bar(symbol, spec);
+        bar.openTime = openTime;
+        bar.closeTime = closeTime;
+        bar.open = open;
+        bar.high = high;
+        bar.low = low;
+        bar.close = close;
+        bar.volume = volume;
+        bar.quoteVolume = quoteVolume;
+        bar.takerBuyVolume = takerBuyVolume;
+        bar.takerBuyQuoteVolume = takerBuyQuoteVolume;
+        bar.trades = trades;
+        bar.firstTradeId = firstTradeId;
+        bar.lastTradeId = lastTradeId;
+        return bar;
+    }
+
+    /**
+     * Creates a candlestick of a time bar matching an exchange interval.
+     * @return the candlestick, never null.
+     * @throws IllegalStateException if the bar does not match an exchange interval.
+     */
+    public Candlestick toCandlestick() {
+        if (spec.getInterval() == null) {
+            throw new IllegalStateException("Bars of " + spec + " have no exchange interval.");
+        }
+        Candlestick candle = new Candlestick(symbol, spec.getInterval());
+        candle.setOpenTime(openTime);
+        candle.setCloseTime(closeTime);
+        candle.setOpen(open);
+        candle.setHigh(high);
+        candle.setLow(low);
+        candle.setClose(close);
+        candle.setVolume(volume);
+        candle.setQuoteAssetVolume(quoteVolume);
+        candle.setNumberOfTrades(trades);
+        candle.setTakerBuyBaseAssetVolume(takerBuyVolume);
+        candle.setTakerBuyQuoteAssetVolume(takerBuyQuoteVolume);
+        return candle;
+    }
+
+    @Override
+    public String toString() {
+        return "Bar{" + symbol + " " + spec + " " + openTime + ".." + closeTime + " o=" + open + " h=" + high
+                + " l=" + low + " c=" + close + " v=" + volume + " n=" + trades + "}";
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.datatype.Interval;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Specifies how a {@link CandleBuilder} closes bars: after a fixed time, after a traded volume or after a
+ * number of trades.
+ */
+public final class BarSpec {
+
+    public enum Type {
+        /** Bars covering aligned time buckets. */
+        TIME,
+        /** Bars closing when the traded base volume reaches the size. */
+        VOLUME,
+        /** Bars closing after the given number of trades. */
+        TICK
+    }
+
+    private final Type type;
+    private final double size;
+    private final Interval interval;
+
+    private BarSpec(Type type, double size, Interval interval) {
+        if (!(size > 0)) {
+            throw new IllegalArgumentException("Bar size must be positive: " + size);
+        }
+        this.type = Objects.requireNonNull(type);
+        this.size = size;
+        this.interval = interval;
+    }
+
+    /**
+     * Time bars of any duration, e.g. 15 seconds.
+     * @param duration the duration.
+     * @param unit the unit of the duration, not null.
+     * @return the spec, never null.
+     */
+    public static BarSpec time(long duration, TimeUnit unit) {
+        long millis = unit.toMillis(duration);
+        for (Interval interval : Interval.values()) {
+            if (interval.toMillis() == millis && interval != Interval.ONE_MONTH) {
+                return new BarSpec(Type.TIME, millis, interval);
+            }
+        }
+        return new BarSpec(Type.TIME, millis, null);
+    }
+
+    /**
+     * Time bars of an exchange interval, aligned like the exchange's klines, e.g. to calendar months.
+     * @param interval the interval, not null.
+     * @return the spec, never null.
+     */
+    public static BarSpec time(Interval interval) {
+        return new BarSpec(Type.TIME, interval.toMillis(), interval);
+    }
+
+    /**
+     * Volume bars. A bar closes with the trade reaching the volume, trades are not split.
+     * @param volume the base volume per bar.
+     * @return the spec, never null.
+     */
+    public static BarSpec volume(double volume) {
+        return new BarSpec(Type.VOLUME, volume, null);
+    }
+
+    /**
+     * Tick bars.
+     * @param trades the number of trades per bar.
+     * @return the spec, never null.
+     */
+    public static BarSpec ticks(int trades) {
+        return new BarSpec(Type.TICK, trades, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the size: the (nominal) duration in millis for time bars, the volume for volume bars and the number of trades
+     * for tick bars.
+     * @return the size.
+     */
+    public double getSize() {
+        return size;
+    }
+
+    /**
+     * Get the exchange interval of time bars.
+     * @return the interval, or null if the bars do not match an exchange interval.
+     */
+    public Interval getInterval() {
+        return interval;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BarSpec)) return false;
+        BarSpec other = (BarSpec) o;
+        return type == other.type && Double.compare(size, other.size) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, size);
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case TIME:
+                return interval != null ? interval.getValue() : (long) size + "ms";
+            case VOLUME:
+                return "vol:" + size;
+            default:
+                return "ticks:" + (long) size;
+        }
+    }
+}
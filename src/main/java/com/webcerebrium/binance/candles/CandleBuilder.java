@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.Interval;
+import com.webcerebrium.binance.datatype.events.AggregatedTradeEvent;
+import com.webcerebrium.binance.websocket.WebSocketAggTradesAdapter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds bars of any number of {@link BarSpec}s from the aggregated trades of one symbol. Each trade updates
+ * all open bars in a single pass, without allocating: the builder keeps one reusable {@link Bar} per spec and
+ * passes it to the listener when it closes.
+ * <p>
+ * Time bars of exchange intervals are aligned like the exchange's klines, other time bars to the epoch. They
+ * close with the first trade of a later bucket, or when {@link #advanceTime(long)} passes their close time.
+ * Buckets without trades produce no bar. Volume and tick bars close with the trade reaching their size, trades
+ * are not split across bars.
+ * <p>
+ * A builder is not thread safe, it is meant to be fed by a single stream.
+ */
+public class CandleBuilder {
+
+    private final String symbol;
+    private final BarListener listener;
+    private final BarSpec[] specs;
+    private final Bar[] bars;
+    private final long[] timeSizes;
+    private final Interval[] intervals;
+    private final double[] sizes;
+
+    /**
+     * Creates a builder.
+     * @param symbol the symbol of the trades, not null.
+     * @param listener the listener receiving closed bars, not null.
+     * @param specs the bars to build, at least one.
+     */
+    public CandleBuilder(String symbol, BarListener listener, BarSpec... specs) {
+        if (specs.length == 0) {
+            throw new IllegalArgumentException("At least one bar spec required.");
+        }
+        this.symbol = Objects.requireNonNull(symbol);
+        this.listener = Objects.requireNonNull(listener);
+        this.specs = specs.clone();
+        this.bars = new Bar[specs.length];
+        this.timeSizes = new long[specs.length];
+        this.intervals = new Interval[specs.length];
+        this.sizes = new double[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            bars[i] = new Bar(symbol, specs[i]);
+            bars[i].reset(Long.MIN_VALUE, Long.MIN_VALUE);
+            timeSizes[i] = specs[i].getType() == BarSpec.Type.TIME ? (long) specs[i].getSize() : 0;
+            intervals[i] = specs[i].getInterval();
+            sizes[i] = specs[i].getSize();
+        }
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public List<BarSpec> getSpecs() {
+        return Arrays.asList(specs.clone());
+    }
+
+    /**
+     * Get the open bar of a spec. Like closed bars, it is reused by the builder.
+     * @param index the index of the spec as given to the constructor.
+     * @return the open bar, or null if it has no trades yet.
+     */
+    public Bar getOpenBar(int index) {
+        Bar bar = bars[index];
+        return bar.trades == 0 ? null : bar;
+    }
+
+    /**
+     * Adds an aggregated trade event.
+     * @param event the event, not null.
+     */
+    public void onTrade(AggregatedTradeEvent event) {
+        int count = 1;
+        if (event.firstBreakdownTradeId != null && event.lastBreakdownTradeId != null) {
+            count = (int) (event.lastBreakdownTradeId - event.firstBreakdownTradeId + 1);
+        }
+        onTrade(event.tradeTime, event.price, event.quantity, event.isMaker, event.aggregatedTradeId, count);
+    }
+
+    /**
+     * Adds a trade to all bars.
+     * @param time the trade time in epoch millis.
+     * @param price the price.
+     * @param quantity the base quantity.
+     * @param buyerMaker true if the buyer was the maker, i.e. the taker sold.
+     * @param tradeId the id of the (aggregated) trade.
+     * @param count the number of exchange trades this trade aggregates, used for trade counts and tick bars.
+     */
+    public void onTrade(long time, double price, double quantity, boolean buyerMaker, long tradeId, int count) {
+        for (int i = 0; i < bars.length; i++) {
+            Bar bar = bars[i];
+            long timeSize = timeSizes[i];
+            if (timeSize > 0) {
+                // late trades of an already closed bucket are added to the open bar
+                if (time > bar.closeTime) {
+                    if (bar.trades > 0) {
+                        listener.onBar(bar);
+                    }
+                    Interval interval = intervals[i];
+                    if (interval != null) {
+                        bar.reset(interval.getOpenTime(time), interval.getCloseTime(time));
+                    } else {
+                        long openTime = Math.floorDiv(time, timeSize) * timeSize;
+                        bar.reset(openTime, openTime + timeSize - 1);
+                    }
+                }
+                bar.add(price, quantity, !buyerMaker, tradeId, count);
+            } else {
+                if (bar.trades == 0) {
+                    bar.reset(time, time);
+                }
+                bar.add(price, quantity, !buyerMaker, tradeId, count);
+                if (time > bar.closeTime) {
+                    bar.closeTime = time;
+                }
+                double filled = specs[i].getType() == BarSpec.Type.VOLUME ? bar.volume : bar.trades;
+                if (filled >= sizes[i]) {
+                    listener.onBar(bar);
+                    bar.reset(Long.MIN_VALUE, Long.MIN_VALUE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes all time bars ending before the given time, e.g. driven by a timer or the event time of another
+     * stream. Without it a time bar closes only with the next trade.
+     * @param now the current (server) time in epoch millis.
+     */
+    public void advanceTime(long now) {
+        for (int i = 0; i < bars.length; i++) {
+            Bar bar = bars[i];
+            if (timeSizes[i] > 0 && bar.trades > 0 && now > bar.closeTime) {
+                listener.onBar(bar);
+                bar.reset(Long.MIN_VALUE, Long.MIN_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Closes all open bars, including incomplete volume and tick bars, e.g. at the end of a replay.
+     */
+    public void flush() {
+        for (Bar bar : bars) {
+            if (bar.trades > 0) {
+                listener.onBar(bar);
+                bar.reset(Long.MIN_VALUE, Long.MIN_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Creates an adapter feeding the aggregated trade stream of the symbol into this builder.
+     * @return the adapter, never null.
+     */
+    public WebSocketAggTradesAdapter createAdapter() {
+        return new WebSocketAggTradesAdapter() {
+            @Override
+            public void onMessage(AggregatedTradeEvent event) throws ApiException {
+                onTrade(event);
+            }
+        };
+    }
+
+    /**
+     * Creates a listener appending closed time bars of exchange intervals to candle series, other bars are
+     * ignored.
+     * @param store the store of the series, not null.
+     * @return the listener, never null.
+     */
+    public static BarListener appendingTo(CandleStore store) {
+        return bar -> {
+            if (bar.getSpec().getInterval() != null) {
+                store.getSeries(bar.getSymbol(), bar.getSpec().getInterval()).append(bar.toCandlestick());
+            }
+        };
+    }
+}
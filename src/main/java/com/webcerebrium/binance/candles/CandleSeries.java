@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.HasSymbol;
+import com.webcerebrium.binance.datatype.Interval;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Append-only, columnar series of the candles of one symbol and interval, ordered by open time. Values are
+ * stored as primitive columns and accessed by index; {@link Candlestick} objects are only created on demand.
+ * A series supports one writer and any number of concurrent readers.
+ */
+public interface CandleSeries extends HasSymbol {
+
+    Interval getInterval();
+
+    /**
+     * Get the number of candles.
+     * @return the number of candles.
+     */
+    int size();
+
+    long getOpenTime(int index);
+
+    long getCloseTime(int index);
+
+    double getOpen(int index);
+
+    double getHigh(int index);
+
+    double getLow(int index);
+
+    double getClose(int index);
+
+    double getVolume(int index);
+
+    double getQuoteAssetVolume(int index);
+
+    long getNumberOfTrades(int index);
+
+    double getTakerBuyBaseAssetVolume(int index);
+
+    double getTakerBuyQuoteAssetVolume(int index);
+
+    /**
+     * Appends a candle. A candle with the open time of the last candle replaces the last candle, e.g. to
+     * update a candle that is not yet closed.
+     * @param candle the candle, not null.
+     * @throws IllegalArgumentException if the candle is older than the last candle.
+     */
+    void append(Candlestick candle);
+
+    /**
+     * Appends all candles, see {@link #append(Candlestick)}.
+     * @param candles the candles, not null.
+     */
+    default void appendAll(Iterable<Candlestick> candles) {
+        for (Candlestick candle : candles) {
+            append(candle);
+        }
+    }
+
+    /**
+     * Finds the candle with the given open time.
+     * @param openTime the open time.
+     * @return the index, or {@code -(insertion point) - 1} if there is no such candle.
+     */
+    default int indexOf(long openTime) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long time = getOpenTime(mid);
+            if (time < openTime) {
+                low = mid + 1;
+            } else if (time > openTime) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Get the open time of the last candle.
+     * @return the open time, or -1 if the series is empty.
+     */
+    default long getLastOpenTime() {
+        int size = size();
+        return size == 0 ? -1 : getOpenTime(size - 1);
+    }
+
+    /**
+     * Materializes a candle.
+     * @param index the index.
+     * @return a new candle, never null.
+     */
+    default Candlestick get(int index) {
+        Candlestick candle = new Candlestick(getSymbol(), getInterval());
+        candle.setOpenTime(getOpenTime(index));
+        candle.setCloseTime(getCloseTime(index));
+        candle.setOpen(getOpen(index));
+        candle.setHigh(getHigh(index));
+        candle.setLow(getLow(index));
+        candle.setClose(getClose(index));
+        candle.setVolume(getVolume(index));
+        candle.setQuoteAssetVolume(getQuoteAssetVolume(index));
+        candle.setNumberOfTrades(getNumberOfTrades(index));
+        candle.setTakerBuyBaseAssetVolume(getTakerBuyBaseAssetVolume(index));
+        candle.setTakerBuyQuoteAssetVolume(getTakerBuyQuoteAssetVolume(index));
+        return candle;
+    }
+
+    /**
+     * Get a read-only list view, materializing candles lazily on access.
+     * @return the view, never null.
+     */
+    default List<Candlestick> asList() {
+        return new AbstractList<Candlestick>() {
+            @Override
+            public Candlestick get(int index) {
+                return CandleSeries.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return CandleSeries.this.size();
+            }
+        };
+    }
+}
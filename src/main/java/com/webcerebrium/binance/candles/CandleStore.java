@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.Interval;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directory of memory-mapped candle series, one file per symbol and interval. Reopening a store maps the
+ * existing files, so history is available again without downloading it.
+ */
+@Slf4j
+public class CandleStore implements AutoCloseable {
+
+    static final String SUFFIX = ".candles";
+
+    private final Path directory;
+    private final Map<String, MappedCandleSeries> series = new ConcurrentHashMap<>();
+
+    /**
+     * Opens a store, creating the directory if needed.
+     * @param directory the directory, not null.
+     * @throws ApiException if the directory cannot be created.
+     */
+    public CandleStore(Path directory) throws ApiException {
+        this.directory = Objects.requireNonNull(directory);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new ApiException("Cannot create candle store " + directory + ": " + e.getMessage());
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the series of a symbol and interval, opening or creating its file if needed.
+     * @param symbol the symbol, not null.
+     * @param interval the interval, not null.
+     * @return the series, never null.
+     * @throws ApiException if the file cannot be opened.
+     */
+    public MappedCandleSeries getSeries(String symbol, Interval interval) throws ApiException {
+        String name = fileName(symbol, interval);
+        return series.computeIfAbsent(name, n -> MappedCandleSeries.open(directory.resolve(n), symbol, interval));
+    }
+
+    /**
+     * Checks if the store has a series, without creating it.
+     * @param symbol the symbol, not null.
+     * @param interval the interval, not null.
+     * @return true, if the series exists.
+     */
+    public boolean hasSeries(String symbol, Interval interval) {
+        String name = fileName(symbol, interval);
+        return series.containsKey(name) || Files.exists(directory.resolve(name));
+    }
+
+    /**
+     * Get all series currently open.
+     * @return the open series, never null.
+     */
+    public Collection<MappedCandleSeries> getOpenSeries() {
+        return Collections.unmodifiableCollection(new ArrayList<>(series.values()));
+    }
+
+    /**
+     * Writes all changes to the storage device.
+     */
+    public void force() {
+        series.values().forEach(MappedCandleSeries::force);
+    }
+
+    // intervals only differ in case for minutes and months, e.g. 1m and 1M
+    static String fileName(String symbol, Interval interval) {
+        return symbol + "-" + interval.name().toLowerCase(Locale.ROOT) + SUFFIX;
+    }
+
+    @Override
+    public void close() {
+        for (MappedCandleSeries s : series.values()) {
+            try {
+                s.close();
+            } catch (ApiException e) {
+                log.warn("Failed to close {}: {}", s.getFile(), e.getMessage());
+            }
+        }
+        series.clear();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.Interval;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Derives candles of coarser intervals from a base series, e.g. 5m, 1h, 1d and 1M candles from stored 1m candles,
+ * so only the base interval needs to be downloaded and stored. Candles are aligned like the exchange's klines,
+ * including weeks starting on Monday and calendar months.
+ * <p>
+ * {@link #update()} catches the target series up with the base series: the first call resamples the whole
+ * history in a tight loop over the columns, later calls only fold in the base rows appended since, so it can be
+ * called after each live base candle. The last candle of a target series is updated in place until its interval
+ * is complete. A resampler is not thread safe.
+ */
+public class IntervalResampler {
+
+    private final CandleSeries base;
+    private final Target[] targets;
+
+    /**
+     * Creates a resampler. Target series may already contain candles, e.g. when reopened from a
+     * {@link CandleStore}; resampling continues with their last candle.
+     * @param base the base series, not null.
+     * @param targets the target series of the same symbol, each of an interval that is a multiple of the base
+     *                interval.
+     */
+    public IntervalResampler(CandleSeries base, CandleSeries... targets) {
+        this.base = Objects.requireNonNull(base);
+        this.targets = new Target[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            CandleSeries target = targets[i];
+            if (!target.getSymbol().equals(base.getSymbol())) {
+                throw new IllegalArgumentException("Symbol mismatch: " + target.getSymbol());
+            }
+            if (target.getInterval() == base.getInterval() || !target.getInterval().isMultipleOf(base.getInterval())) {
+                throw new IllegalArgumentException("Cannot derive " + target.getInterval() + " from "
+                        + base.getInterval());
+            }
+            this.targets[i] = new Target(target);
+        }
+    }
+
+    /**
+     * Resamples a whole base series.
+     * @param base the base series, not null.
+     * @param interval the target interval, a multiple of the base interval.
+     * @return the resampled series, never null.
+     */
+    public static ArrayCandleSeries resample(CandleSeries base, Interval interval) {
+        ArrayCandleSeries target = new ArrayCandleSeries(base.getSymbol(), interval, 16);
+        new IntervalResampler(base, target).update();
+        return target;
+    }
+
+    public List<CandleSeries> getTargets() {
+        CandleSeries[] series = new CandleSeries[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            series[i] = targets[i].series;
+        }
+        return Arrays.asList(series);
+    }
+
+    /**
+     * Catches the target series up with the base series.
+     * @return the number of target candles written, including updates of open candles.
+     */
+    public int update() {
+        int written = 0;
+        for (Target target : targets) {
+            written += target.update();
+        }
+        return written;
+    }
+
+    /**
+     * Aggregates the base rows of the current target interval. Only the last base row may still change, so the
+     * rows before it are folded in once and the last row is added on top for each update.
+     */
+    private final class Target {
+        final CandleSeries series;
+        final Interval interval;
+        int position = -1;
+        long openTime = Long.MIN_VALUE;
+        long nextOpenTime = Long.MIN_VALUE;
+        int rows;
+        double open;
+        double high;
+        double low;
+        double volume;
+        double quoteVolume;
+        long trades;
+        double takerBuyVolume;
+        double takerBuyQuoteVolume;
+
+        Target(CandleSeries series) {
+            this.series = series;
+            this.interval = series.getInterval();
+        }
+
+        private void start() {
+            long last = series.getLastOpenTime();
+            if (last < 0) {
+                position = 0;
+            } else {
+                position = base.indexOf(last);
+                if (position < 0) {
+                    position = -position - 1;
+                }
+            }
+        }
+
+        private void reset(long time) {
+            openTime = interval.getOpenTime(time);
+            nextOpenTime = interval.getNextOpenTime(openTime);
+            rows = 0;
+            volume = quoteVolume = takerBuyVolume = takerBuyQuoteVolume = 0.0;
+            trades = 0;
+        }
+
+        private void fold(int i) {
+            double h = base.getHigh(i);
+            double l = base.getLow(i);
+            if (rows == 0) {
+                open = base.getOpen(i);
+                high = h;
+                low = l;
+            } else {
+                if (h > high) high = h;
+                if (l < low) low = l;
+            }
+            volume += base.getVolume(i);
+            quoteVolume += base.getQuoteAssetVolume(i);
+            trades += base.getNumberOfTrades(i);
+            takerBuyVolume += base.getTakerBuyBaseAssetVolume(i);
+            takerBuyQuoteVolume += base.getTakerBuyQuoteAssetVolume(i);
+            rows++;
+        }
+
+        private void write(int last) {
+            Candlestick candle = new Candlestick(series.getSymbol(), interval);
+            candle.setOpenTime(openTime);
+            candle.setCloseTime(nextOpenTime - 1);
+            candle.setOpen(open);
+            candle.setHigh(high);
+            candle.setLow(low);
+            candle.setClose(base.getClose(last));
+            candle.setVolume(volume);
+            candle.setQuoteAssetVolume(quoteVolume);
+            candle.setNumberOfTrades(trades);
+            candle.setTakerBuyBaseAssetVolume(takerBuyVolume);
+            candle.setTakerBuyQuoteAssetVolume(takerBuyQuoteVolume);
+            series.append(candle);
+        }
+
+        int update() {
+            if (position < 0) {
+                start();
+            }
+            int size = base.size();
+            if (size <= position) {
+                return 0;
+            }
+            int written = 0;
+            // fold in all complete rows, closing target candles on interval boundaries
+            for (int i = position; i < size - 1; i++) {
+                long time = base.getOpenTime(i);
+                if (time >= nextOpenTime || rows == 0) {
+                    if (rows > 0) {
+                        write(i - 1);
+                        written++;
+                    }
+                    reset(time);
+                }
+                fold(i);
+            }
+            position = size - 1;
+
+            // the last row may still change, it is added to a copy of the aggregate
+            int last = size - 1;
+            long time = base.getOpenTime(last);
+            if (time >= nextOpenTime || rows == 0) {
+                if (rows > 0) {
+                    write(last - 1);
+                    written++;
+                }
+                reset(time);
+            }
+            int savedRows = rows;
+            double savedOpen = open;
+            double savedHigh = high;
+            double savedLow = low;
+            double savedVolume = volume;
+            double savedQuoteVolume = quoteVolume;
+            long savedTrades = trades;
+            double savedTakerBuyVolume = takerBuyVolume;
+            double savedTakerBuyQuoteVolume = takerBuyQuoteVolume;
+            fold(last);
+            write(last);
+            written++;
+            rows = savedRows;
+            open = savedOpen;
+            high = savedHigh;
+            low = savedLow;
+            volume = savedVolume;
+            quoteVolume = savedQuoteVolume;
+            trades = savedTrades;
+            takerBuyVolume = savedTakerBuyVolume;
+            takerBuyQuoteVolume = savedTakerBuyQuoteVolume;
+            return written;
+        }
+    }
+}
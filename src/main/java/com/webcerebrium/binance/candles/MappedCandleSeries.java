@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.Interval;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Candle series persisted in a memory-mapped file. The file consists of a header followed by chunks of
+ * {@link #CHUNK_ROWS} rows, each chunk storing its rows column by column. Chunks are mapped as they are
+ * needed, so opening a series only maps the existing chunks and reads the row count from the header.
+ */
+public class MappedCandleSeries extends AbstractCandleSeries implements AutoCloseable {
+
+    static final int MAGIC = 0x434E444C; // "CNDL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int CHUNK_ROWS = 4096;
+    static final int COLUMN_BYTES = CHUNK_ROWS * Long.BYTES;
+    static final int CHUNK_BYTES = COLUMNS * COLUMN_BYTES;
+    private static final int COUNT_OFFSET = 8;
+    private static final int NAME_OFFSET = 16;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] chunks;
+
+    private MappedCandleSeries(Path file, FileChannel channel, MappedByteBuffer header, String symbol,
+                               Interval interval, int size) throws IOException {
+        super(symbol, interval, size);
+        this.file = file;
+        this.channel = channel;
+        this.header = header;
+        int chunkCount = (size + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        List<MappedByteBuffer> mapped = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            mapped.add(mapChunk(i));
+        }
+        this.chunks = mapped.toArray(new MappedByteBuffer[0]);
+    }
+
+    /**
+     * Opens a series file, creating it if it does not exist.
+     * @param file the file, not null.
+     * @param symbol the symbol, not null.
+     * @param interval the interval, not null.
+     * @return the series, never null.
+     * @throws ApiException if the file cannot be opened or belongs to another series.
+     */
+    public static MappedCandleSeries open(Path file, String symbol, Interval interval) throws ApiException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            boolean created = channel.size() == 0;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            String name = symbol + "/" + interval.getValue();
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            if (nameBytes.length > HEADER_SIZE - NAME_OFFSET - 1) {
+                throw new ApiException("Symbol too long: " + symbol);
+            }
+            int size = 0;
+            if (created) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(COUNT_OFFSET, 0);
+                header.put(NAME_OFFSET, (byte) nameBytes.length);
+                for (int i = 0; i < nameBytes.length; i++) {
+                    header.put(NAME_OFFSET + 1 + i, nameBytes[i]);
+                }
+            } else {
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new ApiException("Not a candle series file: " + file);
+                }
+                byte[] stored = new byte[header.get(NAME_OFFSET)];
+                for (int i = 0; i < stored.length; i++) {
+                    stored[i] = header.get(NAME_OFFSET + 1 + i);
+                }
+                String storedName = new String(stored, StandardCharsets.UTF_8);
+                if (!storedName.equals(name)) {
+                    throw new ApiException("File " + file + " contains " + storedName + ", not " + name);
+                }
+                size = (int) header.getLong(COUNT_OFFSET);
+            }
+            return new MappedCandleSeries(file, channel, header, symbol, interval, size);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new ApiException("Cannot open candle series " + file + ": " + e.getMessage());
+        } catch (ApiException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private MappedByteBuffer mapChunk(int chunk) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (long) chunk * CHUNK_BYTES, CHUNK_BYTES);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private static int offset(int column, int index) {
+        return column * COLUMN_BYTES + (index % CHUNK_ROWS) * Long.BYTES;
+    }
+
+    @Override
+    long getLong(int column, int index) {
+        return chunks[index / CHUNK_ROWS].getLong(offset(column, index));
+    }
+
+    @Override
+    double getDouble(int column, int index) {
+        return chunks[index / CHUNK_ROWS].getDouble(offset(column, index));
+    }
+
+    @Override
+    void putLong(int column, int index, long value) {
+        chunks[index / CHUNK_ROWS].putLong(offset(column, index), value);
+    }
+
+    @Override
+    void putDouble(int column, int index, double value) {
+        chunks[index / CHUNK_ROWS].putDouble(offset(column, index), value);
+    }
+
+    @Override
+    void ensureCapacity(int rows) {
+        int needed = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        MappedByteBuffer[] current = chunks;
+        if (needed <= current.length) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(current, needed);
+        try {
+            for (int i = current.length; i < needed; i++) {
+                grown[i] = mapChunk(i);
+            }
+        } catch (IOException e) {
+            throw new ApiException("Cannot grow candle series " + file + ": " + e.getMessage());
+        }
+        chunks = grown;
+    }
+
+    @Override
+    void rowWritten(int newSize) {
+        header.putLong(COUNT_OFFSET, newSize);
+    }
+
+    /**
+     * Writes all changes to the storage device.
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        header.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ApiException("Cannot close candle series " + file + ": " + e.getMessage());
+        }
+    }
+}
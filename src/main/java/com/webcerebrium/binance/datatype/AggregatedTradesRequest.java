@@ -42,6 +42,7 @@ public class AggregatedTradesRequest implements HasSymbol{
     /** End of query period, maximal 1 h duration. */
     Long endTime;
     /** Max number of results, Default 500; max 1000. */
+    @Builder.Default
     Integer limit = 500;
 
     public String toQueryString(){
@@ -44,7 +44,10 @@ public class AllOrderRequest implements HasSymbol{
 
     public String toQueryString(){
         String result = "?symbol="+symbol;
-        result += "&timestamp="+timestamp;
+        // the builder leaves the timestamp unset, it is added when signing
+        if(timestamp>0){
+            result += "&timestamp="+timestamp;
+        }
         if(orderId!=null){
             result += "&orderId="+orderId;
         }
@@ -41,6 +41,8 @@ public class CandlesticksRequest implements HasSymbol{
     Long startTime;
     /** End of query period, maximal 1 h duration. */
     Long endTime;
+    /** Number of candles per page, maximal 1000. */
+    @Builder.Default
     int limit = 500;
 
     public String toQueryString(){
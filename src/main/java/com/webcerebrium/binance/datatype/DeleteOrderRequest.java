@@ -38,7 +38,10 @@ public class DeleteOrderRequest implements HasSymbol{
 
     public String toQueryString(){
         String result = "?symbol="+symbol;
-        result += "&timestamp="+timestamp;
+        // the builder leaves the timestamp unset, it is added when signing
+        if(timestamp>0){
+            result += "&timestamp="+timestamp;
+        }
         if(recvWindow!=null){
             result += "&recvWindow="+recvWindow;
         }
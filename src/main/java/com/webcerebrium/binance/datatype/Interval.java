@@ -30,6 +30,9 @@ package com.webcerebrium.binance.datatype;
 // 1h,2h,4h,6h,8h,12h,
 // 1d,3d,1w,1M
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
@@ -53,6 +56,9 @@ public enum Interval {
     ONE_WEEK("1w", TimeUnit.DAYS.toMillis(7)),
     ONE_MONTH("1M", TimeUnit.DAYS.toMillis(30))
     ;
+    /** Weeks start on Monday, the epoch was a Thursday. */
+    private static final long WEEK_OFFSET = TimeUnit.DAYS.toMillis(4);
+
     private String value;
     private  long millis;
 
@@ -61,10 +67,85 @@ public enum Interval {
         this.millis = millis;
     }
 
+    /**
+     * Get the nominal length of the interval. Months are not of fixed length, their nominal length is 30 days;
+     * use {@link #getOpenTime(long)} and {@link #getNextOpenTime(long)} for exact boundaries.
+     * @return the length in millis.
+     */
     public long toMillis() {
         return millis;
     }
 
+    /**
+     * Checks if all intervals have the same length, which is true for all but {@link #ONE_MONTH}.
+     * @return true for fixed length intervals.
+     */
+    public boolean isFixedLength() {
+        return this != ONE_MONTH;
+    }
+
+    /**
+     * Get the open time of the interval containing a time, aligned like the exchange's klines in UTC: weeks
+     * start on Monday, months on the first day of the calendar month, all other intervals are epoch aligned.
+     * @param time the time in epoch millis.
+     * @return the open time in epoch millis.
+     */
+    public long getOpenTime(long time) {
+        switch (this) {
+            case ONE_WEEK:
+                return Math.floorDiv(time - WEEK_OFFSET, millis) * millis + WEEK_OFFSET;
+            case ONE_MONTH:
+                LocalDate day = Instant.ofEpochMilli(time).atZone(ZoneOffset.UTC).toLocalDate();
+                return day.withDayOfMonth(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            default:
+                return Math.floorDiv(time, millis) * millis;
+        }
+    }
+
+    /**
+     * Get the open time of the interval following the interval containing a time.
+     * @param time the time in epoch millis.
+     * @return the open time of the next interval in epoch millis.
+     */
+    public long getNextOpenTime(long time) {
+        if (this == ONE_MONTH) {
+            LocalDate day = Instant.ofEpochMilli(time).atZone(ZoneOffset.UTC).toLocalDate();
+            return day.withDayOfMonth(1).plusMonths(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+        return getOpenTime(time) + millis;
+    }
+
+    /**
+     * Get the close time of the interval containing a time, which is the last milli before the next interval.
+     * @param time the time in epoch millis.
+     * @return the close time in epoch millis.
+     */
+    public long getCloseTime(long time) {
+        return getNextOpenTime(time) - 1;
+    }
+
+    /**
+     * Checks if every interval of this interval consists of whole intervals of a finer interval, e.g. a day of
+     * hours, but not a week of three days.
+     * @param finer the finer interval.
+     * @return true if this interval can be derived from the finer one.
+     */
+    public boolean isMultipleOf(Interval finer) {
+        if (finer.millis >= millis && finer != this) {
+            return false;
+        }
+        if (this == ONE_MONTH) {
+            return finer == ONE_MONTH || ONE_DAY.millis % finer.millis == 0;
+        }
+        if (finer == ONE_MONTH) {
+            return false;
+        }
+        if (this == ONE_WEEK) {
+            return finer == ONE_WEEK || ONE_DAY.millis % finer.millis == 0;
+        }
+        return millis % finer.millis == 0;
+    }
+
     public String getValue() {
         return value;
     }
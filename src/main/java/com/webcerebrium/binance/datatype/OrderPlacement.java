@@ -32,7 +32,9 @@ import com.webcerebrium.binance.api.ApiException;
 import lombok.*;
 
 import java.text.NumberFormat;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 
 
 @Data
@@ -53,15 +55,36 @@ public class OrderPlacement implements HasSymbol{
     Long trailingDelta;
     Long recvWindow;
 
-    private ThreadLocal<NumberFormat> qtyFormat = ThreadLocal.withInitial(() -> {
+    private static final ThreadLocal<NumberFormat> qtyFormat = ThreadLocal.withInitial(() -> {
         NumberFormat nf = NumberFormat.getInstance(Locale.ENGLISH);
         nf.setMaximumFractionDigits(3);
         return nf;
     });
 
+    /**
+     * Get the placement as URL query, as used by the REST API.
+     * @return the query, without leading '?'.
+     * @throws ApiException if the placement is not valid.
+     */
     public String getAsQuery() throws ApiException {
-        StringBuffer sb = new StringBuffer();
         Escaper esc = UrlEscapers.urlFormParameterEscaper();
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> en : getAsParameters().entrySet()) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(en.getKey()).append('=').append(esc.escape(en.getValue()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Get the placement as request parameters, e.g. for the websocket API.
+     * @return the parameters, in insertion order, never null.
+     * @throws ApiException if the placement is not valid.
+     */
+    public Map<String, String> getAsParameters() throws ApiException {
+        Map<String, String> params = new LinkedHashMap<>();
         if (symbol == null) {
             throw new ApiException("Order Symbol is not set");
         }
@@ -136,47 +159,47 @@ public class OrderPlacement implements HasSymbol{
                 break;
         }
         // timestamp is also required, but will added implicitly later...
-        sb.append("&symbol=").append(symbol);
-        sb.append("&side=").append(side.name());
-        sb.append("&type=").append(type.name());
+        params.put("symbol", symbol);
+        params.put("side", side.name());
+        params.put("type", type.name());
         if (timeInForce != null) {
             switch(type){
                 case LIMIT:
                 case STOP_LOSS_LIMIT:
                 case TAKE_PROFIT_LIMIT:
-                    sb.append("&timeInForce=").append(timeInForce.name());
+                    params.put("timeInForce", timeInForce.name());
                     break;
             }
 
         }
         if (quantity != null) {
-            sb.append("&quantity=").append(formatQuantity(quantity));
+            params.put("quantity", formatQuantity(quantity));
         }
         if (quoteOrderQty != null) {
-            sb.append("&quoteOrderQty=").append(formatQuantity(quoteOrderQty));
+            params.put("quoteOrderQty", formatQuantity(quoteOrderQty));
         }
         if(price !=null){
-            sb.append("&price=").append(price);
+            params.put("price", String.valueOf(price));
         }
         if (!Strings.isNullOrEmpty(newClientOrderId)) {
-            sb.append("&newClientOrderId=").append(esc.escape(newClientOrderId));
+            params.put("newClientOrderId", newClientOrderId);
         }
         if (stopPrice != null) {
-            sb.append("&stopPrice=").append(stopPrice.toString());
+            params.put("stopPrice", stopPrice.toString());
         }
         if (icebergQty != null) {
-            sb.append("&icebergQty=").append(formatQuantity(icebergQty));
+            params.put("icebergQty", formatQuantity(icebergQty));
         }
         if (trailingDelta != null) {
-            sb.append("&trailingDelta=").append(formatQuantity(trailingDelta));
+            params.put("trailingDelta", formatQuantity(trailingDelta));
         }
         if(recvWindow !=null){
-            sb.append("&recvWindow=").append(recvWindow);
+            params.put("recvWindow", String.valueOf(recvWindow));
         }
-        return sb.toString().substring(1); // skipping the first &
+        return params;
     }
 
     private String formatQuantity(double qty) {
-        return this.qtyFormat.get().format(qty);
+        return qtyFormat.get().format(qty);
     }
 }
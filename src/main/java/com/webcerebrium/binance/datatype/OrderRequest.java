@@ -41,7 +41,10 @@ public class OrderRequest implements HasSymbol{
 
     public String toQueryString(){
         String result = "?symbol="+symbol;
-        result += "&timestamp="+timestamp;
+        // the builder leaves the timestamp unset, it is added when signing
+        if(timestamp>0){
+            result += "&timestamp="+timestamp;
+        }
         if(orderId!=null){
             result += "&orderId="+orderId;
         }
@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.datatype;
+
+import com.webcerebrium.binance.api.ApiException;
+import lombok.Data;
+
+/**
+ * Result of a single order of a batch placement or cancellation.
+ */
+@Data
+public class OrderResult implements HasSymbol {
+    /** The index of the order within the batch. */
+    int index;
+    String symbol;
+    /** The placement, set for batch placements. */
+    OrderPlacement placement;
+    /** The reference of the placed order, or the order to cancel. */
+    OrderRef orderRef;
+    /** The canceled order, set for successful cancellations. */
+    Order canceledOrder;
+    /** The error, if the request failed. */
+    ApiException error;
+    /** Set if the placed order was canceled again, because another order of the batch failed. */
+    boolean rolledBack;
+
+    public OrderResult(){}
+
+    public OrderResult(int index, OrderPlacement placement) {
+        this.index = index;
+        this.placement = placement;
+        this.symbol = placement.getSymbol();
+    }
+
+    public OrderResult(int index, OrderRef orderRef) {
+        this.index = index;
+        this.orderRef = orderRef;
+        this.symbol = orderRef.getSymbol();
+    }
+
+    public boolean isSuccess(){
+        return error == null;
+    }
+}
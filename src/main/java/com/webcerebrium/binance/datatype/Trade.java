@@ -31,7 +31,9 @@ import lombok.EqualsAndHashCode;
 
 /**
  {
+ "symbol": "BNBBTC",
  "id": 28457,
+ "orderId": 100234,
  "price": "4.00000100",
  "qty": "12.00000000",
  "commission": "10.10000000",
@@ -46,7 +48,9 @@ import lombok.EqualsAndHashCode;
 @Data
 @EqualsAndHashCode(of = {"id"})
 public class Trade implements HasValue{
+    public String symbol;
     public Long id;
+    public Long orderId;
     public String commissionAsset;
     public Double price;
     public Double qty;
@@ -46,7 +46,7 @@ import lombok.EqualsAndHashCode;
  "P": "0.00000000", //? undocumented?
  "F": "0.00000000", //? undocumented?
  "g": -1,           //? undocumented?
- "C": "null",       //? undocumented?
+ "C": "null",       // original client order id, set for canceled orders
  "x": "TRADE",					// executionType NEW, CANCELED, REPLACED, REJECTED, TRADE,EXPIRED
  "X": "NEW", 				    // orderStatus NEW, PARTIALLY_FILLED, FILLED, CANCELED，PENDING_CANCEL, REJECTED, EXPIRED
  "r": "NONE", 					// orderRejectReason，NONE, UNKNOWN_INSTRUMENT, MARKET_CLOSED, PRICE_QTY_EXCEED_HARD_LIMITS, UNKNOWN_ORDER, DUPLICATE_ORDER, UNKNOWN_ACCOUNT, INSUFFICIENT_BALANCE, ACCOUNT_INACTIVE, ACCOUNT_CANNOT_SETTLE
@@ -73,6 +73,7 @@ public class ExecutionReportEvent implements HasSymbol {
     public Long eventTime;
     public String symbol;
     public String newClientOrderId;
+    public String originalClientOrderId;
     public OrderSide side;
     public OrderType type;
     public TimeInForce timeInForce;
@@ -99,6 +100,10 @@ public class ExecutionReportEvent implements HasSymbol {
         eventTime = event.get("E").getAsLong();
         symbol = event.get("s").getAsString();
         newClientOrderId = event.get("c").getAsString();
+        if (event.has("C") && !event.get("C").isJsonNull()) {
+            String orig = event.get("C").getAsString();
+            originalClientOrderId = orig.isEmpty() || orig.equals("null") ? null : orig;
+        }
 
         side = OrderSide.valueOf(event.get("S").getAsString()); // was using "c" again
         type = OrderType.valueOf(event.get("o").getAsString());
@@ -0,0 +1,496 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.history;
+
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.AggregatedTrades;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compact binary archive of aggregated trades, one file per symbol and UTC day in
+ * {@code <root>/<SYMBOL>/<yyyy-MM-dd>.aggtrades}.
+ * <p>
+ * Prices and quantities are stored as fixed-point numbers with {@link #getScale()} decimals, the exchange uses 8.
+ * Each trade is encoded as variable length integers: the id delta combined with the maker and best match flags,
+ * the gap between the previous last and the first trade id, the number of trades, the time delta, the price
+ * delta and the quantity. A typical trade takes 8 to 12 bytes.
+ * <p>
+ * Appending trades already in the archive is ignored, so pages can be written again after a crash. Files of
+ * different symbols can be written concurrently.
+ */
+@Slf4j
+public class AggTradeArchive implements AutoCloseable {
+
+    static final int MAGIC = 0x41474754; // "AGGT"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 80;
+    static final String SUFFIX = ".aggtrades";
+
+    private final Path root;
+    private final int scale;
+    private final double factor;
+    private final Map<String, DayFile> writers = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an archive storing prices and quantities with 8 decimals.
+     * @param root the root directory, created if needed.
+     */
+    public AggTradeArchive(Path root) {
+        this(root, 8);
+    }
+
+    /**
+     * Creates an archive.
+     * @param root the root directory, created if needed.
+     * @param scale the decimals of prices and quantities, only used for new files.
+     */
+    public AggTradeArchive(Path root, int scale) {
+        if (scale < 0 || scale > 12) {
+            throw new IllegalArgumentException("Scale must be in 0..12: " + scale);
+        }
+        this.root = Objects.requireNonNull(root);
+        this.scale = scale;
+        this.factor = Math.pow(10, scale);
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new ApiException("Cannot create archive " + root + ": " + e);
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    Path file(String symbol, LocalDate day) {
+        return root.resolve(symbol).resolve(day + SUFFIX);
+    }
+
+    /**
+     * Get the days stored for a symbol.
+     * @param symbol the symbol.
+     * @return the days in ascending order, never null.
+     */
+    public List<LocalDate> getDays(String symbol) {
+        Path dir = root.resolve(symbol);
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(SUFFIX))
+                    .map(n -> LocalDate.parse(n.substring(0, n.length() - SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new ApiException("Cannot list " + dir + ": " + e);
+        }
+    }
+
+    /**
+     * Get the id of the last aggregated trade stored for a symbol, e.g. to continue a download.
+     * @param symbol the symbol.
+     * @return the id, or -1 if nothing is stored.
+     */
+    public long getLastTradeId(String symbol) {
+        DayFile writer = writers.get(symbol);
+        if (writer != null) {
+            synchronized (writer) {
+                if (writer.channel != null) {
+                    return writer.lastId;
+                }
+            }
+        }
+        List<LocalDate> days = getDays(symbol);
+        long last = -1;
+        // trades are appended in id order, but a late trade can fall into the previous day
+        for (int i = Math.max(0, days.size() - 2); i < days.size(); i++) {
+            last = Math.max(last, readHeader(file(symbol, days.get(i))).getLong(32));
+        }
+        return last;
+    }
+
+    private static ByteBuffer readHeader(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read fully
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                throw new ApiException("Not an aggregated trade archive: " + file);
+            }
+            if (header.getShort(4) != VERSION) {
+                throw new ApiException("Unsupported archive version " + header.getShort(4) + ": " + file);
+            }
+            return header;
+        } catch (IOException e) {
+            throw new ApiException("Cannot read " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Appends trades of a symbol, in the order of their ids. Trades with ids not above the last stored id of
+     * their day are skipped.
+     * @param symbol the symbol.
+     * @param trades the trades, not null.
+     * @return the number of trades written.
+     */
+    public int append(String symbol, List<AggregatedTrades> trades) {
+        DayFile writer = writers.computeIfAbsent(symbol, DayFile::new);
+        synchronized (writer) {
+            int written = 0;
+            try {
+                for (AggregatedTrades trade : trades) {
+                    LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(trade.getTimestamp(), 86_400_000L));
+                    writer.open(day);
+                    if (writer.add(trade)) {
+                        written++;
+                    }
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new ApiException("Cannot write trades of " + symbol + ": " + e);
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Scans the trades of a day.
+     * @param symbol the symbol.
+     * @param day the UTC day.
+     * @param visitor the visitor, not null.
+     * @return the number of trades visited, 0 if the day is not stored.
+     */
+    public long scan(String symbol, LocalDate day, AggTradeVisitor visitor) {
+        Path file = file(symbol, day);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        DayFile writer = writers.get(symbol);
+        if (writer != null) {
+            synchronized (writer) {
+                return scan(file, visitor);
+            }
+        }
+        return scan(file, visitor);
+    }
+
+    /**
+     * Scans the trades of a range of days.
+     * @param symbol the symbol.
+     * @param from the first UTC day.
+     * @param to the last UTC day, inclusive.
+     * @param visitor the visitor, not null.
+     * @return the number of trades visited.
+     */
+    public long scan(String symbol, LocalDate from, LocalDate to, AggTradeVisitor visitor) {
+        long count = 0;
+        for (LocalDate day : getDays(symbol)) {
+            if (!day.isBefore(from) && !day.isAfter(to)) {
+                count += scan(symbol, day, visitor);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Scans an archive file.
+     * @param file the file.
+     * @param visitor the visitor, not null.
+     * @return the number of trades visited.
+     */
+    public static long scan(Path file, AggTradeVisitor visitor) {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new ApiException("Cannot read " + file + ": " + e);
+        }
+        ByteBuffer header = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (data.length < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new ApiException("Not an aggregated trade archive: " + file);
+        }
+        if (header.getShort(4) != VERSION) {
+            throw new ApiException("Unsupported archive version " + header.getShort(4) + ": " + file);
+        }
+        double factor = Math.pow(10, header.getShort(6));
+        long count = header.getLong(8);
+        int end = (int) Math.min(data.length, header.getLong(16));
+        int pos = HEADER_SIZE;
+        long id = 0;
+        long lastTradeId = -1;
+        long time = 0;
+        long price = 0;
+        for (long n = 0; n < count && pos < end; n++) {
+            // inlined varint decoding, this is the hot loop of research scans
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                v |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += v >>> 2;
+            boolean maker = (v & 2) != 0;
+            boolean best = (v & 1) != 0;
+
+            v = 0;
+            shift = 0;
+            do {
+                b = data[pos++];
+                v |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            long firstTradeId = lastTradeId + 1 + ((v >>> 1) ^ -(v & 1));
+
+            v = 0;
+            shift = 0;
+            do {
+                b = data[pos++];
+                v |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            lastTradeId = firstTradeId + v;
+
+            v = 0;
+            shift = 0;
+            do {
+                b = data[pos++];
+                v |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            time += (v >>> 1) ^ -(v & 1);
+
+            v = 0;
+            shift = 0;
+            do {
+                b = data[pos++];
+                v |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            price += (v >>> 1) ^ -(v & 1);
+
+            v = 0;
+            shift = 0;
+            do {
+                b = data[pos++];
+                v |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            visitor.onTrade(id, firstTradeId, lastTradeId, time, price / factor, v / factor, maker, best);
+        }
+        return count;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Closes the open files.
+     */
+    @Override
+    public void close() {
+        for (DayFile writer : writers.values()) {
+            synchronized (writer) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    log.warn("Cannot close archive file of {}: {}", writer.symbol, e.toString());
+                }
+            }
+        }
+        writers.clear();
+    }
+
+    /**
+     * The open day file of a symbol and the state of its last record, which the next record is encoded against.
+     */
+    private final class DayFile {
+        final String symbol;
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        LocalDate day;
+        FileChannel channel;
+        double fileFactor;
+        long count;
+        long dataEnd;
+        long firstId;
+        long lastId;
+        long lastTradeId;
+        long firstTime;
+        long lastTime;
+        long lastPrice;
+
+        DayFile(String symbol) {
+            this.symbol = symbol;
+        }
+
+        void open(LocalDate day) throws IOException {
+            if (day.equals(this.day)) {
+                return;
+            }
+            close();
+            Path file = file(symbol, day);
+            Files.createDirectories(file.getParent());
+            boolean exists = Files.exists(file);
+            if (exists) {
+                ByteBuffer stored = readHeader(file);
+                fileFactor = Math.pow(10, stored.getShort(6));
+                count = stored.getLong(8);
+                dataEnd = stored.getLong(16);
+                firstId = stored.getLong(24);
+                lastId = stored.getLong(32);
+                lastTradeId = stored.getLong(40);
+                firstTime = stored.getLong(48);
+                lastTime = stored.getLong(56);
+                lastPrice = stored.getLong(64);
+            } else {
+                fileFactor = factor;
+                count = 0;
+                dataEnd = HEADER_SIZE;
+                firstId = -1;
+                lastId = 0;
+                lastTradeId = -1;
+                firstTime = 0;
+                lastTime = 0;
+                lastPrice = 0;
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            // drop bytes of an interrupted write, which the header does not cover
+            if (exists && channel.size() > dataEnd) {
+                channel.truncate(dataEnd);
+            }
+            this.day = day;
+            if (!exists) {
+                writeHeader();
+            }
+        }
+
+        boolean add(AggregatedTrades trade) throws IOException {
+            long id = trade.getTradeId();
+            if (count > 0 && id <= lastId) {
+                return false;
+            }
+            if (buffer.remaining() < 6 * 10) {
+                flushBuffer();
+            }
+            long price = Math.round(trade.getPrice() * fileFactor);
+            long quantity = Math.round(trade.getQuantity() * fileFactor);
+            putVarLong(((id - lastId) << 2) | (trade.wasMaker() ? 2 : 0) | (trade.wasBestPrice() ? 1 : 0));
+            putVarLong(zigzag(trade.getFirstTradeId() - (lastTradeId + 1)));
+            putVarLong(trade.getLastTradeId() - trade.getFirstTradeId());
+            putVarLong(zigzag(trade.getTimestamp() - lastTime));
+            putVarLong(zigzag(price - lastPrice));
+            putVarLong(quantity);
+            if (count == 0) {
+                firstId = id;
+                firstTime = trade.getTimestamp();
+            }
+            count++;
+            lastId = id;
+            lastTradeId = trade.getLastTradeId();
+            lastTime = trade.getTimestamp();
+            lastPrice = price;
+            return true;
+        }
+
+        private void putVarLong(long value) {
+            while ((value & ~0x7fL) != 0) {
+                buffer.put((byte) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void flushBuffer() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                dataEnd += channel.write(buffer, dataEnd);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes the buffered records, then the header covering them.
+         */
+        void flush() throws IOException {
+            if (channel == null) {
+                return;
+            }
+            flushBuffer();
+            writeHeader();
+        }
+
+        private void writeHeader() throws IOException {
+            header.clear();
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) Math.round(Math.log10(fileFactor)))
+                    .putLong(count).putLong(dataEnd).putLong(firstId).putLong(lastId).putLong(lastTradeId)
+                    .putLong(firstTime).putLong(lastTime).putLong(lastPrice);
+            while (header.hasRemaining()) {
+                header.put((byte) 0);
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+
+        void close() throws IOException {
+            if (channel != null) {
+                flush();
+                channel.close();
+                channel = null;
+                day = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.history;
+
+import com.webcerebrium.binance.api.Api;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.AggregatedTrades;
+import com.webcerebrium.binance.datatype.AggregatedTradesRequest;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads the aggregated trade history of symbols into an {@link AggTradeArchive}. Trades are paged by
+ * {@code fromId}, which is sequential within a symbol, so symbols are downloaded concurrently. A download
+ * continues after the last trade in the archive, so it can be interrupted and run again at any time. Request
+ * weight is accounted by the {@link Api}'s rate limiter.
+ */
+@Slf4j
+@Getter
+@Setter
+public class AggTradeDownloader {
+
+    private static final long SEARCH_WINDOW = TimeUnit.HOURS.toMillis(1) - 1;
+
+    private final Api api;
+    private final AggTradeArchive archive;
+    private final int parallelism;
+    /** Trades per page, maximal 1000. */
+    private int pageSize = 1000;
+    private int maxRetries = 3;
+    /** Delay before the first retry, doubled for each further retry. */
+    private long retryDelayMillis = 1000;
+
+    /**
+     * Creates a new downloader.
+     * @param api the api, not null.
+     * @param archive the archive, not null.
+     * @param parallelism the maximal number of symbols downloaded concurrently.
+     */
+    public AggTradeDownloader(Api api, AggTradeArchive archive, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive.");
+        }
+        this.api = Objects.requireNonNull(api);
+        this.archive = Objects.requireNonNull(archive);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Downloads the trades of symbols and waits for completion. Failing symbols do not affect the others.
+     * @param symbols the symbols, not null.
+     * @param startTime the time of the first trade to download, if the archive has no trades of a symbol yet.
+     * @param endTime the exclusive end time of the download.
+     * @return the results, in the order of the symbols.
+     * @throws ApiException if the download is interrupted.
+     */
+    public List<AggTradeDownloadResult> download(List<String> symbols, long startTime, long endTime)
+            throws ApiException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "AggTradeDownloader");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<AggTradeDownloadResult>> futures = new ArrayList<>(symbols.size());
+            for (String symbol : symbols) {
+                futures.add(executor.submit(() -> download(symbol, startTime, endTime)));
+            }
+            List<AggTradeDownloadResult> results = new ArrayList<>(symbols.size());
+            for (Future<AggTradeDownloadResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(e.toString());
+        } catch (ExecutionException e) {
+            throw new ApiException(e.getCause().toString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private AggTradeDownloadResult download(String symbol, long startTime, long endTime) {
+        AggTradeDownloadResult result = new AggTradeDownloadResult(symbol);
+        try {
+            long fromId = archive.getLastTradeId(symbol) + 1;
+            result.setLastTradeId(fromId - 1);
+            if (fromId == 0) {
+                fromId = findFirstTradeId(symbol, startTime, endTime, result);
+            }
+            while (fromId >= 0) {
+                AggregatedTradesRequest request = AggregatedTradesRequest.builder()
+                        .symbol(symbol).fromId(fromId).limit(pageSize).build();
+                List<AggregatedTrades> page = fetch(request, result);
+                result.setPages(result.getPages() + 1);
+                List<AggregatedTrades> trades = new ArrayList<>(page.size());
+                boolean done = page.size() < pageSize;
+                for (AggregatedTrades trade : page) {
+                    if (trade.getTimestamp() >= endTime) {
+                        done = true;
+                        break;
+                    }
+                    trades.add(trade);
+                }
+                if (!trades.isEmpty()) {
+                    result.setTrades(result.getTrades() + archive.append(symbol, trades));
+                    result.setLastTradeId(trades.get(trades.size() - 1).getTradeId());
+                }
+                fromId = done ? -1 : page.get(page.size() - 1).getTradeId() + 1;
+            }
+            log.info("Downloaded {} trades of {} in {} pages.", result.getTrades(), symbol, result.getPages());
+        } catch (Exception e) {
+            log.warn("Download of {} failed: {}", symbol, e.toString());
+            result.setError(e);
+        }
+        return result;
+    }
+
+    /**
+     * Searches the first trade at or after the start time, one hour window at a time.
+     * @return the id, or -1 if there is no trade before the end time.
+     */
+    private long findFirstTradeId(String symbol, long startTime, long endTime, AggTradeDownloadResult result)
+            throws InterruptedException {
+        for (long from = startTime; from < endTime; from += SEARCH_WINDOW + 1) {
+            AggregatedTradesRequest request = AggregatedTradesRequest.builder()
+                    .symbol(symbol).startTime(from).endTime(Math.min(from + SEARCH_WINDOW, endTime - 1))
+                    .limit(null).build();
+            List<AggregatedTrades> page = fetch(request, result);
+            result.setPages(result.getPages() + 1);
+            if (!page.isEmpty()) {
+                return page.get(0).getTradeId();
+            }
+        }
+        return -1;
+    }
+
+    private List<AggregatedTrades> fetch(AggregatedTradesRequest request, AggTradeDownloadResult result)
+            throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            if (attempt > 0) {
+                result.setRetries(result.getRetries() + 1);
+                Thread.sleep(retryDelayMillis << (attempt - 1));
+            }
+            try {
+                return api.getAggregatedTrades(request);
+            } catch (ApiException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                log.debug("Failed to fetch trades of {}: {}", request.getSymbol(), e.getMessage());
+            }
+        }
+    }
+}
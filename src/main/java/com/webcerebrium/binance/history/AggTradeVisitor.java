@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.history;
+
+/**
+ * Receives the trades of an {@link AggTradeArchive} scan, without allocating objects per trade.
+ */
+@FunctionalInterface
+public interface AggTradeVisitor {
+
+    /**
+     * Called for each aggregated trade, in the order of the trade ids.
+     * @param aggregatedTradeId the aggregated trade id.
+     * @param firstTradeId the first exchange trade id.
+     * @param lastTradeId the last exchange trade id.
+     * @param time the trade time in epoch millis.
+     * @param price the price.
+     * @param quantity the base quantity.
+     * @param buyerMaker true if the buyer was the maker.
+     * @param bestMatch true if the trade was the best price match.
+     */
+    void onTrade(long aggregatedTradeId, long firstTradeId, long lastTradeId, long time, double price,
+                 double quantity, boolean buyerMaker, boolean bestMatch);
+}
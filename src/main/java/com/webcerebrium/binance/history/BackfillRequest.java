@@ -0,0 +1,52 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.history;
+
+import com.webcerebrium.binance.datatype.HasSymbol;
+import com.webcerebrium.binance.datatype.Interval;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * A candlestick series to backfill: all candles of a symbol and interval opened in [startTime, endTime).
+ */
+@Data
+@Builder
+public class BackfillRequest implements HasSymbol {
+    @NonNull
+    String symbol;
+    @NonNull
+    Interval interval;
+    /** Inclusive start, in epoch millis. */
+    long startTime;
+    /** Exclusive end, in epoch millis. */
+    long endTime;
+
+    String getKey() {
+        return symbol + "." + interval.getValue();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.history;
+
+import com.webcerebrium.binance.datatype.Candlestick;
+
+import java.util.List;
+
+/**
+ * Receives the pages of a backfill. Pages of a series are delivered in time order, one at a time, but pages of
+ * different series may be delivered concurrently.
+ */
+public interface CandlestickSink {
+
+    /**
+     * Called for every page of a series, in time order.
+     * @param request the series, not null.
+     * @param page the candles of the page, may be empty.
+     * @throws Exception if the page could not be processed, which fails the series.
+     */
+    void onPage(BackfillRequest request, List<Candlestick> page) throws Exception;
+
+    /**
+     * Called when all pages of a series have been delivered.
+     * @param request the series, not null.
+     */
+    default void onComplete(BackfillRequest request){}
+}
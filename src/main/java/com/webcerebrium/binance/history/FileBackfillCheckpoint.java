@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.history;
+
+import com.webcerebrium.binance.api.ApiException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Checkpoint stored in a properties file. The file is replaced atomically on each update, so a crash never
+ * leaves a corrupt checkpoint behind.
+ */
+@Slf4j
+public class FileBackfillCheckpoint implements BackfillCheckpoint {
+
+    private final Path file;
+    private final Properties positions = new Properties();
+
+    /**
+     * Creates a new checkpoint, loading the positions stored in the file, if it exists.
+     * @param file the file, not null.
+     * @throws ApiException if the file cannot be read.
+     */
+    public FileBackfillCheckpoint(Path file) throws ApiException {
+        this.file = Objects.requireNonNull(file);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                positions.load(in);
+            } catch (IOException e) {
+                throw new ApiException("Cannot read checkpoint " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized Long getPosition(BackfillRequest request) {
+        String value = positions.getProperty(request.getKey());
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    @Override
+    public synchronized void setPosition(BackfillRequest request, long position) {
+        positions.setProperty(request.getKey(), String.valueOf(position));
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                positions.store(out, "Backfill checkpoint");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ApiException("Cannot write checkpoint " + file + ": " + e.getMessage());
+        }
+    }
+}
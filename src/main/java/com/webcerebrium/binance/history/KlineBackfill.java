@@ -0,0 +1,274 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.history;
+
+import com.webcerebrium.binance.api.Api;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.CandlesticksRequest;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Backfills candlestick series concurrently. Each series is split into page sized windows, which are fetched
+ * in parallel, retried on failure and delivered to a {@link CandlestickSink} in time order. The number of
+ * fetched but not yet delivered pages is bounded, so memory stays flat for long backfills. Request weight is
+ * accounted by the {@link Api}'s rate limiter.
+ */
+@Slf4j
+@Getter
+@Setter
+public class KlineBackfill {
+
+    private final Api api;
+    private final int parallelism;
+    /** Candles per page, maximal 1000. */
+    private int pageSize = 1000;
+    private int maxRetries = 3;
+    /** Delay before the first retry, doubled for each further retry. */
+    private long retryDelayMillis = 1000;
+    /** Maximal number of fetched pages waiting for delivery. */
+    private int maxBufferedPages;
+    /** Optional checkpoint, making the backfill resumable. */
+    private BackfillCheckpoint checkpoint;
+
+    /**
+     * Creates a new backfill.
+     * @param api the api, not null.
+     * @param parallelism the maximal number of concurrent requests.
+     */
+    public KlineBackfill(Api api, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive.");
+        }
+        this.api = Objects.requireNonNull(api);
+        this.parallelism = parallelism;
+        this.maxBufferedPages = parallelism * 4;
+    }
+
+    /** The state of a series during a backfill. */
+    private final class Series {
+        final BackfillRequest request;
+        final BackfillResult result;
+        final long[] windowStarts;
+        final long end;
+        final Map<Integer, List<Candlestick>> ready = new HashMap<>();
+        int next;
+        boolean failed;
+
+        Series(BackfillRequest request, long start) {
+            this.request = request;
+            this.result = new BackfillResult(request);
+            this.end = request.getEndTime();
+            long span = pageSize * request.getInterval().toMillis();
+            int count = start >= end ? 0 : (int) ((end - start + span - 1) / span);
+            this.windowStarts = new long[count];
+            for (int i = 0; i < count; i++) {
+                windowStarts[i] = start + i * span;
+            }
+            result.setPosition(Math.max(start, Math.min(end, request.getStartTime())));
+        }
+
+        long windowEnd(int i) {
+            return i + 1 < windowStarts.length ? windowStarts[i + 1] : end;
+        }
+    }
+
+    /**
+     * Runs the backfill and waits for its completion. Failing series do not affect the other series.
+     * @param requests the series to backfill, not null.
+     * @param sink the sink receiving the pages, not null.
+     * @return the results, in the order of the requests.
+     * @throws ApiException if the backfill is interrupted.
+     */
+    public List<BackfillResult> run(List<BackfillRequest> requests, CandlestickSink sink) throws ApiException {
+        Objects.requireNonNull(sink);
+        List<Series> seriesList = new ArrayList<>(requests.size());
+        int pages = 0;
+        for (BackfillRequest request : requests) {
+            long start = request.getStartTime();
+            if (checkpoint != null) {
+                Long position = checkpoint.getPosition(request);
+                if (position != null && position > start) {
+                    start = position;
+                }
+            }
+            Series series = new Series(request, start);
+            seriesList.add(series);
+            pages += series.windowStarts.length;
+        }
+        log.info("Backfilling {} pages of {} series.", pages, requests.size());
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "KlineBackfill");
+            t.setDaemon(true);
+            return t;
+        });
+        Semaphore buffered = new Semaphore(maxBufferedPages);
+        CountDownLatch done = new CountDownLatch(pages);
+        try {
+            for (Series series : seriesList) {
+                for (int i = 0; i < series.windowStarts.length; i++) {
+                    buffered.acquire();
+                    int index = i;
+                    executor.execute(() -> {
+                        try {
+                            fetch(series, index, sink, buffered);
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+                }
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(e.toString());
+        } finally {
+            executor.shutdownNow();
+        }
+        List<BackfillResult> results = new ArrayList<>(seriesList.size());
+        for (Series series : seriesList) {
+            if (!series.failed) {
+                sink.onComplete(series.request);
+            }
+            results.add(series.result);
+        }
+        return results;
+    }
+
+    private void fetch(Series series, int index, CandlestickSink sink, Semaphore buffered) {
+        long start = series.windowStarts[index];
+        long end = series.windowEnd(index);
+        CandlesticksRequest request = CandlesticksRequest.builder()
+                .symbol(series.request.getSymbol())
+                .interval(series.request.getInterval())
+                .startTime(start)
+                .endTime(end - 1)
+                .limit(pageSize)
+                .build();
+        List<Candlestick> page = null;
+        Exception error = null;
+        for (int attempt = 0; attempt <= maxRetries && page == null; attempt++) {
+            synchronized (series) {
+                if (series.failed) {
+                    buffered.release();
+                    return;
+                }
+            }
+            if (attempt > 0) {
+                synchronized (series) {
+                    series.result.setRetries(series.result.getRetries() + 1);
+                }
+                try {
+                    Thread.sleep(retryDelayMillis << (attempt - 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    error = e;
+                    break;
+                }
+            }
+            try {
+                page = filter(api.getCandlestickBars(request), start, end);
+            } catch (Exception e) {
+                log.debug("Failed to fetch {} page at {}: {}", series.request.getKey(), start, e.getMessage());
+                error = e;
+            }
+        }
+        deliver(series, index, page, error, sink, buffered);
+    }
+
+    private static List<Candlestick> filter(List<Candlestick> page, long start, long end) {
+        List<Candlestick> result = new ArrayList<>(page.size());
+        for (Candlestick candle : page) {
+            if (candle.getOpenTime() >= start && candle.getOpenTime() < end) {
+                result.add(candle);
+            }
+        }
+        return result;
+    }
+
+    private void deliver(Series series, int index, List<Candlestick> page, Exception error,
+                         CandlestickSink sink, Semaphore buffered) {
+        synchronized (series) {
+            if (series.failed) {
+                buffered.release();
+                return;
+            }
+            if (page == null) {
+                fail(series, error, buffered);
+                buffered.release();
+                return;
+            }
+            series.ready.put(index, page);
+            while (series.ready.containsKey(series.next)) {
+                List<Candlestick> candles = series.ready.remove(series.next);
+                try {
+                    sink.onPage(series.request, candles);
+                } catch (Exception e) {
+                    fail(series, e, buffered);
+                    buffered.release();
+                    return;
+                }
+                long position = series.windowEnd(series.next);
+                BackfillResult result = series.result;
+                result.setPosition(position);
+                result.setPages(result.getPages() + 1);
+                result.setCandles(result.getCandles() + candles.size());
+                if (checkpoint != null) {
+                    try {
+                        checkpoint.setPosition(series.request, position);
+                    } catch (Exception e) {
+                        fail(series, e, buffered);
+                        buffered.release();
+                        return;
+                    }
+                }
+                series.next++;
+                buffered.release();
+            }
+        }
+    }
+
+    private void fail(Series series, Exception error, Semaphore buffered) {
+        log.warn("Backfill of {} failed at {}: {}", series.request.getKey(), series.result.getPosition(),
+                error == null ? null : error.getMessage());
+        series.failed = true;
+        series.result.setError(error != null ? error : new ApiException("Backfill failed."));
+        buffered.release(series.ready.size());
+        series.ready.clear();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+/**
+ * Base class of indicators, detecting replaced bars and keeping the values of the previous bar.
+ */
+public abstract class AbstractIndicator implements Indicator {
+
+    private long openTime;
+    private long bars;
+    private double high = Double.NaN;
+    private double low = Double.NaN;
+    private double close = Double.NaN;
+    private double previousHigh = Double.NaN;
+    private double previousLow = Double.NaN;
+    private double previousClose = Double.NaN;
+
+    @Override
+    public final void update(long openTime, double open, double high, double low, double close, double volume) {
+        boolean replace = bars > 0 && openTime == this.openTime;
+        if (!replace) {
+            if (bars > 0 && openTime < this.openTime) {
+                throw new IllegalArgumentException("Bar at " + openTime + " is older than " + this.openTime);
+            }
+            this.openTime = openTime;
+            this.previousHigh = this.high;
+            this.previousLow = this.low;
+            this.previousClose = this.close;
+            bars++;
+        }
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        apply(openTime, open, high, low, close, volume, replace);
+    }
+
+    /**
+     * Applies a bar.
+     * @param replace true if the bar replaces the bar of the previous update, whose effect must be undone.
+     */
+    protected abstract void apply(long openTime, double open, double high, double low, double close,
+                                  double volume, boolean replace);
+
+    /**
+     * Get the number of bars seen, a replaced bar counts once.
+     * @return the number of bars.
+     */
+    public long getBarCount() {
+        return bars;
+    }
+
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    protected double getPreviousHigh() {
+        return previousHigh;
+    }
+
+    protected double getPreviousLow() {
+        return previousLow;
+    }
+
+    protected double getPreviousClose() {
+        return previousClose;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" + getValue() + "}";
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+/**
+ * Average true range with Wilder's smoothing.
+ */
+public class AverageTrueRange extends AbstractIndicator {
+
+    private final SmoothedAverage average;
+
+    public AverageTrueRange(int period) {
+        this.average = SmoothedAverage.wilder(period);
+    }
+
+    static double trueRange(double high, double low, double previousClose) {
+        if (Double.isNaN(previousClose)) {
+            return high - low;
+        }
+        return Math.max(high - low, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+    }
+
+    @Override
+    protected void apply(long openTime, double open, double high, double low, double close, double volume,
+                         boolean replace) {
+        average.update(trueRange(high, low, getPreviousClose()), replace);
+    }
+
+    @Override
+    public double getValue() {
+        return average.getValue();
+    }
+
+    @Override
+    public boolean isReady() {
+        return average.isReady();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+/**
+ * Bollinger bands: the simple moving average of the close price, with bands at a multiple of the population
+ * standard deviation above and below. The value of the indicator is the middle band.
+ */
+public class BollingerBands extends AbstractIndicator {
+
+    private final RollingWindow window;
+    private final double width;
+
+    /**
+     * Creates Bollinger bands.
+     * @param period the period, usually 20.
+     * @param width the multiple of the standard deviation, usually 2.
+     */
+    public BollingerBands(int period, double width) {
+        this.window = new RollingWindow(period);
+        this.width = width;
+    }
+
+    @Override
+    protected void apply(long openTime, double open, double high, double low, double close, double volume,
+                         boolean replace) {
+        window.update(close, replace);
+    }
+
+    @Override
+    public double getValue() {
+        return window.getMean();
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(window.getVariance());
+    }
+
+    public double getUpper() {
+        return getValue() + width * getStandardDeviation();
+    }
+
+    public double getLower() {
+        return getValue() - width * getStandardDeviation();
+    }
+
+    /**
+     * Get the band width relative to the middle band.
+     * @return the band width, NaN until ready.
+     */
+    public double getBandwidth() {
+        return (getUpper() - getLower()) / getValue();
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isFull();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+/**
+ * Directional movement index:
+ * <ol>
+ *     <li>+DM is the current high - previous high, -DM the previous low - current low.</li>
+ *     <li>Only the greater one counts, if it is positive; the other one is 0.</li>
+ *     <li>The TR is the greatest of the current high - current low, the current high - previous close and the
+ *     current low - previous close.</li>
+ *     <li>+DM, -DM and the TR are smoothed with Wilder's smoothing, +DI and -DI are the smoothed +DM and -DM in
+ *     percent of the smoothed TR.</li>
+ *     <li>The DX is |+DI - -DI| / (+DI + -DI) in percent, the ADX its Wilder smoothing.</li>
+ * </ol>
+ * The value of the indicator is the ADX.
+ */
+public class DirectionalMovementIndex extends AbstractIndicator {
+
+    private final SmoothedAverage plusMovement;
+    private final SmoothedAverage minusMovement;
+    private final SmoothedAverage trueRange;
+    private final SmoothedAverage adx;
+
+    public DirectionalMovementIndex(int period) {
+        this.plusMovement = SmoothedAverage.wilder(period);
+        this.minusMovement = SmoothedAverage.wilder(period);
+        this.trueRange = SmoothedAverage.wilder(period);
+        this.adx = SmoothedAverage.wilder(period);
+    }
+
+    @Override
+    protected void apply(long openTime, double open, double high, double low, double close, double volume,
+                         boolean replace) {
+        if (getBarCount() == 1) {
+            return;
+        }
+        double up = high - getPreviousHigh();
+        double down = getPreviousLow() - low;
+        plusMovement.update(up > down && up > 0 ? up : 0.0, replace);
+        minusMovement.update(down > up && down > 0 ? down : 0.0, replace);
+        trueRange.update(AverageTrueRange.trueRange(high, low, getPreviousClose()), replace);
+        if (trueRange.isReady()) {
+            adx.update(getDx(), replace);
+        }
+    }
+
+    /**
+     * Get the +DI.
+     * @return the +DI in percent, NaN until ready.
+     */
+    public double getPlusDi() {
+        double range = trueRange.getValue();
+        return range == 0.0 ? 0.0 : 100.0 * plusMovement.getValue() / range;
+    }
+
+    /**
+     * Get the -DI.
+     * @return the -DI in percent, NaN until ready.
+     */
+    public double getMinusDi() {
+        double range = trueRange.getValue();
+        return range == 0.0 ? 0.0 : 100.0 * minusMovement.getValue() / range;
+    }
+
+    /**
+     * Get the DX of the current bar.
+     * @return the DX in percent, NaN until ready.
+     */
+    public double getDx() {
+        double plus = getPlusDi();
+        double minus = getMinusDi();
+        double sum = plus + minus;
+        return sum == 0.0 ? 0.0 : 100.0 * Math.abs(plus - minus) / sum;
+    }
+
+    @Override
+    public double getValue() {
+        return adx.getValue();
+    }
+
+    @Override
+    public boolean isReady() {
+        return adx.isReady();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+/**
+ * Fixed capacity ring buffer of primitive doubles. Adding to a full buffer evicts the oldest value.
+ */
+public final class DoubleRingBuffer {
+
+    private final double[] values;
+    private int head;
+    private int size;
+
+    public DoubleRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.values = new double[capacity];
+    }
+
+    /**
+     * Adds a value.
+     * @param value the value.
+     * @return the evicted value, or NaN if the buffer was not full.
+     */
+    public double add(double value) {
+        double evicted = size == values.length ? values[head] : Double.NaN;
+        values[head] = value;
+        head = (head + 1) % values.length;
+        if (size < values.length) {
+            size++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Replaces the newest value, e.g. when a bar is updated before it closes.
+     * @param value the value.
+     * @return the replaced value.
+     */
+    public double replaceLast(double value) {
+        if (size == 0) {
+            throw new IllegalStateException("Buffer is empty.");
+        }
+        int index = head == 0 ? values.length - 1 : head - 1;
+        double replaced = values[index];
+        values[index] = value;
+        return replaced;
+    }
+
+    /**
+     * Get a value by age.
+     * @param age the age, 0 is the newest value.
+     * @return the value.
+     */
+    public double get(int age) {
+        if (age < 0 || age >= size) {
+            throw new IndexOutOfBoundsException("Age " + age + ", size " + size);
+        }
+        int index = head - 1 - age;
+        return values[index < 0 ? index + values.length : index];
+    }
+
+    public double getLast() {
+        return get(0);
+    }
+
+    public double getOldest() {
+        return get(size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public boolean isFull() {
+        return size == values.length;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+import com.webcerebrium.binance.candles.Bar;
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.Candlestick;
+
+/**
+ * A technical indicator, updated incrementally in constant time per bar.
+ * <p>
+ * Updating with the open time of the previous update replaces that bar, so a kline can be fed while it is
+ * still open and again when it closes. Indicators are not thread safe.
+ */
+public interface Indicator {
+
+    /**
+     * Updates the indicator with a bar.
+     * @param openTime the open time of the bar, a new bar must not be older than the previous one.
+     * @param open the open price.
+     * @param high the high price.
+     * @param low the low price.
+     * @param close the close price.
+     * @param volume the base volume.
+     */
+    void update(long openTime, double open, double high, double low, double close, double volume);
+
+    default void update(Candlestick candle) {
+        update(candle.getOpenTime(), value(candle.getOpen()), value(candle.getHigh()), value(candle.getLow()),
+                value(candle.getClose()), value(candle.getVolume()));
+    }
+
+    default void update(CandleSeries series, int index) {
+        update(series.getOpenTime(index), series.getOpen(index), series.getHigh(index), series.getLow(index),
+                series.getClose(index), series.getVolume(index));
+    }
+
+    default void update(Bar bar) {
+        update(bar.getOpenTime(), bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume());
+    }
+
+    /**
+     * Get the current value.
+     * @return the value, NaN until the indicator is ready.
+     */
+    double getValue();
+
+    /**
+     * Checks if enough bars were seen for a value.
+     * @return true if the indicator has a value.
+     */
+    boolean isReady();
+
+    private static double value(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+}
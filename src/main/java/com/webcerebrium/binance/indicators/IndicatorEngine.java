@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.candles.Bar;
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.Candlestick;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Computes the indicators of many symbols in parallel. Symbols are striped across single threaded executors, so
+ * the bars of a symbol are applied in order and its indicators are never touched by two threads, without any
+ * locking.
+ * <pre>
+ * IndicatorEngine engine = new IndicatorEngine(4, symbol -&gt; new IndicatorSet(symbol)
+ *         .add("ema20", new ExponentialMovingAverage(20))
+ *         .add("rsi14", new RelativeStrengthIndex(14)));
+ * engine.addListener((indicators, openTime) -&gt; ...);
+ * engine.update(candle);
+ * </pre>
+ */
+@Slf4j
+public class IndicatorEngine implements AutoCloseable {
+
+    private final ExecutorService[] stripes;
+    private final Function<String, IndicatorSet> factory;
+    private final Map<String, IndicatorSet> indicators = new ConcurrentHashMap<>();
+    private final List<IndicatorListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates an engine.
+     * @param parallelism the number of threads.
+     * @param factory creates the indicators of a symbol on its first bar, not null.
+     */
+    public IndicatorEngine(int parallelism, Function<String, IndicatorSet> factory) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.factory = Objects.requireNonNull(factory);
+        this.stripes = new ExecutorService[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            String name = "indicators-" + i;
+            stripes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void addListener(IndicatorListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeListener(IndicatorListener listener) {
+        listeners.remove(listener);
+    }
+
+    private ExecutorService stripe(String symbol) {
+        return stripes[(symbol.hashCode() & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    private IndicatorSet indicators(String symbol) {
+        return indicators.computeIfAbsent(symbol, factory);
+    }
+
+    /**
+     * Get the indicators of a symbol. Their values are only consistent when read from a listener or after the
+     * future of an update completed.
+     * @param symbol the symbol.
+     * @return the indicators, or null if the symbol had no bar yet.
+     */
+    public IndicatorSet getIndicators(String symbol) {
+        return indicators.get(symbol);
+    }
+
+    /**
+     * Applies a bar asynchronously.
+     * @return a future completing with the updated indicators.
+     */
+    public CompletableFuture<IndicatorSet> update(String symbol, long openTime, double open, double high,
+                                                  double low, double close, double volume) {
+        return CompletableFuture.supplyAsync(() -> {
+            IndicatorSet set = indicators(symbol);
+            set.update(openTime, open, high, low, close, volume);
+            fire(set, openTime);
+            return set;
+        }, stripe(symbol));
+    }
+
+    /**
+     * Applies a candle asynchronously.
+     * @param candle the candle, not null.
+     * @return a future completing with the updated indicators.
+     * @throws ApiException if the candle lacks its open time or a price or volume.
+     */
+    public CompletableFuture<IndicatorSet> update(Candlestick candle) throws ApiException {
+        return update(candle.getSymbol(), require(candle, candle.getOpenTime(), "openTime"),
+                require(candle, candle.getOpen(), "open"), require(candle, candle.getHigh(), "high"),
+                require(candle, candle.getLow(), "low"), require(candle, candle.getClose(), "close"),
+                require(candle, candle.getVolume(), "volume"));
+    }
+
+    private static <T> T require(Candlestick candle, T value, String field) throws ApiException {
+        if (value == null) {
+            throw new ApiException("Candlestick " + candle.getSymbol() + " at " + candle.getOpenTime()
+                    + " has no " + field + ".");
+        }
+        return value;
+    }
+
+    public CompletableFuture<IndicatorSet> update(Bar bar) {
+        return update(bar.getSymbol(), bar.getOpenTime(), bar.getOpen(), bar.getHigh(), bar.getLow(),
+                bar.getClose(), bar.getVolume());
+    }
+
+    /**
+     * Asynchronously catches up with candle series, e.g. after a backfill. Only the bars not applied yet are
+     * computed; listeners are called once per symbol with its last bar.
+     * @param series the series by symbol, not null.
+     * @return a future completing when all symbols are updated.
+     */
+    public CompletableFuture<Void> update(Map<String, ? extends CandleSeries> series) {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        series.forEach((symbol, candles) -> futures.add(CompletableFuture.runAsync(() -> {
+            IndicatorSet set = indicators(symbol);
+            if (set.update(candles) > 0) {
+                fire(set, set.getLastOpenTime());
+            }
+        }, stripe(symbol))));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void fire(IndicatorSet set, long openTime) {
+        for (IndicatorListener listener : listeners) {
+            try {
+                listener.onUpdate(set, openTime);
+            } catch (RuntimeException e) {
+                log.error("Indicator listener failed for {}", set.getSymbol(), e);
+            }
+        }
+    }
+
+    /**
+     * Waits until all bars submitted before are applied.
+     */
+    public void flush() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> { }, stripes[i]);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+        try {
+            for (ExecutorService stripe : stripes) {
+                stripe.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(e.toString());
+        }
+    }
+}
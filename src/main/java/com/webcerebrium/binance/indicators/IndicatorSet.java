@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.HasSymbol;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Named indicators of one symbol, updated together. Like indicators, a set is not thread safe.
+ */
+public class IndicatorSet implements HasSymbol {
+
+    private final String symbol;
+    private final Map<String, Indicator> indicators = new LinkedHashMap<>();
+    private Indicator[] updates = new Indicator[0];
+    private long lastOpenTime = Long.MIN_VALUE;
+
+    public IndicatorSet(String symbol) {
+        this.symbol = Objects.requireNonNull(symbol);
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Adds an indicator. It should be added before the first update, or it misses the earlier bars.
+     * @param name the name, e.g. "ema20".
+     * @param indicator the indicator, not null.
+     * @return this set, for chaining.
+     */
+    public IndicatorSet add(String name, Indicator indicator) {
+        if (indicators.putIfAbsent(name, Objects.requireNonNull(indicator)) != null) {
+            throw new IllegalArgumentException("Duplicate indicator: " + name);
+        }
+        updates = indicators.values().toArray(new Indicator[0]);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Indicator> T get(String name) {
+        return (T) indicators.get(name);
+    }
+
+    /**
+     * Get the value of an indicator.
+     * @param name the name.
+     * @return the value, NaN if the indicator is not ready.
+     * @throws IllegalArgumentException if there is no such indicator.
+     */
+    public double getValue(String name) {
+        Indicator indicator = indicators.get(name);
+        if (indicator == null) {
+            throw new IllegalArgumentException("Unknown indicator: " + name);
+        }
+        return indicator.getValue();
+    }
+
+    public Map<String, Indicator> getIndicators() {
+        return Collections.unmodifiableMap(indicators);
+    }
+
+    /**
+     * Get the open time of the last bar.
+     * @return the open time, Long.MIN_VALUE before the first update.
+     */
+    public long getLastOpenTime() {
+        return lastOpenTime;
+    }
+
+    public void update(long openTime, double open, double high, double low, double close, double volume) {
+        for (Indicator indicator : updates) {
+            indicator.update(openTime, open, high, low, close, volume);
+        }
+        lastOpenTime = openTime;
+    }
+
+    /**
+     * Catches up with a candle series: the last bar seen is updated again, as it may have changed, followed by
+     * all newer bars.
+     * @param series the series of the symbol, not null.
+     * @return the number of bars applied.
+     */
+    public int update(CandleSeries series) {
+        int from = 0;
+        if (lastOpenTime != Long.MIN_VALUE) {
+            from = series.indexOf(lastOpenTime);
+            if (from < 0) {
+                from = -from - 1;
+            }
+        }
+        int size = series.size();
+        for (int i = from; i < size; i++) {
+            update(series.getOpenTime(i), series.getOpen(i), series.getHigh(i), series.getLow(i),
+                    series.getClose(i), series.getVolume(i));
+        }
+        return size - from;
+    }
+
+    @Override
+    public String toString() {
+        return "IndicatorSet{" + symbol + " " + indicators + "}";
+    }
+}
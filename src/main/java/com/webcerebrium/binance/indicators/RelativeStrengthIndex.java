@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+/**
+ * Relative strength index with Wilder's smoothing of gains and losses, 0 to 100.
+ */
+public class RelativeStrengthIndex extends AbstractIndicator {
+
+    private final SmoothedAverage gains;
+    private final SmoothedAverage losses;
+
+    public RelativeStrengthIndex(int period) {
+        this.gains = SmoothedAverage.wilder(period);
+        this.losses = SmoothedAverage.wilder(period);
+    }
+
+    @Override
+    protected void apply(long openTime, double open, double high, double low, double close, double volume,
+                         boolean replace) {
+        if (getBarCount() == 1) {
+            return;
+        }
+        double change = close - getPreviousClose();
+        gains.update(Math.max(change, 0.0), replace);
+        losses.update(Math.max(-change, 0.0), replace);
+    }
+
+    @Override
+    public double getValue() {
+        if (!isReady()) {
+            return Double.NaN;
+        }
+        double gain = gains.getValue();
+        double loss = losses.getValue();
+        if (loss == 0.0) {
+            return gain == 0.0 ? 50.0 : 100.0;
+        }
+        return 100.0 - 100.0 / (1.0 + gain / loss);
+    }
+
+    @Override
+    public boolean isReady() {
+        return gains.isReady();
+    }
+}
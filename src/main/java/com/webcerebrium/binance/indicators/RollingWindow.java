@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+/**
+ * Rolling sum and sum of squares over a window, used by moving averages and bands. The sums are recomputed
+ * from the window once per window length, so rounding errors do not accumulate.
+ */
+final class RollingWindow {
+
+    private final DoubleRingBuffer buffer;
+    private double sum;
+    private double sumOfSquares;
+    private int sinceRecompute;
+
+    RollingWindow(int length) {
+        this.buffer = new DoubleRingBuffer(length);
+    }
+
+    void update(double value, boolean replace) {
+        if (replace) {
+            double replaced = buffer.replaceLast(value);
+            sum += value - replaced;
+            sumOfSquares += value * value - replaced * replaced;
+            return;
+        }
+        if (buffer.isFull()) {
+            double evicted = buffer.add(value);
+            sum -= evicted;
+            sumOfSquares -= evicted * evicted;
+        } else {
+            buffer.add(value);
+        }
+        sum += value;
+        sumOfSquares += value * value;
+        if (++sinceRecompute >= buffer.capacity()) {
+            recompute();
+        }
+    }
+
+    private void recompute() {
+        sum = 0.0;
+        sumOfSquares = 0.0;
+        for (int i = 0; i < buffer.size(); i++) {
+            double value = buffer.get(i);
+            sum += value;
+            sumOfSquares += value * value;
+        }
+        sinceRecompute = 0;
+    }
+
+    boolean isFull() {
+        return buffer.isFull();
+    }
+
+    double getMean() {
+        return buffer.isFull() ? sum / buffer.capacity() : Double.NaN;
+    }
+
+    /**
+     * Get the population variance of the window.
+     */
+    double getVariance() {
+        if (!buffer.isFull()) {
+            return Double.NaN;
+        }
+        double mean = sum / buffer.capacity();
+        return Math.max(0.0, sumOfSquares / buffer.capacity() - mean * mean);
+    }
+}
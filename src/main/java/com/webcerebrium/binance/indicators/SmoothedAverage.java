@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+/**
+ * Exponential smoothing seeded with the simple average of the first period values. With an alpha of
+ * 2 / (period + 1) it is an EMA, with 1 / period Wilder's smoothing.
+ */
+final class SmoothedAverage {
+
+    private final int period;
+    private final double alpha;
+    private int count;
+    private double seedSum;
+    private double value = Double.NaN;
+    private int savedCount;
+    private double savedSeedSum;
+    private double savedValue = Double.NaN;
+
+    SmoothedAverage(int period, double alpha) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        this.period = period;
+        this.alpha = alpha;
+    }
+
+    static SmoothedAverage ema(int period) {
+        return new SmoothedAverage(period, 2.0 / (period + 1));
+    }
+
+    static SmoothedAverage wilder(int period) {
+        return new SmoothedAverage(period, 1.0 / period);
+    }
+
+    void update(double x, boolean replace) {
+        if (replace) {
+            count = savedCount;
+            seedSum = savedSeedSum;
+            value = savedValue;
+        } else {
+            savedCount = count;
+            savedSeedSum = seedSum;
+            savedValue = value;
+        }
+        if (count < period) {
+            seedSum += x;
+            count++;
+            if (count == period) {
+                value = seedSum / period;
+            }
+        } else {
+            value += alpha * (x - value);
+        }
+    }
+
+    boolean isReady() {
+        return count >= period;
+    }
+
+    double getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.indicators;
+
+/**
+ * Volume weighted average of the typical price (high + low + close) / 3, optionally restarting every session,
+ * e.g. every day.
+ */
+public class VolumeWeightedAveragePrice extends AbstractIndicator {
+
+    private final long sessionMillis;
+    private long session = Long.MIN_VALUE;
+    private double priceVolume;
+    private double volume;
+    private long savedSession = Long.MIN_VALUE;
+    private double savedPriceVolume;
+    private double savedVolume;
+
+    /**
+     * Creates a VWAP over all bars.
+     */
+    public VolumeWeightedAveragePrice() {
+        this(0);
+    }
+
+    /**
+     * Creates a VWAP restarting with epoch aligned sessions.
+     * @param sessionMillis the session length in millis, 0 for no sessions.
+     */
+    public VolumeWeightedAveragePrice(long sessionMillis) {
+        if (sessionMillis < 0) {
+            throw new IllegalArgumentException("Session length must not be negative: " + sessionMillis);
+        }
+        this.sessionMillis = sessionMillis;
+    }
+
+    @Override
+    protected void apply(long openTime, double open, double high, double low, double close, double volume,
+                         boolean replace) {
+        if (replace) {
+            session = savedSession;
+            priceVolume = savedPriceVolume;
+            this.volume = savedVolume;
+        } else {
+            savedSession = session;
+            savedPriceVolume = priceVolume;
+            savedVolume = this.volume;
+        }
+        long barSession = sessionMillis > 0 ? Math.floorDiv(openTime, sessionMillis) : 0;
+        if (barSession != session) {
+            session = barSession;
+            priceVolume = 0.0;
+            this.volume = 0.0;
+        }
+        priceVolume += (high + low + close) / 3.0 * volume;
+        this.volume += volume;
+    }
+
+    @Override
+    public double getValue() {
+        return volume > 0.0 ? priceVolume / volume : Double.NaN;
+    }
+
+    @Override
+    public boolean isReady() {
+        return volume > 0.0;
+    }
+}
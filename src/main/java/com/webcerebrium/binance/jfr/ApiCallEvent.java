@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.jfr;
+
+import com.webcerebrium.binance.api.ApiCall;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A REST call of the {@link com.webcerebrium.binance.api.DefaultApi}, with the durations of its phases.
+ */
+@Name("com.webcerebrium.binance.ApiCall")
+@Label("API Call")
+@Category({"Binance", "API"})
+@Description("A REST call, with the durations of its phases")
+@StackTrace(false)
+public class ApiCallEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(ApiCallEvent.class);
+
+    @Label("Method")
+    String method;
+    @Label("Path")
+    String path;
+    @Label("Status")
+    int status;
+    @Label("Weight")
+    @Description("The request weight charged by the client")
+    int weight;
+    @Label("Used Weight")
+    @Description("The weight used in the current minute as reported by the exchange")
+    int usedWeight;
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+    @Label("Rate Limit Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long rateLimitWait;
+    @Label("Prepare")
+    @Timespan(Timespan.NANOSECONDS)
+    long prepare;
+    @Label("Connect")
+    @Timespan(Timespan.NANOSECONDS)
+    long connect;
+    @Label("First Byte")
+    @Timespan(Timespan.NANOSECONDS)
+    long firstByte;
+    @Label("Read")
+    @Timespan(Timespan.NANOSECONDS)
+    long read;
+    @Label("Parse")
+    @Timespan(Timespan.NANOSECONDS)
+    long parse;
+
+    /** @return true, if the event is enabled in a running recording. */
+    public static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+
+    /**
+     * Ends the event and commits it with the timings of the call.
+     * @param call the call.
+     */
+    public void commit(ApiCall call) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        method = call.getMethod();
+        path = call.getPath();
+        status = call.getStatus();
+        weight = call.getWeight();
+        usedWeight = call.getUsedWeight();
+        queueWait = call.getNanos(ApiCall.Phase.QUEUE_WAIT);
+        rateLimitWait = call.getNanos(ApiCall.Phase.RATE_LIMIT_WAIT);
+        prepare = call.getNanos(ApiCall.Phase.PREPARE);
+        connect = call.getNanos(ApiCall.Phase.CONNECT);
+        firstByte = call.getNanos(ApiCall.Phase.FIRST_BYTE);
+        read = call.getNanos(ApiCall.Phase.READ);
+        parse = call.getNanos(ApiCall.Phase.PARSE);
+        commit();
+    }
+}
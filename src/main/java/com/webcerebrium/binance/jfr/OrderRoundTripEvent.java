@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.jfr;
+
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * An order placed by an {@link com.webcerebrium.binance.api.OrderTracker}, from the placement until its first
+ * fill is reported by the user data stream, or until it terminates unfilled.
+ */
+@Name("com.webcerebrium.binance.OrderRoundTrip")
+@Label("Order Round Trip")
+@Category({"Binance", "Orders"})
+@Description("An order from its placement until the first fill or its termination")
+@StackTrace(false)
+public class OrderRoundTripEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(OrderRoundTripEvent.class);
+
+    @Label("Symbol")
+    String symbol;
+    @Label("Side")
+    String side;
+    @Label("Type")
+    String type;
+    @Label("Order Id")
+    long orderId;
+    @Label("Client Order Id")
+    String clientOrderId;
+    @Label("Status")
+    @Description("The status when the event ended")
+    String status;
+    @Label("Ack")
+    @Description("The time until the exchange acknowledged the placement")
+    @Timespan(Timespan.NANOSECONDS)
+    long ack;
+    @Label("First Fill")
+    @Description("The time until the first fill was reported, -1 if the order was not filled. The user data stream "
+            + "may report the fill before the placement is acknowledged")
+    @Timespan(Timespan.NANOSECONDS)
+    long firstFill = -1;
+
+    private transient long startNanos;
+
+    /** @return true, if the event is enabled in a running recording. */
+    public static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+
+    /**
+     * Begins the event with the placement of an order.
+     * @param placement the placement.
+     * @return the event.
+     */
+    public static OrderRoundTripEvent placing(OrderPlacement placement) {
+        OrderRoundTripEvent event = new OrderRoundTripEvent();
+        event.symbol = placement.getSymbol();
+        event.side = String.valueOf(placement.getSide());
+        event.type = String.valueOf(placement.getType());
+        event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records the acknowledgement of the placement.
+     * @param orderId the order id.
+     * @param clientOrderId the client order id.
+     */
+    public void acknowledged(Long orderId, String clientOrderId) {
+        this.ack = System.nanoTime() - startNanos;
+        this.orderId = orderId == null ? -1 : orderId;
+        this.clientOrderId = clientOrderId;
+    }
+
+    /**
+     * Ends and commits the event.
+     * @param status the status of the order.
+     * @param firstFillNanos the {@link System#nanoTime()} of the first fill, 0 if not filled.
+     */
+    public void finish(String status, long firstFillNanos) {
+        end();
+        this.status = status;
+        if (firstFillNanos != 0) {
+            this.firstFill = Math.max(0, firstFillNanos - startNanos);
+        }
+        commit();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A sampled websocket message, every {@link #getSampleInterval()}th message of a stream is recorded.
+ */
+@Name("com.webcerebrium.binance.StreamMessage")
+@Label("Stream Message")
+@Category({"Binance", "Streams"})
+@Description("A sampled websocket message, with its lag and decode time")
+@StackTrace(false)
+public class StreamMessageEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(StreamMessageEvent.class);
+    private static volatile int sampleInterval = 100;
+
+    @Label("Stream")
+    String stream;
+    @Label("Bytes")
+    int bytes;
+    @Label("Lag")
+    @Description("The receive time behind the event time, -1 if the message has no event time")
+    @Timespan(Timespan.MILLISECONDS)
+    long lag;
+    @Label("Decode")
+    @Timespan(Timespan.NANOSECONDS)
+    long decode;
+    @Label("Handler")
+    @Description("The time in the handler, or to publish the event if it is handled by a dispatcher")
+    @Timespan(Timespan.NANOSECONDS)
+    long handler;
+
+    /** @return true, if the event is enabled in a running recording. */
+    public static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+
+    public static int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets the sampling of all streams.
+     * @param interval record every n-th message, 1 records all messages.
+     */
+    public static void setSampleInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be positive.");
+        }
+        sampleInterval = interval;
+    }
+
+    /**
+     * Ends and commits the event.
+     * @param stream the stream.
+     * @param bytes the length of the message.
+     * @param lag the lag in milliseconds, negative if unknown.
+     * @param decode the decode time in nanoseconds.
+     * @param handler the handler time in nanoseconds.
+     */
+    public void commit(String stream, int bytes, long lag, long decode, long handler) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        this.stream = stream;
+        this.bytes = bytes;
+        this.lag = lag < 0 ? -1 : lag;
+        this.decode = decode;
+        this.handler = handler;
+        commit();
+    }
+}
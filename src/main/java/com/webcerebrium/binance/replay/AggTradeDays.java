@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.replay;
+
+import com.webcerebrium.binance.history.AggTradeArchive;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The days of an {@link AggTradeArchive} decoded into primitive columns, shared read-only by the replay sources
+ * and {@link RecordedMarketData} of concurrent backtests. Each day is decoded once while cached, concurrent
+ * requests wait for that decoding. The most recently used days are kept per symbol, a day evicted and requested
+ * again is decoded again.
+ */
+public class AggTradeDays {
+
+    private final AggTradeArchive archive;
+    private final int capacity;
+    private final Map<String, Map<LocalDate, CompletableFuture<Day>>> days = new HashMap<>();
+
+    /**
+     * Creates a cache.
+     * @param archive the archive, not null.
+     * @param capacity the number of days kept per symbol.
+     */
+    public AggTradeDays(AggTradeArchive archive, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive.");
+        }
+        this.archive = Objects.requireNonNull(archive);
+        this.capacity = capacity;
+    }
+
+    public AggTradeArchive getArchive() {
+        return archive;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the trades of a day, decoding them if not cached.
+     * @param symbol the symbol.
+     * @param day the UTC day.
+     * @return the decoded day, empty if nothing is stored.
+     */
+    Day get(String symbol, LocalDate day) {
+        CompletableFuture<Day> future;
+        boolean decode = false;
+        synchronized (days) {
+            Map<LocalDate, CompletableFuture<Day>> symbolDays = days.computeIfAbsent(symbol,
+                    s -> new LinkedHashMap<LocalDate, CompletableFuture<Day>>(8, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<LocalDate, CompletableFuture<Day>> eldest) {
+                            return size() > capacity;
+                        }
+                    });
+            future = symbolDays.get(day);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                symbolDays.put(day, future);
+                decode = true;
+            }
+        }
+        if (decode) {
+            try {
+                future.complete(decode(symbol, day));
+            } catch (RuntimeException e) {
+                synchronized (days) {
+                    days.get(symbol).remove(day, future);
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private Day decode(String symbol, LocalDate day) {
+        Day decoded = new Day(day);
+        archive.scan(symbol, day, decoded::add);
+        return decoded;
+    }
+
+    /** The trades of a day in primitive columns, not modified once decoded. */
+    static final class Day {
+        final LocalDate day;
+        long[] ids = new long[1024];
+        long[] firstIds = new long[1024];
+        long[] lastIds = new long[1024];
+        long[] times = new long[1024];
+        double[] prices = new double[1024];
+        double[] quantities = new double[1024];
+        byte[] flags = new byte[1024];
+        int size;
+
+        Day(LocalDate day) {
+            this.day = day;
+        }
+
+        private void add(long id, long first, long last, long time, double price, double quantity,
+                         boolean maker, boolean best) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                firstIds = Arrays.copyOf(firstIds, capacity);
+                lastIds = Arrays.copyOf(lastIds, capacity);
+                times = Arrays.copyOf(times, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+            ids[size] = id;
+            firstIds[size] = first;
+            lastIds[size] = last;
+            times[size] = time;
+            prices[size] = price;
+            quantities[size] = quantity;
+            flags[size] = (byte) ((maker ? 2 : 0) | (best ? 1 : 0));
+            size++;
+        }
+
+        boolean isMaker(int index) {
+            return (flags[index] & 2) != 0;
+        }
+
+        boolean isBestMatch(int index) {
+            return (flags[index] & 1) != 0;
+        }
+
+        /** The price of the last trade at or before a time, NaN if none. */
+        double priceAt(long timeMillis) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (times[mid] <= timeMillis) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high >= 0 ? prices[high] : Double.NaN;
+        }
+    }
+}
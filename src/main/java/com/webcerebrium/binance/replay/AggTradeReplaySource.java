@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.replay;
+
+import com.webcerebrium.binance.history.AggTradeArchive;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays archived aggregated trades as "aggTrade" stream events. Trades are decoded one day at a time into
+ * primitive columns, the frames are created when replayed. Sources created from the same {@link AggTradeDays}
+ * share the decoded days.
+ */
+public class AggTradeReplaySource implements ReplaySource {
+
+    private final AggTradeDays tradeDays;
+    private final String symbol;
+    private final String stream;
+    private final Iterator<LocalDate> days;
+    private final StringBuilder text = new StringBuilder(192);
+    private AggTradeDays.Day day;
+    private int index;
+
+    /**
+     * Creates a source decoding its own days.
+     * @param archive the archive, not null.
+     * @param symbol the symbol, e.g. "BNBBTC".
+     * @param from the first UTC day.
+     * @param to the last UTC day, inclusive.
+     */
+    public AggTradeReplaySource(AggTradeArchive archive, String symbol, LocalDate from, LocalDate to) {
+        this(new AggTradeDays(archive, 1), symbol, from, to);
+    }
+
+    /**
+     * Creates a source reading shared decoded days.
+     * @param tradeDays the decoded days, not null.
+     * @param symbol the symbol, e.g. "BNBBTC".
+     * @param from the first UTC day.
+     * @param to the last UTC day, inclusive.
+     */
+    public AggTradeReplaySource(AggTradeDays tradeDays, String symbol, LocalDate from, LocalDate to) {
+        this.tradeDays = tradeDays;
+        this.symbol = symbol;
+        this.stream = symbol.toLowerCase(Locale.ROOT) + "@aggTrade";
+        this.days = tradeDays.getArchive().getDays(symbol).stream()
+                .filter(d -> !d.isBefore(from) && !d.isAfter(to)).iterator();
+    }
+
+    @Override
+    public ReplayFrame next() {
+        while (day == null || index >= day.size) {
+            if (!days.hasNext()) {
+                return null;
+            }
+            day = tradeDays.get(symbol, days.next());
+            index = 0;
+        }
+        int i = index++;
+        text.setLength(0);
+        text.append("{\"e\":\"aggTrade\",\"E\":").append(day.times[i])
+                .append(",\"s\":\"").append(symbol)
+                .append("\",\"a\":").append(day.ids[i])
+                .append(",\"p\":\"").append(day.prices[i])
+                .append("\",\"q\":\"").append(day.quantities[i])
+                .append("\",\"f\":").append(day.firstIds[i])
+                .append(",\"l\":").append(day.lastIds[i])
+                .append(",\"T\":").append(day.times[i])
+                .append(",\"m\":").append(day.isMaker(i))
+                .append(",\"M\":").append(day.isBestMatch(i))
+                .append('}');
+        return new ReplayFrame(stream, TimeUnit.MILLISECONDS.toNanos(day.times[i]), text.toString());
+    }
+}
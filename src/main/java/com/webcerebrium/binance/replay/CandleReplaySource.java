@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.replay;
+
+import com.webcerebrium.binance.candles.CandleSeries;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays stored candles as final "kline" stream events, each at the close time of its candle. Trade ids are not
+ * stored with candles and are replayed as -1.
+ */
+public class CandleReplaySource implements ReplaySource {
+
+    private final CandleSeries series;
+    private final String stream;
+    private final long toTime;
+    private final StringBuilder text = new StringBuilder(384);
+    private int index;
+
+    /**
+     * Creates a source of the candles opening in a time range.
+     * @param series the candles, not null.
+     * @param fromTime the first open time in epoch millis.
+     * @param toTime the exclusive end of the open times in epoch millis.
+     */
+    public CandleReplaySource(CandleSeries series, long fromTime, long toTime) {
+        this.series = series;
+        this.stream = series.getSymbol().toLowerCase(Locale.ROOT) + "@kline_" + series.getInterval();
+        this.toTime = toTime;
+        int start = series.indexOf(fromTime);
+        this.index = start < 0 ? -start - 1 : start;
+    }
+
+    /**
+     * Creates a source of all candles of a series.
+     * @param series the candles, not null.
+     */
+    public CandleReplaySource(CandleSeries series) {
+        this(series, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public ReplayFrame next() {
+        if (index >= series.size() || series.getOpenTime(index) >= toTime) {
+            return null;
+        }
+        int i = index++;
+        long closeTime = series.getCloseTime(i);
+        text.setLength(0);
+        text.append("{\"e\":\"kline\",\"E\":").append(closeTime)
+                .append(",\"s\":\"").append(series.getSymbol())
+                .append("\",\"k\":{\"t\":").append(series.getOpenTime(i))
+                .append(",\"T\":").append(closeTime)
+                .append(",\"s\":\"").append(series.getSymbol())
+                .append("\",\"i\":\"").append(series.getInterval())
+                .append("\",\"f\":-1,\"L\":-1")
+                .append(",\"o\":\"").append(series.getOpen(i))
+                .append("\",\"c\":\"").append(series.getClose(i))
+                .append("\",\"h\":\"").append(series.getHigh(i))
+                .append("\",\"l\":\"").append(series.getLow(i))
+                .append("\",\"v\":\"").append(series.getVolume(i))
+                .append("\",\"n\":").append(series.getNumberOfTrades(i))
+                .append(",\"x\":true")
+                .append(",\"q\":\"").append(series.getQuoteAssetVolume(i))
+                .append("\",\"V\":\"").append(series.getTakerBuyBaseAssetVolume(i))
+                .append("\",\"Q\":\"").append(series.getTakerBuyQuoteAssetVolume(i))
+                .append("\",\"B\":\"0\"}}");
+        return new ReplayFrame(stream, TimeUnit.MILLISECONDS.toNanos(closeTime), text.toString());
+    }
+}
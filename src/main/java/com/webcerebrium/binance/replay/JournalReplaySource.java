@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.replay;
+
+import com.webcerebrium.binance.websocket.StreamJournal;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Replays the frames recorded by a {@link StreamJournal}, one segment at a time.
+ */
+public class JournalReplaySource implements ReplaySource {
+
+    private final Iterator<Path> segments;
+    private final ArrayDeque<ReplayFrame> frames = new ArrayDeque<>();
+
+    /**
+     * Creates a source of all segments in a journal directory.
+     * @param directory the journal directory.
+     */
+    public JournalReplaySource(Path directory) {
+        this(StreamJournal.getSegments(directory));
+    }
+
+    /**
+     * Creates a source of segments.
+     * @param segments the segment files, oldest first.
+     */
+    public JournalReplaySource(List<Path> segments) {
+        this.segments = segments.iterator();
+    }
+
+    @Override
+    public ReplayFrame next() {
+        while (frames.isEmpty() && segments.hasNext()) {
+            StreamJournal.readSegment(segments.next(),
+                    (stream, timestamp, frame) -> frames.add(new ReplayFrame(stream, timestamp, frame)));
+        }
+        return frames.poll();
+    }
+}
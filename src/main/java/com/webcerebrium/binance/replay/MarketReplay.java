@@ -0,0 +1,253 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.replay;
+
+import com.webcerebrium.binance.api.ApiException;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.WebSocketListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays recorded market data into websocket adapters on a simulated clock. The frames of all sources are
+ * merged by time, frames of the same time keep the order of their sources, so a replay is deterministic.
+ * <p>
+ * By default frames are replayed as fast as possible, a speed multiplier paces them relative to the wall clock,
+ * e.g. 60 replays an hour in a minute. Adapters subscribe to streams by the names the
+ * {@link com.webcerebrium.binance.api.Api} uses, e.g. "bnbbtc@aggTrade", or connect through a
+ * {@link com.webcerebrium.binance.api.SimulatorApi} using the replay.
+ * <pre>
+ * MarketReplay replay = new MarketReplay(new ReplayClock(start))
+ *         .addSource(new JournalReplaySource(Paths.get("journal")));
+ * replay.subscribe("bnbbtc@aggTrade", adapter);
+ * replay.run();
+ * </pre>
+ */
+@Slf4j
+public class MarketReplay {
+
+    /** Speed replaying frames without pacing. */
+    public static final double AS_FAST_AS_POSSIBLE = 0.0;
+
+    private final ReplayClock clock;
+    private final List<ReplaySource> sources = new ArrayList<>();
+    private final Map<String, List<WebSocketListener>> subscribers = new ConcurrentHashMap<>();
+    private final PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> {
+        int result = Long.compare(a.frame.getTimestampNanos(), b.frame.getTimestampNanos());
+        return result != 0 ? result : Integer.compare(a.source, b.source);
+    });
+    private volatile double speed = AS_FAST_AS_POSSIBLE;
+    private volatile boolean stopped;
+    private boolean started;
+    private long frames;
+    private long wallStartNanos;
+    private long replayStartNanos;
+
+    private static final class Head {
+        final int source;
+        ReplayFrame frame;
+
+        Head(int source, ReplayFrame frame) {
+            this.source = source;
+            this.frame = frame;
+        }
+    }
+
+    public MarketReplay(ReplayClock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    public ReplayClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Adds a source, before the replay starts.
+     * @param source the source, not null.
+     * @return this replay, for chaining.
+     */
+    public synchronized MarketReplay addSource(ReplaySource source) {
+        if (started) {
+            throw new IllegalStateException("Replay already started.");
+        }
+        sources.add(Objects.requireNonNull(source));
+        return this;
+    }
+
+    public void subscribe(String stream, WebSocketListener listener) {
+        subscribers.computeIfAbsent(stream, s -> new CopyOnWriteArrayList<>()).add(Objects.requireNonNull(listener));
+    }
+
+    public void unsubscribe(String stream, WebSocketListener listener) {
+        List<WebSocketListener> listeners = subscribers.get(stream);
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Sets the speed.
+     * @param speed the multiple of real time, or {@link #AS_FAST_AS_POSSIBLE}.
+     */
+    public void setSpeed(double speed) {
+        if (speed < 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("Invalid speed: " + speed);
+        }
+        this.speed = speed;
+        // pacing restarts from the next frame
+        wallStartNanos = 0;
+    }
+
+    /**
+     * Get the number of frames replayed so far.
+     */
+    public synchronized long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Stops a running replay after the current frame. It can be continued by running it again.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Replays all frames.
+     * @return the number of frames replayed.
+     * @throws ApiException if the replay is interrupted.
+     */
+    public long run() {
+        return runUntil(Long.MAX_VALUE);
+    }
+
+    /**
+     * Replays the frames up to a time and advances the clock to it, e.g. to step through a replay.
+     * @param timeMillis the time in epoch millis, inclusive.
+     * @return the number of frames replayed.
+     * @throws ApiException if the replay is interrupted.
+     */
+    public synchronized long runUntil(long timeMillis) {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < sources.size(); i++) {
+                ReplayFrame frame = sources.get(i).next();
+                if (frame != null) {
+                    heads.add(new Head(i, frame));
+                }
+            }
+        }
+        stopped = false;
+        long endNanos = timeMillis >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE
+                : TimeUnit.MILLISECONDS.toNanos(timeMillis) + 999_999;
+        long count = 0;
+        while (!stopped && !heads.isEmpty() && heads.peek().frame.getTimestampNanos() <= endNanos) {
+            Head head = heads.poll();
+            ReplayFrame frame = head.frame;
+            pace(frame.getTimestampNanos());
+            clock.advanceTo(TimeUnit.NANOSECONDS.toMillis(frame.getTimestampNanos()));
+            dispatch(frame);
+            count++;
+            head.frame = sources.get(head.source).next();
+            if (head.frame != null) {
+                heads.add(head);
+            }
+        }
+        if (!stopped && timeMillis != Long.MAX_VALUE) {
+            clock.advanceTo(timeMillis);
+        }
+        frames += count;
+        return count;
+    }
+
+    /**
+     * Checks if all frames were replayed.
+     */
+    public synchronized boolean isFinished() {
+        return started && heads.isEmpty();
+    }
+
+    private void dispatch(ReplayFrame frame) {
+        List<WebSocketListener> listeners = subscribers.get(frame.getStream());
+        if (listeners == null) {
+            return;
+        }
+        for (WebSocketListener listener : listeners) {
+            try {
+                listener.onWebSocketText(frame.getText());
+            } catch (RuntimeException e) {
+                log.error("Replay listener failed on {}: {}", frame.getStream(), e.toString());
+            }
+        }
+    }
+
+    private void pace(long timestampNanos) {
+        double speed = this.speed;
+        if (speed == AS_FAST_AS_POSSIBLE) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (wallStartNanos == 0) {
+            wallStartNanos = now;
+            replayStartNanos = timestampNanos;
+            return;
+        }
+        long due = wallStartNanos + (long) ((timestampNanos - replayStartNanos) / speed);
+        if (due > now) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(due - now);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException(e.toString());
+            }
+        }
+    }
+
+    /**
+     * Closes all sources.
+     */
+    public synchronized void close() {
+        for (ReplaySource source : sources) {
+            try {
+                source.close();
+            } catch (Exception e) {
+                log.warn("Cannot close replay source: {}", e.toString());
+            }
+        }
+        heads.clear();
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.api.MarketData;
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.AggregatedTrades;
+import com.webcerebrium.binance.datatype.AggregatedTradesRequest;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.CandlesticksRequest;
+import com.webcerebrium.binance.datatype.ExchangeInfo;
+import com.webcerebrium.binance.datatype.Interval;
+import com.webcerebrium.binance.history.AggTradeArchive;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link MarketData} served from recordings: a stored exchange info, candle series and an
+ * {@link AggTradeArchive}. Nothing after the time of the clock is visible, so a backtest driven by a
+ * {@link ReplayClock} cannot look ahead: candles are served once closed, trades once traded.
+ */
+public class RecordedMarketData implements MarketData {
+
+    private static final Gson GSON = new Gson();
+    private static final int DEFAULT_LIMIT = 500;
+
+    private final ExchangeInfo exchangeInfo;
+    private final Clock clock;
+    private final Map<String, List<CandleSeries>> candles = new ConcurrentHashMap<>();
+    private volatile AggTradeArchive trades;
+    /** The decoded trade days serving prices. */
+    private volatile AggTradeDays tradeDays;
+
+    /**
+     * Creates new market data.
+     * @param exchangeInfo the exchange info, not null.
+     * @param clock the clock defining the current time, e.g. a {@link ReplayClock}.
+     */
+    public RecordedMarketData(ExchangeInfo exchangeInfo, Clock clock) {
+        this.exchangeInfo = Objects.requireNonNull(exchangeInfo);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Loads an exchange info stored as returned by the {@code /api/v3/exchangeInfo} endpoint.
+     * @param file the json file.
+     * @return the exchange info, never null.
+     * @throws ApiException if the file cannot be read.
+     */
+    public static ExchangeInfo loadExchangeInfo(Path file) throws ApiException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return new ExchangeInfo(JsonParser.parseReader(reader).getAsJsonObject());
+        } catch (IOException | RuntimeException e) {
+            throw new ApiException("Cannot load exchange info from " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Adds a candle series. Prices are taken from the finest series if no trades are recorded.
+     * @param series the series, not null.
+     * @return this instance, for chaining.
+     */
+    public RecordedMarketData addCandles(CandleSeries series) {
+        List<CandleSeries> list = candles.computeIfAbsent(series.getSymbol(), s -> new ArrayList<>());
+        synchronized (list) {
+            list.removeIf(s -> s.getInterval() == series.getInterval());
+            list.add(series);
+            list.sort((a, b) -> Long.compare(a.getInterval().toMillis(), b.getInterval().toMillis()));
+        }
+        return this;
+    }
+
+    /**
+     * Sets the archive serving the aggregated trades and prices.
+     * @param archive the archive, or null.
+     * @return this instance, for chaining.
+     */
+    public RecordedMarketData setTrades(AggTradeArchive archive) {
+        // two days cover the lookups falling back from a day without trades yet to the day before
+        return setTrades(archive == null ? null : new AggTradeDays(archive, 2));
+    }
+
+    /**
+     * Sets the trades decoded once, e.g. shared by the market data of parallel backtests.
+     * @param tradeDays the decoded trades, or null.
+     * @return this instance, for chaining.
+     */
+    public RecordedMarketData setTrades(AggTradeDays tradeDays) {
+        this.tradeDays = tradeDays;
+        this.trades = tradeDays == null ? null : tradeDays.getArchive();
+        return this;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    @Override
+    public ExchangeInfo getExchangeInfo() {
+        return exchangeInfo;
+    }
+
+    @Override
+    public Double getPrice(String symbol) {
+        long now = clock.millis();
+        AggTradeDays decoded = tradeDays;
+        if (decoded != null) {
+            Double price = getTradePrice(decoded, symbol, now);
+            if (price != null) {
+                return price;
+            }
+        }
+        List<CandleSeries> list = candles.get(symbol);
+        if (list == null) {
+            return null;
+        }
+        CandleSeries series;
+        synchronized (list) {
+            series = list.get(0);
+        }
+        int index = series.indexOf(series.getInterval().getOpenTime(now));
+        if (index >= 0) {
+            // the open price is the only price of the open candle known at this time
+            return series.getOpen(index);
+        }
+        index = -index - 2;
+        return index >= 0 ? series.getClose(index) : null;
+    }
+
+    @Override
+    public List<Candlestick> getCandlestickBars(CandlesticksRequest request) {
+        CandleSeries series = getSeries(request.getSymbol(), request.getInterval());
+        long now = clock.millis();
+        int limit = request.getLimit() > 0 ? request.getLimit() : DEFAULT_LIMIT;
+        // the candles closed at the current time
+        int end = series.indexOf(request.getInterval().getOpenTime(now));
+        end = end >= 0 ? end : -end - 1;
+        if (request.getEndTime() != null) {
+            int index = series.indexOf(request.getEndTime());
+            end = Math.min(end, index >= 0 ? index + 1 : -index - 1);
+        }
+        int start;
+        if (request.getStartTime() != null) {
+            int index = series.indexOf(request.getStartTime());
+            start = index >= 0 ? index : -index - 1;
+            end = Math.min(end, start + limit);
+        } else {
+            start = Math.max(0, end - limit);
+        }
+        List<Candlestick> result = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            result.add(series.get(i));
+        }
+        return result;
+    }
+
+    private CandleSeries getSeries(String symbol, Interval interval) {
+        List<CandleSeries> list = candles.getOrDefault(symbol, Collections.emptyList());
+        synchronized (list) {
+            for (CandleSeries series : list) {
+                if (series.getInterval() == interval) {
+                    return series;
+                }
+            }
+        }
+        throw new ApiException("No " + interval + " candles recorded for " + symbol + ".");
+    }
+
+    @Override
+    public List<AggregatedTrades> getAggregatedTrades(AggregatedTradesRequest request) {
+        AggTradeArchive archive = trades;
+        if (archive == null) {
+            throw new ApiException("No trades recorded.");
+        }
+        String symbol = request.getSymbol();
+        long now = clock.millis();
+        int limit = request.getLimit() != null ? request.getLimit() : DEFAULT_LIMIT;
+        long startTime = request.getStartTime() != null ? request.getStartTime() : Long.MIN_VALUE;
+        long endTime = Math.min(now, request.getEndTime() != null ? request.getEndTime() : Long.MAX_VALUE);
+        long fromId = request.getFromId() != null ? request.getFromId() : Long.MIN_VALUE;
+        // without a range the most recent trades are returned
+        boolean recent = request.getFromId() == null && request.getStartTime() == null;
+        LocalDate from = request.getStartTime() != null ? day(startTime) : LocalDate.MIN;
+        LocalDate to = day(endTime);
+        List<AggregatedTrades> result = new ArrayList<>();
+        if (recent) {
+            List<LocalDate> days = archive.getDays(symbol);
+            for (int i = days.size() - 1; i >= 0 && result.size() < limit; i--) {
+                if (days.get(i).isAfter(to)) {
+                    continue;
+                }
+                List<AggregatedTrades> day = new ArrayList<>();
+                archive.scan(symbol, days.get(i), (id, first, last, time, price, quantity, maker, best) -> {
+                    if (time <= endTime) {
+                        day.add(trade(id, first, last, time, price, quantity, maker, best));
+                    }
+                });
+                result.addAll(0, day.subList(Math.max(0, day.size() - (limit - result.size())), day.size()));
+            }
+            return result;
+        }
+        for (LocalDate day : archive.getDays(symbol)) {
+            if (day.isBefore(from) || day.isAfter(to) || result.size() >= limit) {
+                continue;
+            }
+            archive.scan(symbol, day, (id, first, last, time, price, quantity, maker, best) -> {
+                if (result.size() < limit && id >= fromId && time >= startTime && time <= endTime) {
+                    result.add(trade(id, first, last, time, price, quantity, maker, best));
+                }
+            });
+        }
+        return result;
+    }
+
+    private static AggregatedTrades trade(long id, long first, long last, long time, double price,
+                                          double quantity, boolean buyerMaker, boolean bestMatch) {
+        JsonObject json = new JsonObject();
+        json.addProperty("a", id);
+        json.addProperty("p", price);
+        json.addProperty("q", quantity);
+        json.addProperty("f", first);
+        json.addProperty("l", last);
+        json.addProperty("T", time);
+        json.addProperty("m", buyerMaker);
+        json.addProperty("M", bestMatch);
+        return GSON.fromJson(json, AggregatedTrades.class);
+    }
+
+    private static LocalDate day(long timeMillis) {
+        return Instant.ofEpochMilli(timeMillis).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private static Double getTradePrice(AggTradeDays decoded, String symbol, long now) {
+        List<LocalDate> days = null;
+        LocalDate day = day(now);
+        while (day != null) {
+            double price = decoded.get(symbol, day).priceAt(now);
+            if (!Double.isNaN(price)) {
+                return price;
+            }
+            // continue with the last stored day before
+            if (days == null) {
+                days = decoded.getArchive().getDays(symbol);
+            }
+            LocalDate previous = null;
+            for (LocalDate d : days) {
+                if (d.isBefore(day)) {
+                    previous = d;
+                }
+            }
+            day = previous;
+        }
+        return null;
+    }
+}
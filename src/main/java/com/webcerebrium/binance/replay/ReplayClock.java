@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.replay;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulated clock of a {@link MarketReplay}, showing the time of the frame being replayed. Clocks created with
+ * {@link #withZone(ZoneId)} share the time.
+ */
+public class ReplayClock extends Clock {
+
+    private final AtomicLong millis;
+    private final ZoneId zone;
+
+    /**
+     * Creates a clock in UTC.
+     * @param startMillis the start time in epoch millis.
+     */
+    public ReplayClock(long startMillis) {
+        this(new AtomicLong(startMillis), ZoneOffset.UTC);
+    }
+
+    private ReplayClock(AtomicLong millis, ZoneId zone) {
+        this.millis = millis;
+        this.zone = Objects.requireNonNull(zone);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public ReplayClock withZone(ZoneId zone) {
+        return new ReplayClock(millis, zone);
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis.get());
+    }
+
+    /**
+     * Advances the clock. The clock never goes back, earlier times are ignored.
+     * @param timeMillis the time in epoch millis.
+     */
+    public void advanceTo(long timeMillis) {
+        millis.accumulateAndGet(timeMillis, Math::max);
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayClock{" + instant() + "," + zone + "}";
+    }
+}
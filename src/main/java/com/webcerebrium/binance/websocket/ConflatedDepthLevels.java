@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import com.webcerebrium.binance.api.Api;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.events.DepthLevelUpdateEvent;
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * The latest partial book depth of a set of symbols, each symbol subscribed with a
+ * {@link ConflatingDepthLevelAdapter}. Consumers poll at their own pace and only decode the newest book of the
+ * symbols updated since their previous poll.
+ */
+public class ConflatedDepthLevels {
+
+    private final Map<String, ConflatingDepthLevelAdapter> adapters = new ConcurrentHashMap<>();
+
+    /**
+     * Get the adapter of a symbol, creating it if needed.
+     * @param symbol the symbol, e.g. "BNBBTC".
+     * @return the adapter, never null.
+     */
+    public ConflatingDepthLevelAdapter getAdapter(String symbol) {
+        return adapters.computeIfAbsent(Objects.requireNonNull(symbol).toUpperCase(),
+                s -> new ConflatingDepthLevelAdapter());
+    }
+
+    /**
+     * Subscribes a symbol to a partial book depth stream.
+     * @param api the api, not null.
+     * @param symbol the symbol, e.g. "BNBBTC".
+     * @param levels the number of levels, 5, 10 or 20.
+     * @return the web socket session.
+     * @throws ApiException in case of any error
+     */
+    public Session subscribe(Api api, String symbol, int levels) throws ApiException {
+        ConflatingDepthLevelAdapter adapter = getAdapter(symbol);
+        switch (levels) {
+            case 5:
+                return api.websocketDepth5(symbol, adapter);
+            case 10:
+                return api.websocketDepth10(symbol, adapter);
+            case 20:
+                return api.websocketDepth20(symbol, adapter);
+            default:
+                throw new ApiException("Levels must be 5, 10 or 20: " + levels);
+        }
+    }
+
+    /**
+     * Decodes the newest book of a symbol received since the previous poll.
+     * @param symbol the symbol.
+     * @return the book, or null if the symbol has no update.
+     * @throws ApiException if the frame is invalid.
+     */
+    public DepthLevelUpdateEvent poll(String symbol) throws ApiException {
+        ConflatingDepthLevelAdapter adapter = adapters.get(Objects.requireNonNull(symbol).toUpperCase());
+        return adapter == null ? null : adapter.poll();
+    }
+
+    /**
+     * Decodes the newest book of every symbol updated since the previous poll.
+     * @param consumer receives the symbol and its book.
+     * @return the number of updated symbols.
+     * @throws ApiException if a frame is invalid.
+     */
+    public int pollAll(BiConsumer<String, DepthLevelUpdateEvent> consumer) throws ApiException {
+        int count = 0;
+        for (Map.Entry<String, ConflatingDepthLevelAdapter> entry : adapters.entrySet()) {
+            if (entry.getValue().hasUpdate()) {
+                DepthLevelUpdateEvent event = entry.getValue().poll();
+                if (event != null) {
+                    consumer.accept(entry.getKey(), event);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
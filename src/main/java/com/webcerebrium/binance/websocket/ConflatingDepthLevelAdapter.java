@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import com.google.gson.JsonParser;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.events.DepthLevelUpdateEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A partial book depth adapter that only keeps the latest state. Frames are not decoded on receipt, each frame
+ * replaces the previous one and only the newest frame is decoded when the consumer {@link #poll() polls}. During
+ * bursts no CPU is spent on decoding books that are replaced before they are used. Replaced frames are counted
+ * as conflated in the {@link StreamMetrics}, the decode time is recorded on poll.
+ */
+@Slf4j
+public class ConflatingDepthLevelAdapter extends WebSocketDepthLevelAdapter {
+
+    private final AtomicReference<String> latest = new AtomicReference<>();
+
+    @Override
+    public void onWebSocketText(String message) {
+        StreamMetrics metrics = getStreamMetrics();
+        long received = metrics.now();
+        if (latest.getAndSet(message) != null) {
+            metrics.recordConflated();
+        }
+        metrics.record(message.length(), -1, received, -1, -1);
+    }
+
+    /**
+     * Not called, frames are only decoded by {@link #poll()}.
+     * @param event the event.
+     */
+    @Override
+    public final void onMessage(DepthLevelUpdateEvent event) {
+        // frames are decoded on poll
+    }
+
+    /** @return true, if a frame was received since the previous poll. */
+    public boolean hasUpdate() {
+        return latest.get() != null;
+    }
+
+    /**
+     * Decodes the newest frame received since the previous poll.
+     * @return the book, or null if no frame was received since the previous poll.
+     * @throws ApiException if the frame is invalid.
+     */
+    public DepthLevelUpdateEvent poll() throws ApiException {
+        String frame = latest.getAndSet(null);
+        if (frame == null) {
+            return null;
+        }
+        StreamMetrics metrics = getStreamMetrics();
+        long start = System.nanoTime();
+        try {
+            DepthLevelUpdateEvent event = decode(JsonParser.parseString(frame).getAsJsonObject());
+            metrics.recordDecode(System.nanoTime() - start);
+            return event;
+        } catch (RuntimeException e) {
+            metrics.recordError();
+            log.error("Error in websocket message {}", e.getMessage());
+            throw e instanceof ApiException ? (ApiException) e : new ApiException("Invalid depth frame: " + e);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Decouples the handler of a stream from the socket: the receiving thread publishes decoded events into a
+ * preallocated ring buffer, a dedicated thread passes them to the handler in order. A slow handler therefore
+ * no longer delays reading the socket, unless the buffer is full and the {@link OverflowPolicy} is
+ * {@link OverflowPolicy#BLOCK}.
+ * <p>
+ * A dispatcher serves one adapter, see {@link MeteredWebSocketAdapter#setDispatcher(EventDispatcher)}. Its queue
+ * depth, queue wait, dropped and conflated events are part of the adapter's {@link StreamMetrics}.
+ * @param <E> the event type.
+ */
+@Slf4j
+public final class EventDispatcher<E> implements AutoCloseable {
+
+    private final Object[] events;
+    private final long[] publishedAt;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+    private final WaitStrategy waitStrategy;
+    /** The next sequence to publish, written by the receiving thread only. */
+    private final AtomicLong tail = new AtomicLong();
+    /** The next sequence to handle, advanced by the dispatcher thread, or by the receiving thread when dropping. */
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0L);
+    private volatile boolean waiting;
+    private volatile boolean closed;
+    private volatile Thread thread;
+    private Consumer<E> handler;
+    private StreamMetrics metrics;
+
+    /**
+     * Creates a new dispatcher.
+     * @param capacity the number of pending events, rounded up to a power of two.
+     * @param overflowPolicy the policy when the buffer is full, not null.
+     * @param waitStrategy how the dispatcher thread waits for events, not null.
+     */
+    public EventDispatcher(int capacity, OverflowPolicy overflowPolicy, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30.");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.events = new Object[size];
+        this.publishedAt = new long[size];
+        this.mask = size - 1;
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+        this.waitStrategy = Objects.requireNonNull(waitStrategy);
+    }
+
+    /**
+     * Starts the dispatcher thread.
+     * @param name the name of the thread.
+     * @param metrics the metrics recording the handler and queue wait times.
+     * @param handler the handler.
+     */
+    synchronized void start(String name, StreamMetrics metrics, Consumer<E> handler) {
+        if (this.handler != null) {
+            throw new IllegalStateException("Dispatcher is already in use.");
+        }
+        if (closed) {
+            throw new IllegalStateException("Dispatcher is closed.");
+        }
+        this.handler = Objects.requireNonNull(handler);
+        this.metrics = Objects.requireNonNull(metrics);
+        Thread t = new Thread(this::run, "EventDispatcher-" + name);
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /**
+     * Publishes an event, called by the receiving thread.
+     * @param event the event, not null.
+     * @return false, if the dispatcher is closed and the event is dropped.
+     */
+    boolean publish(E event) {
+        if (closed) {
+            dropped.increment();
+            return false;
+        }
+        long t = tail.get();
+        int idle = 0;
+        while (t - head.get() >= events.length) {
+            if (overflowPolicy == OverflowPolicy.BLOCK) {
+                if (closed) {
+                    dropped.increment();
+                    return false;
+                }
+                // the receiving thread backs off, whatever the dispatcher thread does
+                idle = WaitStrategy.SLEEPING.idle(idle);
+            } else {
+                long h = head.get();
+                if (t - h >= events.length && head.compareAndSet(h, h + 1)) {
+                    (overflowPolicy == OverflowPolicy.CONFLATE ? conflated : dropped).increment();
+                }
+            }
+        }
+        int index = (int) t & mask;
+        events[index] = event;
+        publishedAt[index] = System.nanoTime();
+        tail.set(t + 1);
+        maxDepth.accumulate(t + 1 - head.get());
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run() {
+        int idle = 0;
+        while (true) {
+            long h = head.get();
+            long t = tail.get();
+            if (h == t) {
+                if (closed) {
+                    break;
+                }
+                if (waitStrategy == WaitStrategy.BLOCKING) {
+                    waiting = true;
+                    if (head.get() == tail.get() && !closed) {
+                        LockSupport.park(this);
+                    }
+                    waiting = false;
+                } else {
+                    idle = waitStrategy.idle(idle);
+                }
+                continue;
+            }
+            if (overflowPolicy == OverflowPolicy.CONFLATE && t - h > 1) {
+                if (head.compareAndSet(h, t - 1)) {
+                    conflated.add(t - 1 - h);
+                }
+                continue;
+            }
+            int index = (int) h & mask;
+            E event = (E) events[index];
+            long at = publishedAt[index];
+            if (!head.compareAndSet(h, h + 1)) {
+                // dropped by the receiving thread meanwhile
+                continue;
+            }
+            idle = 0;
+            long start = System.nanoTime();
+            metrics.recordQueueWait(start - at);
+            try {
+                handler.accept(event);
+            } catch (RuntimeException e) {
+                metrics.recordError();
+                log.error("Error in websocket handler {}", e.getMessage());
+            }
+            metrics.recordHandler(System.nanoTime() - start);
+            dispatched.increment();
+        }
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /** @return the number of pending events. */
+    public int getDepth() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /** @return the maximal number of pending events since the previous call. */
+    long getMaxDepthThenReset() {
+        return maxDepth.getThenReset();
+    }
+
+    /** @return the number of events passed to the handler. */
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    /** @return the number of events dropped by {@link OverflowPolicy#DROP_OLDEST}, or after closing. */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** @return the number of events skipped by {@link OverflowPolicy#CONFLATE}. */
+    public long getConflated() {
+        return conflated.sum();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops accepting events. Pending events are still handled, then the dispatcher thread ends. Waits up to a
+     * second for the pending events, unless called by the handler.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Thread t = thread;
+        if (t != null && t != Thread.currentThread()) {
+            LockSupport.unpark(t);
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
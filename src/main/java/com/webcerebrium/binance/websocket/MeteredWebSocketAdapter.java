@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.jfr.StreamMessageEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+
+/**
+ * Base of the stream adapters, decoding each frame into an event and passing it to the handler, while recording
+ * the {@link StreamMetrics} of the stream. While the {@link StreamMessageEvent} is enabled in a flight recording,
+ * every {@link StreamMessageEvent#getSampleInterval()}th message is committed as event.
+ * <p>
+ * By default the handler runs on the receiving thread, so a slow handler delays reading the socket. With an
+ * {@link EventDispatcher} set, events are handed over to the dispatcher's thread instead.
+ * @param <E> the event type.
+ */
+@Slf4j
+public abstract class MeteredWebSocketAdapter<E> extends WebSocketAdapter {
+
+    private final StreamMetrics streamMetrics = new StreamMetrics();
+    /** Messages since the last sampled message, frames are received on a single thread. */
+    private int unsampled;
+    private volatile EventDispatcher<E> dispatcher;
+
+    public StreamMetrics getStreamMetrics() {
+        return streamMetrics;
+    }
+
+    public EventDispatcher<E> getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * Handles the events of this adapter on the thread of a dispatcher, must be called before the stream is
+     * opened. A dispatcher serves a single adapter and is stopped with {@link EventDispatcher#close()}.
+     * @param dispatcher the dispatcher, not null.
+     */
+    public void setDispatcher(EventDispatcher<E> dispatcher) {
+        if (this.dispatcher != null) {
+            throw new IllegalStateException("Dispatcher already set.");
+        }
+        dispatcher.start(getClass().getSimpleName(), streamMetrics, this::dispatch);
+        this.dispatcher = dispatcher;
+        streamMetrics.setDispatcher(dispatcher);
+    }
+
+    @Override
+    public void onWebSocketConnect(Session sess) {
+        super.onWebSocketConnect(sess);
+        log.debug("onWebSocketConnect: {}", sess);
+        streamMetrics.recordConnect();
+    }
+
+    @Override
+    public void onWebSocketError(Throwable cause) {
+        log.error("onWebSocketError: {}", cause);
+        streamMetrics.recordError();
+    }
+
+    @Override
+    public void onWebSocketText(String message) {
+        log.debug("onWebSocketText message={}", message);
+        long received = streamMetrics.now();
+        StreamMessageEvent sample = null;
+        if (StreamMessageEvent.isTypeEnabled() && ++unsampled >= StreamMessageEvent.getSampleInterval()) {
+            unsampled = 0;
+            sample = new StreamMessageEvent();
+            sample.begin();
+        }
+        long start = System.nanoTime();
+        JsonObject json;
+        E event;
+        try {
+            json = JsonParser.parseString(message).getAsJsonObject();
+            event = decode(json);
+        } catch (RuntimeException e) {
+            streamMetrics.recordError();
+            log.error("Error in websocket message {}", e.getMessage());
+            return;
+        }
+        long decoded = System.nanoTime();
+        EventDispatcher<E> queue = dispatcher;
+        try {
+            if (event != null) {
+                if (queue != null) {
+                    queue.publish(event);
+                } else {
+                    dispatch(event);
+                }
+            }
+        } catch (ApiException e) {
+            log.error("Error in websocket message {}", e.getMessage());
+        } finally {
+            long eventTime = eventTime(json);
+            long handled = System.nanoTime() - decoded;
+            streamMetrics.record(message.length(), eventTime, received, decoded - start,
+                    queue != null ? -1 : handled);
+            if (sample != null) {
+                sample.commit(streamMetrics.getStream(), message.length(), eventTime < 0 ? -1 : received - eventTime,
+                        decoded - start, handled);
+            }
+        }
+    }
+
+    /**
+     * Get the event time of a frame.
+     * @param json the frame.
+     * @return the event time {@code E}, or -1 if the frame has none.
+     */
+    protected long eventTime(JsonObject json) {
+        return json.has("E") ? json.get("E").getAsLong() : -1;
+    }
+
+    /**
+     * Decodes a frame.
+     * @param json the frame.
+     * @return the event, or null if the frame is ignored.
+     * @throws ApiException if the frame is invalid.
+     */
+    protected abstract E decode(JsonObject json) throws ApiException;
+
+    /**
+     * Passes an event to the handler.
+     * @param event the event.
+     * @throws ApiException if the handler fails.
+     */
+    protected abstract void dispatch(E event) throws ApiException;
+}
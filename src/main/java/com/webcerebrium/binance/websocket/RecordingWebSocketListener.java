@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketListener;
+
+import java.util.Objects;
+
+/**
+ * Records the text frames of a websocket stream into a {@link StreamJournal}, before passing all events on to
+ * the stream's listener.
+ */
+@Slf4j
+public class RecordingWebSocketListener implements WebSocketListener {
+
+    private final StreamJournal journal;
+    private final int streamId;
+    private final WebSocketListener delegate;
+
+    /**
+     * Creates a recording listener.
+     * @param journal the journal, not null.
+     * @param stream the stream name, e.g. "bnbbtc@aggTrade".
+     * @param delegate the listener handling the stream, not null.
+     */
+    public RecordingWebSocketListener(StreamJournal journal, String stream, WebSocketListener delegate) {
+        this.journal = Objects.requireNonNull(journal);
+        this.streamId = journal.register(stream);
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    public WebSocketListener getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Records the frame and passes it on. Once the journal is closed, frames are passed on without recording.
+     */
+    @Override
+    public void onWebSocketText(String message) {
+        if (!journal.isClosed()) {
+            try {
+                journal.append(streamId, message);
+            } catch (RuntimeException e) {
+                // the journal may have been closed since the check
+                if (!journal.isClosed()) {
+                    log.warn("Cannot record websocket frame: {}", e.getMessage());
+                }
+            }
+        }
+        delegate.onWebSocketText(message);
+    }
+
+    @Override
+    public void onWebSocketBinary(byte[] payload, int offset, int len) {
+        delegate.onWebSocketBinary(payload, offset, len);
+    }
+
+    @Override
+    public void onWebSocketConnect(Session session) {
+        delegate.onWebSocketConnect(session);
+    }
+
+    @Override
+    public void onWebSocketClose(int statusCode, String reason) {
+        delegate.onWebSocketClose(statusCode, reason);
+    }
+
+    @Override
+    public void onWebSocketError(Throwable cause) {
+        delegate.onWebSocketError(cause);
+    }
+}
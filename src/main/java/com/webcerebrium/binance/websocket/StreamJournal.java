@@ -0,0 +1,402 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import com.webcerebrium.binance.api.ApiException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Records raw websocket frames into memory-mapped segment files, with their local receive time in epoch nanos.
+ * <p>
+ * Appending writes directly into the mapped segment, encoding the frame as UTF-8 without allocating. Appends are
+ * serialized by a single writer lock, held only for the copy. Segments are forced to disk asynchronously, and a
+ * new segment is started when the current one is full or older than the roll interval. Each segment is
+ * self-contained and named by its start time, so old segments can be moved or deleted at any time.
+ * <p>
+ * Segment layout: a 16 byte header (magic, version, start time), followed by records of a 16 byte header
+ * (length, stream, time) and the UTF-8 frame. A stream's name is recorded once per segment, before its first
+ * frame. The length is written last, so a record is only visible when complete.
+ */
+@Slf4j
+public class StreamJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x534a524e; // "SJRN"
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER = 16;
+    static final int RECORD_HEADER = 16;
+    static final String SUFFIX = ".journal";
+
+    private static final ScheduledExecutorService FORCE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "StreamJournal-force");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long rollIntervalNanos;
+    private final long epochNanos;
+    private final long startNanoTime;
+    private final Map<String, Integer> streamIds = new HashMap<>();
+    private final List<String> streams = new ArrayList<>();
+    private final ScheduledFuture<?> forceTask;
+    private boolean[] defined = new boolean[16];
+    private volatile MappedByteBuffer segment;
+    private volatile boolean dirty;
+    private Path segmentFile;
+    private long segmentStartNanos;
+    private int position;
+    private long frames;
+    private long bytes;
+    private volatile boolean closed;
+
+    /**
+     * Creates a journal with 64 MB segments, rolled at least hourly and forced every second.
+     * @param directory the directory of the segments, created if needed.
+     */
+    public StreamJournal(Path directory) {
+        this(directory, 64 * 1024 * 1024, TimeUnit.HOURS.toMillis(1), 1000);
+    }
+
+    /**
+     * Creates a journal.
+     * @param directory the directory of the segments, created if needed.
+     * @param segmentSize the size of a segment in bytes.
+     * @param rollIntervalMillis the maximal time span of a segment, 0 to roll only when full.
+     * @param forceIntervalMillis the interval of forcing written frames to disk, 0 to force only on roll and close.
+     */
+    public StreamJournal(Path directory, int segmentSize, long rollIntervalMillis, long forceIntervalMillis) {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("Segment size must be at least 4096: " + segmentSize);
+        }
+        this.directory = Objects.requireNonNull(directory);
+        this.segmentSize = segmentSize;
+        this.rollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(rollIntervalMillis);
+        this.epochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.startNanoTime = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new ApiException("Cannot create journal " + directory + ": " + e);
+        }
+        this.forceTask = forceIntervalMillis > 0 ? FORCE_EXECUTOR.scheduleWithFixedDelay(this::forceQuietly,
+                forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS) : null;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the current time as recorded with frames: the wall clock at creation, advanced by the monotonic clock.
+     * @return the time in epoch nanos.
+     */
+    public long currentTimeNanos() {
+        return epochNanos + (System.nanoTime() - startNanoTime);
+    }
+
+    /**
+     * Registers a stream, e.g. when connecting to it.
+     * @param stream the stream name.
+     * @return the id to append frames of the stream with.
+     */
+    public synchronized int register(String stream) {
+        Integer id = streamIds.get(stream);
+        if (id == null) {
+            id = streams.size();
+            streams.add(stream);
+            streamIds.put(stream, id);
+            if (id >= defined.length) {
+                defined = Arrays.copyOf(defined, defined.length * 2);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Appends a frame, received now. The time is taken under the writer lock, so recorded times never decrease.
+     * @param streamId the id of the stream, as registered.
+     * @param frame the frame, not null.
+     */
+    public synchronized void append(int streamId, CharSequence frame) {
+        append(streamId, currentTimeNanos(), frame);
+    }
+
+    /**
+     * Appends a frame.
+     * @param streamId the id of the stream, as registered.
+     * @param timestampNanos the receive time in epoch nanos.
+     * @param frame the frame, not null.
+     * @throws ApiException if the frame does not fit into a segment, or the journal cannot be written.
+     */
+    public synchronized void append(int streamId, long timestampNanos, CharSequence frame) {
+        if (closed) {
+            throw new ApiException("Journal is closed.");
+        }
+        if (streamId < 0 || streamId >= streams.size()) {
+            throw new IllegalArgumentException("Unknown stream id: " + streamId);
+        }
+        String name = streams.get(streamId);
+        // UTF-8 takes at most 3 bytes per char, a surrogate pair 4 bytes for 2 chars
+        long required = RECORD_HEADER + 3L * frame.length();
+        long definition = RECORD_HEADER + 3L * name.length();
+        if (SEGMENT_HEADER + definition + required > segmentSize) {
+            throw new ApiException("Frame of " + frame.length() + " chars exceeds the segment size.");
+        }
+        if (segment == null || (rollIntervalNanos > 0 && timestampNanos - segmentStartNanos >= rollIntervalNanos)
+                || position + required + (defined[streamId] ? 0 : definition) > segmentSize) {
+            roll(timestampNanos);
+        }
+        if (!defined[streamId]) {
+            write(-streamId - 1, timestampNanos, name);
+            defined[streamId] = true;
+        }
+        write(streamId, timestampNanos, frame);
+        frames++;
+        dirty = true;
+    }
+
+    private void write(int stream, long timestampNanos, CharSequence text) {
+        MappedByteBuffer buffer = segment;
+        int start = position;
+        int p = start + RECORD_HEADER;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer.put(p++, (byte) c);
+            } else if (c < 0x800) {
+                buffer.put(p++, (byte) (0xc0 | (c >> 6)));
+                buffer.put(p++, (byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put(p++, (byte) (0xf0 | (codePoint >> 18)));
+                buffer.put(p++, (byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                buffer.put(p++, (byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                buffer.put(p++, (byte) (0x80 | (codePoint & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put(p++, (byte) '?');
+            } else {
+                buffer.put(p++, (byte) (0xe0 | (c >> 12)));
+                buffer.put(p++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+                buffer.put(p++, (byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        int bytes = p - start - RECORD_HEADER;
+        buffer.putInt(start + 4, stream);
+        buffer.putLong(start + 8, timestampNanos);
+        // the length makes the record visible, written last
+        buffer.putInt(start, bytes);
+        position = p;
+        this.bytes += bytes;
+    }
+
+    private void roll(long timestampNanos) {
+        MappedByteBuffer previous = segment;
+        if (previous != null) {
+            FORCE_EXECUTOR.execute(previous::force);
+        }
+        Path file = directory.resolve(String.format("%020d%s", timestampNanos, SUFFIX));
+        for (long n = timestampNanos + 1; Files.exists(file); n++) {
+            file = directory.resolve(String.format("%020d%s", n, SUFFIX));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, timestampNanos);
+            segment = buffer;
+        } catch (IOException e) {
+            segment = null;
+            throw new ApiException("Cannot create journal segment " + file + ": " + e);
+        }
+        log.debug("Started journal segment {}", file);
+        segmentFile = file;
+        segmentStartNanos = timestampNanos;
+        position = SEGMENT_HEADER;
+        Arrays.fill(defined, false);
+    }
+
+    /**
+     * Forces the frames written so far to disk.
+     */
+    public void force() {
+        MappedByteBuffer buffer = segment;
+        if (buffer != null && dirty) {
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    private void forceQuietly() {
+        try {
+            force();
+        } catch (RuntimeException e) {
+            log.warn("Cannot force journal {}: {}", directory, e.toString());
+        }
+    }
+
+    public synchronized long getFrameCount() {
+        return frames;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytes;
+    }
+
+    public synchronized Path getSegmentFile() {
+        return segmentFile;
+    }
+
+    /**
+     * Get the segments of a journal directory.
+     * @param directory the directory.
+     * @return the segment files, oldest first, never null.
+     */
+    public static List<Path> getSegments(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new ApiException("Cannot list " + directory + ": " + e);
+        }
+    }
+
+    /**
+     * Reads all frames of a journal directory.
+     * @param directory the directory.
+     * @param listener the listener, not null.
+     * @return the number of frames read.
+     */
+    public static long read(Path directory, StreamFrameListener listener) {
+        long count = 0;
+        for (Path file : getSegments(directory)) {
+            count += readSegment(file, listener);
+        }
+        return count;
+    }
+
+    /**
+     * Reads the frames of a segment, up to its last complete record.
+     * @param file the segment file.
+     * @param listener the listener, not null.
+     * @return the number of frames read.
+     */
+    public static long readSegment(Path file, StreamFrameListener listener) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < SEGMENT_HEADER || buffer.getInt(0) != MAGIC) {
+                throw new ApiException("Not a journal segment: " + file);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new ApiException("Unsupported journal version " + buffer.getInt(4) + ": " + file);
+            }
+            List<String> names = new ArrayList<>();
+            byte[] bytes = new byte[4096];
+            long count = 0;
+            int position = SEGMENT_HEADER;
+            while (position + RECORD_HEADER <= buffer.limit()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER + length > buffer.limit()) {
+                    break;
+                }
+                int stream = buffer.getInt(position + 4);
+                long timestamp = buffer.getLong(position + 8);
+                if (bytes.length < length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                buffer.position(position + RECORD_HEADER);
+                buffer.get(bytes, 0, length);
+                String text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                if (stream < 0) {
+                    int id = -stream - 1;
+                    while (names.size() <= id) {
+                        names.add(null);
+                    }
+                    names.set(id, text);
+                } else {
+                    listener.onFrame(stream < names.size() ? names.get(stream) : null, timestamp, text);
+                    count++;
+                }
+                position += RECORD_HEADER + length;
+            }
+            return count;
+        } catch (IOException e) {
+            throw new ApiException("Cannot read journal segment " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Checks if the journal is closed, so appending frames is rejected.
+     * @return true if closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Forces and closes the journal. Frames appended afterwards are rejected.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (forceTask != null) {
+            forceTask.cancel(false);
+        }
+        MappedByteBuffer buffer = segment;
+        if (buffer != null) {
+            buffer.force();
+        }
+        segment = null;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free metrics of a websocket stream: message and byte rates, the lag behind the exchange's event time,
+ * the decode and handler time, silences, sequence gaps and reconnects, and the queue of an {@link EventDispatcher}.
+ * Recording never blocks the receiving thread, {@link #snapshot()} returns the values of the interval since the
+ * previous snapshot.
+ */
+public final class StreamMetrics {
+
+    private volatile String stream = "";
+    private volatile LongSupplier clock = System::currentTimeMillis;
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder sequenceGaps = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAccumulator maxGap = new LongAccumulator(Math::max, 0L);
+    private final Recorder lag = new Recorder(2);
+    private final Recorder decodeNanos = new Recorder(2);
+    private final Recorder handlerNanos = new Recorder(2);
+    private final Recorder queueWaitNanos = new Recorder(2);
+    private volatile EventDispatcher<?> dispatcher;
+    /** Written by the receiving thread only. */
+    private volatile long lastReceived = -1;
+    private long lastSequence = -1;
+
+    // reader state, guarded by this
+    private long lastSnapshot = -1;
+    private long lastMessages;
+    private long lastBytes;
+    private long lastSequenceGaps;
+    private long lastDropped;
+    private long lastConflated;
+    private Histogram lagInterval;
+    private Histogram decodeInterval;
+    private Histogram handlerInterval;
+    private Histogram queueWaitInterval;
+
+    /**
+     * Sets the stream name and the clock of the exchange, called when the stream is connected.
+     * @param stream the stream, e.g. "bnbbtc@depth".
+     * @param clock the clock, e.g. a synchronized {@link com.webcerebrium.binance.api.ServerClock}.
+     */
+    public void bind(String stream, LongSupplier clock) {
+        this.stream = Objects.requireNonNull(stream);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    public String getStream() {
+        return stream;
+    }
+
+    /** @return the current time of the clock used to measure the lag. */
+    long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Records a message.
+     * @param length the length of the frame.
+     * @param eventTime the event time of the exchange, negative if the event has none.
+     * @param received the receive time, see {@link #now()}.
+     * @param decode the nanoseconds spent to decode the frame, negative if the frame is decoded later.
+     * @param handler the nanoseconds spent in the handler, negative if the event is dispatched asynchronously.
+     */
+    void record(int length, long eventTime, long received, long decode, long handler) {
+        messages.increment();
+        bytes.add(length);
+        long previous = lastReceived;
+        if (previous >= 0) {
+            maxGap.accumulate(received - previous);
+        }
+        lastReceived = received;
+        if (eventTime >= 0) {
+            lag.recordValue(Math.max(0, received - eventTime));
+        }
+        if (decode >= 0) {
+            decodeNanos.recordValue(decode);
+        }
+        if (handler >= 0) {
+            handlerNanos.recordValue(handler);
+        }
+    }
+
+    /**
+     * Records the time to decode a frame, that was not decoded on receipt.
+     * @param nanos the nanoseconds spent to decode the frame.
+     */
+    void recordDecode(long nanos) {
+        decodeNanos.recordValue(nanos);
+    }
+
+    /**
+     * Counts a frame replaced by a newer one before it was handled.
+     */
+    void recordConflated() {
+        conflated.increment();
+    }
+
+    /**
+     * Records the time of an event in the handler, called by the {@link EventDispatcher}.
+     * @param nanos the nanoseconds spent in the handler.
+     */
+    void recordHandler(long nanos) {
+        handlerNanos.recordValue(nanos);
+    }
+
+    /**
+     * Records the time an event waited in the queue of the {@link EventDispatcher}.
+     * @param nanos the nanoseconds from publishing to handling.
+     */
+    void recordQueueWait(long nanos) {
+        queueWaitNanos.recordValue(Math.max(0, nanos));
+    }
+
+    void setDispatcher(EventDispatcher<?> dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Records the sequence numbers of an update and counts a gap, if updates are missing since the last one.
+     * @param first the first sequence number of the update.
+     * @param last the last sequence number of the update.
+     */
+    public void recordSequence(long first, long last) {
+        if (lastSequence >= 0 && first > lastSequence + 1) {
+            sequenceGaps.increment();
+        }
+        lastSequence = last;
+    }
+
+    void recordConnect() {
+        connects.increment();
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Get the metrics of the interval since the previous call, the first interval starts with the first message.
+     * @return the snapshot.
+     */
+    public synchronized StreamSnapshot snapshot() {
+        long now = now();
+        lagInterval = lag.getIntervalHistogram(lagInterval);
+        decodeInterval = decodeNanos.getIntervalHistogram(decodeInterval);
+        handlerInterval = handlerNanos.getIntervalHistogram(handlerInterval);
+        queueWaitInterval = queueWaitNanos.getIntervalHistogram(queueWaitInterval);
+        long totalMessages = messages.sum();
+        long totalBytes = bytes.sum();
+        long totalGaps = sequenceGaps.sum();
+        long received = lastReceived;
+
+        StreamSnapshot snapshot = new StreamSnapshot();
+        snapshot.setStream(stream);
+        long start = lastSnapshot >= 0 ? lastSnapshot : now;
+        snapshot.setIntervalMillis(now - start);
+        snapshot.setMessages(totalMessages - lastMessages);
+        snapshot.setBytes(totalBytes - lastBytes);
+        if (now > start) {
+            double seconds = (now - start) / 1000.0;
+            snapshot.setMessagesPerSecond(snapshot.getMessages() / seconds);
+            snapshot.setBytesPerSecond(snapshot.getBytes() / seconds);
+        }
+        snapshot.setLagP50Millis(lagInterval.getValueAtPercentile(50));
+        snapshot.setLagP99Millis(lagInterval.getValueAtPercentile(99));
+        snapshot.setLagMaxMillis(lagInterval.getMaxValue());
+        snapshot.setDecodeP50Micros(micros(decodeInterval.getValueAtPercentile(50)));
+        snapshot.setDecodeP99Micros(micros(decodeInterval.getValueAtPercentile(99)));
+        snapshot.setHandlerP50Micros(micros(handlerInterval.getValueAtPercentile(50)));
+        snapshot.setHandlerP99Micros(micros(handlerInterval.getValueAtPercentile(99)));
+        snapshot.setMaxGapMillis(maxGap.getThenReset());
+        snapshot.setSilenceMillis(received < 0 ? -1 : Math.max(0, now - received));
+        snapshot.setSequenceGaps(totalGaps - lastSequenceGaps);
+        snapshot.setTotalMessages(totalMessages);
+        long connectCount = connects.sum();
+        snapshot.setConnects(connectCount);
+        snapshot.setReconnects(Math.max(0, connectCount - 1));
+        snapshot.setErrors(errors.sum());
+        EventDispatcher<?> queue = dispatcher;
+        long totalConflated = conflated.sum() + (queue != null ? queue.getConflated() : 0);
+        snapshot.setConflatedEvents(totalConflated - lastConflated);
+        lastConflated = totalConflated;
+        if (queue != null) {
+            long totalDropped = queue.getDropped();
+            snapshot.setQueueDepth(queue.getDepth());
+            snapshot.setMaxQueueDepth(queue.getMaxDepthThenReset());
+            snapshot.setQueueWaitP50Micros(micros(queueWaitInterval.getValueAtPercentile(50)));
+            snapshot.setQueueWaitP99Micros(micros(queueWaitInterval.getValueAtPercentile(99)));
+            snapshot.setDroppedEvents(totalDropped - lastDropped);
+            lastDropped = totalDropped;
+        }
+
+        lastSnapshot = now;
+        lastMessages = totalMessages;
+        lastBytes = totalBytes;
+        lastSequenceGaps = totalGaps;
+        return snapshot;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
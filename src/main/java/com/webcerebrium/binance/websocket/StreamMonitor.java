@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the {@link StreamMetrics} of a set of streams and raises a {@link StreamAlert} for each stream lagging
+ * behind the exchange, silent, missing updates or dropping events for longer than the thresholds allow.
+ */
+@Slf4j
+@Getter
+@Setter
+public class StreamMonitor implements AutoCloseable {
+
+    private static final ScheduledExecutorService POLL_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "StreamMonitor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Maximal 99th percentile of the lag in an interval. */
+    private long maxLagMillis = 1000;
+    /** Maximal time without a message, streams without any message yet are not checked. */
+    private long maxSilenceMillis = TimeUnit.SECONDS.toMillis(30);
+    /** Maximal number of sequence gaps in an interval. */
+    private long maxSequenceGaps = 0;
+    /** Maximal number of events dropped by an {@link EventDispatcher} in an interval. */
+    private long maxDroppedEvents = 0;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final List<StreamMetrics> streams = new CopyOnWriteArrayList<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final List<StreamAlertListener> listeners = new CopyOnWriteArrayList<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ScheduledFuture<?> pollTask;
+
+    public StreamMonitor add(MeteredWebSocketAdapter<?> adapter) {
+        return add(adapter.getStreamMetrics());
+    }
+
+    public StreamMonitor add(StreamMetrics metrics) {
+        streams.add(Objects.requireNonNull(metrics));
+        return this;
+    }
+
+    public void remove(StreamMetrics metrics) {
+        streams.remove(metrics);
+    }
+
+    public void addListener(StreamAlertListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeListener(StreamAlertListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Takes a snapshot of all streams and raises the alerts.
+     * @return the snapshots, in the order the streams were added.
+     */
+    public List<StreamSnapshot> poll() {
+        List<StreamSnapshot> snapshots = new ArrayList<>(streams.size());
+        for (StreamMetrics metrics : streams) {
+            StreamSnapshot snapshot = metrics.snapshot();
+            snapshots.add(snapshot);
+            if (snapshot.getMessages() > 0 && snapshot.getLagP99Millis() > maxLagMillis) {
+                alert(new StreamAlert(StreamAlert.Type.LAG, snapshot.getLagP99Millis(), maxLagMillis, snapshot));
+            }
+            if (snapshot.getSilenceMillis() > maxSilenceMillis) {
+                alert(new StreamAlert(StreamAlert.Type.SILENCE, snapshot.getSilenceMillis(), maxSilenceMillis,
+                        snapshot));
+            }
+            if (snapshot.getSequenceGaps() > maxSequenceGaps) {
+                alert(new StreamAlert(StreamAlert.Type.SEQUENCE_GAP, snapshot.getSequenceGaps(), maxSequenceGaps,
+                        snapshot));
+            }
+            if (snapshot.getDroppedEvents() > maxDroppedEvents) {
+                alert(new StreamAlert(StreamAlert.Type.DROPPED, snapshot.getDroppedEvents(), maxDroppedEvents,
+                        snapshot));
+            }
+        }
+        return snapshots;
+    }
+
+    private void alert(StreamAlert alert) {
+        log.warn("Stream {}: {} of {} exceeds {}.", alert.getSnapshot().getStream(), alert.getType(),
+                alert.getValue(), alert.getThreshold());
+        for (StreamAlertListener listener : listeners) {
+            try {
+                listener.onAlert(alert);
+            } catch (RuntimeException e) {
+                log.warn("Stream alert listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts polling periodically in the background.
+     * @param periodMillis the poll period.
+     */
+    public synchronized void start(long periodMillis) {
+        stop();
+        pollTask = POLL_EXECUTOR.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (Exception e) {
+                log.warn("Stream monitor poll failed: {}", e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background polling.
+     */
+    public synchronized void stop() {
+        if (pollTask != null) {
+            pollTask.cancel(false);
+            pollTask = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import lombok.Data;
+
+/**
+ * The health of a stream over the interval since the previous snapshot. Latencies are percentiles of the
+ * interval, counters of connects and errors are totals.
+ */
+@Data
+public class StreamSnapshot {
+    private String stream;
+    /** The length of the interval. */
+    private long intervalMillis;
+    private long messages;
+    /** The characters received, equal to the bytes for the ASCII frames of the exchange. */
+    private long bytes;
+    private double messagesPerSecond;
+    private double bytesPerSecond;
+    /** Lag of the local receive time behind the event time {@code E}, events without event time are excluded. */
+    private long lagP50Millis;
+    private long lagP99Millis;
+    private long lagMaxMillis;
+    private double decodeP50Micros;
+    private double decodeP99Micros;
+    private double handlerP50Micros;
+    private double handlerP99Micros;
+    /** The longest silence between two messages. */
+    private long maxGapMillis;
+    /** The time since the last message, -1 if no message was received yet. */
+    private long silenceMillis;
+    /** Missing updates detected from sequence numbers, e.g. of diff depth streams. */
+    private long sequenceGaps;
+    private long totalMessages;
+    private long connects;
+    private long reconnects;
+    private long errors;
+    /** The pending events of the {@link EventDispatcher}, zero if events are handled on the receiving thread. */
+    private int queueDepth;
+    private long maxQueueDepth;
+    /** The time from publishing an event to the {@link EventDispatcher} until it is handled. */
+    private double queueWaitP50Micros;
+    private double queueWaitP99Micros;
+    private long droppedEvents;
+    /** Events or frames skipped because a newer one replaced them before they were handled. */
+    private long conflatedEvents;
+}
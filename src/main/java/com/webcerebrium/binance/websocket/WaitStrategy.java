@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Web Cerebrium
+ * Copyright (c) 2021 Anatole Tresch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.webcerebrium.binance.websocket;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How the thread of an {@link EventDispatcher} waits for events, trading latency against CPU usage.
+ */
+public enum WaitStrategy {
+    /** Parks until an event is published, the receiving thread wakes the dispatcher. Lowest CPU usage. */
+    BLOCKING(100, 100, 50_000),
+    /** Spins, then yields, then sleeps briefly. */
+    SLEEPING(100, 200, 100_000),
+    /** Spins, then yields. Low latency, keeps a core busy while the stream is active. */
+    YIELDING(100, Integer.MAX_VALUE, 0),
+    /** Spins. Lowest latency, occupies a core and needs a spare one. */
+    BUSY_SPIN(Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+
+    private final int spins;
+    private final int yields;
+    private final long parkNanos;
+
+    WaitStrategy(int spins, int yields, long parkNanos) {
+        this.spins = spins;
+        this.yields = yields;
+        this.parkNanos = parkNanos;
+    }
+
+    /**
+     * Waits once.
+     * @param counter the number of waits since the last progress.
+     * @return the incremented counter.
+     */
+    int idle(int counter) {
+        if (counter < spins) {
+            Thread.onSpinWait();
+        } else if (counter < yields) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+            return counter;
+        }
+        return counter + 1;
+    }
+}
@@ -25,36 +25,21 @@
 
 package com.webcerebrium.binance.websocket;
 
-
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.webcerebrium.binance.api.ApiException;
 import com.webcerebrium.binance.datatype.events.AggregatedTradeEvent;
-import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 
-@Slf4j
-public abstract class WebSocketAggTradesAdapter extends WebSocketAdapter {
-    @Override
-    public void onWebSocketConnect(Session sess) {
-        log.debug("onWebSocketConnect: {}", sess);
-    }
+public abstract class WebSocketAggTradesAdapter extends MeteredWebSocketAdapter<AggregatedTradeEvent> {
 
     @Override
-    public void onWebSocketError(Throwable cause) {
-        log.error("onWebSocketError: {}", cause);
+    protected AggregatedTradeEvent decode(JsonObject json) throws ApiException {
+        return new AggregatedTradeEvent(json);
     }
 
     @Override
-    public void onWebSocketText(String message) {
-        log.debug("onWebSocketText message={}", message);
-        JsonObject operation = (new Gson()).fromJson(message, JsonObject.class);
-        try{
-            onMessage(new AggregatedTradeEvent(operation));
-        } catch ( ApiException e ) {
-            log.error("Error in websocket message {}", e.getMessage());
-        }
+    protected void dispatch(AggregatedTradeEvent event) throws ApiException {
+        onMessage(event);
     }
+
     public abstract void onMessage(AggregatedTradeEvent event) throws ApiException;
 }
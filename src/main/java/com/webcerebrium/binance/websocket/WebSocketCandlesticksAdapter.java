@@ -25,38 +25,21 @@
 
 package com.webcerebrium.binance.websocket;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.webcerebrium.binance.api.ApiException;
 import com.webcerebrium.binance.datatype.events.CandlestickEvent;
-import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 
+public abstract class WebSocketCandlesticksAdapter extends MeteredWebSocketAdapter<CandlestickEvent> {
 
-@Slf4j
-public abstract class WebSocketCandlesticksAdapter extends WebSocketAdapter {
     @Override
-    public void onWebSocketConnect(Session sess) {
-        log.debug("onWebSocketConnect: {}", sess);
+    protected CandlestickEvent decode(JsonObject json) throws ApiException {
+        return new CandlestickEvent(json);
     }
 
     @Override
-    public void onWebSocketError(Throwable cause) {
-        log.error("onWebSocketError: {}", cause);
-    }
-
-    @Override
-    public void onWebSocketText(String message) {
-        log.debug("onWebSocketText message={}", message);
-        JsonObject operation = (new Gson()).fromJson(message, JsonObject.class);
-        try {
-            onMessage(new CandlestickEvent(operation));
-        } catch (ApiException e) {
-            log.error("Error in websocket message {}", e.getMessage());
-        }
+    protected void dispatch(CandlestickEvent event) throws ApiException {
+        onMessage(event);
     }
 
     public abstract void onMessage(CandlestickEvent event) throws ApiException;
-
 }
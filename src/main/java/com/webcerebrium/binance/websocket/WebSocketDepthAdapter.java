@@ -25,36 +25,23 @@
 
 package com.webcerebrium.binance.websocket;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.webcerebrium.binance.api.ApiException;
 import com.webcerebrium.binance.datatype.events.DepthUpdateEvent;
-import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 
+public abstract class WebSocketDepthAdapter extends MeteredWebSocketAdapter<DepthUpdateEvent> {
 
-@Slf4j
-public abstract class WebSocketDepthAdapter extends WebSocketAdapter {
     @Override
-    public void onWebSocketConnect(Session sess) {
-        log.debug("onWebSocketConnect: {}", sess);
-    }
-
-    @Override
-    public void onWebSocketError(Throwable cause) {
-        log.error("onWebSocketError: {}", cause);
+    protected DepthUpdateEvent decode(JsonObject json) throws ApiException {
+        if (json.has("U")) {
+            getStreamMetrics().recordSequence(json.get("U").getAsLong(), json.get("u").getAsLong());
+        }
+        return new DepthUpdateEvent(json);
     }
 
     @Override
-    public void onWebSocketText(String message) {
-        log.debug("onWebSocketText message={}", message);
-        JsonObject operation = (new Gson()).fromJson(message, JsonObject.class);
-        try {
-            onMessage(new DepthUpdateEvent(operation));
-        } catch ( ApiException e ) {
-            log.error("Error in websocket message {}", e.getMessage());
-        }
+    protected void dispatch(DepthUpdateEvent event) throws ApiException {
+        onMessage(event);
     }
 
     public abstract void onMessage(DepthUpdateEvent event) throws ApiException;
@@ -25,38 +25,21 @@
 
 package com.webcerebrium.binance.websocket;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.webcerebrium.binance.api.ApiException;
 import com.webcerebrium.binance.datatype.events.DepthLevelUpdateEvent;
-import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 
-@Slf4j
-public abstract class WebSocketDepthLevelAdapter extends WebSocketAdapter {
+public abstract class WebSocketDepthLevelAdapter extends MeteredWebSocketAdapter<DepthLevelUpdateEvent> {
 
     @Override
-    public void onWebSocketConnect(Session sess) {
-        log.debug("onWebSocketConnect: {}", sess);
+    protected DepthLevelUpdateEvent decode(JsonObject json) throws ApiException {
+        return new DepthLevelUpdateEvent(json);
     }
 
     @Override
-    public void onWebSocketError(Throwable cause) {
-        log.error("onWebSocketError: {}", cause);
-    }
-
-    @Override
-    public void onWebSocketText(String message) {
-        log.debug("onWebSocketText message={}", message);
-        JsonObject operation = (new Gson()).fromJson(message, JsonObject.class);
-        try {
-            onMessage(new DepthLevelUpdateEvent(operation));
-        } catch ( ApiException e ) {
-            log.error("Error in websocket message {}", e.getMessage());
-        }
+    protected void dispatch(DepthLevelUpdateEvent event) throws ApiException {
+        onMessage(event);
     }
 
     public abstract void onMessage(DepthLevelUpdateEvent event) throws ApiException;
-
 }
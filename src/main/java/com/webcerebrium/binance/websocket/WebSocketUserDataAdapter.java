@@ -25,43 +25,33 @@
 
 package com.webcerebrium.binance.websocket;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.webcerebrium.binance.api.ApiException;
 import com.webcerebrium.binance.datatype.events.ExecutionReportEvent;
 import com.webcerebrium.binance.datatype.events.OutboundAccountInfoEvent;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 
 @Slf4j
-public abstract class WebSocketUserDataAdapter extends WebSocketAdapter {
-    @Override
-    public void onWebSocketConnect(Session sess) {
-        log.debug("onWebSocketConnect: {}", sess);
-    }
+public abstract class WebSocketUserDataAdapter extends MeteredWebSocketAdapter<Object> {
 
     @Override
-    public void onWebSocketError(Throwable cause) {
-        log.error("onWebSocketError: {}", cause);
+    protected Object decode(JsonObject json) throws ApiException {
+        String eventType = json.get("e").getAsString();
+        if (eventType.equals("outboundAccountInfo")) {
+            return new OutboundAccountInfoEvent(json);
+        } else if (eventType.equals("executionReport")) {
+            return new ExecutionReportEvent(json);
+        }
+        log.error("Error in websocket message - unknown event Type");
+        return null;
     }
 
     @Override
-    public void onWebSocketText(String message) {
-        log.debug("onWebSocketText message={}", message);
-        JsonObject operation = (new Gson()).fromJson(message, JsonObject.class);
-
-        try {
-            String eventType = operation.get("e").getAsString();
-            if (eventType.equals("outboundAccountInfo")) {
-                onOutboundAccountInfo(new OutboundAccountInfoEvent(operation));
-            } else if (eventType.equals("executionReport")) {
-                onExecutionReport(new ExecutionReportEvent(operation));
-            } else {
-                log.error("Error in websocket message - unknown event Type");
-            }
-        } catch (ApiException e) {
-            log.error("Error in websocket message {}", e.getMessage());
+    protected void dispatch(Object event) throws ApiException {
+        if (event instanceof ExecutionReportEvent) {
+            onExecutionReport((ExecutionReportEvent) event);
+        } else {
+            onOutboundAccountInfo((OutboundAccountInfoEvent) event);
         }
     }
 
@@ -0,0 +1,327 @@
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.*;
+import com.webcerebrium.binance.datatype.events.ExecutionReportEvent;
+import com.webcerebrium.binance.datatype.events.OutboundAccountInfoEvent;
+import com.webcerebrium.binance.replay.JournalReplaySource;
+import com.webcerebrium.binance.replay.MarketReplay;
+import com.webcerebrium.binance.replay.ReplayClock;
+import com.webcerebrium.binance.websocket.StreamJournal;
+import com.webcerebrium.binance.websocket.WebSocketUserDataAdapter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+public class MatchingEngineTest {
+
+    private static final long START = 1_600_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Account account;
+    private TestOrderManager orderManager;
+    private MatchingEngine engine;
+    private final List<ExecutionType> reports = new ArrayList<>();
+
+    private static <T extends Api> T mockApi(Class<T> type, Account account) {
+        T api = Mockito.mock(type);
+        ExchangeSymbol symbol = new ExchangeSymbol();
+        symbol.setSymbol("BNBBTC");
+        symbol.setBaseAsset("BNB");
+        symbol.setQuoteAsset("BTC");
+        ExchangeInfo info = Mockito.mock(ExchangeInfo.class);
+        when(info.getSymbol("BNBBTC")).thenReturn(symbol);
+        ExchangeSymbol eth = new ExchangeSymbol();
+        eth.setSymbol("ETHBTC");
+        eth.setBaseAsset("ETH");
+        eth.setQuoteAsset("BTC");
+        when(info.getSymbol("ETHBTC")).thenReturn(eth);
+        when(api.getAccount()).thenReturn(account);
+        when(api.getExchangeInfo()).thenReturn(info);
+        return api;
+    }
+
+    private static Account account() {
+        Account account = new Account();
+        Asset btc = new Asset("BTC");
+        btc.setFree(10.0);
+        btc.setLocked(0.0);
+        Asset bnb = new Asset("BNB");
+        bnb.setFree(100.0);
+        bnb.setLocked(0.0);
+        Asset eth = new Asset("ETH");
+        eth.setFree(100.0);
+        eth.setLocked(0.0);
+        Map<String, Asset> assets = new HashMap<>();
+        assets.put("BTC", btc);
+        assets.put("BNB", bnb);
+        assets.put("ETH", eth);
+        account.setAssets(assets);
+        return account;
+    }
+
+    @Before
+    public void setUp() {
+        account = account();
+        orderManager = new TestOrderManager(new TestAccountManager(mockApi(Api.class, account)));
+        engine = orderManager.getMatchingEngine();
+        engine.addListener((order, type, trade) -> reports.add(type));
+    }
+
+    private Order place(OrderSide side, OrderType type, TimeInForce timeInForce, double quantity, Double price,
+                        Double stopPrice) {
+        return place("BNBBTC", side, type, timeInForce, quantity, price, stopPrice);
+    }
+
+    private Order place(String symbol, OrderSide side, OrderType type, TimeInForce timeInForce, double quantity,
+                        Double price, Double stopPrice) {
+        OrderPlacement placement = new OrderPlacement(symbol, side);
+        placement.setType(type);
+        placement.setTimeInForce(timeInForce);
+        placement.setQuantity(quantity);
+        placement.setPrice(price);
+        placement.setStopPrice(stopPrice);
+        return orderManager.getOrder(orderManager.createOrder(placement));
+    }
+
+    private Order limit(OrderSide side, double quantity, double price) {
+        return place(side, OrderType.LIMIT, TimeInForce.GTC, quantity, price, null);
+    }
+
+    private static List<BidOrAsk> levels(BidType type, double... priceAndQuantity) {
+        List<BidOrAsk> levels = new ArrayList<>();
+        for (int i = 0; i < priceAndQuantity.length; i += 2) {
+            BidOrAsk level = new BidOrAsk();
+            level.setType(type);
+            level.setPrice(priceAndQuantity[i]);
+            level.setQuantity(priceAndQuantity[i + 1]);
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    private double free(String asset) {
+        return account.getAsset(asset).getFree();
+    }
+
+    private double locked(String asset) {
+        return account.getAsset(asset).getLocked();
+    }
+
+    @Test
+    public void testPriceTimePriority() {
+        Order first = limit(OrderSide.BUY, 1, 0.010);
+        Order second = limit(OrderSide.BUY, 1, 0.010);
+        Order better = limit(OrderSide.BUY, 1, 0.011);
+        Order ask = limit(OrderSide.SELL, 1, 0.012);
+        assertEquals(4, orderManager.getOpenOrders().size());
+
+        // a seller takes 2.5 at 0.010, the better price is filled first, then in time order
+        engine.onTrade("BNBBTC", 0.010, 2.5, true);
+        assertEquals(OrderStatus.FILLED, better.getStatus());
+        assertEquals(OrderStatus.FILLED, first.getStatus());
+        assertEquals(OrderStatus.PARTIALLY_FILLED, second.getStatus());
+        assertEquals(0.5, second.getExecutedQty(), 1e-12);
+        assertEquals(OrderStatus.NEW, ask.getStatus());
+        assertEquals(Arrays.asList(ExecutionType.NEW, ExecutionType.NEW, ExecutionType.NEW, ExecutionType.NEW,
+                ExecutionType.TRADE, ExecutionType.TRADE, ExecutionType.TRADE), reports);
+        // the open ask locks its quantity, the partially filled bid what it still needs
+        assertEquals(101.5, free("BNB"), 1e-9);
+        assertEquals(1.0, locked("BNB"), 1e-9);
+        assertEquals(10 - (0.011 + 2 * 0.010) * 1.001, free("BTC"), 1e-12);
+        assertEquals(0.5 * 0.010 * 1.001, locked("BTC"), 1e-12);
+        assertEquals(0.010, engine.getLastPrice("BNBBTC"), 0.0);
+
+        // buyers below the ask do not fill it, partially filled orders stay open
+        engine.onTrade("BNBBTC", 0.0115, 3, false);
+        assertEquals(OrderStatus.NEW, ask.getStatus());
+        assertEquals(2, orderManager.getOpenOrders().size());
+        assertEquals(OrderStatus.CANCELED, orderManager.deleteOrderById("BNBBTC", second.getOrderId()).getStatus());
+        assertEquals(1, orderManager.getOpenOrders().size());
+        assertEquals(10 - (0.011 + 1.5 * 0.010) * 1.001, free("BTC"), 1e-12);
+        assertEquals(0.0, locked("BTC"), 1e-12);
+    }
+
+    @Test
+    public void testTakeDepthAndTimeInForce() {
+        engine.onDepth("BNBBTC", levels(BidType.BID, 0.009, 5), levels(BidType.ASK, 0.010, 1, 0.011, 2));
+        Order market = place(OrderSide.BUY, OrderType.MARKET, TimeInForce.GTC, 2, null, null);
+        assertEquals(OrderStatus.FILLED, market.getStatus());
+        assertEquals(10 - (0.010 + 0.011) * 1.001, free("BTC"), 1e-12);
+
+        // one left at 0.011
+        Order fok = place(OrderSide.BUY, OrderType.LIMIT, TimeInForce.FOK, 2, 0.011, null);
+        assertEquals(OrderStatus.EXPIRED, fok.getStatus());
+        assertEquals(0.0, fok.getExecutedQty(), 0.0);
+        Order ioc = place(OrderSide.BUY, OrderType.LIMIT, TimeInForce.IOC, 2, 0.011, null);
+        assertEquals(OrderStatus.EXPIRED, ioc.getStatus());
+        assertEquals(1.0, ioc.getExecutedQty(), 0.0);
+
+        // the asks are taken, the order rests
+        Order resting = limit(OrderSide.BUY, 1, 0.0105);
+        assertEquals(OrderStatus.NEW, resting.getStatus());
+        Order maker = place(OrderSide.SELL, OrderType.LIMIT_MAKER, TimeInForce.GTC, 1, 0.009, null);
+        assertEquals(OrderStatus.REJECTED, maker.getStatus());
+        Order tooLarge = limit(OrderSide.BUY, 10_000, 0.010);
+        assertEquals(OrderStatus.REJECTED, tooLarge.getStatus());
+
+        assertEquals(0.0105 * 1.001, locked("BTC"), 1e-12);
+
+        // the next snapshot crosses the resting order, it is filled at its price from the locked balance
+        double btc = free("BTC");
+        engine.onDepth("BNBBTC", levels(BidType.BID, 0.009, 5), levels(BidType.ASK, 0.010, 3));
+        assertEquals(OrderStatus.FILLED, resting.getStatus());
+        assertEquals(btc, free("BTC"), 1e-12);
+        assertEquals(0.0, locked("BTC"), 1e-12);
+        assertEquals(104.0, free("BNB"), 1e-9);
+    }
+
+    @Test
+    public void testStops() {
+        engine.onTrade("BNBBTC", 0.010, 1, false);
+        Order stopLimit = place(OrderSide.SELL, OrderType.STOP_LOSS_LIMIT, TimeInForce.GTC, 1, 0.0085, 0.009);
+        Order stop = place(OrderSide.SELL, OrderType.STOP_LOSS, TimeInForce.GTC, 1, null, 0.009);
+        Order takeProfit = place(OrderSide.SELL, OrderType.TAKE_PROFIT, TimeInForce.GTC, 1, null, 0.012);
+        Order buyStop = place(OrderSide.BUY, OrderType.STOP_LOSS, TimeInForce.GTC, 1, null, 0.02);
+        engine.onTrade("BNBBTC", 0.0095, 1, true);
+        assertEquals(OrderStatus.NEW, stop.getStatus());
+
+        engine.onTrade("BNBBTC", 0.009, 1, true);
+        assertEquals(OrderStatus.FILLED, stopLimit.getStatus());
+        assertEquals(OrderStatus.FILLED, stop.getStatus());
+        assertEquals(OrderStatus.NEW, takeProfit.getStatus());
+        // the take profit order still locks its quantity
+        assertEquals(97.0, free("BNB"), 1e-9);
+        assertEquals(1.0, locked("BNB"), 1e-9);
+        assertEquals(10 - 0.02 * 1.001 + 2 * 0.009 * 0.999, free("BTC"), 1e-12);
+
+        engine.onTrade("BNBBTC", 0.0125, 1, false);
+        assertEquals(OrderStatus.FILLED, takeProfit.getStatus());
+        assertEquals(0.0, locked("BNB"), 1e-9);
+
+        assertEquals(OrderStatus.CANCELED, orderManager.deleteOrderById("BNBBTC", buyStop.getOrderId()).getStatus());
+        try {
+            orderManager.deleteOrderById("BNBBTC", buyStop.getOrderId());
+            fail("canceled twice");
+        } catch (ApiException e) {
+            // expected
+        }
+        assertEquals(0.0, locked("BTC"), 1e-12);
+    }
+
+    @Test
+    public void testOpenOrdersLockBalance() {
+        // 6.006 BTC locked by the first order, the second would overdraw the account
+        Order first = limit(OrderSide.BUY, 600, 0.010);
+        Order second = limit(OrderSide.BUY, 600, 0.010);
+        assertEquals(OrderStatus.NEW, first.getStatus());
+        assertEquals(OrderStatus.REJECTED, second.getStatus());
+        assertEquals(10 - 6.006, free("BTC"), 1e-12);
+        assertEquals(6.006, locked("BTC"), 1e-12);
+
+        assertEquals(OrderStatus.CANCELED, orderManager.deleteOrderById("BNBBTC", first.getOrderId()).getStatus());
+        assertEquals(10.0, free("BTC"), 1e-12);
+        assertEquals(0.0, locked("BTC"), 1e-12);
+    }
+
+    @Test
+    public void testConcurrentFillsOfSymbols() throws Exception {
+        int orders = 500;
+        for (int i = 0; i < orders; i++) {
+            limit(OrderSide.SELL, 0.1, 0.010);
+            place("ETHBTC", OrderSide.SELL, OrderType.LIMIT, TimeInForce.GTC, 0.1, 0.05, null);
+        }
+        // fills of both symbols book their proceeds to the shared BTC balance
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Thread eth = new Thread(() -> {
+            try {
+                barrier.await();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < orders; i++) {
+                engine.onTrade("ETHBTC", 0.05, 0.1, false);
+            }
+        });
+        eth.start();
+        barrier.await();
+        for (int i = 0; i < orders; i++) {
+            engine.onTrade("BNBBTC", 0.010, 0.1, false);
+        }
+        eth.join();
+        assertTrue(orderManager.getOpenOrders().isEmpty());
+        assertEquals(10 + orders * 0.1 * (0.010 + 0.05) * 0.999, free("BTC"), 1e-9);
+        assertEquals(100 - orders * 0.1, free("BNB"), 1e-9);
+        assertEquals(0.0, locked("ETH"), 1e-9);
+    }
+
+    @Test
+    public void testSimulatorReplay() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        try (StreamJournal journal = new StreamJournal(dir)) {
+            int depth = journal.register("bnbbtc@depth5");
+            int trades = journal.register("bnbbtc@aggTrade");
+            journal.append(depth, TimeUnit.MILLISECONDS.toNanos(START + 1000),
+                    "{\"lastUpdateId\":1,\"bids\":[[\"0.0099\",\"5\"]],\"asks\":[[\"0.0101\",\"0.4\"]]}");
+            journal.append(trades, TimeUnit.MILLISECONDS.toNanos(START + 2000), "{\"e\":\"aggTrade\",\"E\":"
+                    + (START + 2000) + ",\"s\":\"BNBBTC\",\"a\":1,\"p\":\"0.0100\",\"q\":\"3\",\"f\":1,\"l\":1,\"T\":"
+                    + (START + 2000) + ",\"m\":true,\"M\":true}");
+        }
+        SimulatorApi api = new SimulatorApi(mockApi(DefaultApi.class, account));
+        MarketReplay replay = new MarketReplay(new ReplayClock(START)).addSource(new JournalReplaySource(dir));
+        api.setReplay(replay);
+        List<ExecutionReportEvent> events = new ArrayList<>();
+        api.websocket(api.startUserDataStream(), new WebSocketUserDataAdapter() {
+            @Override
+            public void onOutboundAccountInfo(OutboundAccountInfoEvent event) {
+            }
+
+            @Override
+            public void onExecutionReport(ExecutionReportEvent event) {
+                events.add(event);
+            }
+        });
+        OrderPlacement placement = new OrderPlacement("BNBBTC", OrderSide.BUY);
+        placement.setQuantity(1.0);
+        placement.setPrice(0.0101);
+        placement.setNewClientOrderId("replayed");
+        OrderRef ref = api.createOrder(placement);
+        assertEquals(1, events.size());
+        assertEquals(ExecutionType.NEW, events.get(0).getExecutionType());
+
+        // 0.4 from the replayed depth, the rest from the replayed trade
+        replay.run();
+        assertEquals(OrderStatus.FILLED, api.getOrder(ref).getStatus());
+        assertEquals(3, events.size());
+        ExecutionReportEvent fill = events.get(1);
+        assertEquals(ExecutionType.TRADE, fill.getExecutionType());
+        assertEquals(OrderStatus.PARTIALLY_FILLED, fill.getStatus());
+        assertEquals("replayed", fill.getNewClientOrderId());
+        assertEquals(0.4, fill.getQuantityOfLastFilledTrade(), 1e-12);
+        assertEquals(0.0101, fill.getPriceOfLastFilledTrade(), 0.0);
+        assertEquals("BTC", fill.getAssetOfCommission());
+        assertEquals(Long.valueOf(START + 1000), fill.getTradeTime());
+        assertTrue(fill.isMaker());
+        ExecutionReportEvent last = events.get(2);
+        assertEquals(OrderStatus.FILLED, last.getStatus());
+        assertEquals(1.0, last.getAccumulatedQuantityOfFilledTrades(), 1e-12);
+        assertEquals(Long.valueOf(START + 2000), last.getEventTime());
+    }
+}
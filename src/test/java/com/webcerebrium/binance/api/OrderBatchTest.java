@@ -0,0 +1,172 @@
+package com.webcerebrium.binance.api;
+
+import com.google.gson.JsonParser;
+import com.webcerebrium.binance.datatype.DeleteOrderRequest;
+import com.webcerebrium.binance.datatype.ExchangeInfo;
+import com.webcerebrium.binance.datatype.Order;
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import com.webcerebrium.binance.datatype.OrderRef;
+import com.webcerebrium.binance.datatype.OrderResult;
+import com.webcerebrium.binance.datatype.OrderSide;
+import com.webcerebrium.binance.datatype.OrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+public class OrderBatchTest {
+
+    private static final String EXCHANGE_INFO = "{\"timezone\":\"UTC\",\"serverTime\":1600000000000,"
+            + "\"rateLimits\":[],\"exchangeFilters\":[],\"symbols\":[{\"symbol\":\"BNBBTC\",\"status\":\"TRADING\","
+            + "\"baseAsset\":\"BNB\",\"baseAssetPrecision\":8,\"quoteAsset\":\"BTC\",\"quotePrecision\":8,"
+            + "\"baseCommissionPrecision\":8,\"quoteCommissionPrecision\":8,\"orderTypes\":[\"LIMIT\",\"MARKET\"],"
+            + "\"icebergAllowed\":true,\"ocoAllowed\":true,\"quoteOrderQtyMarketAllowed\":true,"
+            + "\"isSpotTradingAllowed\":true,\"isMarginTradingAllowed\":false,\"filters\":[]}]}";
+
+    private final Set<Thread> callers = ConcurrentHashMap.newKeySet();
+
+    private List<OrderPlacement> ladder(String symbol, int count) {
+        List<OrderPlacement> placements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            OrderPlacement placement = new OrderPlacement(symbol, OrderSide.BUY);
+            placement.setPrice(0.001 * (i + 1));
+            placement.setQuantity(1.0);
+            placements.add(placement);
+        }
+        return placements;
+    }
+
+    /**
+     * Spies a DefaultApi so the pipelined batch implementation runs against fake order endpoints.
+     */
+    private DefaultApi fakeApi(Map<Long, OrderStatus> orders) {
+        DefaultApi api = Mockito.spy(new DefaultApi());
+        AtomicLong ids = new AtomicLong();
+        doAnswer(inv -> {
+            callers.add(Thread.currentThread());
+            OrderPlacement placement = inv.getArgument(0);
+            if (placement.getSymbol().equals("FAIL")) {
+                throw new ApiException("ERROR: -1013, Filter failure");
+            }
+            OrderRef ref = new OrderRef();
+            ref.setSymbol(placement.getSymbol());
+            ref.setOrderId(ids.incrementAndGet());
+            ref.setPlacement(placement);
+            orders.put(ref.getOrderId(), OrderStatus.NEW);
+            return ref;
+        }).when(api).createOrder(any(OrderPlacement.class));
+        doAnswer(inv -> {
+            callers.add(Thread.currentThread());
+            Long orderId = inv.getArgument(1);
+            if (orders.replace(orderId, OrderStatus.CANCELED) == null) {
+                throw new ApiException("ERROR: -2011, Unknown order sent.");
+            }
+            Order order = new Order();
+            order.setOrderId(orderId);
+            order.setStatus(OrderStatus.CANCELED);
+            return order;
+        }).when(api).deleteOrderById(anyString(), anyLong());
+        return api;
+    }
+
+    @Test
+    public void testCreateAndCancelOrders() {
+        Map<Long, OrderStatus> orders = new ConcurrentHashMap<>();
+        DefaultApi api = fakeApi(orders);
+        List<OrderResult> results = api.createOrders(ladder("BNBBTC", 20));
+        assertEquals(20, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertTrue(results.get(i).isSuccess());
+            assertSame(results.get(i).getPlacement(), results.get(i).getOrderRef().getPlacement());
+        }
+        assertEquals(20, orders.size());
+
+        List<OrderRef> refs = results.stream().map(OrderResult::getOrderRef).collect(Collectors.toList());
+        OrderRef unknown = new OrderRef();
+        unknown.setSymbol("BNBBTC");
+        unknown.setOrderId(999L);
+        refs.add(unknown);
+        List<OrderResult> canceled = api.cancelOrders(refs);
+        assertEquals(21, canceled.size());
+        assertTrue(canceled.subList(0, 20).stream().allMatch(OrderResult::isSuccess));
+        assertFalse(canceled.get(20).isSuccess());
+        assertTrue(orders.values().stream().allMatch(s -> s == OrderStatus.CANCELED));
+    }
+
+    @Test
+    public void testBatchThreadsBoundedByConnections() {
+        Map<Long, OrderStatus> orders = new ConcurrentHashMap<>();
+        DefaultApi api = fakeApi(orders);
+        api.setMaxConnections(new Semaphore(4));
+        List<OrderResult> results = api.createOrders(ladder("BNBBTC", 200));
+        api.cancelOrders(results.stream().map(OrderResult::getOrderRef).collect(Collectors.toList()));
+        assertEquals(200, orders.size());
+        assertTrue(callers.size() + " threads", callers.size() <= 4);
+    }
+
+    @Test
+    public void testAllOrNothingRollsBack() {
+        Map<Long, OrderStatus> orders = new ConcurrentHashMap<>();
+        DefaultApi api = fakeApi(orders);
+        List<OrderPlacement> placements = ladder("BNBBTC", 5);
+        placements.addAll(ladder("FAIL", 1));
+        List<OrderResult> results = api.createOrders(placements, true);
+        assertFalse(results.get(5).isSuccess());
+        assertNotNull(results.get(5).getError());
+        assertTrue(results.subList(0, 5).stream().allMatch(OrderResult::isRolledBack));
+        assertTrue(orders.values().stream().allMatch(s -> s == OrderStatus.CANCELED));
+
+        // without all-or-nothing the placed orders stay open
+        orders.clear();
+        results = api.createOrders(placements, false);
+        assertFalse(results.get(5).isSuccess());
+        assertTrue(results.subList(0, 5).stream().noneMatch(OrderResult::isRolledBack));
+        assertTrue(orders.values().stream().allMatch(s -> s == OrderStatus.NEW));
+    }
+
+    /**
+     * Creates an offline simulator trading BNBBTC at 0.020.
+     */
+    private SimulatorApi offlineSimulator() {
+        ExchangeInfo info = new ExchangeInfo(JsonParser.parseString(EXCHANGE_INFO).getAsJsonObject());
+        MarketData marketData = Mockito.mock(MarketData.class);
+        when(marketData.getExchangeInfo()).thenReturn(info);
+        when(marketData.getPrice(anyString())).thenReturn(0.020);
+        Map<String, Double> balances = new HashMap<>();
+        balances.put("BTC", 1.0);
+        return new SimulatorApi(marketData, TestAccountManager.createAccount(balances));
+    }
+
+    @Test
+    public void testSimulatorCancelOpenOrders() {
+        SimulatorApi simulatorApi = offlineSimulator();
+        List<OrderResult> results = simulatorApi.createOrders(ladder("BNBBTC", 3));
+        assertTrue(results.stream().allMatch(OrderResult::isSuccess));
+        assertEquals(3, simulatorApi.getOpenOrders().size());
+        List<Order> canceled = simulatorApi.cancelOpenOrder(DeleteOrderRequest.builder().symbol("BNBBTC").build());
+        assertEquals(3, canceled.size());
+        assertTrue(canceled.stream().allMatch(order -> order.getStatus() == OrderStatus.CANCELED));
+        assertTrue(simulatorApi.getOpenOrders().isEmpty());
+        for (OrderResult result : results) {
+            assertEquals(OrderStatus.CANCELED, simulatorApi.getOrder(result.getOrderRef()).getStatus());
+        }
+    }
+}
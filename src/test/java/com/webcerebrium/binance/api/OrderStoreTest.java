@@ -0,0 +1,129 @@
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.Order;
+import com.webcerebrium.binance.datatype.OrderSide;
+import com.webcerebrium.binance.datatype.OrderStatus;
+import com.webcerebrium.binance.datatype.Trade;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class OrderStoreTest {
+
+    private static final long START = 1_600_000_000_000L;
+
+    private static Order order(String symbol, long id, long time) {
+        Order order = new Order();
+        order.setSymbol(symbol);
+        order.setOrderId(id);
+        order.setClientOrderId("client-" + id);
+        order.setSide(id % 2 == 0 ? OrderSide.BUY : OrderSide.SELL);
+        order.setTime(time);
+        order.setStatus(OrderStatus.NEW);
+        return order;
+    }
+
+    private static Trade trade(String symbol, long id, long orderId, long time) {
+        Trade trade = new Trade();
+        trade.setSymbol(symbol);
+        trade.setId(id);
+        trade.setOrderId(orderId);
+        trade.setTime(time);
+        return trade;
+    }
+
+    @Test
+    public void testQueries() {
+        OrderStore store = new OrderStore();
+        for (long id = 1; id <= 1000; id++) {
+            Order order = order(id % 4 == 0 ? "ETHBTC" : "BNBBTC", id, START + id * 1000);
+            store.add(order);
+            if (id % 5 == 0) {
+                order.setStatus(OrderStatus.FILLED);
+                store.update(order);
+                store.addTrade(trade(order.getSymbol(), id * 10, id, order.getTime() + 1));
+                store.addTrade(trade(order.getSymbol(), id * 10 + 1, id, order.getTime() + 2));
+            }
+        }
+        assertEquals(1000, store.getOrderCount());
+        assertEquals(800, store.getOpenOrders(null).size());
+        List<Order> open = store.getOpenOrders("ETHBTC");
+        // every fourth order is ETHBTC, every fifth is filled
+        assertEquals(200, open.size());
+        assertEquals(Long.valueOf(4), open.get(0).getOrderId());
+        assertEquals(Long.valueOf(8), open.get(1).getOrderId());
+        assertEquals(Long.valueOf(77), store.getOrderByClientOrderId("client-77").getOrderId());
+
+        // from an id, in a time range, or the most recent
+        List<Order> orders = store.getOrders("BNBBTC", 100L, null, null, 3);
+        assertEquals(Long.valueOf(101), orders.get(0).getOrderId());
+        assertEquals(Long.valueOf(103), orders.get(2).getOrderId());
+        orders = store.getOrders("BNBBTC", null, START + 10_000, START + 15_000, 0);
+        assertEquals(5, orders.size());
+        assertEquals(Long.valueOf(10), orders.get(0).getOrderId());
+        assertEquals(Long.valueOf(15), orders.get(4).getOrderId());
+        orders = store.getOrders("BNBBTC", null, null, null, 2);
+        assertEquals(Long.valueOf(998), orders.get(0).getOrderId());
+        assertEquals(Long.valueOf(999), orders.get(1).getOrderId());
+        orders = store.getOrders("BNBBTC", null, START, null, o -> o.getStatus() == OrderStatus.FILLED, 1, 10);
+        assertEquals(Long.valueOf(10), orders.get(0).getOrderId());
+        assertEquals(OrderStore.DEFAULT_LIMIT, store.getOrders("BNBBTC", 0L, null, null, 0).size());
+
+        assertEquals(2, store.getTrades("BNBBTC", 55L, null, null, null, 0).size());
+        assertEquals(1, store.getTrades("BNBBTC", 55L, null, START + 55_002, null, 0).size());
+        List<Trade> trades = store.getTrades("ETHBTC", null, 200L, null, null, 3);
+        assertEquals(Long.valueOf(200), trades.get(0).getId());
+        assertEquals(Long.valueOf(201), trades.get(1).getId());
+        assertEquals(Long.valueOf(400), trades.get(2).getId());
+        trades = store.getTrades("ETHBTC", null, null, null, null, 1);
+        assertEquals(Long.valueOf(10_001), trades.get(0).getId());
+        assertTrue(store.getTrades("XRPBTC", null, null, null, null, 0).isEmpty());
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        OrderStore store = new OrderStore();
+        AtomicLong ids = new AtomicLong();
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    long id = ids.incrementAndGet();
+                    Order order = order(id % 3 == 0 ? "ETHBTC" : "BNBBTC", id, START + id);
+                    store.add(order);
+                    assertSame(order, store.getOrder(id));
+                    if (i % 1000 == 0) {
+                        store.getOpenOrders("BNBBTC");
+                    }
+                    if (id % 2 == 0) {
+                        order.setStatus(OrderStatus.CANCELED);
+                        store.update(order);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(threads * perThread, store.getOrderCount());
+        assertEquals(threads * perThread / 2, store.getOpenOrders(null).size());
+        for (Order order : store.getOpenOrders(null)) {
+            assertEquals(1, order.getOrderId() % 2);
+        }
+        long start = System.nanoTime();
+        for (long id = 1; id <= threads * perThread; id++) {
+            assertEquals(Long.valueOf(id), store.getOrder(id).getOrderId());
+        }
+        log.info("Looked up {} orders in {} ms.", threads * perThread,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,216 @@
+package com.webcerebrium.binance.api;
+
+import com.google.gson.JsonObject;
+import com.webcerebrium.binance.datatype.Order;
+import com.webcerebrium.binance.datatype.OrderRef;
+import com.webcerebrium.binance.datatype.OrderRequest;
+import com.webcerebrium.binance.datatype.OrderStatus;
+import com.webcerebrium.binance.datatype.events.ExecutionReportEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+public class OrderTrackerTest {
+
+    private Api api;
+    private OrderTracker tracker;
+
+    @Before
+    public void setUp() {
+        api = Mockito.mock(Api.class);
+        // reconcile on the reporting thread, so the tests see the result right away
+        tracker = new OrderTracker(api, Runnable::run);
+    }
+
+    private ExecutionReportEvent report(long orderId, String execType, String status,
+                                        double lastQty, double cumQty, String origClientId) {
+        JsonObject json = new JsonObject();
+        json.addProperty("e", "executionReport");
+        json.addProperty("E", System.currentTimeMillis());
+        json.addProperty("s", "BNBBTC");
+        json.addProperty("c", "client-" + orderId);
+        json.addProperty("S", "BUY");
+        json.addProperty("o", "LIMIT");
+        json.addProperty("f", "GTC");
+        json.addProperty("q", "10.0");
+        json.addProperty("p", "0.001");
+        json.addProperty("C", origClientId == null ? "" : origClientId);
+        json.addProperty("x", execType);
+        json.addProperty("X", status);
+        json.addProperty("r", "NONE");
+        json.addProperty("i", orderId);
+        json.addProperty("l", String.valueOf(lastQty));
+        json.addProperty("z", String.valueOf(cumQty));
+        json.addProperty("L", "0.001");
+        json.addProperty("n", "0");
+        json.add("N", null);
+        json.addProperty("T", System.currentTimeMillis());
+        json.addProperty("t", lastQty > 0 ? orderId * 10 : -1);
+        json.addProperty("m", false);
+        return new ExecutionReportEvent(json);
+    }
+
+    @Test
+    public void testLifecycle() throws Exception {
+        List<String> calls = new ArrayList<>();
+        tracker.addListener(new OrderListener() {
+            @Override
+            public void onPartiallyFilled(TrackedOrder order) {
+                calls.add("partial");
+            }
+
+            @Override
+            public void onFilled(TrackedOrder order) {
+                calls.add("filled");
+            }
+        });
+        TrackedOrder order = tracker.onExecutionReport(report(1, "NEW", "NEW", 0, 0, null));
+        assertTrue(tracker.isOpen(1));
+        assertSame(order, tracker.getOrderByClientOrderId("client-1"));
+        assertEquals(1, tracker.getOpenOrders("BNBBTC").size());
+
+        tracker.onExecutionReport(report(1, "TRADE", "PARTIALLY_FILLED", 4, 4, null));
+        assertEquals(OrderStatus.PARTIALLY_FILLED, order.getStatus());
+        assertEquals(6.0, order.getRemainingQty(), 1e-9);
+        assertFalse(order.whenFilled().isDone());
+
+        tracker.onExecutionReport(report(1, "TRADE", "FILLED", 6, 10, null));
+        assertEquals(OrderStatus.FILLED, order.getStatus());
+        assertSame(order, order.whenFilled().get());
+        assertFalse(tracker.isOpen(1));
+        assertTrue(tracker.getOpenOrders().isEmpty());
+        assertEquals(2, calls.size());
+        assertEquals(0, tracker.getGapCount());
+        verifyNoInteractions(api);
+    }
+
+    @Test
+    public void testCancel() {
+        TrackedOrder order = tracker.onExecutionReport(report(2, "NEW", "NEW", 0, 0, null));
+        tracker.onExecutionReport(report(2, "CANCELED", "CANCELED", 0, 0, "client-2"));
+        assertTrue(order.whenCanceled().isDone());
+        assertTrue(order.whenFilled().isCompletedExceptionally());
+        // late reports do not reopen the order
+        tracker.onExecutionReport(report(2, "NEW", "NEW", 0, 0, null));
+        assertEquals(OrderStatus.CANCELED, order.getStatus());
+        assertEquals(1, tracker.purgeClosedOrders(Long.MAX_VALUE));
+        assertNull(tracker.getOrder(2));
+    }
+
+    @Test
+    public void testGapReconciles() {
+        Order remote = new Order();
+        remote.setOrderId(3L);
+        remote.setSymbol("BNBBTC");
+        remote.setStatus(OrderStatus.FILLED);
+        remote.setExecutedQty(10.0);
+        remote.setOrigQty(10.0);
+        when(api.getOrder(any(OrderRequest.class))).thenReturn(remote);
+
+        TrackedOrder order = tracker.onExecutionReport(report(3, "NEW", "NEW", 0, 0, null));
+        // the report for the first 4 units got lost
+        tracker.onExecutionReport(report(3, "TRADE", "PARTIALLY_FILLED", 3, 7, null));
+        assertEquals(1, tracker.getGapCount());
+        verify(api).getOrder(any(OrderRequest.class));
+        assertEquals(OrderStatus.FILLED, order.getStatus());
+        assertTrue(order.whenDone().isDone());
+    }
+
+    @Test
+    public void testGapReconcilesMatchingReport() {
+        // the REST state equals the report that revealed the gap
+        Order remote = new Order();
+        remote.setOrderId(4L);
+        remote.setSymbol("BNBBTC");
+        remote.setStatus(OrderStatus.FILLED);
+        remote.setExecutedQty(10.0);
+        remote.setOrigQty(10.0);
+        when(api.getOrder(any(OrderRequest.class))).thenReturn(remote);
+        List<String> calls = new ArrayList<>();
+        tracker.addListener(new OrderListener() {
+            @Override
+            public void onFilled(TrackedOrder order) {
+                calls.add("filled");
+            }
+        });
+
+        TrackedOrder order = tracker.onExecutionReport(report(4, "NEW", "NEW", 0, 0, null));
+        // the partial fill of the first 4 units got lost
+        tracker.onExecutionReport(report(4, "TRADE", "FILLED", 6, 10, null));
+        assertEquals(1, tracker.getGapCount());
+        verify(api).getOrder(any(OrderRequest.class));
+        assertEquals(Collections.singletonList("filled"), calls);
+        assertTrue(order.whenFilled().isDone());
+        assertTrue(order.whenDone().isDone());
+    }
+
+    @Test
+    public void testGapReconcileFailureKeepsReport() {
+        when(api.getOrder(any(OrderRequest.class))).thenThrow(new ApiException("ERROR: -1003, Too many requests."));
+        TrackedOrder order = tracker.onExecutionReport(report(5, "NEW", "NEW", 0, 0, null));
+        tracker.onExecutionReport(report(5, "TRADE", "FILLED", 6, 10, null));
+        assertEquals(1, tracker.getGapCount());
+        assertEquals(OrderStatus.FILLED, order.getStatus());
+        assertTrue(order.whenFilled().isDone());
+    }
+
+    @Test
+    public void testGapReconciledInBackground() throws Exception {
+        OrderTracker background = new OrderTracker(api);
+        Thread reporter = Thread.currentThread();
+        CompletableFuture<Thread> reconciled = new CompletableFuture<>();
+        when(api.getOrder(any(OrderRequest.class))).thenAnswer(inv -> {
+            reconciled.complete(Thread.currentThread());
+            return null;
+        });
+        TrackedOrder order = background.onExecutionReport(report(6, "NEW", "NEW", 0, 0, null));
+        background.onExecutionReport(report(6, "TRADE", "FILLED", 6, 10, null));
+        assertNotSame(reporter, reconciled.get(5, TimeUnit.SECONDS));
+        assertSame(order, order.whenFilled().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReportRacingAcknowledgement() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (long orderId = 100; orderId < 600; orderId++) {
+                OrderRef ref = new OrderRef();
+                ref.setSymbol("BNBBTC");
+                ref.setOrderId(orderId);
+                ref.setClientOrderId("client-" + orderId);
+                ExecutionReportEvent fill = report(orderId, "TRADE", "FILLED", 10, 10, null);
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                Future<TrackedOrder> reported = executor.submit(() -> {
+                    barrier.await();
+                    return tracker.onExecutionReport(fill);
+                });
+                barrier.await();
+                TrackedOrder tracked = tracker.track(ref);
+                // both see the same, indexed instance, which completes
+                assertSame(tracked, reported.get());
+                assertSame(tracked, tracker.getOrder(orderId));
+                assertSame(tracked, tracker.getOrderByClientOrderId("client-" + orderId));
+                assertTrue(tracked.whenFilled().isDone());
+                assertFalse(tracker.isOpen(orderId));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
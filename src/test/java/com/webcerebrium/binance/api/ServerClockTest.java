@@ -0,0 +1,112 @@
+package com.webcerebrium.binance.api;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class ServerClockTest {
+
+    private final AtomicLong local = new AtomicLong(1_600_000_000_000L);
+
+    /**
+     * Fake server, whose clock is ahead by the given offset and drifts by the given ppm. Each sample is
+     * delayed on the request and response leg as given by the delays array, cycling through it.
+     */
+    private ServerClock clock(long offset, double driftPpm, long[][] delays) {
+        long start = local.get();
+        AtomicInteger sample = new AtomicInteger();
+        return new ServerClock(() -> {
+            long[] delay = delays[sample.getAndIncrement() % delays.length];
+            long server = local.addAndGet(delay[0]) + offset + Math.round((local.get() - start) * driftPpm / 1e6);
+            local.addAndGet(delay[1]);
+            return server;
+        }, local::get);
+    }
+
+    @Test
+    public void testMinRoundTripSampleWins() {
+        // only the fast, symmetric sample brackets the server time exactly
+        ServerClock clock = clock(1000, 0, new long[][]{{60, 10}, {5, 5}, {100, 0}, {40, 40}});
+        assertFalse(clock.isSynchronized());
+        assertEquals(7000, clock.getRecvWindow());
+
+        clock.sync();
+        assertTrue(clock.isSynchronized());
+        assertEquals(1000, clock.getOffset());
+        assertEquals(10, clock.getRoundTripMillis());
+        assertEquals(6, clock.getUncertaintyMillis());
+        assertEquals(local.get() + 1000 - 6, clock.timestamp());
+        // rtt + 2 * uncertainty + margin, bounded by the min receive window
+        assertEquals(7000, clock.getRecvWindow());
+        clock.setMinRecvWindow(500);
+        assertEquals(500, clock.getRecvWindow());
+        clock.setMinRecvWindow(0);
+        assertEquals(10 + 12 + 250, clock.getRecvWindow());
+    }
+
+    @Test
+    public void testRecvWindowBounds() {
+        ServerClock clock = clock(0, 0, new long[][]{{1, 1}});
+        clock.sync();
+        clock.setRecvWindowMarginMillis(0);
+        assertEquals(7000, clock.getRecvWindow());
+        clock.setMinRecvWindow(1);
+        assertEquals(2 + 4, clock.getRecvWindow());
+
+        ServerClock slow = clock(0, 0, new long[][]{{4000, 4000}});
+        slow.sync();
+        assertEquals(7000, slow.getRecvWindow());
+    }
+
+    @Test
+    public void testDriftEstimation() {
+        ServerClock clock = clock(-300, 50, new long[][]{{3, 3}, {20, 2}});
+        for (int i = 0; i < 10; i++) {
+            clock.sync();
+            local.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        }
+        assertEquals(50, clock.getDriftPpm(), 5);
+        // one minute after the last sync the prediction includes the drift of ~3ms
+        long expected = -300 + Math.round((TimeUnit.MINUTES.toMillis(10)) * 50 / 1e6);
+        assertEquals(expected, clock.getOffset(), 1);
+    }
+
+    @Test
+    public void testSignKeepsGivenRecvWindow() {
+        ServerClock clock = new ServerClock(0);
+        WebRequest request = new WebRequest(clock, "https://localhost/api/v3/order?symbol=BNBBTC&recvWindow=5000")
+                .sign("key", "secret", null);
+        String url = request.getRequestUrl();
+        assertEquals(url.indexOf("recvWindow="), url.lastIndexOf("recvWindow="));
+        assertTrue(url.contains("&timestamp="));
+        assertTrue(url.contains("&signature="));
+    }
+
+    @Test
+    public void testBackgroundSyncStartsAfterOnePeriod() throws Exception {
+        AtomicInteger samples = new AtomicInteger();
+        ServerClock clock = new ServerClock(() -> {
+            samples.incrementAndGet();
+            return local.get();
+        }, local::get);
+        clock.setSamplesPerSync(1);
+        clock.start(200);
+        try {
+            Thread.sleep(50);
+            assertEquals(0, samples.get());
+            long deadline = System.currentTimeMillis() + 5000;
+            while (samples.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(clock.isSynchronized());
+        } finally {
+            clock.stop();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.webcerebrium.binance.api;
+
+import com.webcerebrium.binance.datatype.events.ExecutionReportEvent;
+import com.webcerebrium.binance.datatype.events.OutboundAccountInfoEvent;
+import com.webcerebrium.binance.websocket.WebSocketUserDataAdapter;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+public class UserDataStreamManagerTest {
+
+    private SimulatorApi simulatorApi;
+    private UserDataStreamManager manager;
+
+    @Before
+    public void setUp() {
+        simulatorApi = new SimulatorApi(new DefaultApi());
+        // keepalives are always due, checks are triggered manually
+        manager = new UserDataStreamManager(0, 60_000, 0);
+    }
+
+    @After
+    public void tearDown() {
+        manager.close();
+    }
+
+    private WebSocketUserDataAdapter adapter() {
+        return new WebSocketUserDataAdapter() {
+            @Override
+            public void onOutboundAccountInfo(OutboundAccountInfoEvent event) throws ApiException {
+                log.info(event.toString());
+            }
+
+            @Override
+            public void onExecutionReport(ExecutionReportEvent event) throws ApiException {
+                log.info(event.toString());
+            }
+        };
+    }
+
+    @Test
+    public void testKeepAlive() {
+        UserDataStream stream = manager.open(simulatorApi, adapter());
+        assertNotNull(stream.getListenKey());
+        assertTrue(stream.getSession().isOpen());
+        assertTrue(stream.getKeyAgeMillis() >= 0);
+
+        manager.checkStreams();
+        assertEquals(1, stream.getKeepAliveCount());
+        assertTrue(stream.getLastKeepAliveLatencyMillis() >= 0);
+        assertEquals(0, stream.getRotationCount());
+    }
+
+    @Test
+    public void testRotateOnFailedKeepAlive() {
+        UserDataStream stream = manager.open(simulatorApi, adapter());
+        String oldKey = stream.getListenKey();
+        simulatorApi.deleteUserDataStream(oldKey);
+
+        manager.checkStreams();
+        assertEquals(1, stream.getFailureCount());
+        assertEquals(1, stream.getRotationCount());
+        assertNotEquals(oldKey, stream.getListenKey());
+        assertTrue(stream.getSession().isOpen());
+    }
+
+    @Test
+    public void testReconnectClosedSession() {
+        UserDataStream stream = manager.open(simulatorApi, UserDataStream.Type.MARGIN, adapter());
+        stream.getSession().close();
+
+        manager.checkStreams();
+        assertEquals(1, stream.getReconnectCount());
+        assertTrue(stream.getSession().isOpen());
+    }
+
+    @Test
+    public void testManyAccounts() {
+        SimulatorApi otherAccount = new SimulatorApi(new DefaultApi());
+        UserDataStream first = manager.open(simulatorApi, adapter());
+        UserDataStream second = manager.open(otherAccount, UserDataStream.Type.ISOLATED_MARGIN, adapter());
+        assertEquals(2, manager.getStreams().size());
+
+        manager.checkStreams();
+        assertEquals(1, first.getKeepAliveCount());
+        assertEquals(1, second.getKeepAliveCount());
+
+        manager.close(first);
+        assertTrue(first.isClosed());
+        assertEquals(1, manager.getStreams().size());
+    }
+
+    private static Api failingApi() {
+        Api api = Mockito.mock(Api.class);
+        Session session = Mockito.mock(Session.class);
+        when(session.isOpen()).thenReturn(true);
+        when(api.getWebsocketSession(anyString(), any())).thenReturn(session);
+        when(api.startUserDataStream()).thenReturn("first").thenThrow(new ApiException("ERROR: -1000, offline"));
+        doThrow(new ApiException("ERROR: -1125, This listenKey does not exist."))
+                .when(api).keepUserDataStream(anyString());
+        return api;
+    }
+
+    @Test
+    public void testFailedRotationCountsOnce() {
+        UserDataStream stream = manager.open(failingApi(), adapter());
+        manager.checkStreams();
+        assertEquals(1, stream.getFailureCount());
+        assertEquals(0, stream.getRotationCount());
+        assertEquals("first", stream.getListenKey());
+    }
+
+    @Test
+    public void testNoRotationAfterClose() {
+        Api api = failingApi();
+        UserDataStream stream = manager.open(api, adapter());
+        manager.close(stream);
+        stream.rotate(0);
+        assertEquals(0, stream.getRotationCount());
+        // only the first key was obtained
+        verify(api).startUserDataStream();
+        verify(api, never()).keepUserDataStream(anyString());
+    }
+}
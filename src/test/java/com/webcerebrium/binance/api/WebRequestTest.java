@@ -0,0 +1,39 @@
+package com.webcerebrium.binance.api;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class WebRequestTest {
+
+    private static final String URL = "https://api.binance.com/api/v3/order";
+
+    @Test
+    public void testSignAddsRecvWindowAndTimestamp() throws Exception {
+        ServerClock clock = new ServerClock(0);
+        WebRequest request = new WebRequest(clock, URL + "?symbol=BNBBTC&orderId=1").sign("key", "secret", null);
+        String url = request.getRequestUrl();
+        String query = url.substring(url.indexOf('?') + 1, url.indexOf("&signature="));
+        assertTrue(query.startsWith("symbol=BNBBTC&orderId=1&recvWindow=7000&timestamp="));
+        assertEquals(WebRequest.encode("secret", query), url.substring(url.indexOf("&signature=") + 11));
+    }
+
+    @Test
+    public void testSignWithGivenRecvWindowAndTimestamp() throws Exception {
+        String query = "symbol=BNBBTC&recvWindow=5000&timestamp=1600000000000";
+        WebRequest request = new WebRequest(new ServerClock(0), URL + "?" + query).sign("key", "secret", null);
+        assertEquals(URL + "?" + query + "&signature=" + WebRequest.encode("secret", query),
+                request.getRequestUrl());
+    }
+
+    @Test
+    public void testSignWithoutQuery() throws Exception {
+        WebRequest request = new WebRequest(new ServerClock(0), URL).sign("key", "secret", null);
+        String url = request.getRequestUrl();
+        assertTrue(url.startsWith(URL + "?recvWindow="));
+        String query = url.substring(url.indexOf('?') + 1, url.indexOf("&signature="));
+        assertEquals(WebRequest.encode("secret", query), url.substring(url.indexOf("&signature=") + 11));
+    }
+}
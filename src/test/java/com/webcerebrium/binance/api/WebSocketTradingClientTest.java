@@ -0,0 +1,198 @@
+package com.webcerebrium.binance.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.webcerebrium.binance.datatype.Order;
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import com.webcerebrium.binance.datatype.OrderRef;
+import com.webcerebrium.binance.datatype.OrderSide;
+import com.webcerebrium.binance.datatype.OrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+public class WebSocketTradingClientTest {
+
+    private final Gson gson = new Gson();
+    private final Map<String, JsonObject> requests = new ConcurrentHashMap<>();
+    private final ExecutorService server = Executors.newFixedThreadPool(4);
+    private DefaultApi api;
+    private WebSocketTradingClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        api = new DefaultApi("key", "secret");
+        api.setOrderTransport(OrderTransport.WEBSOCKET);
+        client = api.getTradingClient();
+
+        // fake server answering asynchronously from several threads, so responses may arrive out of order
+        Session session = Mockito.mock(Session.class);
+        RemoteEndpoint remote = Mockito.mock(RemoteEndpoint.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getRemote()).thenReturn(remote);
+        doAnswer(inv -> {
+            JsonObject request = gson.fromJson((String) inv.getArgument(0), JsonObject.class);
+            requests.put(request.get("id").getAsString(), request);
+            server.submit(() -> client.onWebSocketText(gson.toJson(respond(request))));
+            return null;
+        }).when(remote).sendString(anyString());
+        client.onWebSocketConnect(session);
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdownNow();
+    }
+
+    private JsonObject respond(JsonObject request) {
+        JsonObject params = request.getAsJsonObject("params");
+        JsonObject response = new JsonObject();
+        response.add("id", request.get("id"));
+        if (params.get("symbol").getAsString().equals("MALFORMED")) {
+            // an error without code and message
+            response.addProperty("status", 400);
+            response.add("error", new JsonObject());
+            return response;
+        }
+        if (params.get("symbol").getAsString().equals("FAIL")) {
+            response.addProperty("status", 400);
+            JsonObject error = new JsonObject();
+            error.addProperty("code", -2010);
+            error.addProperty("msg", "Account has insufficient balance for requested action.");
+            response.add("error", error);
+            return response;
+        }
+        response.addProperty("status", 200);
+        JsonObject result = new JsonObject();
+        result.add("symbol", params.get("symbol"));
+        result.addProperty("orderId", params.has("orderId")
+                ? params.get("orderId").getAsLong() : Long.parseLong(request.get("id").getAsString()));
+        result.addProperty("status", request.get("method").getAsString().equals("order.cancel") ? "CANCELED" : "NEW");
+        result.addProperty("transactTime", System.currentTimeMillis());
+        response.add("result", result);
+        return response;
+    }
+
+    private OrderPlacement placement(String symbol) {
+        OrderPlacement placement = new OrderPlacement(symbol, OrderSide.BUY);
+        placement.setPrice(0.001);
+        placement.setQuantity(1.0);
+        return placement;
+    }
+
+    @Test
+    public void testSignedRequest() throws Exception {
+        OrderRef ref = api.createOrder(placement("BNBBTC"));
+        assertEquals("BNBBTC", ref.getSymbol());
+        JsonObject request = requests.get(String.valueOf(ref.getOrderId()));
+        assertEquals("order.place", request.get("method").getAsString());
+        JsonObject params = request.getAsJsonObject("params");
+        assertEquals("key", params.get("apiKey").getAsString());
+        assertEquals("LIMIT", params.get("type").getAsString());
+
+        // the signature covers all other parameters, sorted by name
+        StringBuilder query = new StringBuilder();
+        params.keySet().stream().filter(k -> !k.equals("signature")).sorted().forEach(k -> {
+            if (query.length() > 0) query.append('&');
+            query.append(k).append('=').append(params.get(k).getAsString());
+        });
+        assertEquals(WebRequest.encode("secret", query.toString()), params.get("signature").getAsString());
+        assertEquals(1, api.getWebsocketOrderLatency().getCount());
+        assertEquals(0, api.getRestOrderLatency().getCount());
+    }
+
+    @Test
+    public void testPipelinedRequests() {
+        List<CompletableFuture<OrderRef>> futures = new ArrayList<>();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 50; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> api.createOrder(placement("BNBBTC")), callers));
+            }
+            for (CompletableFuture<OrderRef> future : futures) {
+                OrderRef ref = future.join();
+                // responses are routed to the caller that sent the request
+                assertNotNull(requests.get(String.valueOf(ref.getOrderId())));
+            }
+            assertEquals(50, api.getWebsocketOrderLatency().getCount());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConnectedRequestDoesNotLock() throws Exception {
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            // an open connection is used without taking the client's monitor
+            synchronized (client) {
+                OrderRef ref = caller.submit(() -> api.createOrder(placement("BNBBTC"))).get(5, TimeUnit.SECONDS);
+                assertEquals("BNBBTC", ref.getSymbol());
+            }
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelAndStatus() {
+        Order canceled = api.deleteOrderById("BNBBTC", 42L);
+        assertEquals(OrderStatus.CANCELED, canceled.getStatus());
+        Order order = client.getOrder("BNBBTC", 42L);
+        assertEquals(Long.valueOf(42), order.getOrderId());
+    }
+
+    @Test
+    public void testErrorResponse() {
+        try {
+            api.createOrder(placement("FAIL"));
+            fail("error response expected");
+        } catch (ApiException e) {
+            assertTrue(e.getMessage().contains("-2010"));
+        }
+        assertEquals(1, api.getWebsocketOrderLatency().getErrorCount());
+    }
+
+    @Test(timeout = 5_000)
+    public void testMalformedResponse() {
+        try {
+            api.createOrder(placement("MALFORMED"));
+            fail("error response expected");
+        } catch (ApiException e) {
+            assertTrue(e.getMessage().contains("400"));
+        }
+        // frames that cannot be parsed are dropped without failing the websocket thread
+        client.onWebSocketText("{not json");
+        client.onWebSocketText("[]");
+    }
+
+    @Test
+    public void testCancelWithoutOrderId() {
+        try {
+            api.deleteOrderById("BNBBTC", null);
+            fail("missing order id expected to be rejected");
+        } catch (ApiException e) {
+            assertTrue(e.getMessage().contains("orderId"));
+        }
+        assertTrue(requests.isEmpty());
+    }
+}
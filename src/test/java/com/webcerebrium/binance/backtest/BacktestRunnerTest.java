@@ -0,0 +1,156 @@
+package com.webcerebrium.binance.backtest;
+
+import com.google.gson.JsonParser;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.api.SimulatorApi;
+import com.webcerebrium.binance.candles.ArrayCandleSeries;
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.*;
+import com.webcerebrium.binance.datatype.events.CandlestickEvent;
+import com.webcerebrium.binance.replay.CandleReplaySource;
+import com.webcerebrium.binance.websocket.WebSocketCandlesticksAdapter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class BacktestRunnerTest {
+
+    private static final long START = 1_599_999_960_000L;
+    private static final long MINUTE = Interval.ONE_MIN.toMillis();
+    private static final int CANDLES = 100;
+    private static final String EXCHANGE_INFO = "{\"timezone\":\"UTC\",\"serverTime\":" + START
+            + ",\"symbols\":[{\"symbol\":\"BNBBTC\",\"status\":\"TRADING\",\"baseAsset\":\"BNB\","
+            + "\"baseAssetPrecision\":8,\"quoteAsset\":\"BTC\",\"quotePrecision\":8,\"baseCommissionPrecision\":8,"
+            + "\"quoteCommissionPrecision\":8,\"orderTypes\":[\"LIMIT\",\"MARKET\"],\"icebergAllowed\":true,"
+            + "\"ocoAllowed\":true,\"quoteOrderQtyMarketAllowed\":true,\"isSpotTradingAllowed\":true,"
+            + "\"isMarginTradingAllowed\":false,\"filters\":[]}]}";
+
+    private final Map<String, AtomicInteger> klines = new ConcurrentHashMap<>();
+    private CandleSeries candles;
+
+    @Before
+    public void setUp() {
+        candles = new ArrayCandleSeries("BNBBTC", Interval.ONE_MIN, CANDLES);
+        for (int i = 0; i < CANDLES; i++) {
+            Candlestick candle = new Candlestick("BNBBTC", Interval.ONE_MIN);
+            candle.setOpenTime(START + i * MINUTE);
+            candle.setCloseTime(START + (i + 1) * MINUTE - 1);
+            candle.setOpen(0.010 + i * 0.0001);
+            candle.setClose(0.010 + (i + 1) * 0.0001);
+            candle.setHigh(candle.getClose());
+            candle.setLow(candle.getOpen());
+            candle.setVolume(1.0);
+            candles.append(candle);
+        }
+    }
+
+    /** Buys at the start, sells at the end. */
+    private class BuyAndHold implements BacktestStrategy {
+        final double quantity;
+
+        BuyAndHold(double quantity) {
+            this.quantity = quantity;
+        }
+
+        @Override
+        public String getName() {
+            return "hold " + quantity;
+        }
+
+        @Override
+        public void start(SimulatorApi api) {
+            AtomicInteger count = klines.computeIfAbsent(getName(), n -> new AtomicInteger());
+            api.websocketCandlesticks("BNBBTC", Interval.ONE_MIN, new WebSocketCandlesticksAdapter() {
+                @Override
+                public void onMessage(CandlestickEvent event) {
+                    count.incrementAndGet();
+                }
+            });
+            api.createOrder(market(OrderSide.BUY, quantity));
+        }
+
+        @Override
+        public void finish(SimulatorApi api) {
+            api.createOrder(market(OrderSide.SELL, api.getAccount().getAsset("BNB").getFree()));
+        }
+    }
+
+    private static OrderPlacement market(OrderSide side, double quantity) {
+        OrderPlacement placement = new OrderPlacement("BNBBTC", side);
+        placement.setType(OrderType.MARKET);
+        placement.setQuantity(quantity);
+        return placement;
+    }
+
+    private BacktestReport run(int parallelism, List<BacktestStrategy> strategies) {
+        BacktestRunner runner = new BacktestRunner(new ExchangeInfo(JsonParser.parseString(EXCHANGE_INFO)
+                .getAsJsonObject()), "BTC", parallelism).addCandles(candles);
+        Map<String, Double> balances = new HashMap<>();
+        balances.put("BTC", 10.0);
+        balances.put("BNB", 0.0);
+        runner.setBalances(balances);
+        runner.setStartTime(START);
+        runner.setEndTime(START + CANDLES * MINUTE);
+        runner.setSources(() -> Collections.singletonList(new CandleReplaySource(candles)));
+        return runner.run(strategies);
+    }
+
+    @Test
+    public void testSweep() {
+        List<BacktestStrategy> strategies = new ArrayList<>();
+        for (int i = 1; i <= 32; i++) {
+            strategies.add(new BuyAndHold(i * 10));
+        }
+        strategies.add(new BuyAndHold(1) {
+            @Override
+            public String getName() {
+                return "broken";
+            }
+
+            @Override
+            public void start(SimulatorApi api) {
+                throw new ApiException("broken strategy");
+            }
+        });
+        BacktestReport report = run(4, strategies);
+        log.info("Swept {} strategies in {} ms.", report.size(), report.getTotalNanos() / 1_000_000);
+        assertEquals(33, report.size());
+
+        BacktestReport sequential = run(1, strategies);
+        for (int i = 0; i < 32; i++) {
+            assertEquals("hold " + (i + 1) * 10.0, report.getName(i));
+            assertNull(report.getError(i));
+            assertEquals(2, report.getOrders(i));
+            assertEquals(2, report.getFills(i));
+            assertEquals(10.0, report.getStartValue(i), 1e-12);
+            assertTrue(report.getPnl(i) > 0);
+            assertTrue(report.getFees(i) > 0);
+            // runs are isolated, so the results do not depend on the parallelism
+            assertEquals(sequential.getPnl(i), report.getPnl(i), 0.0);
+            assertEquals(sequential.getFees(i), report.getFees(i), 0.0);
+        }
+        // bought at the first open, sold at the last close
+        assertEquals(10 * (0.020 - 0.010) - 10 * (0.020 + 0.010) * 0.001, report.getPnl(0), 1e-12);
+        assertEquals(10 * (0.020 + 0.010), report.getVolume(0), 1e-12);
+        assertEquals(10 * (0.020 + 0.010) * 0.001, report.getFees(0), 1e-12);
+        assertEquals(2 * CANDLES, klines.get("hold 10.0").get());
+
+        assertEquals(31, report.getBest());
+        assertEquals("broken strategy", report.getError(32).getMessage());
+        assertTrue(Double.isNaN(report.getPnl(32)));
+        String csv = report.toString();
+        assertTrue(csv.startsWith("name,startValue,endValue,pnl,"));
+        assertEquals(34, csv.split("\n").length);
+    }
+}
@@ -0,0 +1,127 @@
+package com.webcerebrium.binance.candles;
+
+import com.google.gson.JsonObject;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.Interval;
+import com.webcerebrium.binance.datatype.events.AggregatedTradeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class CandleBuilderTest {
+
+    // aligned to the minute
+    private static final long START = 1_600_000_020_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Bar> closed = new ArrayList<>();
+
+    private static AggregatedTradeEvent event(long id, long time, double price, double quantity, boolean maker) {
+        JsonObject json = new JsonObject();
+        json.addProperty("e", "aggTrade");
+        json.addProperty("E", time);
+        json.addProperty("s", "BNBBTC");
+        json.addProperty("a", id);
+        json.addProperty("p", String.valueOf(price));
+        json.addProperty("q", String.valueOf(quantity));
+        json.addProperty("f", id * 2);
+        json.addProperty("l", id * 2 + 1);
+        json.addProperty("T", time);
+        json.addProperty("m", maker);
+        return new AggregatedTradeEvent(json);
+    }
+
+    @Test
+    public void testTimeBars() {
+        BarSpec fifteenSeconds = BarSpec.time(15, TimeUnit.SECONDS);
+        assertNull(fifteenSeconds.getInterval());
+        assertEquals(Interval.ONE_MIN, BarSpec.time(60, TimeUnit.SECONDS).getInterval());
+        CandleBuilder builder = new CandleBuilder("BNBBTC", bar -> closed.add(bar.copy()),
+                fifteenSeconds, BarSpec.time(Interval.ONE_MIN));
+
+        builder.onTrade(event(1, START + 1_000, 10, 1, false));
+        builder.onTrade(event(2, START + 5_000, 12, 2, true));
+        builder.onTrade(event(3, START + 14_999, 9, 1, false));
+        assertTrue(closed.isEmpty());
+        builder.onTrade(event(4, START + 16_000, 11, 4, true));
+
+        assertEquals(1, closed.size());
+        Bar bar = closed.get(0);
+        long bucket = START;
+        assertEquals(bucket, bar.getOpenTime());
+        assertEquals(bucket + 14_999, bar.getCloseTime());
+        assertEquals(10, bar.getOpen(), 0.0);
+        assertEquals(12, bar.getHigh(), 0.0);
+        assertEquals(9, bar.getLow(), 0.0);
+        assertEquals(9, bar.getClose(), 0.0);
+        assertEquals(4, bar.getVolume(), 0.0);
+        assertEquals(10 + 24 + 9, bar.getQuoteVolume(), 1e-9);
+        assertEquals(2, bar.getTakerBuyVolume(), 0.0);
+        assertEquals(6, bar.getTrades());
+        assertEquals(1, bar.getFirstTradeId());
+        assertEquals(3, bar.getLastTradeId());
+
+        // the minute bar is still open until the time passes its end
+        assertEquals(8, builder.getOpenBar(1).getVolume(), 0.0);
+        builder.advanceTime(START + 60_000);
+        assertEquals(3, closed.size());
+        assertEquals(Interval.ONE_MIN, closed.get(2).getSpec().getInterval());
+        assertNull(builder.getOpenBar(1));
+    }
+
+    @Test
+    public void testVolumeAndTickBars() {
+        CandleBuilder builder = new CandleBuilder("BNBBTC", bar -> closed.add(bar.copy()),
+                BarSpec.volume(5), BarSpec.ticks(4));
+        for (int i = 0; i < 10; i++) {
+            builder.onTrade(START + i, 100 + i, 1.5, i % 2 == 0, i, 1);
+        }
+        builder.flush();
+
+        List<Bar> volume = new ArrayList<>();
+        List<Bar> ticks = new ArrayList<>();
+        for (Bar bar : closed) {
+            (bar.getSpec().getType() == BarSpec.Type.VOLUME ? volume : ticks).add(bar);
+        }
+        // 4 trades of 1.5 reach 5, the last bar is flushed incomplete
+        assertEquals(3, volume.size());
+        assertEquals(6, volume.get(0).getVolume(), 0.0);
+        assertEquals(START, volume.get(0).getOpenTime());
+        assertEquals(START + 3, volume.get(0).getCloseTime());
+        assertEquals(103, volume.get(0).getClose(), 0.0);
+        assertEquals(3, volume.get(2).getVolume(), 0.0);
+        assertEquals(3, ticks.size());
+        assertEquals(4, ticks.get(0).getTrades());
+        assertEquals(2, ticks.get(2).getTrades());
+        assertEquals(3.0, ticks.get(1).getTakerBuyVolume(), 0.0);
+    }
+
+    @Test
+    public void testAppendToStore() throws Exception {
+        try (CandleStore store = new CandleStore(folder.getRoot().toPath())) {
+            CandleBuilder builder = new CandleBuilder("BNBBTC", CandleBuilder.appendingTo(store),
+                    BarSpec.time(Interval.ONE_MIN), BarSpec.time(30, TimeUnit.SECONDS));
+            long minute = START;
+            for (int i = 0; i < 5; i++) {
+                builder.onTrade(event(i, minute + i * 60_000 + 10, 10 + i, 1, false));
+            }
+            builder.flush();
+            CandleSeries series = store.getSeries("BNBBTC", Interval.ONE_MIN);
+            assertEquals(5, series.size());
+            Candlestick candle = series.get(4);
+            assertEquals(Long.valueOf(minute + 4 * 60_000), candle.getOpenTime());
+            assertEquals(Double.valueOf(14), candle.getClose());
+            assertEquals(Long.valueOf(2), candle.getNumberOfTrades());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.Interval;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class CandleStoreTest {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long MINUTE = Interval.ONE_MIN.toMillis();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Candlestick candle(long openTime, double close) {
+        Candlestick candle = new Candlestick("BNBBTC", Interval.ONE_MIN);
+        candle.setOpenTime(openTime);
+        candle.setCloseTime(openTime + MINUTE - 1);
+        candle.setOpen(close - 1);
+        candle.setHigh(close + 1);
+        candle.setLow(close - 2);
+        candle.setClose(close);
+        candle.setVolume(10.0);
+        candle.setQuoteAssetVolume(close * 10);
+        candle.setNumberOfTrades(42L);
+        candle.setTakerBuyBaseAssetVolume(4.0);
+        candle.setTakerBuyQuoteAssetVolume(close * 4);
+        return candle;
+    }
+
+    private static void fill(CandleSeries series, int count) {
+        for (int i = 0; i < count; i++) {
+            series.append(candle(START + i * MINUTE, i));
+        }
+    }
+
+    @Test
+    public void testArraySeries() {
+        CandleSeries series = new ArrayCandleSeries("BNBBTC", Interval.ONE_MIN, 4);
+        fill(series, 100);
+        assertEquals(100, series.size());
+        assertEquals(57.0, series.getClose(57), 0.0);
+        assertEquals(57, series.indexOf(START + 57 * MINUTE));
+        assertEquals(-101, series.indexOf(START + 200 * MINUTE));
+        assertEquals(candle(START + 3 * MINUTE, 3), series.get(3));
+        assertEquals(Double.valueOf(3.0), series.get(3).getClose());
+
+        // the open candle is updated in place, older candles are rejected
+        series.append(candle(START + 99 * MINUTE, 1000));
+        assertEquals(100, series.size());
+        assertEquals(1000.0, series.getClose(99), 0.0);
+        try {
+            series.append(candle(START, 1));
+            fail("older candle accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        int count = MappedCandleSeries.CHUNK_ROWS * 2 + 17;
+        try (CandleStore store = new CandleStore(dir)) {
+            MappedCandleSeries series = store.getSeries("BNBBTC", Interval.ONE_MIN);
+            fill(series, count);
+            // 1m and 1M are different series
+            store.getSeries("BNBBTC", Interval.ONE_MONTH).append(candle(START, 1));
+            store.force();
+        }
+        assertTrue(Files.exists(dir.resolve(CandleStore.fileName("BNBBTC", Interval.ONE_MIN))));
+
+        try (CandleStore store = new CandleStore(dir)) {
+            assertTrue(store.hasSeries("BNBBTC", Interval.ONE_MIN));
+            assertFalse(store.hasSeries("ETHBTC", Interval.ONE_MIN));
+            MappedCandleSeries series = store.getSeries("BNBBTC", Interval.ONE_MIN);
+            assertEquals(count, series.size());
+            assertEquals(1, store.getSeries("BNBBTC", Interval.ONE_MONTH).size());
+            for (int i = 0; i < count; i += 997) {
+                assertEquals(START + i * MINUTE, series.getOpenTime(i));
+                assertEquals(i, series.getClose(i), 0.0);
+                assertEquals(42, series.getNumberOfTrades(i));
+            }
+            assertEquals(count - 1, series.indexOf(series.getLastOpenTime()));
+            List<Candlestick> view = series.asList();
+            assertEquals(count, view.size());
+            assertEquals(candle(START + 5000 * MINUTE, 5000), view.get(5000));
+
+            // appending continues after the stored rows
+            series.append(candle(START + count * MINUTE, count));
+            assertEquals(count + 1, series.size());
+        }
+    }
+
+    @Test(expected = ApiException.class)
+    public void testRejectForeignFile() {
+        Path file = folder.getRoot().toPath().resolve("series.candles");
+        MappedCandleSeries.open(file, "BNBBTC", Interval.ONE_MIN).close();
+        MappedCandleSeries.open(file, "ETHBTC", Interval.ONE_MIN);
+    }
+}
@@ -0,0 +1,116 @@
+package com.webcerebrium.binance.candles;
+
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.Interval;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class IntervalResamplerTest {
+
+    private static final long HOUR = Interval.ONE_HOUR.toMillis();
+
+    private static long utc(int year, int month, int day) {
+        return ZonedDateTime.of(year, month, day, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private static Candlestick candle(long openTime, int i) {
+        Candlestick candle = new Candlestick("BNBBTC", Interval.ONE_HOUR);
+        candle.setOpenTime(openTime);
+        candle.setCloseTime(openTime + HOUR - 1);
+        candle.setOpen(100.0 + i);
+        candle.setHigh(101.0 + i + (i % 7));
+        candle.setLow(99.0 + i - (i % 5));
+        candle.setClose(100.5 + i);
+        candle.setVolume(1.0);
+        candle.setQuoteAssetVolume(100.0 + i);
+        candle.setNumberOfTrades(3L);
+        candle.setTakerBuyBaseAssetVolume(0.5);
+        candle.setTakerBuyQuoteAssetVolume(50.0);
+        return candle;
+    }
+
+    @Test
+    public void testCalendarBoundaries() {
+        // hourly candles from 2020-01-30 to 2020-03-02, crossing the leap day
+        long start = utc(2020, 1, 30);
+        long end = utc(2020, 3, 2) + 5 * HOUR;
+        ArrayCandleSeries hours = new ArrayCandleSeries("BNBBTC", Interval.ONE_HOUR, 16);
+        int count = 0;
+        for (long t = start; t < end; t += HOUR) {
+            hours.append(candle(t, count++));
+        }
+
+        CandleSeries months = IntervalResampler.resample(hours, Interval.ONE_MONTH);
+        assertEquals(3, months.size());
+        assertEquals(utc(2020, 2, 1), months.getOpenTime(1));
+        assertEquals(utc(2020, 3, 1) - 1, months.getCloseTime(1));
+        assertEquals(29 * 24, months.getVolume(1), 0.0);
+        assertEquals(29 * 24 * 3, months.getNumberOfTrades(1));
+        int first = hours.indexOf(utc(2020, 2, 1));
+        int last = hours.indexOf(utc(2020, 3, 1)) - 1;
+        assertEquals(hours.getOpen(first), months.getOpen(1), 0.0);
+        assertEquals(hours.getClose(last), months.getClose(1), 0.0);
+        double high = Double.NEGATIVE_INFINITY;
+        double low = Double.POSITIVE_INFINITY;
+        for (int i = first; i <= last; i++) {
+            high = Math.max(high, hours.getHigh(i));
+            low = Math.min(low, hours.getLow(i));
+        }
+        assertEquals(high, months.getHigh(1), 0.0);
+        assertEquals(low, months.getLow(1), 0.0);
+        // the current month is incomplete
+        assertEquals(24 + 5, months.getVolume(2), 0.0);
+
+        CandleSeries weeks = IntervalResampler.resample(hours, Interval.ONE_WEEK);
+        // 2020-01-30 is a Thursday, the first week started on Monday 2020-01-27
+        assertEquals(utc(2020, 1, 27), weeks.getOpenTime(0));
+        assertEquals(utc(2020, 2, 3), weeks.getOpenTime(1));
+        assertEquals(7 * 24, weeks.getVolume(1), 0.0);
+    }
+
+    @Test
+    public void testIncrementalMatchesBatch() {
+        long start = utc(2021, 5, 30);
+        ArrayCandleSeries hours = new ArrayCandleSeries("BNBBTC", Interval.ONE_HOUR, 16);
+        ArrayCandleSeries fourHours = new ArrayCandleSeries("BNBBTC", Interval.FOUR_HOURS, 16);
+        ArrayCandleSeries days = new ArrayCandleSeries("BNBBTC", Interval.ONE_DAY, 16);
+        ArrayCandleSeries months = new ArrayCandleSeries("BNBBTC", Interval.ONE_MONTH, 16);
+        IntervalResampler resampler = new IntervalResampler(hours, fourHours, days, months);
+        for (int i = 0; i < 24 * 40; i++) {
+            long t = start + i * HOUR;
+            // each live candle is seen while open, then closed
+            Candlestick open = candle(t, i);
+            open.setClose(1.0);
+            open.setVolume(0.1);
+            hours.append(open);
+            resampler.update();
+            hours.append(candle(t, i));
+            resampler.update();
+        }
+        for (Interval interval : new Interval[]{Interval.FOUR_HOURS, Interval.ONE_DAY, Interval.ONE_MONTH}) {
+            CandleSeries batch = IntervalResampler.resample(hours, interval);
+            CandleSeries live = resampler.getTargets().get(interval == Interval.FOUR_HOURS ? 0
+                    : interval == Interval.ONE_DAY ? 1 : 2);
+            assertEquals(batch.size(), live.size());
+            for (int i = 0; i < batch.size(); i++) {
+                assertEquals(batch.get(i), live.get(i));
+                assertEquals(batch.getClose(i), live.getClose(i), 0.0);
+                assertEquals(batch.getVolume(i), live.getVolume(i), 1e-9);
+                assertEquals(batch.getHigh(i), live.getHigh(i), 0.0);
+            }
+        }
+        assertEquals(3, months.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectMisalignedInterval() {
+        new IntervalResampler(new ArrayCandleSeries("BNBBTC", Interval.THREE_DAYS, 1),
+                new ArrayCandleSeries("BNBBTC", Interval.ONE_WEEK, 1));
+    }
+}
@@ -26,6 +26,9 @@ package com.webcerebrium.binance.datatype;
 
 import junit.framework.TestCase;
 
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
 public class BinanceIntervalTest extends TestCase {
 
     public void testGetValue() {
@@ -44,4 +47,36 @@ public class BinanceIntervalTest extends TestCase {
 
     public void testValueOf() {
     }
-}
\ No newline at end of file
+
+    private static long utc(int year, int month, int day, int hour) {
+        return ZonedDateTime.of(year, month, day, hour, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    public void testCalendarAlignment() {
+        long time = utc(2020, 2, 13, 17) + 123;
+        assertEquals(utc(2020, 2, 13, 17), Interval.ONE_HOUR.getOpenTime(time));
+        assertEquals(utc(2020, 2, 13, 16), Interval.FOUR_HOURS.getOpenTime(time));
+        assertEquals(utc(2020, 2, 13, 0), Interval.ONE_DAY.getOpenTime(time));
+        // 2020-02-13 is a Thursday, weeks start on Monday
+        assertEquals(utc(2020, 2, 10, 0), Interval.ONE_WEEK.getOpenTime(time));
+        assertEquals(utc(2020, 2, 17, 0), Interval.ONE_WEEK.getNextOpenTime(time));
+        // calendar months, including the leap day
+        assertEquals(utc(2020, 2, 1, 0), Interval.ONE_MONTH.getOpenTime(time));
+        assertEquals(utc(2020, 3, 1, 0), Interval.ONE_MONTH.getNextOpenTime(time));
+        assertEquals(utc(2020, 3, 1, 0) - 1, Interval.ONE_MONTH.getCloseTime(time));
+        assertEquals(utc(2019, 12, 1, 0), Interval.ONE_MONTH.getOpenTime(utc(2020, 1, 1, 0) - 1));
+        assertFalse(Interval.ONE_MONTH.isFixedLength());
+        assertTrue(Interval.ONE_WEEK.isFixedLength());
+    }
+
+    public void testIsMultipleOf() {
+        assertTrue(Interval.ONE_HOUR.isMultipleOf(Interval.ONE_MIN));
+        assertTrue(Interval.ONE_HOUR.isMultipleOf(Interval.FIFTEEN_MIN));
+        assertFalse(Interval.FIVE_MIN.isMultipleOf(Interval.THREE_MIN));
+        assertTrue(Interval.ONE_WEEK.isMultipleOf(Interval.ONE_DAY));
+        assertFalse(Interval.ONE_WEEK.isMultipleOf(Interval.THREE_DAYS));
+        assertTrue(Interval.ONE_MONTH.isMultipleOf(Interval.TWELVE_HOURS));
+        assertFalse(Interval.ONE_MONTH.isMultipleOf(Interval.ONE_WEEK));
+        assertFalse(Interval.ONE_MIN.isMultipleOf(Interval.ONE_HOUR));
+    }
+}
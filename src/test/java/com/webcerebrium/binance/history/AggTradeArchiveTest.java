@@ -0,0 +1,200 @@
+package com.webcerebrium.binance.history;
+
+import com.google.gson.Gson;
+import com.webcerebrium.binance.api.Api;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.AggregatedTrades;
+import com.webcerebrium.binance.datatype.AggregatedTradesRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+public class AggTradeArchiveTest {
+
+    // 2020-01-01T22:00:00Z
+    private static final long START = 1_577_916_000_000L;
+    private static final int TRADES = 30_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<AggregatedTrades> history = new ArrayList<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private Api api;
+
+    @Before
+    public void setUp() {
+        Gson gson = new Gson();
+        Random random = new Random(7);
+        long time = START;
+        long tradeId = 1000;
+        long price = 723_456_789L;
+        for (int i = 0; i < TRADES; i++) {
+            time += random.nextInt(10_000);
+            price += random.nextInt(2001) - 1000;
+            long count = random.nextInt(3);
+            String json = String.format("{\"a\":%d,\"p\":\"%d.%08d\",\"q\":\"%d.%08d\",\"f\":%d,\"l\":%d,\"T\":%d,"
+                            + "\"m\":%b,\"M\":%b}", 500 + i, price / 100_000_000, price % 100_000_000,
+                    random.nextInt(50), random.nextInt(100_000_000), tradeId, tradeId + count, time,
+                    random.nextBoolean(), random.nextInt(10) > 0);
+            history.add(gson.fromJson(json, AggregatedTrades.class));
+            tradeId += count + 1 + (random.nextInt(100) == 0 ? 5 : 0);
+        }
+        api = Mockito.mock(Api.class);
+        when(api.getAggregatedTrades(any(AggregatedTradesRequest.class))).thenAnswer(inv -> {
+            AggregatedTradesRequest request = inv.getArgument(0);
+            if (request.getSymbol().equals("BROKEN")) {
+                throw new ApiException("ERROR: -1121, Invalid symbol.");
+            }
+            if (failures.incrementAndGet() % 10 == 0) {
+                throw new ApiException("ERROR: -1003, Too many requests.");
+            }
+            List<AggregatedTrades> page = new ArrayList<>();
+            for (AggregatedTrades trade : history) {
+                if (request.getFromId() != null) {
+                    if (trade.getTradeId() >= request.getFromId() && page.size() < request.getLimit()) {
+                        page.add(trade);
+                    }
+                } else if (trade.getTimestamp() >= request.getStartTime()
+                        && trade.getTimestamp() <= request.getEndTime()) {
+                    page.add(trade);
+                }
+            }
+            return page;
+        });
+    }
+
+    private static class Collector implements AggTradeVisitor {
+        final List<long[]> trades = new ArrayList<>();
+        final List<double[]> values = new ArrayList<>();
+
+        @Override
+        public void onTrade(long aggregatedTradeId, long firstTradeId, long lastTradeId, long time, double price,
+                            double quantity, boolean buyerMaker, boolean bestMatch) {
+            trades.add(new long[]{aggregatedTradeId, firstTradeId, lastTradeId, time, buyerMaker ? 1 : 0,
+                    bestMatch ? 1 : 0});
+            values.add(new double[]{price, quantity});
+        }
+    }
+
+    private void assertArchived(AggTradeArchive archive, String symbol, long endTime) {
+        Collector collector = new Collector();
+        archive.scan(symbol, LocalDate.MIN, LocalDate.MAX, collector);
+        int expected = 0;
+        for (AggregatedTrades trade : history) {
+            if (trade.getTimestamp() < endTime) {
+                long[] t = collector.trades.get(expected);
+                double[] v = collector.values.get(expected);
+                assertEquals(trade.getTradeId(), t[0]);
+                assertEquals(trade.getFirstTradeId(), t[1]);
+                assertEquals(trade.getLastTradeId(), t[2]);
+                assertEquals(trade.getTimestamp(), t[3]);
+                assertEquals(trade.wasMaker(), t[4] == 1);
+                assertEquals(trade.wasBestPrice(), t[5] == 1);
+                // fixed-point decoding restores the exact doubles of the decimal strings
+                assertEquals(trade.getPrice(), v[0], 0.0);
+                assertEquals(trade.getQuantity(), v[1], 0.0);
+                expected++;
+            }
+        }
+        assertEquals(expected, collector.trades.size());
+    }
+
+    @Test
+    public void testDownloadAndResume() throws Exception {
+        Path root = folder.getRoot().toPath();
+        long middle = history.get(TRADES / 2).getTimestamp();
+        long end = history.get(TRADES - 1).getTimestamp() + 1;
+        try (AggTradeArchive archive = new AggTradeArchive(root)) {
+            AggTradeDownloader downloader = new AggTradeDownloader(api, archive, 4);
+            downloader.setRetryDelayMillis(1);
+            List<AggTradeDownloadResult> results = downloader.download(
+                    Arrays.asList("BNBBTC", "ETHBTC", "BROKEN"), START + 3_600_000, middle);
+            assertTrue(results.get(0).isComplete());
+            assertTrue(results.get(1).isComplete());
+            assertFalse(results.get(2).isComplete());
+            long expected = history.stream()
+                    .filter(t -> t.getTimestamp() >= START + 3_600_000 && t.getTimestamp() < middle).count();
+            assertEquals(expected, results.get(0).getTrades());
+            assertEquals(expected, results.get(1).getTrades());
+            assertTrue(results.get(0).getRetries() + results.get(1).getRetries() > 0);
+        }
+
+        // a second run continues after the archived trades
+        try (AggTradeArchive archive = new AggTradeArchive(root)) {
+            long last = archive.getLastTradeId("BNBBTC");
+            AggTradeDownloader downloader = new AggTradeDownloader(api, archive, 4);
+            downloader.setRetryDelayMillis(1);
+            AggTradeDownloadResult result = downloader.download(Arrays.asList("BNBBTC"), START, end).get(0);
+            assertTrue(result.isComplete());
+            assertEquals(history.get(TRADES - 1).getTradeId(), result.getLastTradeId());
+            assertEquals(result.getLastTradeId() - last, result.getTrades());
+        }
+
+        try (AggTradeArchive archive = new AggTradeArchive(root)) {
+            List<LocalDate> days = archive.getDays("BNBBTC");
+            assertEquals(LocalDate.of(2020, 1, 1), days.get(0));
+            assertTrue(days.size() >= 3);
+            // the first hour was excluded by the start time of the first run
+            List<AggregatedTrades> expected = new ArrayList<>();
+            for (AggregatedTrades trade : history) {
+                if (trade.getTimestamp() >= START + 3_600_000) {
+                    expected.add(trade);
+                }
+            }
+            history.clear();
+            history.addAll(expected);
+            assertArchived(archive, "BNBBTC", end);
+
+            long bytes = 0;
+            for (LocalDate day : days) {
+                bytes += Files.size(archive.file("BNBBTC", day)) - AggTradeArchive.HEADER_SIZE;
+            }
+            log.info("{} bytes per trade", bytes / (double) expected.size());
+            assertTrue(bytes / (double) expected.size() < 16);
+        }
+    }
+
+    @Test
+    public void testAppendIsIdempotent() {
+        try (AggTradeArchive archive = new AggTradeArchive(folder.getRoot().toPath())) {
+            assertEquals(-1, archive.getLastTradeId("BNBBTC"));
+            assertEquals(1000, archive.append("BNBBTC", history.subList(0, 1000)));
+            // overlapping pages only add the new trades
+            assertEquals(500, archive.append("BNBBTC", history.subList(500, 1500)));
+            assertEquals(history.get(1499).getTradeId(), archive.getLastTradeId("BNBBTC"));
+        }
+        try (AggTradeArchive archive = new AggTradeArchive(folder.getRoot().toPath())) {
+            assertEquals(history.get(1499).getTradeId(), archive.getLastTradeId("BNBBTC"));
+            archive.append("BNBBTC", history.subList(1500, TRADES));
+            assertArchived(archive, "BNBBTC", Long.MAX_VALUE);
+
+            AtomicLong volume = new AtomicLong();
+            long begin = System.nanoTime();
+            long count = 0;
+            for (int i = 0; i < 200; i++) {
+                count += archive.scan("BNBBTC", LocalDate.MIN, LocalDate.MAX,
+                        (id, first, last, time, price, quantity, maker, best) -> volume.addAndGet(last - first + 1));
+            }
+            log.info("Scanned {} trades/s", count * 1_000_000_000L / (System.nanoTime() - begin));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.webcerebrium.binance.history;
+
+import com.webcerebrium.binance.api.Api;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.CandlesticksRequest;
+import com.webcerebrium.binance.datatype.Interval;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+public class KlineBackfillTest {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long MINUTE = Interval.ONE_MIN.toMillis();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Api api;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Set<Long> failedOnce = ConcurrentHashMap.newKeySet();
+
+    @Before
+    public void setUp() {
+        api = Mockito.mock(Api.class);
+        when(api.getCandlestickBars(any(CandlesticksRequest.class))).thenAnswer(inv -> {
+            CandlesticksRequest request = inv.getArgument(0);
+            calls.incrementAndGet();
+            if (request.getSymbol().equals("BROKEN")) {
+                throw new ApiException("ERROR: -1121, Invalid symbol.");
+            }
+            // every third page fails on its first attempt
+            if ((request.getStartTime() / MINUTE) % 3 == 0 && failedOnce.add(request.getStartTime())) {
+                throw new ApiException("ERROR: -1003, Too many requests.");
+            }
+            Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+            List<Candlestick> page = new ArrayList<>();
+            long interval = request.getInterval().toMillis();
+            for (long t = request.getStartTime(); t <= request.getEndTime() && page.size() < request.getLimit(); t += interval) {
+                Candlestick candle = new Candlestick(request.getSymbol(), request.getInterval());
+                candle.setOpenTime(t);
+                candle.setCloseTime(t + interval - 1);
+                candle.setClose((double) t);
+                page.add(candle);
+            }
+            return page;
+        });
+    }
+
+    private BackfillRequest request(String symbol, long minutes) {
+        return BackfillRequest.builder()
+                .symbol(symbol)
+                .interval(Interval.ONE_MIN)
+                .startTime(START)
+                .endTime(START + minutes * MINUTE)
+                .build();
+    }
+
+    private static class CollectingSink implements CandlestickSink {
+        final Map<String, List<Candlestick>> candles = new ConcurrentHashMap<>();
+        final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void onPage(BackfillRequest request, List<Candlestick> page) {
+            candles.computeIfAbsent(request.getSymbol(), s -> new ArrayList<>()).addAll(page);
+        }
+
+        @Override
+        public void onComplete(BackfillRequest request) {
+            completed.add(request.getSymbol());
+        }
+    }
+
+    private static void assertContiguous(List<Candlestick> candles, long from, long count) {
+        assertEquals(count, candles.size());
+        for (int i = 0; i < candles.size(); i++) {
+            assertEquals(Long.valueOf(from + i * MINUTE), candles.get(i).getOpenTime());
+        }
+    }
+
+    @Test
+    public void testBackfillInOrder() {
+        KlineBackfill backfill = new KlineBackfill(api, 8);
+        backfill.setPageSize(100);
+        backfill.setRetryDelayMillis(1);
+        CollectingSink sink = new CollectingSink();
+        List<BackfillResult> results = backfill.run(Arrays.asList(
+                request("BNBBTC", 2_000), request("ETHBTC", 1_050), request("BROKEN", 500)), sink);
+
+        assertTrue(results.get(0).isComplete());
+        assertEquals(20, results.get(0).getPages());
+        assertContiguous(sink.candles.get("BNBBTC"), START, 2_000);
+        assertTrue(results.get(1).isComplete());
+        assertEquals(11, results.get(1).getPages());
+        assertContiguous(sink.candles.get("ETHBTC"), START, 1_050);
+        assertTrue(results.get(0).getRetries() > 0);
+
+        assertFalse(results.get(2).isComplete());
+        assertNotNull(results.get(2).getError());
+        assertFalse(sink.candles.containsKey("BROKEN"));
+        assertEquals(new java.util.HashSet<>(Arrays.asList("BNBBTC", "ETHBTC")), sink.completed);
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("backfill.properties");
+        BackfillRequest request = request("BNBBTC", 1_000);
+
+        // the sink fails after 4 pages, e.g. because the process is killed
+        KlineBackfill first = new KlineBackfill(api, 4);
+        first.setPageSize(100);
+        first.setRetryDelayMillis(1);
+        first.setCheckpoint(new FileBackfillCheckpoint(file));
+        CollectingSink failing = new CollectingSink() {
+            @Override
+            public void onPage(BackfillRequest r, List<Candlestick> page) {
+                if (candles.getOrDefault(r.getSymbol(), new ArrayList<>()).size() >= 400) {
+                    throw new IllegalStateException("disk full");
+                }
+                super.onPage(r, page);
+            }
+        };
+        BackfillResult result = first.run(Arrays.asList(request), failing).get(0);
+        assertFalse(result.isComplete());
+        assertEquals(START + 400 * MINUTE, result.getPosition());
+
+        KlineBackfill second = new KlineBackfill(api, 4);
+        second.setPageSize(100);
+        second.setRetryDelayMillis(1);
+        second.setCheckpoint(new FileBackfillCheckpoint(file));
+        CollectingSink sink = new CollectingSink();
+        calls.set(0);
+        result = second.run(Arrays.asList(request), sink).get(0);
+        assertTrue(result.isComplete());
+        assertContiguous(sink.candles.get("BNBBTC"), START + 400 * MINUTE, 600);
+        // nothing before the checkpoint is fetched again
+        assertTrue(calls.get() <= 6 + 2);
+    }
+
+    @Test(timeout = 30_000)
+    public void testCheckpointFailureFailsSeries() {
+        KlineBackfill backfill = new KlineBackfill(api, 4);
+        backfill.setPageSize(100);
+        backfill.setRetryDelayMillis(1);
+        backfill.setMaxBufferedPages(2);
+        backfill.setCheckpoint(new BackfillCheckpoint() {
+            @Override
+            public Long getPosition(BackfillRequest request) {
+                return null;
+            }
+
+            @Override
+            public void setPosition(BackfillRequest request, long position) {
+                if (request.getSymbol().equals("BNBBTC") && position > START + 300 * MINUTE) {
+                    throw new ApiException("checkpoint not writable");
+                }
+            }
+        });
+        CollectingSink sink = new CollectingSink();
+        List<BackfillResult> results = backfill.run(Arrays.asList(
+                request("BNBBTC", 1_000), request("ETHBTC", 1_000)), sink);
+
+        // the failed series releases its buffered pages, so the other series still completes
+        assertFalse(results.get(0).isComplete());
+        assertEquals("checkpoint not writable", results.get(0).getError().getMessage());
+        assertFalse(sink.completed.contains("BNBBTC"));
+        assertTrue(results.get(1).isComplete());
+        assertContiguous(sink.candles.get("ETHBTC"), START, 1_000);
+    }
+}
@@ -0,0 +1,258 @@
+package com.webcerebrium.binance.indicators;
+
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.candles.ArrayCandleSeries;
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.Interval;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class IndicatorsTest {
+
+    private static final long START = 1_600_000_020_000L;
+    private static final long MINUTE = Interval.ONE_MIN.toMillis();
+    private static final int BARS = 500;
+
+    private final double[] open = new double[BARS];
+    private final double[] high = new double[BARS];
+    private final double[] low = new double[BARS];
+    private final double[] close = new double[BARS];
+    private final double[] volume = new double[BARS];
+
+    public IndicatorsTest() {
+        Random random = new Random(42);
+        double price = 100;
+        for (int i = 0; i < BARS; i++) {
+            open[i] = price;
+            price = Math.max(1, price + random.nextGaussian());
+            close[i] = price;
+            high[i] = Math.max(open[i], close[i]) + random.nextDouble();
+            low[i] = Math.min(open[i], close[i]) - random.nextDouble();
+            volume[i] = 1 + random.nextInt(100);
+        }
+    }
+
+    private void feed(Indicator indicator, int count) {
+        for (int i = 0; i < count; i++) {
+            indicator.update(START + i * MINUTE, open[i], high[i], low[i], close[i], volume[i]);
+        }
+    }
+
+    private static double wilder(double[] values, int from, int to, int period, double alpha) {
+        double value = 0;
+        for (int i = from; i < from + period; i++) {
+            value += values[i];
+        }
+        value /= period;
+        for (int i = from + period; i < to; i++) {
+            value += alpha * (values[i] - value);
+        }
+        return value;
+    }
+
+    private double trueRange(int i) {
+        return i == 0 ? high[i] - low[i] : Math.max(high[i] - low[i],
+                Math.max(Math.abs(high[i] - close[i - 1]), Math.abs(low[i] - close[i - 1])));
+    }
+
+    @Test
+    public void testMovingAverages() {
+        SimpleMovingAverage sma = new SimpleMovingAverage(20);
+        ExponentialMovingAverage ema = new ExponentialMovingAverage(20);
+        BollingerBands bands = new BollingerBands(20, 2);
+        feed(sma, 19);
+        assertFalse(sma.isReady());
+        assertTrue(Double.isNaN(sma.getValue()));
+        for (int n = 20; n <= BARS; n += 37) {
+            sma = new SimpleMovingAverage(20);
+            ema = new ExponentialMovingAverage(20);
+            bands = new BollingerBands(20, 2);
+            feed(sma, n);
+            feed(ema, n);
+            feed(bands, n);
+            double sum = 0;
+            double squares = 0;
+            for (int i = n - 20; i < n; i++) {
+                sum += close[i];
+                squares += close[i] * close[i];
+            }
+            double mean = sum / 20;
+            double deviation = Math.sqrt(squares / 20 - mean * mean);
+            assertEquals(mean, sma.getValue(), 1e-9);
+            assertEquals(mean, bands.getValue(), 1e-9);
+            assertEquals(mean + 2 * deviation, bands.getUpper(), 1e-6);
+            assertEquals(mean - 2 * deviation, bands.getLower(), 1e-6);
+            assertEquals(wilder(close, 0, n, 20, 2.0 / 21), ema.getValue(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testWilderIndicators() {
+        RelativeStrengthIndex rsi = new RelativeStrengthIndex(14);
+        AverageTrueRange atr = new AverageTrueRange(14);
+        DirectionalMovementIndex dmi = new DirectionalMovementIndex(14);
+        feed(rsi, BARS);
+        feed(atr, BARS);
+        feed(dmi, BARS);
+
+        double[] gains = new double[BARS];
+        double[] losses = new double[BARS];
+        double[] ranges = new double[BARS];
+        double[] plus = new double[BARS];
+        double[] minus = new double[BARS];
+        for (int i = 0; i < BARS; i++) {
+            ranges[i] = trueRange(i);
+            if (i > 0) {
+                gains[i] = Math.max(close[i] - close[i - 1], 0);
+                losses[i] = Math.max(close[i - 1] - close[i], 0);
+                double up = high[i] - high[i - 1];
+                double down = low[i - 1] - low[i];
+                plus[i] = up > down && up > 0 ? up : 0;
+                minus[i] = down > up && down > 0 ? down : 0;
+            }
+        }
+        double gain = wilder(gains, 1, BARS, 14, 1.0 / 14);
+        double loss = wilder(losses, 1, BARS, 14, 1.0 / 14);
+        assertEquals(100 - 100 / (1 + gain / loss), rsi.getValue(), 1e-9);
+        assertEquals(wilder(ranges, 0, BARS, 14, 1.0 / 14), atr.getValue(), 1e-9);
+
+        // DX from bar 14 on, when the smoothed DMs and TR are available
+        double[] dx = new double[BARS];
+        for (int i = 14; i < BARS; i++) {
+            double range = wilder(ranges, 1, i + 1, 14, 1.0 / 14);
+            double plusDi = 100 * wilder(plus, 1, i + 1, 14, 1.0 / 14) / range;
+            double minusDi = 100 * wilder(minus, 1, i + 1, 14, 1.0 / 14) / range;
+            dx[i] = 100 * Math.abs(plusDi - minusDi) / (plusDi + minusDi);
+            if (i == BARS - 1) {
+                assertEquals(plusDi, dmi.getPlusDi(), 1e-9);
+                assertEquals(minusDi, dmi.getMinusDi(), 1e-9);
+            }
+        }
+        assertEquals(wilder(dx, 14, BARS, 14, 1.0 / 14), dmi.getValue(), 1e-9);
+        assertTrue(dmi.getValue() >= 0 && dmi.getValue() <= 100);
+    }
+
+    @Test
+    public void testVwapSessions() {
+        VolumeWeightedAveragePrice vwap = new VolumeWeightedAveragePrice(Interval.ONE_HOUR.toMillis());
+        feed(vwap, BARS);
+        long lastSession = Math.floorDiv(START + (BARS - 1) * MINUTE, Interval.ONE_HOUR.toMillis());
+        double priceVolume = 0;
+        double totalVolume = 0;
+        for (int i = 0; i < BARS; i++) {
+            if (Math.floorDiv(START + i * MINUTE, Interval.ONE_HOUR.toMillis()) == lastSession) {
+                priceVolume += (high[i] + low[i] + close[i]) / 3 * volume[i];
+                totalVolume += volume[i];
+            }
+        }
+        assertEquals(priceVolume / totalVolume, vwap.getValue(), 1e-9);
+    }
+
+    @Test
+    public void testUpdatingBarIsReplaced() {
+        Supplier<IndicatorSet> sets = () -> new IndicatorSet("BNBBTC")
+                .add("sma", new SimpleMovingAverage(10))
+                .add("ema", new ExponentialMovingAverage(10))
+                .add("rsi", new RelativeStrengthIndex(10))
+                .add("atr", new AverageTrueRange(10))
+                .add("adx", new DirectionalMovementIndex(5))
+                .add("bb", new BollingerBands(10, 2))
+                .add("vwap", new VolumeWeightedAveragePrice());
+        IndicatorSet closed = sets.get();
+        IndicatorSet updating = sets.get();
+        for (int i = 0; i < BARS; i++) {
+            long time = START + i * MINUTE;
+            closed.update(time, open[i], high[i], low[i], close[i], volume[i]);
+            // the open kline is seen with intermediate values first
+            updating.update(time, open[i], open[i] + 1, open[i] - 1, open[i], 1);
+            updating.update(time, open[i], high[i] + 5, low[i], close[i] * 1.1, volume[i] / 2);
+            updating.update(time, open[i], high[i], low[i], close[i], volume[i]);
+        }
+        for (String name : closed.getIndicators().keySet()) {
+            assertEquals(name, closed.getValue(name), updating.getValue(name), 1e-9);
+        }
+        try {
+            updating.update(START, 1, 1, 1, 1, 1);
+            fail("older bar accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testParallelEngine() {
+        Map<String, CandleSeries> series = new HashMap<>();
+        for (int s = 0; s < 16; s++) {
+            String symbol = "SYM" + s;
+            CandleSeries candles = new ArrayCandleSeries(symbol, Interval.ONE_MIN, BARS);
+            for (int i = 0; i < BARS / 2; i++) {
+                Candlestick candle = new Candlestick(symbol, Interval.ONE_MIN);
+                candle.setOpenTime(START + i * MINUTE);
+                candle.setCloseTime(START + (i + 1) * MINUTE - 1);
+                candle.setOpen(open[i] + s);
+                candle.setHigh(high[i] + s);
+                candle.setLow(low[i] + s);
+                candle.setClose(close[i] + s);
+                candle.setVolume(volume[i]);
+                candles.append(candle);
+            }
+            series.put(symbol, candles);
+        }
+        AtomicInteger updates = new AtomicInteger();
+        try (IndicatorEngine engine = new IndicatorEngine(4, symbol -> new IndicatorSet(symbol)
+                .add("ema", new ExponentialMovingAverage(20))
+                .add("rsi", new RelativeStrengthIndex(14)))) {
+            engine.addListener((indicators, openTime) -> updates.incrementAndGet());
+            engine.update(series).join();
+            assertEquals(16, updates.get());
+
+            // live bars continue after the backfilled series
+            for (int i = BARS / 2; i < BARS; i++) {
+                for (int s = 0; s < 16; s++) {
+                    engine.update("SYM" + s, START + i * MINUTE, open[i] + s, high[i] + s, low[i] + s,
+                            close[i] + s, volume[i]);
+                }
+            }
+            engine.flush();
+            assertEquals(16 + 16 * BARS / 2, updates.get());
+
+            for (int s = 0; s < 16; s++) {
+                ExponentialMovingAverage ema = new ExponentialMovingAverage(20);
+                for (int i = 0; i < BARS; i++) {
+                    ema.update(START + i * MINUTE, open[i] + s, high[i] + s, low[i] + s, close[i] + s, volume[i]);
+                }
+                assertEquals(ema.getValue(), engine.getIndicators("SYM" + s).getValue("ema"), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testIncompleteCandleRejected() {
+        try (IndicatorEngine engine = new IndicatorEngine(1, symbol -> new IndicatorSet(symbol)
+                .add("ema", new ExponentialMovingAverage(20)))) {
+            Candlestick candle = new Candlestick("BNBBTC", Interval.ONE_MIN);
+            candle.setOpenTime(START);
+            candle.setOpen(1.0);
+            candle.setHigh(1.0);
+            candle.setLow(1.0);
+            candle.setClose(1.0);
+            try {
+                engine.update(candle);
+                fail("missing volume expected to be rejected");
+            } catch (ApiException e) {
+                assertTrue(e.getMessage().contains("volume"));
+            }
+            assertNull(engine.getIndicators("BNBBTC"));
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.webcerebrium.binance.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.webcerebrium.binance.api.DefaultApi;
+import com.webcerebrium.binance.api.SimulatorApi;
+import com.webcerebrium.binance.candles.ArrayCandleSeries;
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.AggregatedTrades;
+import com.webcerebrium.binance.datatype.Candlestick;
+import com.webcerebrium.binance.datatype.ExchangeInfo;
+import com.webcerebrium.binance.datatype.Interval;
+import com.webcerebrium.binance.datatype.events.AggregatedTradeEvent;
+import com.webcerebrium.binance.datatype.events.CandlestickEvent;
+import com.webcerebrium.binance.history.AggTradeArchive;
+import com.webcerebrium.binance.websocket.StreamJournal;
+import com.webcerebrium.binance.websocket.WebSocketAggTradesAdapter;
+import com.webcerebrium.binance.websocket.WebSocketCandlesticksAdapter;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@Slf4j
+public class MarketReplayTest {
+
+    // 2020-09-13T12:27:00Z
+    private static final long START = 1_600_000_020_000L;
+    private static final long MINUTE = Interval.ONE_MIN.toMillis();
+    private static final int TRADES = 300;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path journalDir;
+    private AggTradeArchive archive;
+    private CandleSeries candles;
+
+    @Before
+    public void setUp() throws Exception {
+        journalDir = folder.newFolder("journal").toPath();
+        try (StreamJournal journal = new StreamJournal(journalDir)) {
+            int id = journal.register("ethbtc@depth5");
+            for (int i = 0; i < 30; i++) {
+                // every tenth trade has a depth update of the same millisecond
+                journal.append(id, TimeUnit.MILLISECONDS.toNanos(START + i * 1000), "{\"lastUpdateId\":" + i
+                        + ",\"bids\":[],\"asks\":[]}");
+            }
+        }
+        archive = new AggTradeArchive(folder.newFolder("trades").toPath());
+        Gson gson = new Gson();
+        List<AggregatedTrades> trades = new ArrayList<>();
+        for (int i = 0; i < TRADES; i++) {
+            trades.add(gson.fromJson(String.format("{\"a\":%d,\"p\":\"%d.5\",\"q\":\"1.25\",\"f\":%d,\"l\":%d,"
+                    + "\"T\":%d,\"m\":%b,\"M\":true}", i, 100 + i, i, i, START + i * 100, i % 2 == 0), AggregatedTrades.class));
+        }
+        archive.append("BNBBTC", trades);
+        candles = new ArrayCandleSeries("BNBBTC", Interval.ONE_MIN, 4);
+        for (int i = 0; i < 3; i++) {
+            Candlestick candle = new Candlestick("BNBBTC", Interval.ONE_MIN);
+            candle.setOpenTime(START - MINUTE + i * MINUTE);
+            candle.setCloseTime(START + i * MINUTE - 1);
+            candle.setOpen(1.0);
+            candle.setHigh(2.0);
+            candle.setLow(0.5);
+            candle.setClose(1.5 + i);
+            candle.setVolume(10.0);
+            candle.setQuoteAssetVolume(15.0);
+            candle.setNumberOfTrades(7L);
+            candle.setTakerBuyBaseAssetVolume(4.0);
+            candle.setTakerBuyQuoteAssetVolume(6.0);
+            candles.append(candle);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        archive.close();
+    }
+
+    private MarketReplay replay() {
+        LocalDate day = LocalDate.of(2020, 9, 13);
+        return new MarketReplay(new ReplayClock(START - MINUTE))
+                .addSource(new JournalReplaySource(journalDir))
+                .addSource(new AggTradeReplaySource(archive, "BNBBTC", day, day))
+                .addSource(new CandleReplaySource(candles));
+    }
+
+    private static class Recorder extends WebSocketAdapter {
+        final String stream;
+        final List<String> frames;
+        final List<Long> times = new ArrayList<>();
+        final MarketReplay replay;
+
+        Recorder(MarketReplay replay, String stream, List<String> frames) {
+            this.replay = replay;
+            this.stream = stream;
+            this.frames = frames;
+            replay.subscribe(stream, this);
+        }
+
+        @Override
+        public void onWebSocketText(String message) {
+            frames.add(stream + " " + message);
+            times.add(replay.getClock().millis());
+        }
+    }
+
+    private static List<String> record(MarketReplay replay) {
+        List<String> frames = new ArrayList<>();
+        new Recorder(replay, "ethbtc@depth5", frames);
+        new Recorder(replay, "bnbbtc@aggTrade", frames);
+        new Recorder(replay, "bnbbtc@kline_1m", frames);
+        long count = replay.run();
+        assertEquals(count, frames.size());
+        return frames;
+    }
+
+    @Test
+    public void testMergedOrder() {
+        MarketReplay replay = replay();
+        List<String> frames = new ArrayList<>();
+        Recorder depth = new Recorder(replay, "ethbtc@depth5", frames);
+        Recorder trades = new Recorder(replay, "bnbbtc@aggTrade", frames);
+        Recorder klines = new Recorder(replay, "bnbbtc@kline_1m", frames);
+        assertEquals(30 + TRADES + 3, replay.run());
+        assertTrue(replay.isFinished());
+        assertEquals(30 + TRADES + 3, frames.size());
+        assertEquals(30, depth.times.size());
+        assertEquals(TRADES, trades.times.size());
+        assertEquals(3, klines.times.size());
+
+        // the first kline closes before the first trade, frames of the same time follow the source order
+        assertTrue(frames.get(0).startsWith("bnbbtc@kline_1m "));
+        assertTrue(frames.get(1).startsWith("ethbtc@depth5 "));
+        assertTrue(frames.get(2).startsWith("bnbbtc@aggTrade "));
+        assertEquals(Long.valueOf(START - 1), klines.times.get(0));
+        assertEquals(Long.valueOf(START + 9_000), depth.times.get(9));
+        for (int i = 0; i < TRADES; i++) {
+            assertEquals(Long.valueOf(START + i * 100), trades.times.get(i));
+        }
+        assertEquals(START + 2 * MINUTE - 1, replay.getClock().millis());
+    }
+
+    @Test
+    public void testDeterministic() {
+        List<String> first = record(replay());
+        List<String> second = record(replay());
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testSharedTradeDays() throws Exception {
+        LocalDate day = LocalDate.of(2020, 9, 13);
+        List<String> expected = record(replay());
+        AggTradeArchive spy = Mockito.spy(archive);
+        AggTradeDays days = new AggTradeDays(spy, 2);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> runs = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                runs.add(pool.submit(() -> {
+                    MarketReplay replay = new MarketReplay(new ReplayClock(START - MINUTE))
+                            .addSource(new JournalReplaySource(journalDir))
+                            .addSource(new AggTradeReplaySource(days, "BNBBTC", day, day))
+                            .addSource(new CandleReplaySource(candles));
+                    ExchangeInfo exchangeInfo = new ExchangeInfo(JsonParser.parseString(
+                            "{\"timezone\":\"UTC\",\"serverTime\":0,\"symbols\":[]}").getAsJsonObject());
+                    RecordedMarketData marketData = new RecordedMarketData(exchangeInfo, replay.getClock())
+                            .setTrades(days);
+                    replay.runUntil(START + 1000);
+                    assertEquals(110.5, marketData.getPrice("BNBBTC"), 1e-12);
+                    List<String> frames = record(replay);
+                    replay.close();
+                    return frames;
+                }));
+            }
+            for (Future<List<String>> run : runs) {
+                // the frames before START + 1000 went to no subscriber
+                List<String> frames = run.get();
+                assertEquals(expected.subList(expected.size() - frames.size(), expected.size()), frames);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        // decoded once for all replays and prices
+        verify(spy, times(1)).scan(eq("BNBBTC"), eq(day), any());
+    }
+
+    @Test
+    public void testRunUntilAndSpeed() {
+        MarketReplay replay = replay();
+        List<String> frames = new ArrayList<>();
+        new Recorder(replay, "bnbbtc@aggTrade", frames);
+        // one kline, two depth updates and eleven trades
+        assertEquals(14, replay.runUntil(START + 1000));
+        assertEquals(11, frames.size());
+        assertEquals(START + 1000, replay.getClock().millis());
+        assertFalse(replay.isFinished());
+
+        // the remaining 29 seconds of trades at a 1000 fold speed
+        replay.setSpeed(1000);
+        long start = System.nanoTime();
+        replay.runUntil(START + 30_000);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(TRADES, frames.size());
+        assertTrue("replay too fast: " + elapsed, elapsed >= 25);
+
+        replay.setSpeed(MarketReplay.AS_FAST_AS_POSSIBLE);
+        replay.run();
+        assertTrue(replay.isFinished());
+        assertEquals(30 + TRADES + 3, replay.getFrameCount());
+    }
+
+    @Test
+    public void testSimulatorApi() throws Exception {
+        SimulatorApi api = new SimulatorApi(new DefaultApi());
+        MarketReplay replay = replay();
+        api.setReplay(replay);
+        List<AggregatedTradeEvent> trades = new ArrayList<>();
+        List<CandlestickEvent> klines = new ArrayList<>();
+        api.websocketTrades("BNBBTC", new WebSocketAggTradesAdapter() {
+            @Override
+            public void onMessage(AggregatedTradeEvent event) {
+                trades.add(event);
+            }
+        });
+        Session session = api.websocketCandlesticks("BNBBTC", Interval.ONE_MIN, new WebSocketCandlesticksAdapter() {
+            @Override
+            public void onMessage(CandlestickEvent event) {
+                klines.add(event);
+            }
+        });
+        replay.runUntil(START + MINUTE - 1);
+        assertEquals(Long.valueOf(START + MINUTE - 1), api.getServerTime());
+        session.close();
+        replay.run();
+
+        assertEquals(TRADES, trades.size());
+        AggregatedTradeEvent trade = trades.get(42);
+        assertEquals("BNBBTC", trade.getSymbol());
+        assertEquals(Long.valueOf(42), trade.getAggregatedTradeId());
+        assertEquals(142.5, trade.getPrice(), 0.0);
+        assertEquals(1.25, trade.getQuantity(), 0.0);
+        assertEquals(Long.valueOf(START + 4200), trade.getTradeTime());
+        // the session was closed before the last kline
+        assertEquals(2, klines.size());
+        assertEquals(Interval.ONE_MIN, klines.get(1).getInterval());
+        assertEquals(2.5, klines.get(1).getClose(), 0.0);
+        assertEquals(Long.valueOf(START), klines.get(1).getStartTime());
+    }
+}
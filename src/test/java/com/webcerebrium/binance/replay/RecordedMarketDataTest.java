@@ -0,0 +1,166 @@
+package com.webcerebrium.binance.replay;
+
+import com.google.gson.Gson;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.api.SimulatorApi;
+import com.webcerebrium.binance.api.TestAccountManager;
+import com.webcerebrium.binance.candles.ArrayCandleSeries;
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.*;
+import com.webcerebrium.binance.history.AggTradeArchive;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@Slf4j
+public class RecordedMarketDataTest {
+
+    private static final long START = 1_599_999_960_000L;
+    private static final long MINUTE = Interval.ONE_MIN.toMillis();
+    private static final String EXCHANGE_INFO = "{\"timezone\":\"UTC\",\"serverTime\":" + START
+            + ",\"rateLimits\":[],\"exchangeFilters\":[],\"symbols\":[{\"symbol\":\"BNBBTC\",\"status\":\"TRADING\","
+            + "\"baseAsset\":\"BNB\",\"baseAssetPrecision\":8,\"quoteAsset\":\"BTC\",\"quotePrecision\":8,"
+            + "\"baseCommissionPrecision\":8,\"quoteCommissionPrecision\":8,"
+            + "\"orderTypes\":[\"LIMIT\",\"LIMIT_MAKER\",\"MARKET\",\"STOP_LOSS_LIMIT\",\"TAKE_PROFIT_LIMIT\"],"
+            + "\"icebergAllowed\":true,\"ocoAllowed\":true,\"quoteOrderQtyMarketAllowed\":true,"
+            + "\"isSpotTradingAllowed\":true,\"isMarginTradingAllowed\":false,\"filters\":["
+            + "{\"filterType\":\"LOT_SIZE\",\"minQty\":\"0.01\",\"maxQty\":\"100000\",\"stepSize\":\"0.01\"}]}]}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private ReplayClock clock;
+    private RecordedMarketData marketData;
+
+    @Before
+    public void setUp() throws Exception {
+        root = folder.getRoot().toPath();
+        Path info = root.resolve("exchangeInfo.json");
+        Files.write(info, EXCHANGE_INFO.getBytes(StandardCharsets.UTF_8));
+
+        // ten 1m candles, followed by trades after five minutes
+        CandleSeries candles = new ArrayCandleSeries("BNBBTC", Interval.ONE_MIN, 16);
+        for (int i = 0; i < 10; i++) {
+            Candlestick candle = new Candlestick("BNBBTC", Interval.ONE_MIN);
+            candle.setOpenTime(START + i * MINUTE);
+            candle.setCloseTime(START + (i + 1) * MINUTE - 1);
+            candle.setClose(0.010 + i * 0.0001);
+            candle.setOpen(candle.getClose() - 0.00005);
+            candle.setHigh(candle.getClose());
+            candle.setLow(candle.getOpen());
+            candle.setVolume(1.0);
+            candles.append(candle);
+        }
+        Gson gson = new Gson();
+        List<AggregatedTrades> trades = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            trades.add(gson.fromJson(String.format("{\"a\":%d,\"p\":\"%.4f\",\"q\":\"1\",\"f\":%d,\"l\":%d,\"T\":%d,"
+                    + "\"m\":true,\"M\":true}", 100 + i, 0.02 + i * 0.0001, i, i, START + 5 * MINUTE + i * 10_000),
+                    AggregatedTrades.class));
+        }
+        try (AggTradeArchive archive = new AggTradeArchive(root.resolve("trades"))) {
+            archive.append("BNBBTC", trades);
+        }
+        clock = new ReplayClock(START);
+        marketData = new RecordedMarketData(RecordedMarketData.loadExchangeInfo(info), clock)
+                .addCandles(candles)
+                .setTrades(new AggTradeArchive(root.resolve("trades")));
+    }
+
+    private static CandlesticksRequest candles(Long startTime) {
+        return CandlesticksRequest.builder().symbol("BNBBTC").interval(Interval.ONE_MIN).startTime(startTime).build();
+    }
+
+    private static AggregatedTradesRequest trades(Long fromId) {
+        return AggregatedTradesRequest.builder().symbol("BNBBTC").fromId(fromId).build();
+    }
+
+    @Test
+    public void testNoLookAhead() {
+        assertEquals(1, marketData.getExchangeInfo().getSymbols().size());
+        clock.advanceTo(START + 2 * MINUTE + 30_000);
+        // the open of the running candle, only closed candles are served
+        assertEquals(0.0102 - 0.00005, marketData.getPrice("BNBBTC"), 1e-12);
+        assertEquals(2, marketData.getCandlestickBars(candles(null)).size());
+        assertEquals(2, marketData.getCandlestickBars(candles(START + MINUTE)).size() + 1);
+        assertTrue(marketData.getAggregatedTrades(trades(null)).isEmpty());
+        assertTrue(marketData.getAggregatedTrades(trades(0L)).isEmpty());
+
+        clock.advanceTo(START + 5 * MINUTE + 25_000);
+        assertEquals(0.0202, marketData.getPrice("BNBBTC"), 1e-12);
+        List<Candlestick> bars = marketData.getCandlestickBars(candles(null));
+        assertEquals(5, bars.size());
+        assertEquals(Long.valueOf(START + 4 * MINUTE), bars.get(4).getOpenTime());
+        List<AggregatedTrades> recent = marketData.getAggregatedTrades(trades(null));
+        assertEquals(3, recent.size());
+        assertEquals(102, recent.get(2).getTradeId());
+        assertTrue(recent.get(2).wasMaker());
+        assertEquals(2, marketData.getAggregatedTrades(trades(101L)).size());
+        assertNull(marketData.getPrice("ETHBTC"));
+    }
+
+    @Test
+    public void testPreviousTradeDayCached() {
+        AggTradeArchive archive = Mockito.spy(new AggTradeArchive(root.resolve("trades")));
+        marketData.setTrades(archive);
+        LocalDate tradeDay = Instant.ofEpochMilli(START).atZone(ZoneOffset.UTC).toLocalDate();
+        LocalDate nextDay = tradeDay.plusDays(1);
+        // after midnight, before the first trade of the day
+        clock.advanceTo(nextDay.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() + 10 * MINUTE);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0.0219, marketData.getPrice("BNBBTC"), 1e-12);
+        }
+        verify(archive, times(1)).scan(eq("BNBBTC"), eq(nextDay), any());
+        verify(archive, times(1)).scan(eq("BNBBTC"), eq(tradeDay), any());
+    }
+
+    @Test
+    public void testOfflineSimulator() {
+        Map<String, Double> balances = new HashMap<>();
+        balances.put("BTC", 1.0);
+        balances.put("BNB", 0.0);
+        SimulatorApi api = new SimulatorApi(marketData, TestAccountManager.createAccount(balances));
+        api.setClock(clock);
+        clock.advanceTo(START + 5 * MINUTE + 25_000);
+        assertTrue(api.isOffline());
+        assertTrue(api.ping());
+        assertEquals(Long.valueOf(clock.millis()), api.getServerTime());
+        assertEquals(Double.valueOf(0.0202), api.getPrices().get("BNBBTC"), 1e-12);
+
+        OrderPlacement placement = new OrderPlacement("BNBBTC", OrderSide.BUY);
+        placement.setType(OrderType.MARKET);
+        placement.setQuantity(10.0);
+        Order order = api.getOrder(api.createOrder(placement));
+        assertEquals(OrderStatus.FILLED, order.getStatus());
+        assertEquals(Long.valueOf(clock.millis()), order.getTime());
+        assertEquals(10.0, api.getAccount().getAsset("BNB").getFree(), 1e-12);
+        assertEquals(1 - 10 * 0.0202 * 1.001, api.getAccount().getAsset("BTC").getFree(), 1e-12);
+        try {
+            api.getNodeInfo();
+            fail("node info served offline");
+        } catch (ApiException e) {
+            // expected
+        }
+    }
+}
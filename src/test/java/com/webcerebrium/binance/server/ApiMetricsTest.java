@@ -0,0 +1,93 @@
+package com.webcerebrium.binance.server;
+
+import com.webcerebrium.binance.api.ApiCall;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.api.ApiMetrics;
+import com.webcerebrium.binance.api.DefaultApi;
+import com.webcerebrium.binance.api.HistogramApiMetrics;
+import com.webcerebrium.binance.api.MicrometerApiMetrics;
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import com.webcerebrium.binance.datatype.OrderRef;
+import com.webcerebrium.binance.datatype.OrderSide;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class ApiMetricsTest {
+
+    private static OrderRef placeOrder(DefaultApi api) {
+        OrderPlacement placement = new OrderPlacement("BNBBTC", OrderSide.BUY);
+        placement.setQuantity(1.0);
+        placement.setPrice(0.0001);
+        return api.createOrder(placement);
+    }
+
+    @Test
+    public void testHistograms() throws Exception {
+        try (LocalExchangeServer server = LocalExchangeServerTest.createServer()) {
+            DefaultApi api = server.configure(new DefaultApi("key", "secret"));
+            HistogramApiMetrics metrics = new HistogramApiMetrics();
+            api.setMetrics(metrics);
+            for (int i = 0; i < 3; i++) {
+                api.getPrice("BNBBTC");
+            }
+            OrderRef ref = placeOrder(api);
+            api.deleteOrderById("BNBBTC", ref.getOrderId());
+            try {
+                api.deleteOrderById("BNBBTC", ref.getOrderId());
+                fail("canceled twice");
+            } catch (ApiException e) {
+                // expected
+            }
+            log.info("{}", metrics);
+
+            HistogramApiMetrics.Endpoint price = metrics.getEndpoint("GET", "/api/v3/ticker/price");
+            assertEquals(3, price.getCount());
+            assertEquals(0, price.getErrorCount());
+            assertEquals(3, price.getStatusCount(2));
+            assertEquals(3, price.getWeight());
+            assertTrue(price.getUsedWeight() > 0);
+            Histogram total = price.getHistogram(ApiCall.Phase.TOTAL);
+            assertEquals(3, total.getTotalCount());
+            assertTrue(price.getHistogram(ApiCall.Phase.FIRST_BYTE).getMinValue() > 0);
+            assertTrue(total.getMaxValue() >= price.getHistogram(ApiCall.Phase.FIRST_BYTE).getMaxValue());
+
+            assertEquals(1, metrics.getEndpoint("POST", "/api/v3/order").getCount());
+            HistogramApiMetrics.Endpoint cancel = metrics.getEndpoint("DELETE", "/api/v3/order");
+            assertEquals(2, cancel.getCount());
+            assertEquals(1, cancel.getErrorCount());
+            assertEquals(1, cancel.getStatusCount(4));
+            assertNull(metrics.getEndpoint("GET", "/api/v3/klines"));
+
+            // nothing is recorded once disabled
+            api.setMetrics(ApiMetrics.NOOP);
+            api.getPrice("BNBBTC");
+            assertEquals(3, price.getCount());
+        }
+    }
+
+    @Test
+    public void testMicrometer() throws Exception {
+        try (LocalExchangeServer server = LocalExchangeServerTest.createServer()) {
+            DefaultApi api = server.configure(new DefaultApi("key", "secret"));
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            api.setMetrics(new MicrometerApiMetrics(registry));
+            api.getPrice("BNBBTC");
+            api.getPrice("BNBBTC");
+            placeOrder(api);
+
+            Timer timer = registry.get("binance.api.call")
+                    .tag("method", "GET").tag("path", "/api/v3/ticker/price").tag("phase", "total").timer();
+            assertEquals(2, timer.count());
+            assertEquals(1, registry.get("binance.api.call")
+                    .tag("method", "POST").tag("path", "/api/v3/order").tag("phase", "read").timer().count());
+            assertEquals(2.0, registry.get("binance.api.weight")
+                    .tag("path", "/api/v3/ticker/price").counter().count(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.webcerebrium.binance.server;
+
+import com.webcerebrium.binance.api.DefaultApi;
+import com.webcerebrium.binance.api.OrderTracker;
+import com.webcerebrium.binance.api.TrackedOrder;
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import com.webcerebrium.binance.datatype.OrderSide;
+import com.webcerebrium.binance.datatype.OrderType;
+import com.webcerebrium.binance.datatype.events.DepthUpdateEvent;
+import com.webcerebrium.binance.jfr.StreamMessageEvent;
+import com.webcerebrium.binance.websocket.WebSocketDepthAdapter;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class FlightRecorderTest {
+
+    private static final String API_CALL = "com.webcerebrium.binance.ApiCall";
+    private static final String ORDER_ROUND_TRIP = "com.webcerebrium.binance.OrderRoundTrip";
+    private static final String STREAM_MESSAGE = "com.webcerebrium.binance.StreamMessage";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .collect(Collectors.toList());
+    }
+
+    private static String depthFrame(long eventTime, long first, long last) {
+        return "{\"e\":\"depthUpdate\",\"E\":" + eventTime + ",\"s\":\"BNBBTC\",\"U\":" + first + ",\"u\":" + last
+                + ",\"b\":[[\"0.0133\",\"1.5\"]],\"a\":[[\"0.0134\",\"0\"]]}";
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("binance.jfr");
+        long marketOrderId;
+        try (LocalExchangeServer server = LocalExchangeServerTest.createServer();
+             Recording recording = new Recording()) {
+            DefaultApi api = server.configure(new DefaultApi("key", "secret"));
+            OrderTracker tracker = new OrderTracker(api);
+            String listenKey = api.startUserDataStream();
+            Session session = api.websocket(listenKey, tracker.createAdapter());
+            // not recorded, the events are disabled
+            api.getPrice("BNBBTC");
+
+            recording.enable(API_CALL).withThreshold(Duration.ZERO);
+            recording.enable(ORDER_ROUND_TRIP).withThreshold(Duration.ZERO);
+            recording.enable(STREAM_MESSAGE).withThreshold(Duration.ZERO);
+            recording.start();
+
+            api.getPrice("BNBBTC");
+            OrderPlacement market = new OrderPlacement("BNBBTC", OrderSide.BUY);
+            market.setType(OrderType.MARKET);
+            market.setQuantity(10.0);
+            TrackedOrder filled = tracker.createOrder(market);
+            filled.whenFilled().get(5, TimeUnit.SECONDS);
+            marketOrderId = filled.getOrderId();
+            // the fill reported by the user data stream is applied to the acknowledged order
+            assertSame(filled, tracker.getOrder(marketOrderId));
+            assertSame(filled, tracker.getOrderByClientOrderId(filled.getClientOrderId()));
+            assertEquals(10.0, filled.getExecutedQty(), 1e-12);
+
+            OrderPlacement limit = new OrderPlacement("BNBBTC", OrderSide.SELL);
+            limit.setQuantity(5.0);
+            limit.setPrice(0.05);
+            TrackedOrder canceled = tracker.createOrder(limit);
+            api.deleteOrderById("BNBBTC", canceled.getOrderId());
+            canceled.whenCanceled().get(5, TimeUnit.SECONDS);
+
+            WebSocketDepthAdapter adapter = new WebSocketDepthAdapter() {
+                @Override
+                public void onMessage(DepthUpdateEvent event) {
+                }
+            };
+            adapter.getStreamMetrics().bind("bnbbtc@depth", () -> 2_000);
+            StreamMessageEvent.setSampleInterval(2);
+            try {
+                for (int i = 0; i < 10; i++) {
+                    adapter.onWebSocketText(depthFrame(1_950, i * 2 + 1, i * 2 + 2));
+                }
+            } finally {
+                StreamMessageEvent.setSampleInterval(100);
+            }
+
+            recording.stop();
+            recording.dump(file);
+            session.close();
+            api.deleteUserDataStream(listenKey);
+        }
+
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> calls = events(recorded, API_CALL);
+        log.info("Recorded {} api calls", calls.size());
+        // price, two placements and the cancel
+        assertEquals(4, calls.size());
+        RecordedEvent price = calls.get(0);
+        assertEquals("GET", price.getString("method"));
+        assertEquals("/api/v3/ticker/price", price.getString("path"));
+        assertEquals(200, price.getInt("status"));
+        assertTrue(price.getLong("firstByte") > 0);
+        assertTrue(price.getDuration().toNanos() >= price.getLong("firstByte"));
+
+        List<RecordedEvent> roundTrips = events(recorded, ORDER_ROUND_TRIP);
+        assertEquals(2, roundTrips.size());
+        RecordedEvent fill = roundTrips.get(0);
+        assertEquals("MARKET", fill.getString("type"));
+        assertEquals(marketOrderId, fill.getLong("orderId"));
+        assertTrue(fill.getLong("ack") > 0);
+        assertTrue(fill.getLong("firstFill") > 0);
+        assertTrue(fill.getLong("firstFill") <= fill.getDuration().toNanos());
+        RecordedEvent cancel = roundTrips.get(1);
+        assertEquals("SELL", cancel.getString("side"));
+        assertEquals("CANCELED", cancel.getString("status"));
+        assertEquals(-1, cancel.getLong("firstFill"));
+
+        List<RecordedEvent> messages = events(recorded, STREAM_MESSAGE);
+        assertEquals(5, messages.size());
+        assertEquals("bnbbtc@depth", messages.get(0).getString("stream"));
+        assertEquals(50, messages.get(0).getDuration("lag").toMillis());
+        assertTrue(messages.get(0).getLong("bytes") > 0);
+    }
+}
@@ -0,0 +1,406 @@
+package com.webcerebrium.binance.server;
+
+import com.google.gson.Gson;
+import com.webcerebrium.binance.api.DefaultApi;
+import com.webcerebrium.binance.api.RateLimiter;
+import com.webcerebrium.binance.datatype.CandlesticksRequest;
+import com.webcerebrium.binance.datatype.Interval;
+import com.webcerebrium.binance.datatype.OrderPlacement;
+import com.webcerebrium.binance.datatype.OrderRef;
+import com.webcerebrium.binance.datatype.OrderSide;
+import com.webcerebrium.binance.datatype.events.ExecutionReportEvent;
+import com.webcerebrium.binance.datatype.events.OutboundAccountInfoEvent;
+import com.webcerebrium.binance.websocket.WebSocketUserDataAdapter;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput ceiling of {@link DefaultApi} against a {@link LocalExchangeServer}. A weighted mix of
+ * price polls, order create/cancel round trips and kline pages is driven at a sweep of concurrency levels, while
+ * user data streams receive the execution reports. Each run reports throughput, latency percentiles, allocation
+ * rate and thread count as one JSON line, so results can be compared between releases. The allocation rate
+ * counts the client threads only, the threads of the server are told apart by their
+ * {@link LocalExchangeServer#THREAD_NAME} prefix.
+ * <p>
+ * Run a full sweep with {@code LoadHarness.main(durationSeconds, outputFile)} from the test classpath.
+ */
+@Slf4j
+public class LoadHarness {
+
+    public enum Operation {
+        /** {@code GET /api/v3/ticker/price}. */
+        PRICE,
+        /** A far away limit order, placed and canceled. */
+        ORDER,
+        /** A page of 500 klines. */
+        KLINES
+    }
+
+    public enum Mode {
+        /** Each caller thread blocks on its requests. */
+        BLOCKING,
+        /**
+         * One caller submits blocking calls to a pool, the number of calls in flight is the concurrency. This
+         * measures submission from a single thread, not non-blocking I/O: each call still blocks a pool thread.
+         */
+        POOLED
+    }
+
+    /** The result of a run. */
+    @Data
+    public static class LoadResult {
+        String mode;
+        int concurrency;
+        long durationMillis;
+        long operations;
+        long errors;
+        double throughput;
+        double p50Micros;
+        double p90Micros;
+        double p99Micros;
+        double maxMicros;
+        long streamMessages;
+        /** The allocation rate of the client threads alive at the end of the run. */
+        double allocatedMBPerSecond;
+        /** The peak thread count of the JVM, server threads included. */
+        int peakThreads;
+    }
+
+    private final LocalExchangeServer server;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    private long durationMillis = 2000;
+    private long warmupMillis = 500;
+    private int subscriptions = 2;
+    /** If set, the client side rate and connection limits of the api are lifted. */
+    private boolean unthrottled = true;
+
+    /**
+     * Creates a harness, with the default mix of 80% price polls, 15% orders and 5% kline pages.
+     * @param server the started server.
+     */
+    public LoadHarness(LocalExchangeServer server) {
+        this.server = server;
+        server.setWeightLimit(Integer.MAX_VALUE);
+        server.setVerifyTimestamps(false);
+        mix.put(Operation.PRICE, 80);
+        mix.put(Operation.ORDER, 15);
+        mix.put(Operation.KLINES, 5);
+    }
+
+    public LoadHarness setMix(Operation operation, int weight) {
+        mix.put(operation, weight);
+        return this;
+    }
+
+    public LoadHarness setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
+    public LoadHarness setWarmupMillis(long warmupMillis) {
+        this.warmupMillis = warmupMillis;
+        return this;
+    }
+
+    public LoadHarness setSubscriptions(int subscriptions) {
+        this.subscriptions = subscriptions;
+        return this;
+    }
+
+    public LoadHarness setUnthrottled(boolean unthrottled) {
+        this.unthrottled = unthrottled;
+        return this;
+    }
+
+    /**
+     * Runs all combinations of modes and concurrency levels.
+     * @param modes the modes.
+     * @param concurrencies the concurrency levels.
+     * @return the results, in the order of the runs.
+     */
+    public List<LoadResult> sweep(List<Mode> modes, int... concurrencies) throws Exception {
+        List<LoadResult> results = new ArrayList<>();
+        for (Mode mode : modes) {
+            for (int concurrency : concurrencies) {
+                run(mode, concurrency, warmupMillis);
+                LoadResult result = run(mode, concurrency, durationMillis);
+                log.info("{}", result);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Writes results as JSON lines.
+     * @param results the results.
+     * @param out the target.
+     */
+    public static void write(List<LoadResult> results, Writer out) throws IOException {
+        Gson gson = new Gson();
+        for (LoadResult result : results) {
+            out.write(gson.toJson(result));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private DefaultApi createApi(int concurrency) {
+        DefaultApi api = server.configure(new DefaultApi("key", "secret"));
+        if (unthrottled) {
+            api.setLimiter(new RateLimiter(Integer.MAX_VALUE / 2, TimeUnit.SECONDS, 1));
+            api.setOrderLimiter(new RateLimiter(Integer.MAX_VALUE / 2, TimeUnit.SECONDS, 1));
+            api.setMaxConnections(new Semaphore(Math.max(10, concurrency)));
+        }
+        return api;
+    }
+
+    /** The per caller state, latencies are recorded without synchronization. */
+    private final class Caller {
+        final DefaultApi api;
+        final Random random;
+        final int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        long[] latencies = new long[4096];
+        int count;
+        long errors;
+
+        Caller(DefaultApi api, long seed) {
+            this.api = api;
+            this.random = new Random(seed);
+        }
+
+        Operation next() {
+            int r = random.nextInt(totalWeight);
+            for (Map.Entry<Operation, Integer> en : mix.entrySet()) {
+                r -= en.getValue();
+                if (r < 0) {
+                    return en.getKey();
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        void call(Operation operation) {
+            long start = System.nanoTime();
+            try {
+                execute(api, operation);
+            } catch (RuntimeException e) {
+                log.debug("{} failed: {}", operation, e.getMessage());
+                errors++;
+                return;
+            }
+            record(System.nanoTime() - start);
+        }
+
+        synchronized void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    private static void execute(DefaultApi api, Operation operation) {
+        switch (operation) {
+            case PRICE:
+                api.getPrice("BNBBTC");
+                break;
+            case ORDER: {
+                OrderPlacement placement = new OrderPlacement("BNBBTC", OrderSide.BUY);
+                placement.setQuantity(1.0);
+                placement.setPrice(0.0001);
+                OrderRef ref = api.createOrder(placement);
+                api.deleteOrderById("BNBBTC", ref.getOrderId());
+                break;
+            }
+            case KLINES:
+                api.getCandlestickBars(CandlesticksRequest.builder()
+                        .symbol("BNBBTC").interval(Interval.ONE_MIN).limit(500).build());
+                break;
+        }
+    }
+
+    private LoadResult run(Mode mode, int concurrency, long millis) throws Exception {
+        DefaultApi api = createApi(concurrency);
+        LongAdder messages = new LongAdder();
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < subscriptions; i++) {
+            sessions.add(api.websocket(api.startUserDataStream(), new WebSocketUserDataAdapter() {
+                @Override
+                public void onOutboundAccountInfo(OutboundAccountInfoEvent event) {
+                    messages.increment();
+                }
+
+                @Override
+                public void onExecutionReport(ExecutionReportEvent event) {
+                    messages.increment();
+                }
+            }));
+        }
+        List<Caller> callers = new ArrayList<>();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        Map<Long, Long> allocated = allocatedBytes(threads);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long elapsed;
+        long allocatedBytes;
+        int peakThreads;
+        try {
+            if (mode == Mode.BLOCKING) {
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < concurrency; i++) {
+                    Caller caller = new Caller(api, i);
+                    callers.add(caller);
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        while (System.nanoTime() < end) {
+                            caller.call(caller.next());
+                        }
+                    }, pool));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            } else {
+                Caller caller = new Caller(api, 0);
+                callers.add(caller);
+                Semaphore inFlight = new Semaphore(concurrency);
+                AtomicLong errors = new AtomicLong();
+                while (System.nanoTime() < end) {
+                    inFlight.acquire();
+                    Operation operation = caller.next();
+                    long started = System.nanoTime();
+                    CompletableFuture.runAsync(() -> execute(api, operation), pool).whenComplete((v, e) -> {
+                        if (e == null) {
+                            caller.record(System.nanoTime() - started);
+                        } else {
+                            log.debug("{} failed: {}", operation, e.getMessage());
+                            errors.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+                }
+                inFlight.acquire(concurrency);
+                caller.errors = errors.get();
+            }
+            // sampled while the caller threads are alive
+            elapsed = System.nanoTime() - start;
+            allocatedBytes = allocatedSince(allocated, allocatedBytes(threads));
+            peakThreads = threads.getPeakThreadCount();
+        } finally {
+            pool.shutdownNow();
+        }
+        for (Session session : sessions) {
+            session.close();
+        }
+        api.getOpenOrders().forEach(o -> api.deleteOrderById(o.getSymbol(), o.getOrderId()));
+        return result(mode, concurrency, elapsed, callers, messages.sum(), allocatedBytes, peakThreads);
+    }
+
+    /** The bytes allocated so far by the live threads of this JVM by thread id, without the server threads. */
+    private static Map<Long, Long> allocatedBytes(com.sun.management.ThreadMXBean threads) {
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        ThreadInfo[] infos = threads.getThreadInfo(ids);
+        Map<Long, Long> allocated = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0 && infos[i] != null
+                    && !infos[i].getThreadName().startsWith(LocalExchangeServer.THREAD_NAME)) {
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+
+    /** The bytes allocated between two samples by the threads alive at the second one. */
+    private static long allocatedSince(Map<Long, Long> before, Map<Long, Long> after) {
+        long total = 0;
+        for (Map.Entry<Long, Long> en : after.entrySet()) {
+            total += en.getValue() - before.getOrDefault(en.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static LoadResult result(Mode mode, int concurrency, long elapsedNanos, List<Caller> callers,
+                                     long messages, long allocatedBytes, int peakThreads) {
+        int count = callers.stream().mapToInt(c -> c.count).sum();
+        long[] all = new long[count];
+        int offset = 0;
+        long errors = 0;
+        for (Caller caller : callers) {
+            System.arraycopy(caller.latencies, 0, all, offset, caller.count);
+            offset += caller.count;
+            errors += caller.errors;
+        }
+        Arrays.sort(all);
+        double seconds = elapsedNanos / 1e9;
+        LoadResult result = new LoadResult();
+        result.setMode(mode.name());
+        result.setConcurrency(concurrency);
+        result.setDurationMillis(elapsedNanos / 1_000_000);
+        result.setOperations(count);
+        result.setErrors(errors);
+        result.setThroughput(count / seconds);
+        result.setP50Micros(percentile(all, 0.50));
+        result.setP90Micros(percentile(all, 0.90));
+        result.setP99Micros(percentile(all, 0.99));
+        result.setMaxMicros(count == 0 ? 0 : all[count - 1] / 1000.0);
+        result.setStreamMessages(messages);
+        result.setAllocatedMBPerSecond(allocatedBytes / seconds / (1024 * 1024));
+        result.setPeakThreads(peakThreads);
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1000.0;
+    }
+
+    /**
+     * Runs a full sweep.
+     * @param args the duration per run in seconds, default 10, and the output file, default stdout.
+     */
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 10;
+        try (LocalExchangeServer server = LocalExchangeServerTest.createServer()) {
+            LoadHarness harness = new LoadHarness(server)
+                    .setDurationMillis(TimeUnit.SECONDS.toMillis(seconds))
+                    .setWarmupMillis(TimeUnit.SECONDS.toMillis(Math.max(1, seconds / 5)));
+            List<LoadResult> results = harness.sweep(Arrays.asList(Mode.values()), 1, 2, 4, 8, 16, 32, 64);
+            if (args.length > 1) {
+                Path file = Paths.get(args[1]);
+                try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    write(results, out);
+                }
+            } else {
+                Writer out = new java.io.OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+                write(results, out);
+            }
+        }
+    }
+}
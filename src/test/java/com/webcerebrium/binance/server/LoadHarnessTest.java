@@ -0,0 +1,44 @@
+package com.webcerebrium.binance.server;
+
+import com.google.gson.Gson;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class LoadHarnessTest {
+
+    @Test
+    public void testSweep() throws Exception {
+        try (LocalExchangeServer server = LocalExchangeServerTest.createServer()) {
+            LoadHarness harness = new LoadHarness(server)
+                    .setDurationMillis(300)
+                    .setWarmupMillis(100)
+                    .setSubscriptions(1);
+            List<LoadHarness.LoadResult> results = harness.sweep(Arrays.asList(LoadHarness.Mode.values()), 1, 4);
+            assertEquals(4, results.size());
+            for (LoadHarness.LoadResult result : results) {
+                assertEquals(0, result.getErrors());
+                assertTrue(result.getOperations() > 0);
+                assertTrue(result.getThroughput() > 0);
+                assertTrue(result.getP50Micros() <= result.getP99Micros());
+                assertTrue(result.getP99Micros() <= result.getMaxMicros());
+                assertTrue(result.getPeakThreads() > 0);
+                assertTrue(result.getAllocatedMBPerSecond() > 0);
+            }
+            assertEquals("POOLED", results.get(3).getMode());
+            assertEquals(4, results.get(3).getConcurrency());
+
+            StringWriter out = new StringWriter();
+            LoadHarness.write(results, out);
+            String[] lines = out.toString().split("\n");
+            assertEquals(4, lines.length);
+            assertEquals(results.get(0), new Gson().fromJson(lines[0], LoadHarness.LoadResult.class));
+        }
+    }
+}
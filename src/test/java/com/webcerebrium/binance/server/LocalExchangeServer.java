@@ -0,0 +1,668 @@
+package com.webcerebrium.binance.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.api.DefaultApi;
+import com.webcerebrium.binance.api.MatchingEngine;
+import com.webcerebrium.binance.api.SimulatorApi;
+import com.webcerebrium.binance.api.WebRequest;
+import com.webcerebrium.binance.datatype.*;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the Binance REST and websocket endpoints, backed by a {@link SimulatorApi}. It speaks the
+ * wire protocol of the exchange: the JSON shapes, HMAC signatures, timestamps and recvWindow, error codes and
+ * the weight headers. A {@link DefaultApi} is pointed at it with {@link #configure(DefaultApi)}, so integration
+ * and load tests run without network.
+ * <p>
+ * It is a test fixture: it lives in the test sources and needs the test scoped jetty server. Streams are served
+ * over plain ws:// only. Of the /sapi endpoints only the system status and the trade fee are served. The depth
+ * is served from the last depth snapshot of the simulator, up to the requested limit.
+ */
+@Slf4j
+public class LocalExchangeServer implements AutoCloseable {
+
+    /** The name prefix of the server threads, telling them from the client threads of the same JVM. */
+    public static final String THREAD_NAME = "local-exchange";
+    private static final Pattern API_ERROR = Pattern.compile("ERROR: (-?\\d+), (.*)", Pattern.DOTALL);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private final SimulatorApi simulator;
+    private final JsonObject exchangeInfo;
+    private final String apiKey;
+    private final String secretKey;
+    private final Gson gson = new Gson();
+    private final AtomicLong updateId = new AtomicLong();
+    private final Object weightLock = new Object();
+    private long weightMinute;
+    private int usedWeight;
+    private int orderCount;
+    private volatile int weightLimit = 1200;
+    private volatile boolean verifyTimestamps = true;
+    private Server server;
+
+    /**
+     * Creates a server.
+     * @param simulator the simulator executing the requests, e.g. an offline {@link SimulatorApi}.
+     * @param exchangeInfo the exchange info served, as returned by {@code /api/v3/exchangeInfo}.
+     * @param apiKey the api key accepted.
+     * @param secretKey the secret key the signatures are verified with.
+     */
+    public LocalExchangeServer(SimulatorApi simulator, JsonObject exchangeInfo, String apiKey, String secretKey) {
+        this.simulator = Objects.requireNonNull(simulator);
+        this.exchangeInfo = Objects.requireNonNull(exchangeInfo);
+        this.apiKey = Objects.requireNonNull(apiKey);
+        this.secretKey = Objects.requireNonNull(secretKey);
+    }
+
+    /**
+     * Sets the request weight allowed per minute, exceeding requests fail with -1003 and HTTP 429.
+     * @param weightLimit the limit.
+     */
+    public void setWeightLimit(int weightLimit) {
+        this.weightLimit = weightLimit;
+    }
+
+    /**
+     * Enables the check of the signed timestamps against the server time and the recvWindow, enabled by default.
+     * @param verifyTimestamps true to reject outdated requests with -1021.
+     */
+    public void setVerifyTimestamps(boolean verifyTimestamps) {
+        this.verifyTimestamps = verifyTimestamps;
+    }
+
+    /**
+     * Starts the server on a free local port.
+     * @return this instance, for chaining.
+     * @throws Exception if the server cannot be started.
+     */
+    public LocalExchangeServer start() throws Exception {
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        threadPool.setName(THREAD_NAME);
+        server = new Server(threadPool);
+        ServerConnector connector = new ServerConnector(server, null,
+                new ScheduledExecutorScheduler(THREAD_NAME + "-scheduler", false), null, -1, -1,
+                new HttpConnectionFactory());
+        connector.setHost("127.0.0.1");
+        server.addConnector(connector);
+        ServletContextHandler context = new ServletContextHandler();
+        context.addServlet(new ServletHolder(new StreamServlet()), "/ws/*");
+        context.addServlet(new ServletHolder(new RestServlet()), "/");
+        server.setHandler(context);
+        server.start();
+        log.info("Local exchange listening on {}.", getHttpUrl());
+        return this;
+    }
+
+    public SimulatorApi getSimulator() {
+        return simulator;
+    }
+
+    public int getPort() {
+        return ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    public String getHttpUrl() {
+        return "http://127.0.0.1:" + getPort() + "/";
+    }
+
+    /**
+     * Points an api at this server.
+     * @param api the api, not null.
+     * @return the api.
+     */
+    public DefaultApi configure(DefaultApi api) {
+        api.setBaseUrl(getHttpUrl() + "api/");
+        api.setBaseSapiUrl(getHttpUrl() + "sapi/");
+        api.setBaseVapiUrl(getHttpUrl() + "vapi/");
+        api.setBaseWapiUrl(getHttpUrl() + "wapi/");
+        api.setWebsocketBaseUrl("ws://127.0.0.1:" + getPort() + "/ws/");
+        return api;
+    }
+
+    /**
+     * Stops the server.
+     * @throws ApiException if the server cannot be stopped.
+     */
+    @Override
+    public void close() throws ApiException {
+        if (server != null) {
+            try {
+                server.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                throw new ApiException("Cannot stop local exchange: " + e);
+            }
+        }
+    }
+
+    private static final class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        final int code;
+
+        RequestException(int status, int code, String message) {
+            super(message);
+            this.status = status;
+            this.code = code;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class RestServlet extends HttpServlet {
+        @Override
+        protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            int status = 200;
+            String body;
+            try {
+                body = gson.toJson(handle(req.getMethod(), req.getRequestURI(), req, resp));
+            } catch (RequestException e) {
+                status = e.status;
+                body = error(e.code, e.getMessage());
+            } catch (ApiException e) {
+                status = 400;
+                Matcher m = API_ERROR.matcher(String.valueOf(e.getMessage()));
+                body = m.matches() ? error(Integer.parseInt(m.group(1)), m.group(2)) : error(-1013, e.getMessage());
+            } catch (RuntimeException e) {
+                log.warn("Request {} {} failed.", req.getMethod(), req.getRequestURI(), e);
+                status = 500;
+                body = error(-1000, String.valueOf(e.getMessage()));
+            }
+            resp.setStatus(status);
+            resp.setContentType("application/json;charset=UTF-8");
+            resp.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String error(int code, String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("msg", message);
+        return gson.toJson(error);
+    }
+
+    private JsonElement handle(String method, String path, HttpServletRequest req, HttpServletResponse resp)
+            throws RequestException {
+        String symbol = req.getParameter("symbol");
+        switch (method + " " + path) {
+            case "GET /api/v1/ping":
+            case "GET /api/v3/ping":
+                weigh(resp, 1, false);
+                return new JsonObject();
+            case "GET /api/v1/time":
+            case "GET /api/v3/time": {
+                weigh(resp, 1, false);
+                JsonObject time = new JsonObject();
+                time.addProperty("serverTime", simulator.getServerTime());
+                return time;
+            }
+            case "GET /api/v3/exchangeInfo": {
+                weigh(resp, 10, false);
+                JsonObject info = exchangeInfo.deepCopy();
+                info.addProperty("serverTime", simulator.getServerTime());
+                return info;
+            }
+            case "GET /api/v1/depth":
+            case "GET /api/v3/depth":
+                weigh(resp, 1, false);
+                return depth(required(req, "symbol"), intParameter(req, "limit", 100));
+            case "GET /api/v3/aggTrades":
+                weigh(resp, 1, false);
+                return gson.toJsonTree(simulator.getAggregatedTrades(AggregatedTradesRequest.builder()
+                        .symbol(required(req, "symbol"))
+                        .fromId(longParameter(req, "fromId"))
+                        .startTime(longParameter(req, "startTime"))
+                        .endTime(longParameter(req, "endTime"))
+                        .limit(intParameter(req, "limit", 500))
+                        .build()));
+            case "GET /api/v3/klines":
+                weigh(resp, 1, false);
+                return klines(simulator.getCandlestickBars(CandlesticksRequest.builder()
+                        .symbol(required(req, "symbol"))
+                        .interval(Interval.lookup(required(req, "interval")))
+                        .startTime(longParameter(req, "startTime"))
+                        .endTime(longParameter(req, "endTime"))
+                        .limit(intParameter(req, "limit", 500))
+                        .build()));
+            case "GET /api/v3/ticker/price":
+                if (symbol != null) {
+                    weigh(resp, 1, false);
+                    return price(symbol, simulator.getPrice(symbol));
+                } else {
+                    weigh(resp, 2, false);
+                    JsonArray prices = new JsonArray();
+                    simulator.getPrices().forEach((s, p) -> prices.add(price(s, p)));
+                    return prices;
+                }
+            case "GET /sapi/v1/system/status": {
+                weigh(resp, 1, false);
+                SystemStatus systemStatus = simulator.getSystemStatus();
+                JsonObject status = new JsonObject();
+                status.addProperty("status", systemStatus.getStatus());
+                status.addProperty("msg", systemStatus.getMessage());
+                return status;
+            }
+            case "POST /api/v3/userDataStream": {
+                authenticate(req);
+                weigh(resp, 1, false);
+                JsonObject key = new JsonObject();
+                key.addProperty("listenKey", simulator.startUserDataStream());
+                return key;
+            }
+            case "PUT /api/v3/userDataStream":
+                authenticate(req);
+                weigh(resp, 1, false);
+                simulator.keepUserDataStream(required(req, "listenKey"));
+                return new JsonObject();
+            case "DELETE /api/v3/userDataStream":
+                authenticate(req);
+                weigh(resp, 1, false);
+                simulator.deleteUserDataStream(required(req, "listenKey"));
+                return new JsonObject();
+            default:
+                return handleSigned(method, path, req, resp);
+        }
+    }
+
+    private JsonElement handleSigned(String method, String path, HttpServletRequest req, HttpServletResponse resp)
+            throws RequestException {
+        switch (method + " " + path) {
+            case "GET /api/v3/account":
+                verify(req);
+                weigh(resp, 10, false);
+                return account(simulator.getAccount());
+            case "GET /sapi/v1/asset/tradeFee": {
+                verify(req);
+                weigh(resp, 1, false);
+                TradeFee fee = simulator.getTradeFee(required(req, "symbol"), null);
+                JsonObject json = new JsonObject();
+                json.addProperty("symbol", fee.getSymbol());
+                json.addProperty("makerCommission", fee.getMakerCommission());
+                json.addProperty("takerCommission", fee.getTakerCommission());
+                JsonArray fees = new JsonArray();
+                fees.add(json);
+                return fees;
+            }
+            case "POST /api/v3/order/test":
+                verify(req);
+                weigh(resp, 1, false);
+                placement(req).getAsParameters();
+                return new JsonObject();
+            case "POST /api/v3/order": {
+                verify(req);
+                weigh(resp, 1, true);
+                OrderRef ref = simulator.createOrder(placement(req));
+                JsonObject json = new JsonObject();
+                json.addProperty("symbol", ref.getSymbol());
+                json.addProperty("orderId", ref.getOrderId());
+                json.addProperty("orderListId", -1);
+                json.addProperty("clientOrderId", ref.getClientOrderId());
+                json.addProperty("transactTime", ref.getTransactTime());
+                return json;
+            }
+            case "GET /api/v3/order":
+                verify(req);
+                weigh(resp, 2, false);
+                return gson.toJsonTree(simulator.getOrder(OrderRequest.builder()
+                        .symbol(required(req, "symbol"))
+                        .orderId(longParameter(req, "orderId"))
+                        .origClientOrderId(req.getParameter("origClientOrderId"))
+                        .build()));
+            case "DELETE /api/v3/order": {
+                verify(req);
+                weigh(resp, 1, false);
+                String symbol = required(req, "symbol");
+                Long orderId = longParameter(req, "orderId");
+                if (orderId != null) {
+                    return gson.toJsonTree(simulator.deleteOrderById(symbol, orderId));
+                }
+                String clientOrderId = req.getParameter("origClientOrderId");
+                if (clientOrderId == null) {
+                    clientOrderId = required(req, "newClientOrderId");
+                }
+                return gson.toJsonTree(simulator.deleteOrderByClientOrderId(symbol, clientOrderId));
+            }
+            case "GET /api/v3/openOrders": {
+                verify(req);
+                String symbol = req.getParameter("symbol");
+                weigh(resp, symbol == null ? 40 : 3, false);
+                if (symbol == null) {
+                    return gson.toJsonTree(simulator.getOpenOrders());
+                }
+                return gson.toJsonTree(simulator.getOpenOrders(OpenOrderRequest.builder()
+                        .symbol(symbol)
+                        .limit(intParameter(req, "limit", 500))
+                        .offset(intParameter(req, "offset", 0))
+                        .build()));
+            }
+            case "DELETE /api/v3/openOrders":
+                verify(req);
+                weigh(resp, 1, false);
+                return gson.toJsonTree(simulator.cancelOpenOrder(DeleteOrderRequest.builder()
+                        .symbol(required(req, "symbol"))
+                        .build()));
+            case "GET /api/v3/allOrders":
+                verify(req);
+                weigh(resp, 10, false);
+                return gson.toJsonTree(simulator.getOrders(AllOrderRequest.builder()
+                        .symbol(required(req, "symbol"))
+                        .orderId(longParameter(req, "orderId"))
+                        .startTime(longParameter(req, "startTime"))
+                        .endTime(longParameter(req, "endTime"))
+                        .limit(intParameter(req, "limit", 500))
+                        .build()));
+            case "GET /api/v3/myTrades": {
+                verify(req);
+                weigh(resp, 10, false);
+                Long orderId = longParameter(req, "orderId");
+                return gson.toJsonTree(simulator.getMyTrades(TradesRequest.builder()
+                        .symbol(required(req, "symbol"))
+                        .orderId(orderId == null ? null : orderId.intValue())
+                        .fromId(longParameter(req, "fromId"))
+                        .startTime(longParameter(req, "startTime"))
+                        .endTime(longParameter(req, "endTime"))
+                        .limit(intParameter(req, "limit", 500))
+                        .build()));
+            }
+            default:
+                throw new RequestException(404, -1000, "Unsupported request: " + method + " " + path);
+        }
+    }
+
+    private void authenticate(HttpServletRequest req) throws RequestException {
+        if (!apiKey.equals(req.getHeader("X-MBX-APIKEY"))) {
+            throw new RequestException(401, -2015, "Invalid API-key, IP, or permissions for action.");
+        }
+    }
+
+    /** Verifies the api key, the HMAC signature of the query and the timestamp. */
+    private void verify(HttpServletRequest req) throws RequestException {
+        authenticate(req);
+        String query = req.getQueryString();
+        int index = query == null ? -1 : query.lastIndexOf("&signature=");
+        if (index < 0) {
+            throw new RequestException(400, -1102, "Mandatory parameter 'signature' was not sent, was empty/null, "
+                    + "or malformed.");
+        }
+        String expected;
+        try {
+            expected = WebRequest.encode(secretKey, query.substring(0, index));
+        } catch (Exception e) {
+            throw new RequestException(500, -1000, e.toString());
+        }
+        if (!expected.equals(query.substring(index + "&signature=".length()))) {
+            throw new RequestException(400, -1022, "Signature for this request is not valid.");
+        }
+        Long timestamp = longParameter(req, "timestamp");
+        if (timestamp == null) {
+            throw new RequestException(400, -1102, "Mandatory parameter 'timestamp' was not sent, was empty/null, "
+                    + "or malformed.");
+        }
+        Long recvWindow = longParameter(req, "recvWindow");
+        long serverTime = simulator.getServerTime();
+        if (verifyTimestamps && (timestamp >= serverTime + 1000
+                || serverTime - timestamp > (recvWindow == null ? 5000 : recvWindow))) {
+            throw new RequestException(400, -1021, "Timestamp for this request is outside of the recvWindow.");
+        }
+    }
+
+    /** Accounts the request weight and sets the weight headers. */
+    private void weigh(HttpServletResponse resp, int weight, boolean order) throws RequestException {
+        int used;
+        int orders;
+        synchronized (weightLock) {
+            long minute = System.currentTimeMillis() / MINUTE;
+            if (minute != weightMinute) {
+                weightMinute = minute;
+                usedWeight = 0;
+                orderCount = 0;
+            }
+            usedWeight += weight;
+            orderCount += order ? 1 : 0;
+            used = usedWeight;
+            orders = orderCount;
+        }
+        resp.setHeader("X-MBX-USED-WEIGHT-1M", Integer.toString(used));
+        if (order) {
+            resp.setHeader("X-MBX-ORDER-COUNT-1M", Integer.toString(orders));
+        }
+        if (used > weightLimit) {
+            resp.setHeader("Retry-After", Long.toString(MINUTE / 1000 - (System.currentTimeMillis() % MINUTE) / 1000));
+            throw new RequestException(429, -1003, "Too much request weight used; current limit is " + weightLimit
+                    + " request weight per 1 MINUTE.");
+        }
+    }
+
+    private static String required(HttpServletRequest req, String name) throws RequestException {
+        String value = req.getParameter(name);
+        if (value == null || value.isEmpty()) {
+            throw new RequestException(400, -1102, "Mandatory parameter '" + name + "' was not sent, was empty/null, "
+                    + "or malformed.");
+        }
+        return value;
+    }
+
+    private static Long longParameter(HttpServletRequest req, String name) throws RequestException {
+        String value = req.getParameter(name);
+        try {
+            return value == null ? null : Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, -1100, "Illegal characters found in parameter '" + name + "'.");
+        }
+    }
+
+    private static int intParameter(HttpServletRequest req, String name, int defaultValue) throws RequestException {
+        Long value = longParameter(req, name);
+        return value == null ? defaultValue : value.intValue();
+    }
+
+    private static Double doubleParameter(HttpServletRequest req, String name) throws RequestException {
+        String value = req.getParameter(name);
+        try {
+            return value == null ? null : Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, -1100, "Illegal characters found in parameter '" + name + "'.");
+        }
+    }
+
+    private static OrderPlacement placement(HttpServletRequest req) throws RequestException {
+        try {
+            OrderPlacement placement = new OrderPlacement(required(req, "symbol"),
+                    OrderSide.valueOf(required(req, "side")));
+            placement.setType(OrderType.valueOf(required(req, "type")));
+            String timeInForce = req.getParameter("timeInForce");
+            if (timeInForce != null) {
+                placement.setTimeInForce(TimeInForce.valueOf(timeInForce));
+            }
+            placement.setQuantity(doubleParameter(req, "quantity"));
+            placement.setQuoteOrderQty(doubleParameter(req, "quoteOrderQty"));
+            placement.setPrice(doubleParameter(req, "price"));
+            placement.setStopPrice(doubleParameter(req, "stopPrice"));
+            placement.setIcebergQty(doubleParameter(req, "icebergQty"));
+            String clientOrderId = req.getParameter("newClientOrderId");
+            if (clientOrderId != null) {
+                placement.setNewClientOrderId(clientOrderId);
+            }
+            return placement;
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, -1115, "Invalid parameter: " + e.getMessage());
+        }
+    }
+
+    /** The levels of the simulated book up to the limit, else the best levels of the simulator. */
+    private JsonObject depth(String symbol, int limit) {
+        MatchingEngine engine = simulator.getTestOrderManager().getMatchingEngine();
+        List<BidOrAsk> bids = engine.getDepthLevels(symbol, BidType.BID, limit);
+        List<BidOrAsk> asks = engine.getDepthLevels(symbol, BidType.ASK, limit);
+        if (bids.isEmpty() || asks.isEmpty()) {
+            Depth depth = simulator.getDepth(symbol);
+            bids = Collections.singletonList(depth.getBids());
+            asks = Collections.singletonList(depth.getAsks());
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("lastUpdateId", updateId.incrementAndGet());
+        json.add("bids", levels(bids));
+        json.add("asks", levels(asks));
+        return json;
+    }
+
+    private static JsonArray levels(List<BidOrAsk> levels) {
+        JsonArray array = new JsonArray();
+        for (BidOrAsk level : levels) {
+            if (level != null && level.getPrice() != null) {
+                JsonArray entry = new JsonArray();
+                entry.add(decimal(level.getPrice()));
+                entry.add(decimal(level.getQuantity()));
+                array.add(entry);
+            }
+        }
+        return array;
+    }
+
+    private static JsonArray klines(List<Candlestick> candles) {
+        JsonArray klines = new JsonArray();
+        for (Candlestick c : candles) {
+            JsonArray kline = new JsonArray();
+            kline.add(c.getOpenTime());
+            kline.add(decimal(c.getOpen()));
+            kline.add(decimal(c.getHigh()));
+            kline.add(decimal(c.getLow()));
+            kline.add(decimal(c.getClose()));
+            kline.add(decimal(c.getVolume()));
+            kline.add(c.getCloseTime());
+            kline.add(decimal(c.getQuoteAssetVolume()));
+            kline.add(c.getNumberOfTrades() == null ? 0 : c.getNumberOfTrades());
+            kline.add(decimal(c.getTakerBuyBaseAssetVolume()));
+            kline.add(decimal(c.getTakerBuyQuoteAssetVolume()));
+            kline.add("0");
+            klines.add(kline);
+        }
+        return klines;
+    }
+
+    private static JsonObject price(String symbol, Double price) {
+        JsonObject json = new JsonObject();
+        json.addProperty("symbol", symbol);
+        json.addProperty("price", decimal(price));
+        return json;
+    }
+
+    private static JsonObject account(Account account) {
+        JsonObject json = new JsonObject();
+        json.addProperty("makerCommission", orZero(account.getMakerCommission()));
+        json.addProperty("takerCommission", orZero(account.getTakerCommission()));
+        json.addProperty("buyerCommission", orZero(account.getBuyerCommission()));
+        json.addProperty("sellerCommission", orZero(account.getSellerCommission()));
+        json.addProperty("canTrade", account.isCanTrade());
+        json.addProperty("canWithdraw", account.isCanWithdraw());
+        json.addProperty("canDeposit", account.isCanDeposit());
+        json.addProperty("updateTime", account.getUpdateTime() == null ? 0 : account.getUpdateTime());
+        json.addProperty("accountType", account.getAccountType() == null ? "SPOT" : account.getAccountType());
+        JsonArray balances = new JsonArray();
+        for (Map.Entry<String, Asset> en : account.getAssets().entrySet()) {
+            JsonObject balance = new JsonObject();
+            balance.addProperty("asset", en.getKey());
+            balance.addProperty("free", decimal(en.getValue().getFree()));
+            balance.addProperty("locked", decimal(en.getValue().getLocked()));
+            balances.add(balance);
+        }
+        json.add("balances", balances);
+        JsonArray permissions = new JsonArray();
+        account.getPermissions().forEach(permissions::add);
+        if (permissions.size() == 0) {
+            permissions.add("SPOT");
+        }
+        json.add("permissions", permissions);
+        return json;
+    }
+
+    private static double orZero(Double value) {
+        return value == null ? 0 : value;
+    }
+
+    /** Decimals are sent as strings, like the exchange does. */
+    private static String decimal(Double value) {
+        if (value == null || value.isNaN() || value.isInfinite()) {
+            return "0";
+        }
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+
+    @SuppressWarnings("serial")
+    private class StreamServlet extends WebSocketServlet {
+        @Override
+        public void configure(WebSocketServletFactory factory) {
+            factory.setCreator((req, resp) -> new StreamSocket(req.getRequestPath().substring("/ws/".length())));
+        }
+    }
+
+    /** Forwards the frames the simulator pushes for a stream to the client. */
+    private class StreamSocket extends WebSocketAdapter {
+        private final String stream;
+        private Session simulatorSession;
+
+        StreamSocket(String stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void onWebSocketConnect(Session session) {
+            super.onWebSocketConnect(session);
+            simulatorSession = simulator.getWebsocketSession(stream, new WebSocketAdapter() {
+                @Override
+                public void onWebSocketText(String message) {
+                    send(message);
+                }
+            });
+        }
+
+        private synchronized void send(String message) {
+            if (isConnected()) {
+                try {
+                    getRemote().sendString(message);
+                } catch (IOException e) {
+                    log.debug("Cannot send to {}: {}", stream, e.toString());
+                }
+            }
+        }
+
+        @Override
+        public void onWebSocketClose(int statusCode, String reason) {
+            if (simulatorSession != null) {
+                simulatorSession.close();
+            }
+            super.onWebSocketClose(statusCode, reason);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.webcerebrium.binance.server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.api.DefaultApi;
+import com.webcerebrium.binance.api.SimulatorApi;
+import com.webcerebrium.binance.api.TestAccountManager;
+import com.webcerebrium.binance.candles.ArrayCandleSeries;
+import com.webcerebrium.binance.candles.CandleSeries;
+import com.webcerebrium.binance.datatype.*;
+import com.webcerebrium.binance.datatype.events.ExecutionReportEvent;
+import com.webcerebrium.binance.datatype.events.OutboundAccountInfoEvent;
+import com.webcerebrium.binance.replay.RecordedMarketData;
+import com.webcerebrium.binance.websocket.WebSocketUserDataAdapter;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class LocalExchangeServerTest {
+
+    private static final long START = 1_599_999_960_000L;
+    private static final long MINUTE = Interval.ONE_MIN.toMillis();
+    static final String EXCHANGE_INFO = "{\"timezone\":\"UTC\",\"serverTime\":" + START
+            + ",\"rateLimits\":[],\"exchangeFilters\":[],\"symbols\":[{\"symbol\":\"BNBBTC\",\"status\":\"TRADING\","
+            + "\"baseAsset\":\"BNB\",\"baseAssetPrecision\":8,\"quoteAsset\":\"BTC\",\"quotePrecision\":8,"
+            + "\"baseCommissionPrecision\":8,\"quoteCommissionPrecision\":8,\"orderTypes\":[\"LIMIT\",\"MARKET\"],"
+            + "\"icebergAllowed\":true,\"ocoAllowed\":true,\"quoteOrderQtyMarketAllowed\":true,"
+            + "\"isSpotTradingAllowed\":true,\"isMarginTradingAllowed\":false,\"filters\":[]}]}";
+
+    private LocalExchangeServer server;
+    private DefaultApi api;
+
+    /** Creates a server backed by an offline simulator, trading BNBBTC at 0.020. */
+    static LocalExchangeServer createServer() throws Exception {
+        JsonObject info = JsonParser.parseString(EXCHANGE_INFO).getAsJsonObject();
+        CandleSeries candles = new ArrayCandleSeries("BNBBTC", Interval.ONE_MIN, 100);
+        for (int i = 0; i < 100; i++) {
+            Candlestick candle = new Candlestick("BNBBTC", Interval.ONE_MIN);
+            candle.setOpenTime(START + i * MINUTE);
+            candle.setCloseTime(START + (i + 1) * MINUTE - 1);
+            candle.setOpen(0.010 + i * 0.0001);
+            candle.setClose(0.010 + (i + 1) * 0.0001);
+            candle.setHigh(candle.getClose());
+            candle.setLow(candle.getOpen());
+            candle.setVolume(1.0);
+            candles.append(candle);
+        }
+        Map<String, Double> balances = new HashMap<>();
+        balances.put("BTC", 1.0);
+        balances.put("BNB", 0.0);
+        SimulatorApi simulator = new SimulatorApi(
+                new RecordedMarketData(new ExchangeInfo(info), Clock.systemUTC()).addCandles(candles),
+                TestAccountManager.createAccount(balances));
+        return new LocalExchangeServer(simulator, info, "key", "secret").start();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = createServer();
+        api = server.configure(new DefaultApi("key", "secret"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testMarketData() {
+        assertTrue(api.ping());
+        assertTrue(Math.abs(api.getServerTime() - System.currentTimeMillis()) < 5000);
+        assertEquals(1, api.getExchangeInfo().getSymbols().size());
+        List<Candlestick> candles = api.getCandlestickBars(CandlesticksRequest.builder()
+                .symbol("BNBBTC").interval(Interval.ONE_MIN).limit(10).build());
+        assertEquals(10, candles.size());
+        assertEquals(Long.valueOf(START + 99 * MINUTE), candles.get(9).getOpenTime());
+        assertEquals(0.020, candles.get(9).getClose(), 1e-12);
+        assertEquals(0.020, api.getPrice("BNBBTC"), 1e-12);
+        assertEquals(0.020, api.getPrices().get("BNBBTC"), 1e-12);
+        assertEquals(0, api.getSystemStatus().getStatus());
+    }
+
+    @Test
+    public void testDepthLimit() throws Exception {
+        List<BidOrAsk> bids = new ArrayList<>();
+        List<BidOrAsk> asks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            bids.add(level(BidType.BID, 0.0199 - i * 0.0001));
+            asks.add(level(BidType.ASK, 0.0201 + i * 0.0001));
+        }
+        server.getSimulator().getTestOrderManager().getMatchingEngine().onDepth("BNBBTC", bids, asks);
+        HttpURLConnection conn = (HttpURLConnection) new URL(server.getHttpUrl()
+                + "api/v3/depth?symbol=BNBBTC&limit=3").openConnection();
+        assertEquals(200, conn.getResponseCode());
+        JsonObject depth;
+        try (InputStream in = conn.getInputStream()) {
+            depth = JsonParser.parseString(new String(in.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+        }
+        assertEquals(3, depth.getAsJsonArray("bids").size());
+        assertEquals(3, depth.getAsJsonArray("asks").size());
+        assertEquals(0.0199, depth.getAsJsonArray("bids").get(0).getAsJsonArray().get(0).getAsDouble(), 1e-12);
+        assertEquals(0.0203, depth.getAsJsonArray("asks").get(2).getAsJsonArray().get(0).getAsDouble(), 1e-12);
+    }
+
+    private static BidOrAsk level(BidType type, double price) {
+        BidOrAsk level = new BidOrAsk();
+        level.setType(type);
+        level.setPrice(price);
+        level.setQuantity(2.0);
+        return level;
+    }
+
+    @Test
+    public void testTrading() throws Exception {
+        BlockingQueue<ExecutionReportEvent> reports = new LinkedBlockingQueue<>();
+        String listenKey = api.startUserDataStream();
+        Session session = api.websocket(listenKey, new WebSocketUserDataAdapter() {
+            @Override
+            public void onOutboundAccountInfo(OutboundAccountInfoEvent event) {
+            }
+
+            @Override
+            public void onExecutionReport(ExecutionReportEvent event) {
+                reports.add(event);
+            }
+        });
+
+        OrderPlacement market = new OrderPlacement("BNBBTC", OrderSide.BUY);
+        market.setType(OrderType.MARKET);
+        market.setQuantity(10.0);
+        OrderRef ref = api.createOrder(market);
+        assertNotNull(ref.getOrderId());
+        Order order = api.getOrder(ref);
+        assertEquals(OrderStatus.FILLED, order.getStatus());
+        assertEquals(10.0, order.getExecutedQty(), 1e-12);
+        Account account = api.getAccount();
+        assertEquals(10.0, account.getAsset("BNB").getFree(), 1e-12);
+        assertEquals(1 - 10 * 0.020 * 1.001, account.getAsset("BTC").getFree(), 1e-12);
+        assertEquals(1, api.getMyTrades(TradesRequest.builder().symbol("BNBBTC").build()).size());
+
+        OrderPlacement limit = new OrderPlacement("BNBBTC", OrderSide.SELL);
+        limit.setQuantity(5.0);
+        limit.setPrice(0.05);
+        limit.setNewClientOrderId("far away");
+        OrderRef resting = api.createOrder(limit);
+        assertEquals(1, api.getOpenOrders().size());
+        assertEquals(OrderStatus.CANCELED, api.deleteOrderById("BNBBTC", resting.getOrderId()).getStatus());
+        assertEquals(0, api.getOpenOrders().size());
+        assertEquals(2, api.getOrders("BNBBTC").size());
+
+        // NEW and TRADE of the market order, NEW and CANCELED of the limit order
+        for (ExecutionType type : new ExecutionType[]{ExecutionType.NEW, ExecutionType.TRADE, ExecutionType.NEW,
+                ExecutionType.CANCELED}) {
+            ExecutionReportEvent report = reports.poll(5, TimeUnit.SECONDS);
+            assertNotNull(report);
+            assertEquals(type, report.getExecutionType());
+        }
+        session.close();
+        api.deleteUserDataStream(listenKey);
+    }
+
+    @Test
+    public void testSignatureAndWeight() throws Exception {
+        DefaultApi forged = server.configure(new DefaultApi("key", "guessed"));
+        try {
+            forged.getAccount();
+            fail("forged signature accepted");
+        } catch (ApiException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("ERROR: -1022"));
+        }
+        DefaultApi late = server.configure(new DefaultApi("key", "secret"));
+        late.setServerTimeOffset(-60_000);
+        try {
+            late.getAccount();
+            fail("outdated timestamp accepted");
+        } catch (ApiException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("ERROR: -1021"));
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(server.getHttpUrl() + "api/v3/exchangeInfo")
+                .openConnection();
+        assertEquals(200, conn.getResponseCode());
+        int used = Integer.parseInt(conn.getHeaderField("X-MBX-USED-WEIGHT-1M"));
+        assertTrue(used >= 10);
+        conn.getInputStream().close();
+
+        server.setWeightLimit(used + 10);
+        api.getExchangeInfo();
+        try {
+            api.getExchangeInfo();
+            fail("weight limit not enforced");
+        } catch (ApiException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("ERROR: -1003"));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.webcerebrium.binance.websocket;
+
+import com.webcerebrium.binance.api.Api;
+import com.webcerebrium.binance.api.ApiException;
+import com.webcerebrium.binance.datatype.events.DepthLevelUpdateEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class ConflatedDepthLevelsTest {
+
+    private static String depthFrame(long lastUpdateId, String bidPrice) {
+        return "{\"lastUpdateId\":" + lastUpdateId + ",\"bids\":[[\"" + bidPrice + "\",\"1.5\"]],"
+                + "\"asks\":[[\"0.0134\",\"2\"]]}";
+    }
+
+    @Test
+    public void testLatestValue() {
+        ConflatedDepthLevels levels = new ConflatedDepthLevels();
+        ConflatingDepthLevelAdapter bnb = levels.getAdapter("BNBBTC");
+        assertSame(bnb, levels.getAdapter("bnbbtc"));
+        ConflatingDepthLevelAdapter eth = levels.getAdapter("ETHBTC");
+        assertNull(levels.poll("BNBBTC"));
+        assertNull(levels.poll("LTCBTC"));
+
+        // a burst, only the newest frame is kept
+        for (int i = 1; i <= 100; i++) {
+            bnb.onWebSocketText(depthFrame(i, "0.0133"));
+        }
+        eth.onWebSocketText(depthFrame(7, "0.031"));
+        assertTrue(bnb.hasUpdate());
+
+        Map<String, DepthLevelUpdateEvent> books = new HashMap<>();
+        assertEquals(2, levels.pollAll(books::put));
+        assertEquals(Long.valueOf(100), books.get("BNBBTC").getLastUpdateId());
+        assertEquals(0.031, books.get("ETHBTC").getBids().get(0).getPrice(), 1e-12);
+        assertEquals(0, levels.pollAll(books::put));
+        assertNull(bnb.poll());
+
+        StreamSnapshot snapshot = bnb.getStreamMetrics().snapshot();
+        log.info("{}", snapshot);
+        assertEquals(100, snapshot.getMessages());
+        assertEquals(99, snapshot.getConflatedEvents());
+        assertEquals(0, eth.getStreamMetrics().snapshot().getConflatedEvents());
+
+        bnb.onWebSocketText(depthFrame(101, "0.0135"));
+        assertEquals(Long.valueOf(101), levels.poll("BNBBTC").getLastUpdateId());
+        assertEquals(0, bnb.getStreamMetrics().snapshot().getConflatedEvents());
+    }
+
+    @Test
+    public void testInvalidFrame() {
+        ConflatingDepthLevelAdapter adapter = new ConflatingDepthLevelAdapter();
+        adapter.onWebSocketText("{not json");
+        try {
+            adapter.poll();
+            fail("invalid frame decoded");
+        } catch (ApiException e) {
+            // expected
+        }
+        assertEquals(1, adapter.getStreamMetrics().snapshot().getErrors());
+        assertNull(adapter.poll());
+    }
+
+    @Test(expected = ApiException.class)
+    public void testInvalidLevels() {
+        new ConflatedDepthLevels().subscribe(Mockito.mock(Api.class), "BNBBTC", 7);
+    }
+}
@@ -0,0 +1,162 @@
+package com.webcerebrium.binance.websocket;
+
+import com.webcerebrium.binance.datatype.events.DepthLevelUpdateEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class EventDispatcherTest {
+
+    private static String depthFrame(long lastUpdateId) {
+        return "{\"lastUpdateId\":" + lastUpdateId + ",\"bids\":[[\"0.0133\",\"1.5\"]],\"asks\":[[\"0.0134\",\"2\"]]}";
+    }
+
+    /** A handler that blocks on the first event until released. */
+    private static class BlockingHandler implements Consumer<Integer> {
+        final List<Integer> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done;
+
+        BlockingHandler(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void accept(Integer event) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event);
+            done.countDown();
+        }
+    }
+
+    private static EventDispatcher<Integer> start(OverflowPolicy policy, BlockingHandler handler) throws Exception {
+        EventDispatcher<Integer> dispatcher = new EventDispatcher<>(4, policy, WaitStrategy.BLOCKING);
+        dispatcher.start("test", new StreamMetrics(), handler);
+        dispatcher.publish(1);
+        assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 2; i <= 20; i++) {
+            dispatcher.publish(i);
+        }
+        assertEquals(4, dispatcher.getDepth());
+        handler.release.countDown();
+        return dispatcher;
+    }
+
+    @Test
+    public void testOrderAndBlocking() throws Exception {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            List<Integer> events = new ArrayList<>();
+            EventDispatcher<Integer> dispatcher = new EventDispatcher<>(6, OverflowPolicy.BLOCK, strategy);
+            assertEquals(8, dispatcher.getCapacity());
+            dispatcher.start("test", new StreamMetrics(), event -> {
+                if (event % 100 == 0) {
+                    Thread.yield();
+                }
+                events.add(event);
+            });
+            for (int i = 0; i < 2_000; i++) {
+                assertTrue(dispatcher.publish(i));
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (dispatcher.getDispatched() < 2_000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            dispatcher.close();
+            assertFalse(dispatcher.publish(-1));
+            assertEquals(strategy.name(), 2_000, events.size());
+            for (int i = 0; i < events.size(); i++) {
+                assertEquals(Integer.valueOf(i), events.get(i));
+            }
+            assertEquals(2_000, dispatcher.getDispatched());
+            assertEquals(1, dispatcher.getDropped());
+        }
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        BlockingHandler handler = new BlockingHandler(5);
+        EventDispatcher<Integer> dispatcher = start(OverflowPolicy.DROP_OLDEST, handler);
+        assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 17, 18, 19, 20), handler.events);
+        assertEquals(15, dispatcher.getDropped());
+        assertEquals(0, dispatcher.getConflated());
+        dispatcher.close();
+    }
+
+    @Test
+    public void testConflate() throws Exception {
+        BlockingHandler handler = new BlockingHandler(2);
+        EventDispatcher<Integer> dispatcher = start(OverflowPolicy.CONFLATE, handler);
+        assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+        dispatcher.close();
+        assertEquals(Arrays.asList(1, 20), handler.events);
+        assertEquals(18, dispatcher.getConflated());
+        assertEquals(0, dispatcher.getDropped());
+    }
+
+    @Test
+    public void testSlowHandlerDoesNotBlockReceiving() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> updates = Collections.synchronizedList(new ArrayList<>());
+        WebSocketDepthLevelAdapter adapter = new WebSocketDepthLevelAdapter() {
+            @Override
+            public void onMessage(DepthLevelUpdateEvent event) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                updates.add(event.getLastUpdateId());
+            }
+        };
+        adapter.setDispatcher(new EventDispatcher<>(8, OverflowPolicy.DROP_OLDEST, WaitStrategy.SLEEPING));
+        adapter.getStreamMetrics().bind("bnbbtc@depth5", System::currentTimeMillis);
+        StreamMonitor monitor = new StreamMonitor();
+        monitor.add(adapter);
+        List<StreamAlert> alerts = new ArrayList<>();
+        monitor.addListener(alerts::add);
+
+        // the handler is stuck, frames are still received
+        adapter.onWebSocketText(depthFrame(1));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        for (int i = 2; i <= 100; i++) {
+            adapter.onWebSocketText(depthFrame(i));
+        }
+        StreamSnapshot snapshot = monitor.poll().get(0);
+        log.info("{}", snapshot);
+        assertEquals(100, snapshot.getMessages());
+        assertEquals(8, snapshot.getQueueDepth());
+        assertEquals(8, snapshot.getMaxQueueDepth());
+        // the first update is in the handler, 8 are pending
+        assertEquals(91, snapshot.getDroppedEvents());
+        assertEquals(1, alerts.size());
+        assertEquals(StreamAlert.Type.DROPPED, alerts.get(0).getType());
+
+        release.countDown();
+        adapter.getDispatcher().close();
+        assertEquals(Arrays.asList(1L, 93L, 94L, 95L, 96L, 97L, 98L, 99L, 100L), updates);
+        snapshot = monitor.poll().get(0);
+        assertEquals(0, snapshot.getQueueDepth());
+        assertEquals(0, snapshot.getDroppedEvents());
+        assertTrue(snapshot.getQueueWaitP99Micros() > 0);
+        assertTrue(snapshot.getHandlerP99Micros() > 0);
+    }
+}
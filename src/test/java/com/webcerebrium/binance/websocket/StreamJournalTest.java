@@ -0,0 +1,115 @@
+package com.webcerebrium.binance.websocket;
+
+import com.webcerebrium.binance.datatype.events.AggregatedTradeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class StreamJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testConcurrentAppendAndRoll() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        int threads = 4;
+        int perThread = 5_000;
+        try (StreamJournal journal = new StreamJournal(dir, 64 * 1024, 0, 10)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                int id = journal.register("stream" + t);
+                executor.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(id, "{\"s\":" + id + ",\"n\":" + i + "}");
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            assertEquals(threads * perThread, journal.getFrameCount());
+        }
+        assertTrue(StreamJournal.getSegments(dir).size() > 5);
+
+        Map<String, Integer> next = new HashMap<>();
+        long[] last = {0};
+        long count = StreamJournal.read(dir, (stream, timestamp, frame) -> {
+            int n = next.getOrDefault(stream, 0);
+            // frames of each stream keep their order across segments
+            assertEquals("{\"s\":" + stream.substring(6) + ",\"n\":" + n + "}", frame);
+            next.put(stream, n + 1);
+            assertTrue(timestamp >= last[0]);
+            last[0] = timestamp;
+        });
+        assertEquals(threads * perThread, count);
+        assertEquals(4, next.size());
+    }
+
+    @Test
+    public void testUtf8AndTimeRoll() {
+        Path dir = folder.getRoot().toPath();
+        String text = "{\"m\":\"ascii éß € 🚀 end\"}";
+        long start = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        try (StreamJournal journal = new StreamJournal(dir, 1024 * 1024, 1000, 0)) {
+            int id = journal.register("bnbbtc@aggTrade");
+            journal.append(id, start, text);
+            journal.append(id, start + TimeUnit.MILLISECONDS.toNanos(500), text);
+            // more than the roll interval after the segment start
+            journal.append(id, start + TimeUnit.MILLISECONDS.toNanos(1500), text);
+            long now = journal.currentTimeNanos();
+            assertTrue(Math.abs(now - TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()))
+                    < TimeUnit.SECONDS.toNanos(1));
+        }
+        assertEquals(2, StreamJournal.getSegments(dir).size());
+        List<String> frames = new ArrayList<>();
+        List<Long> times = new ArrayList<>();
+        StreamJournal.read(dir, (stream, timestamp, frame) -> {
+            assertEquals("bnbbtc@aggTrade", stream);
+            frames.add(frame);
+            times.add(timestamp);
+        });
+        assertEquals(3, frames.size());
+        assertTrue(frames.stream().allMatch(text::equals));
+        assertEquals(Long.valueOf(start + TimeUnit.MILLISECONDS.toNanos(1500)), times.get(2));
+    }
+
+    @Test
+    public void testRecordingListener() {
+        Path dir = folder.getRoot().toPath();
+        List<AggregatedTradeEvent> events = new ArrayList<>();
+        String frame = "{\"e\":\"aggTrade\",\"E\":1,\"s\":\"BNBBTC\",\"a\":5,\"p\":\"0.001\",\"q\":\"100\",\"f\":1,"
+                + "\"l\":2,\"T\":1,\"m\":true,\"M\":true}";
+        RecordingWebSocketListener listener;
+        try (StreamJournal journal = new StreamJournal(dir)) {
+            listener = new RecordingWebSocketListener(journal, "bnbbtc@aggTrade",
+                    new WebSocketAggTradesAdapter() {
+                        @Override
+                        public void onMessage(AggregatedTradeEvent event) {
+                            events.add(event);
+                        }
+                    });
+            listener.onWebSocketConnect(Mockito.mock(Session.class));
+            listener.onWebSocketText(frame);
+            listener.onWebSocketText(frame);
+        }
+        // frames after the journal is closed are still handled, but not recorded
+        listener.onWebSocketText(frame);
+        assertEquals(3, events.size());
+        assertEquals(2, StreamJournal.read(dir, (stream, timestamp, f) -> assertEquals(frame, f)));
+    }
+}
@@ -0,0 +1,92 @@
+package com.webcerebrium.binance.websocket;
+
+import com.webcerebrium.binance.datatype.events.DepthUpdateEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class StreamMonitorTest {
+
+    private static final long START = 1_600_000_000_000L;
+
+    private static String depthFrame(long eventTime, long first, long last) {
+        return "{\"e\":\"depthUpdate\",\"E\":" + eventTime + ",\"s\":\"BNBBTC\",\"U\":" + first + ",\"u\":" + last
+                + ",\"b\":[[\"0.0133\",\"1.5\"]],\"a\":[[\"0.0134\",\"0\"]]}";
+    }
+
+    @Test
+    public void testStreamMetricsAndAlerts() {
+        AtomicLong clock = new AtomicLong(START);
+        List<DepthUpdateEvent> events = new ArrayList<>();
+        WebSocketDepthAdapter adapter = new WebSocketDepthAdapter() {
+            @Override
+            public void onMessage(DepthUpdateEvent event) {
+                events.add(event);
+            }
+        };
+        adapter.getStreamMetrics().bind("bnbbtc@depth", clock::get);
+        adapter.onWebSocketConnect(Mockito.mock(Session.class));
+        adapter.onWebSocketConnect(Mockito.mock(Session.class));
+
+        StreamMonitor monitor = new StreamMonitor();
+        monitor.setMaxLagMillis(40);
+        monitor.setMaxSilenceMillis(5_000);
+        monitor.add(adapter);
+        List<StreamAlert> alerts = new ArrayList<>();
+        monitor.addListener(alerts::add);
+        assertEquals(-1, monitor.poll().get(0).getSilenceMillis());
+
+        long bytes = 0;
+        long sequence = 100;
+        for (int i = 0; i < 10; i++) {
+            // the frames arrive 50ms after their event time, update 105 is missing
+            long first = i == 5 ? sequence + 2 : sequence + 1;
+            sequence = first + 2;
+            String frame = depthFrame(clock.get() - 50, first, sequence);
+            bytes += frame.length();
+            adapter.onWebSocketText(frame);
+            clock.addAndGet(100);
+        }
+        adapter.onWebSocketText("{not json");
+        clock.addAndGet(900);
+
+        StreamSnapshot snapshot = monitor.poll().get(0);
+        log.info("{}", snapshot);
+        assertEquals(10, events.size());
+        assertEquals("bnbbtc@depth", snapshot.getStream());
+        assertEquals(10, snapshot.getMessages());
+        assertEquals(bytes, snapshot.getBytes());
+        assertEquals(1900, snapshot.getIntervalMillis());
+        assertEquals(10 / 1.9, snapshot.getMessagesPerSecond(), 1e-9);
+        assertEquals(50, snapshot.getLagP50Millis());
+        assertEquals(50, snapshot.getLagMaxMillis());
+        assertEquals(100, snapshot.getMaxGapMillis());
+        assertEquals(1000, snapshot.getSilenceMillis());
+        assertEquals(1, snapshot.getSequenceGaps());
+        assertEquals(1, snapshot.getReconnects());
+        assertEquals(1, snapshot.getErrors());
+        assertTrue(snapshot.getDecodeP99Micros() > 0);
+        assertEquals(2, alerts.size());
+        assertEquals(StreamAlert.Type.LAG, alerts.get(0).getType());
+        assertEquals(StreamAlert.Type.SEQUENCE_GAP, alerts.get(1).getType());
+
+        // the next interval has no messages, only the silence is reported
+        alerts.clear();
+        clock.addAndGet(10_000);
+        snapshot = monitor.poll().get(0);
+        assertEquals(0, snapshot.getMessages());
+        assertEquals(0, snapshot.getSequenceGaps());
+        assertEquals(10, snapshot.getTotalMessages());
+        assertEquals(1, alerts.size());
+        assertEquals(StreamAlert.Type.SILENCE, alerts.get(0).getType());
+        assertEquals(11_000, alerts.get(0).getValue());
+    }
+}